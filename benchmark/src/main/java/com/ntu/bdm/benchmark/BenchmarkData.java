@@ -0,0 +1,120 @@
+package com.ntu.bdm.benchmark;
+
+import com.ntu.bdm.manager.ColumnVectorManager;
+import com.ntu.bdm.util.CSVRowReader;
+import com.ntu.bdm.util.TimestampUtil;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/********************************************************
+ * BenchmarkData is utility class which contains just
+ * static methods and cannot be instantiated. It prepares
+ * the input files and column vectors shared by the
+ * benchmarks.
+ *
+ ********************************************************/
+public class BenchmarkData {
+
+  private static final String EMPTY_DATA_SYMBOL = "M";
+  private static final int FIELD_COUNT = 5;
+
+  private BenchmarkData() {
+  }
+
+  /**
+   * Generate a synthetic input CSV file with rowCount rows in the temporary directory.
+   *
+   * @param rowCount the row count
+   * @return the path of the input file
+   */
+  public static Path generateInputFile(int rowCount) {
+    try {
+      Path inputFile = Files.createTempFile("SingaporeWeather", ".csv");
+      WeatherDataGenerator.generate(inputFile, rowCount, 42);
+      return inputFile;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Delete an input file created by {@link #generateInputFile(int)}.
+   *
+   * @param inputFile the input file
+   */
+  public static void deleteInputFile(Path inputFile) {
+    try {
+      Files.deleteIfExists(inputFile);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Load the columns of an input file into a new ColumnVectorManager, in the same manner as the
+   * databases populate their column vectors.
+   *
+   * @param inputFile the input file
+   * @return the column vector manager
+   */
+  public static ColumnVectorManager loadColumnVectorManager(Path inputFile) {
+    ColumnVectorManager columnVectorManager = new ColumnVectorManager();
+    columnVectorManager.createLongColumnVector("Timestamp");
+    columnVectorManager.createCategoricalColumnVector("Station");
+    columnVectorManager.createDoubleColumnVector("Temperature");
+    columnVectorManager.createDoubleColumnVector("Humidity");
+    columnVectorManager.createCategoricalColumnVector("Year");
+    columnVectorManager.createCategoricalColumnVector("Month");
+
+    try (CSVRowReader csvRowReader = new CSVRowReader(inputFile.toString(), 1)) {
+      while (csvRowReader.readNext()) {
+        long timestamp = TimestampUtil.parseEpochMinute(csvRowReader.getBuffer(),
+            csvRowReader.getFieldStart(1), csvRowReader.getFieldLength(1));
+        columnVectorManager.addToLongColumnVector("Timestamp", timestamp);
+        columnVectorManager.addToCategoricalColumnVector("Station", csvRowReader.getField(2));
+        addDouble(columnVectorManager, "Temperature", csvRowReader, 3);
+        addDouble(columnVectorManager, "Humidity", csvRowReader, 4);
+        columnVectorManager.addToCategoricalColumnVector("Year", TimestampUtil.getYear(timestamp));
+        columnVectorManager.addToCategoricalColumnVector("Month",
+            TimestampUtil.getMonth(timestamp));
+      }
+    }
+    return columnVectorManager;
+  }
+
+  /**
+   * Read the rows of an input file into memory, each as an array of its fields.
+   *
+   * @param inputFile the input file
+   * @return the rows
+   */
+  public static List<String[]> readInputRows(Path inputFile) {
+    List<String[]> rows = new ArrayList<>();
+    try (CSVRowReader csvRowReader = new CSVRowReader(inputFile.toString(), 1)) {
+      while (csvRowReader.readNext()) {
+        String[] row = new String[FIELD_COUNT];
+        for (int i = 0; i < FIELD_COUNT; i++) {
+          row[i] = csvRowReader.getField(i);
+        }
+        rows.add(row);
+      }
+    }
+    return rows;
+  }
+
+  /*
+   * Adds the field at index of the current row to the DoubleColumnVector with the fieldName.
+   */
+  private static void addDouble(ColumnVectorManager columnVectorManager, String fieldName,
+      CSVRowReader csvRowReader, int index) {
+    if (csvRowReader.fieldEquals(index, EMPTY_DATA_SYMBOL)) {
+      columnVectorManager.addNullToDoubleColumnVector(fieldName);
+    } else {
+      columnVectorManager.addToDoubleColumnVector(fieldName, csvRowReader.parseDoubleField(index));
+    }
+  }
+}
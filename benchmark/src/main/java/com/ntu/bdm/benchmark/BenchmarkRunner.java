@@ -0,0 +1,46 @@
+package com.ntu.bdm.benchmark;
+
+import java.io.IOException;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/********************************************************
+ * BenchmarkRunner is the main class of the benchmark
+ * jar. It accepts the same command line options as the
+ * JMH runner, and always adds the GC profiler so that
+ * every result reports the allocation rate next to the
+ * throughput.
+ *
+ ********************************************************/
+public class BenchmarkRunner {
+
+  /**
+   * The entry point of the benchmarks.
+   *
+   * @param args the JMH command line options
+   * @throws IOException                the io exception
+   * @throws CommandLineOptionException the command line option exception
+   * @throws RunnerException            the runner exception
+   */
+  public static void main(String[] args)
+      throws IOException, CommandLineOptionException, RunnerException {
+    CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+    if (commandLineOptions.shouldHelp()) {
+      commandLineOptions.showHelp();
+      return;
+    }
+    if (commandLineOptions.shouldList()) {
+      new Runner(commandLineOptions).list();
+      return;
+    }
+
+    new Runner(new OptionsBuilder()
+        .parent(commandLineOptions)
+        .addProfiler(GCProfiler.class)
+        .build()).run();
+  }
+}
@@ -0,0 +1,137 @@
+package com.ntu.bdm.benchmark;
+
+import com.ntu.bdm.MainMemoryDatabase;
+import com.ntu.bdm.query.AggregateFunction;
+import com.ntu.bdm.query.Predicate;
+import com.ntu.bdm.query.Query;
+import com.ntu.bdm.query.QueryResult;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/********************************************************
+ * ConcurrentQueryBenchmark measures the throughput of
+ * queries run by several reader threads against one
+ * MainMemoryDatabase, either idle or while a writer
+ * thread keeps ingesting rows and publishing snapshots.
+ *
+ * The writer appends INGEST_BATCH_SIZE rows every
+ * INGEST_PAUSE_MILLIS, taken from as many rows again as
+ * the database is loaded with, and every iteration
+ * starts from a newly loaded database. The number of
+ * reader threads is set with the JMH -t option, e.g.
+ * -t 1, -t 2, -t 4 and -t 8 to compare 1 to 8 readers.
+ *
+ ********************************************************/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConcurrentQueryBenchmark {
+
+  private static final int INGEST_BATCH_SIZE = 1024;
+  private static final int INGEST_PAUSE_MILLIS = 10;
+
+  @Param({"1000000"})
+  private int rowCount;
+
+  @Param({"false", "true"})
+  private boolean ingest;
+
+  private List<String[]> inputRows;
+  private MainMemoryDatabase mainMemoryDatabase;
+  private Query query;
+  private Thread writer;
+  private volatile boolean stopped;
+
+  /**
+   * Generate twice rowCount input rows and build the query.
+   */
+  @Setup(Level.Trial)
+  public void setUpTrial() {
+    Path inputFile = BenchmarkData.generateInputFile(rowCount * 2);
+    inputRows = BenchmarkData.readInputRows(inputFile);
+    BenchmarkData.deleteInputFile(inputFile);
+
+    query = new Query();
+    query.addPredicate(Predicate.equalTo("Station", WeatherDataGenerator.STATIONS[0]));
+    query.addPredicate(Predicate.equalTo("Year", String.valueOf(WeatherDataGenerator.FIRST_YEAR)));
+    query.addPredicate(Predicate.between("Temperature", 25, 30));
+    query.addAggregate(AggregateFunction.MAX, "Humidity");
+  }
+
+  /**
+   * Load a new database with the first rowCount rows, and start the writer if rows are ingested
+   * during the iteration.
+   */
+  @Setup(Level.Iteration)
+  public void setUpIteration() {
+    mainMemoryDatabase = new MainMemoryDatabase();
+    mainMemoryDatabase.initialiseColumnVectors();
+    mainMemoryDatabase.populateColumnVectors(inputRows.subList(0, rowCount));
+    mainMemoryDatabase.createCategoricalColumnIndexes();
+    mainMemoryDatabase.createRangeColumnIndexes();
+
+    stopped = false;
+    if (ingest) {
+      writer = new Thread(this::ingestRows);
+      writer.start();
+    }
+  }
+
+  /**
+   * Stop the writer.
+   *
+   * @throws InterruptedException if interrupted while waiting for the writer
+   */
+  @TearDown(Level.Iteration)
+  public void tearDownIteration() throws InterruptedException {
+    stopped = true;
+    if (writer != null) {
+      writer.join();
+      writer = null;
+    }
+  }
+
+  /**
+   * Benchmark the query against the latest snapshot.
+   *
+   * @return the query result
+   */
+  @Benchmark
+  public QueryResult executeQuery() {
+    return mainMemoryDatabase.executeQuery(query);
+  }
+
+  /*
+   * Appends the rows after the first rowCount in batches until they run out or the writer is
+   * stopped.
+   */
+  private void ingestRows() {
+    for (int position = rowCount; position < inputRows.size() && !stopped;
+        position += INGEST_BATCH_SIZE) {
+      int end = Math.min(position + INGEST_BATCH_SIZE, inputRows.size());
+      mainMemoryDatabase.populateColumnVectors(inputRows.subList(position, end));
+      try {
+        Thread.sleep(INGEST_PAUSE_MILLIS);
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+}
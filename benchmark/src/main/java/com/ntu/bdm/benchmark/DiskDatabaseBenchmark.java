@@ -0,0 +1,167 @@
+package com.ntu.bdm.benchmark;
+
+import com.ntu.bdm.DiskDatabase;
+import com.ntu.bdm.util.CSVRowReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Month;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/********************************************************
+ * DiskDatabaseBenchmark measures the DiskDatabase end
+ * to end, as run by DatabaseApplication: populating the
+ * column vectors, writing the columns and indexes to
+ * disk, and querying every month of the first year of
+ * one station from the column files. The queries are
+ * also measured on their own against the files written
+ * during setup, by a DiskDatabase kept across
+ * invocations so that its buffer pool stays warm, and
+ * by a DiskDatabase opened from the catalog, which
+ * looks them up from the aggregate cube.
+ *
+ * The DiskDatabase reads and writes the disk directory
+ * of the working directory.
+ *
+ ********************************************************/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DiskDatabaseBenchmark {
+
+  private static final String[] DIRECTORY_PATHS = new String[]{"disk/column", "disk/index/year",
+      "disk/index/month", "disk/index/station"};
+
+  @Param({"100000", "1000000"})
+  private int rowCount;
+
+  private Path inputFile;
+  private DiskDatabase warmDiskDatabase;
+
+  /**
+   * Generate the input file and write it to disk once, for the query benchmarks.
+   */
+  @Setup
+  public void setUp() {
+    try {
+      for (String directoryPath : DIRECTORY_PATHS) {
+        Files.createDirectories(Path.of(directoryPath));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    inputFile = BenchmarkData.generateInputFile(rowCount);
+    writeToDisk();
+    warmDiskDatabase = new DiskDatabase();
+  }
+
+  /**
+   * Delete the input file.
+   */
+  @TearDown
+  public void tearDown() {
+    warmDiskDatabase.closeBufferPool();
+    BenchmarkData.deleteInputFile(inputFile);
+  }
+
+  /**
+   * Benchmark the full write then query cycle.
+   *
+   * @param blackhole the blackhole
+   */
+  @Benchmark
+  public void writeThenQuery(Blackhole blackhole) {
+    writeToDisk();
+    DiskDatabase diskDatabase = new DiskDatabase();
+    queryPerMonth(diskDatabase, blackhole);
+    diskDatabase.closeBufferPool();
+  }
+
+  /**
+   * Benchmark querying every month separately from the files on disk.
+   *
+   * @param blackhole the blackhole
+   */
+  @Benchmark
+  public void queryPerMonth(Blackhole blackhole) {
+    queryPerMonth(warmDiskDatabase, blackhole);
+  }
+
+  /**
+   * Benchmark opening the store from its catalog, then looking every month up from its aggregate
+   * cube.
+   *
+   * @param blackhole the blackhole
+   */
+  @Benchmark
+  public void queryFromAggregateCube(Blackhole blackhole) {
+    DiskDatabase diskDatabase = new DiskDatabase();
+    if (!diskDatabase.open()) {
+      throw new IllegalStateException("Disk database written during setup cannot be opened");
+    }
+    queryPerMonth(diskDatabase, blackhole);
+    diskDatabase.closeBufferPool();
+  }
+
+  /*
+   * Queries every month separately with the diskDatabase.
+   */
+  private void queryPerMonth(DiskDatabase diskDatabase, Blackhole blackhole) {
+    for (Month month : Month.values()) {
+      Map<String, String> queryParams = createQueryParams(month);
+      blackhole.consume(diskDatabase.getMinMaxRowsWithDistinctDateForFieldMatchingQueryParams(
+          "Temperature", queryParams));
+      blackhole.consume(diskDatabase.getMinMaxRowsWithDistinctDateForFieldMatchingQueryParams(
+          "Humidity", queryParams));
+    }
+  }
+
+  /*
+   * Populates a new DiskDatabase from the input file and writes its columns, indexes, aggregate
+   * cube and catalog to disk.
+   */
+  private void writeToDisk() {
+    DiskDatabase diskDatabase = new DiskDatabase();
+    diskDatabase.initialiseColumnVectors();
+    try (CSVRowReader csvRowReader = new CSVRowReader(inputFile.toString(), 1)) {
+      diskDatabase.populateColumnVectors(csvRowReader);
+    }
+    diskDatabase.createCategoricalColumnIndexes();
+    diskDatabase.writeColumnVectorsToDisk();
+    diskDatabase.writeCategoricalColumnIndexesToDisk();
+    diskDatabase.writeAggregateCubeToDisk();
+    diskDatabase.writeCatalog(inputFile.toString());
+    diskDatabase.closeColumnVectorManager();
+    diskDatabase.closeColumnIndexManager();
+  }
+
+  /*
+   * Creates the query params of the first station and year for the month.
+   */
+  private Map<String, String> createQueryParams(Month month) {
+    Map<String, String> queryParams = new HashMap<>();
+    queryParams.put("Station", WeatherDataGenerator.STATIONS[0]);
+    queryParams.put("Year", String.valueOf(WeatherDataGenerator.FIRST_YEAR));
+    queryParams.put("Month", month.name());
+    return queryParams;
+  }
+}
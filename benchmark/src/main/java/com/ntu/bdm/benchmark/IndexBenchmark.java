@@ -0,0 +1,88 @@
+package com.ntu.bdm.benchmark;
+
+import com.ntu.bdm.manager.ColumnIndexManager;
+import com.ntu.bdm.manager.ColumnVectorManager;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/********************************************************
+ * IndexBenchmark measures building the bitmap indexes of
+ * the categorical columns and the range and bit-sliced
+ * indexes of a double column, as done by
+ * createCategoricalColumnIndexes, createRangeColumnIndexes
+ * and createBitSlicedIndexes of the databases.
+ *
+ ********************************************************/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IndexBenchmark {
+
+  @Param({"100000", "1000000"})
+  private int rowCount;
+
+  private ColumnVectorManager columnVectorManager;
+
+  /**
+   * Load the column vectors.
+   */
+  @Setup
+  public void setUp() {
+    Path inputFile = BenchmarkData.generateInputFile(rowCount);
+    columnVectorManager = BenchmarkData.loadColumnVectorManager(inputFile);
+    BenchmarkData.deleteInputFile(inputFile);
+  }
+
+  /**
+   * Benchmark createCategoricalColumnIndexes.
+   *
+   * @return the column index manager
+   */
+  @Benchmark
+  public ColumnIndexManager createCategoricalColumnIndexes() {
+    ColumnIndexManager columnIndexManager = new ColumnIndexManager();
+    columnIndexManager.constructCategoricalColumnIndexes(
+        columnVectorManager.getCategoricalColumnVectors());
+    return columnIndexManager;
+  }
+
+  /**
+   * Benchmark createRangeColumnIndexes for the Temperature column.
+   *
+   * @return the column index manager
+   */
+  @Benchmark
+  public ColumnIndexManager createRangeColumnIndex() {
+    ColumnIndexManager columnIndexManager = new ColumnIndexManager();
+    columnIndexManager.constructRangeColumnIndex("Temperature",
+        columnVectorManager.getDoubleColumnVector("Temperature"));
+    return columnIndexManager;
+  }
+
+  /**
+   * Benchmark createBitSlicedIndexes for the Temperature column.
+   *
+   * @return the column index manager
+   */
+  @Benchmark
+  public ColumnIndexManager createBitSlicedIndex() {
+    ColumnIndexManager columnIndexManager = new ColumnIndexManager();
+    columnIndexManager.constructBitSlicedIndex("Temperature",
+        columnVectorManager.getDoubleColumnVector("Temperature"));
+    return columnIndexManager;
+  }
+}
@@ -0,0 +1,92 @@
+package com.ntu.bdm.benchmark;
+
+import com.ntu.bdm.MainMemoryDatabase;
+import com.ntu.bdm.memory.OffHeapMemory;
+import com.ntu.bdm.util.CSVRowReader;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/********************************************************
+ * IngestBenchmark measures populating the column
+ * vectors of a MainMemoryDatabase from an input CSV
+ * file, with the double and long columns held either
+ * on the heap or off heap. The allocation rate reported
+ * by -prof gc shows the heap left out of the off-heap
+ * columns.
+ *
+ ********************************************************/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IngestBenchmark {
+
+  @Param({"100000", "1000000"})
+  private int rowCount;
+
+  @Param({"heap", "offHeap"})
+  private String storage;
+
+  private Path inputFile;
+  private OffHeapMemory offHeapMemory;
+
+  /**
+   * Generate the input file.
+   */
+  @Setup
+  public void setUp() {
+    inputFile = BenchmarkData.generateInputFile(rowCount);
+  }
+
+  /**
+   * Delete the input file.
+   */
+  @TearDown
+  public void tearDown() {
+    BenchmarkData.deleteInputFile(inputFile);
+  }
+
+  /**
+   * Release the off-heap memory of the previous invocation.
+   */
+  @TearDown(Level.Invocation)
+  public void tearDownInvocation() {
+    if (offHeapMemory != null) {
+      offHeapMemory.close();
+      offHeapMemory = null;
+    }
+  }
+
+  /**
+   * Benchmark populateColumnVectors.
+   *
+   * @return the populated database
+   */
+  @Benchmark
+  public MainMemoryDatabase populateColumnVectors() {
+    if (storage.equals("offHeap")) {
+      offHeapMemory = new OffHeapMemory();
+    }
+    MainMemoryDatabase mainMemoryDatabase = new MainMemoryDatabase(offHeapMemory);
+    mainMemoryDatabase.initialiseColumnVectors();
+    try (CSVRowReader csvRowReader = new CSVRowReader(inputFile.toString(), 1)) {
+      mainMemoryDatabase.populateColumnVectors(csvRowReader);
+    }
+    return mainMemoryDatabase;
+  }
+}
@@ -0,0 +1,70 @@
+package com.ntu.bdm.benchmark;
+
+import com.ntu.bdm.aggregate.MinMaxGroup;
+import com.ntu.bdm.bitmap.RoaringBitmap;
+import com.ntu.bdm.manager.ColumnIndexManager;
+import com.ntu.bdm.manager.ColumnVectorManager;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/********************************************************
+ * ParallelMinMaxBenchmark measures the minimum and
+ * maximum search over the rows of one station, which
+ * span most of the column, with varying degrees of
+ * parallelism.
+ *
+ ********************************************************/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParallelMinMaxBenchmark {
+
+  @Param({"1000000"})
+  private int rowCount;
+
+  @Param({"1", "2", "4", "8"})
+  private int parallelism;
+
+  private ColumnVectorManager columnVectorManager;
+  private RoaringBitmap bitmap;
+
+  /**
+   * Load the column vectors and look up the bitmap of the station.
+   */
+  @Setup
+  public void setUp() {
+    Path inputFile = BenchmarkData.generateInputFile(rowCount);
+    columnVectorManager = BenchmarkData.loadColumnVectorManager(inputFile);
+    BenchmarkData.deleteInputFile(inputFile);
+
+    ColumnIndexManager columnIndexManager = new ColumnIndexManager();
+    columnIndexManager.constructCategoricalColumnIndexes(
+        columnVectorManager.getCategoricalColumnVectors());
+    bitmap = columnIndexManager.getBitmapForFieldWithCategory("Station",
+        WeatherDataGenerator.STATIONS[0]);
+  }
+
+  /**
+   * Benchmark the minimum and maximum search with parallelism threads.
+   *
+   * @return the min max
+   */
+  @Benchmark
+  public MinMaxGroup getMinMaxFromBitmap() {
+    return columnVectorManager.getMinMaxForFieldFromBitmap("Temperature", bitmap, parallelism);
+  }
+}
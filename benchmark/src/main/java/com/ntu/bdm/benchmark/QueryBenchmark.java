@@ -0,0 +1,186 @@
+package com.ntu.bdm.benchmark;
+
+import com.ntu.bdm.aggregate.AggregateCube;
+import com.ntu.bdm.aggregate.GroupedMinMaxAggregator;
+import com.ntu.bdm.aggregate.MinMaxGroup;
+import com.ntu.bdm.bitmap.IntList;
+import com.ntu.bdm.bitmap.RoaringBitmap;
+import com.ntu.bdm.execution.QueryPlanner;
+import com.ntu.bdm.manager.ColumnIndexManager;
+import com.ntu.bdm.manager.ColumnVectorManager;
+import com.ntu.bdm.vector.CategoricalColumnVector;
+import com.ntu.bdm.vector.DoubleColumnVector;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/********************************************************
+ * QueryBenchmark measures the query path of the main
+ * memory database for one station, year and month:
+ * matching the query params against the bitmap indexes
+ * and searching the minimum and maximum of the matching
+ * rows, by scan, by the bit-sliced index or by a lookup
+ * in the aggregate cube, as well as the single pass
+ * grouped aggregation which answers every station, year
+ * and month at once.
+ *
+ ********************************************************/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QueryBenchmark {
+
+  private static final String[] FIELD_NAMES = new String[]{"Temperature", "Humidity"};
+  private static final String[] GROUP_BY_FIELD_NAMES = new String[]{"Station", "Year", "Month"};
+
+  @Param({"100000", "1000000"})
+  private int rowCount;
+
+  private ColumnVectorManager columnVectorManager;
+  private ColumnIndexManager columnIndexManager;
+  private Map<String, String> queryParams;
+  private IntList positionList;
+  private RoaringBitmap bitmap;
+  private AggregateCube aggregateCube;
+
+  /**
+   * Load the column vectors and build the bitmap and bit-sliced indexes and the aggregate cube.
+   */
+  @Setup
+  public void setUp() {
+    Path inputFile = BenchmarkData.generateInputFile(rowCount);
+    columnVectorManager = BenchmarkData.loadColumnVectorManager(inputFile);
+    BenchmarkData.deleteInputFile(inputFile);
+
+    columnIndexManager = new ColumnIndexManager();
+    columnIndexManager.constructCategoricalColumnIndexes(
+        columnVectorManager.getCategoricalColumnVectors());
+    columnIndexManager.constructBitSlicedIndex("Temperature",
+        columnVectorManager.getDoubleColumnVector("Temperature"));
+
+    queryParams = new HashMap<>();
+    queryParams.put("Station", WeatherDataGenerator.STATIONS[0]);
+    queryParams.put("Year", String.valueOf(WeatherDataGenerator.FIRST_YEAR));
+    queryParams.put("Month", "JUNE");
+
+    positionList = columnIndexManager.getPositionListMatchingQueryParams(queryParams);
+    bitmap = columnIndexManager.getBitmapMatchingQueryParams(queryParams);
+
+    aggregateCube = new AggregateCube(GROUP_BY_FIELD_NAMES, FIELD_NAMES);
+    String[] categories = new String[GROUP_BY_FIELD_NAMES.length];
+    double[] values = new double[FIELD_NAMES.length];
+    boolean[] nulls = new boolean[FIELD_NAMES.length];
+    for (int position = 0; position < rowCount; position++) {
+      for (int i = 0; i < GROUP_BY_FIELD_NAMES.length; i++) {
+        CategoricalColumnVector<String> categoricalColumnVector =
+            columnVectorManager.getCategoricalColumnVector(GROUP_BY_FIELD_NAMES[i]);
+        categories[i] = categoricalColumnVector.get(position);
+      }
+      for (int i = 0; i < FIELD_NAMES.length; i++) {
+        DoubleColumnVector doubleColumnVector =
+            columnVectorManager.getDoubleColumnVector(FIELD_NAMES[i]);
+        nulls[i] = doubleColumnVector.isNull(position);
+        values[i] = nulls[i] ? 0 : doubleColumnVector.get(position);
+      }
+      aggregateCube.addRow(categories, values, nulls);
+    }
+  }
+
+  /**
+   * Benchmark getPositionListMatchingQueryParams.
+   *
+   * @return the position list
+   */
+  @Benchmark
+  public IntList getPositionListMatchingQueryParams() {
+    return columnIndexManager.getPositionListMatchingQueryParams(queryParams);
+  }
+
+  /**
+   * Benchmark getBitmapMatchingQueryParams.
+   *
+   * @return the bitmap
+   */
+  @Benchmark
+  public RoaringBitmap getBitmapMatchingQueryParams() {
+    return columnIndexManager.getBitmapMatchingQueryParams(queryParams);
+  }
+
+  /**
+   * Benchmark the minimum and maximum search over a position list.
+   *
+   * @return the min max
+   */
+  @Benchmark
+  public MinMaxGroup getMinMaxFromPositionList() {
+    return columnVectorManager.getMinMaxForFieldFromPositionList("Temperature", positionList);
+  }
+
+  /**
+   * Benchmark the minimum and maximum search over a bitmap, which skips blocks by zone map.
+   *
+   * @return the min max
+   */
+  @Benchmark
+  public MinMaxGroup getMinMaxFromBitmap() {
+    return columnVectorManager.getMinMaxForFieldFromBitmap("Temperature", bitmap);
+  }
+
+  /**
+   * Benchmark the minimum and maximum search over a bitmap as a vectorized pipeline.
+   *
+   * @return the min max
+   */
+  @Benchmark
+  public MinMaxGroup executeMinMaxPipeline() {
+    return QueryPlanner.planMinMax(columnVectorManager.getDoubleColumnVector("Temperature"),
+        bitmap).execute();
+  }
+
+  /**
+   * Benchmark the minimum and maximum search over a bitmap with the bit-sliced index.
+   *
+   * @return the min max
+   */
+  @Benchmark
+  public MinMaxGroup getMinMaxFromBitSlicedIndex() {
+    return columnIndexManager.getMinMaxForFieldFromBitmap("Temperature", bitmap);
+  }
+
+  /**
+   * Benchmark the lookup of the minimum and maximum in the aggregate cube maintained at ingest.
+   *
+   * @return the min max
+   */
+  @Benchmark
+  public MinMaxGroup getMinMaxFromAggregateCube() {
+    return aggregateCube.getCell(queryParams.get("Station"), queryParams.get("Year"),
+        queryParams.get("Month")).getMinMax(aggregateCube.getMeasureIndex("Temperature"));
+  }
+
+  /**
+   * Benchmark the grouped aggregation of every station, year and month.
+   *
+   * @return the grouped min max aggregators
+   */
+  @Benchmark
+  public GroupedMinMaxAggregator[] aggregateMinMaxForFieldsGroupedByFields() {
+    return columnVectorManager.aggregateMinMaxForFieldsGroupedByFields(FIELD_NAMES,
+        GROUP_BY_FIELD_NAMES);
+  }
+}
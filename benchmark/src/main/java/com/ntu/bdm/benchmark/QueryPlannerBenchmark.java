@@ -0,0 +1,108 @@
+package com.ntu.bdm.benchmark;
+
+import com.ntu.bdm.MainMemoryDatabase;
+import com.ntu.bdm.bitmap.RoaringBitmap;
+import com.ntu.bdm.execution.AggregationOperator;
+import com.ntu.bdm.execution.BitmapScanOperator;
+import com.ntu.bdm.query.Aggregate;
+import com.ntu.bdm.query.AggregateFunction;
+import com.ntu.bdm.query.Predicate;
+import com.ntu.bdm.query.Query;
+import com.ntu.bdm.query.QueryResult;
+import com.ntu.bdm.util.CSVRowReader;
+import com.ntu.bdm.vector.DoubleColumn;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/********************************************************
+ * QueryPlannerBenchmark measures an average temperature
+ * query planned by cost against the same query always
+ * answered through the bitmap indexes. The narrow query
+ * matches one station, year and month, while the wide
+ * query matches one station, i.e. about half the table,
+ * for which the planner prefers a sequential scan.
+ *
+ ********************************************************/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QueryPlannerBenchmark {
+
+  @Param({"1000000"})
+  private int rowCount;
+
+  @Param({"narrow", "wide"})
+  private String selectivity;
+
+  private MainMemoryDatabase mainMemoryDatabase;
+  private Query query;
+
+  /**
+   * Load the main memory database and build the query.
+   */
+  @Setup
+  public void setUp() {
+    Path inputFile = BenchmarkData.generateInputFile(rowCount);
+    mainMemoryDatabase = new MainMemoryDatabase();
+    mainMemoryDatabase.initialiseColumnVectors();
+    try (CSVRowReader csvRowReader = new CSVRowReader(inputFile.toString(), 1)) {
+      mainMemoryDatabase.populateColumnVectors(csvRowReader);
+    }
+    mainMemoryDatabase.createCategoricalColumnIndexes();
+    BenchmarkData.deleteInputFile(inputFile);
+
+    query = new Query();
+    query.addPredicate(Predicate.equalTo("Station", WeatherDataGenerator.STATIONS[0]));
+    if (selectivity.equals("narrow")) {
+      query.addPredicate(Predicate.equalTo("Year",
+          String.valueOf(WeatherDataGenerator.FIRST_YEAR)));
+      query.addPredicate(Predicate.equalTo("Month", "JUNE"));
+    }
+    query.addAggregate(AggregateFunction.AVG, "Temperature");
+  }
+
+  /**
+   * Benchmark the query planned by cost.
+   *
+   * @return the query result
+   */
+  @Benchmark
+  public QueryResult executePlannedQuery() {
+    return mainMemoryDatabase.executeQuery(query);
+  }
+
+  /**
+   * Benchmark the query answered through the bitmap indexes regardless of its selectivity.
+   *
+   * @return the average temperature
+   */
+  @Benchmark
+  public double[] executeIndexDrivenQuery() {
+    List<RoaringBitmap> bitmaps = new ArrayList<>();
+    for (Predicate predicate : query.getPredicates()) {
+      bitmaps.add(mainMemoryDatabase.getBitmapForFieldWithCategory(predicate.getFieldName(),
+          predicate.getCategories().get(0)));
+    }
+    Aggregate[] aggregates = query.getAggregates().toArray(new Aggregate[0]);
+    DoubleColumn[] doubleColumns = new DoubleColumn[]{
+        mainMemoryDatabase.getDoubleColumn("Temperature")};
+    return new AggregationOperator(new BitmapScanOperator(RoaringBitmap.intersect(bitmaps)),
+        aggregates, doubleColumns).execute();
+  }
+}
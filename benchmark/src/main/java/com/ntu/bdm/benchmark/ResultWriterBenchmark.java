@@ -0,0 +1,104 @@
+package com.ntu.bdm.benchmark;
+
+import com.ntu.bdm.util.CSVFileUtil;
+import com.ntu.bdm.util.CSVResultWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/********************************************************
+ * ResultWriterBenchmark measures writing the results of
+ * the monthly queries of DatabaseApplication, i.e. two
+ * years of twelve months for two fields, to an output
+ * CSV file. Every batch of rows is either appended with
+ * CSVFileUtil, opening and closing the file each time,
+ * or queued to a CSVResultWriter. Each batch is preceded
+ * by queryWork tokens of CPU work standing in for the
+ * query producing it, which the CSVResultWriter overlaps
+ * with writing.
+ *
+ ********************************************************/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ResultWriterBenchmark {
+
+  private static final int BATCH_COUNT = 2 * 12 * 2;
+  private static final int ROWS_PER_BATCH = 4;
+  private static final String[] HEADER = new String[]{"Date", "Station", "Category", "Value"};
+
+  @Param({"0", "100000"})
+  private long queryWork;
+
+  private Path outputFile;
+  private List<String[]> rows;
+
+  /**
+   * Create the output file and the rows of a batch.
+   */
+  @Setup
+  public void setUp() {
+    try {
+      outputFile = Files.createTempFile("ScanResult", ".csv");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    rows = new ArrayList<>();
+    for (int i = 0; i < ROWS_PER_BATCH; i++) {
+      rows.add(new String[]{"2007-01-0" + (i + 1), "Changi", "Max Temperature", "32.0"});
+    }
+  }
+
+  /**
+   * Delete the output file.
+   */
+  @TearDown
+  public void tearDown() {
+    BenchmarkData.deleteInputFile(outputFile);
+  }
+
+  /**
+   * Benchmark appending every batch with CSVFileUtil.
+   */
+  @Benchmark
+  public void writeDataAtOnce() {
+    CSVFileUtil.writeHeader(outputFile.toString(), HEADER);
+    for (int i = 0; i < BATCH_COUNT; i++) {
+      Blackhole.consumeCPU(queryWork);
+      CSVFileUtil.writeDataAtOnce(outputFile.toString(), rows);
+    }
+  }
+
+  /**
+   * Benchmark queueing every batch to a CSVResultWriter.
+   */
+  @Benchmark
+  public void writeWithCSVResultWriter() {
+    try (CSVResultWriter csvResultWriter = new CSVResultWriter(outputFile.toString(), HEADER)) {
+      for (int i = 0; i < BATCH_COUNT; i++) {
+        Blackhole.consumeCPU(queryWork);
+        csvResultWriter.write(rows);
+      }
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package com.ntu.bdm.benchmark;
+
+import com.ntu.bdm.util.TimestampUtil;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/********************************************************
+ * WeatherDataGenerator is utility class which contains
+ * just static methods and cannot be instantiated. It
+ * writes synthetic input CSV files with the schema of
+ * SingaporeWeather.csv at any number of rows.
+ *
+ * Rows are split evenly between the STATIONS. Each
+ * station has one reading every 30 minutes starting at
+ * 2002-01-01 00:00, so the rows are ordered by station
+ * and then by time as in the real input file. About one
+ * in a hundred readings is the empty data symbol "M".
+ *
+ ********************************************************/
+public class WeatherDataGenerator {
+
+  /**
+   * The stations of the generated rows.
+   */
+  public static final String[] STATIONS = new String[]{"Changi", "Paya Lebar"};
+
+  /**
+   * The first year of the generated rows.
+   */
+  public static final int FIRST_YEAR = 2002;
+
+  private static final String HEADER = "id,Timestamp,Station,Temperature,Humidity";
+  private static final int MINUTES_PER_READING = 30;
+  private static final double EMPTY_DATA_PROBABILITY = 0.01;
+
+  private WeatherDataGenerator() {
+  }
+
+  /**
+   * The entry point for generating a file from the command line, with arguments file path and row
+   * count.
+   *
+   * @param args the input arguments
+   */
+  public static void main(String[] args) {
+    generate(Path.of(args[0]), Integer.parseInt(args[1]), 42);
+  }
+
+  /**
+   * Write a synthetic input CSV file with rowCount rows.
+   *
+   * @param filePath the file path
+   * @param rowCount the row count
+   * @param seed     the seed of the random values
+   */
+  public static void generate(Path filePath, int rowCount, long seed) {
+    Random random = new Random(seed);
+    long firstEpochMinute = TimestampUtil.parseEpochMinute(FIRST_YEAR + "-01-01 00:00");
+    int rowsPerStation = (rowCount + STATIONS.length - 1) / STATIONS.length;
+
+    try (BufferedWriter writer = Files.newBufferedWriter(filePath, StandardCharsets.UTF_8)) {
+      writer.write(HEADER);
+      writer.newLine();
+
+      StringBuilder row = new StringBuilder();
+      for (int id = 0; id < rowCount; id++) {
+        String station = STATIONS[id / rowsPerStation];
+        long epochMinute = firstEpochMinute + (long) (id % rowsPerStation) * MINUTES_PER_READING;
+
+        row.setLength(0);
+        row.append(id).append(',')
+            .append(TimestampUtil.getTimestamp(epochMinute)).append(',')
+            .append(station).append(',');
+        appendReading(row, random, 2200 + random.nextInt(1201));
+        row.append(',');
+        appendReading(row, random, 4000 + random.nextInt(6001));
+
+        writer.append(row);
+        writer.newLine();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /*
+   * Appends the empty data symbol, or hundredths as a decimal with two fraction digits.
+   */
+  private static void appendReading(StringBuilder row, Random random, int hundredths) {
+    if (random.nextDouble() < EMPTY_DATA_PROBABILITY) {
+      row.append('M');
+      return;
+    }
+    row.append(hundredths / 100).append('.');
+    int fraction = hundredths % 100;
+    if (fraction < 10) {
+      row.append('0');
+    }
+    row.append(fraction);
+  }
+}
@@ -1,6 +1,9 @@
 package com.ntu.bdm;
 
-import com.ntu.bdm.util.CSVFileUtil;
+import com.ntu.bdm.memory.OffHeapMemory;
+import com.ntu.bdm.metrics.Metrics;
+import com.ntu.bdm.util.CSVResultWriter;
+import com.ntu.bdm.util.CSVRowReader;
 import java.time.Month;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -29,10 +32,19 @@ import org.apache.commons.cli.ParseException;
  * The database will output the query results to an output
  * CSV file.
  *
+ * The metrics of the database are registered as a JMX
+ * MBean while the application runs, and their report is
+ * printed on exit if requested.
+ *
  ********************************************************/
 public class DatabaseApplication {
 
   private static Boolean DISK_STORAGE = false;
+  private static Boolean EXPORT_CSV = false;
+  private static Boolean OFF_HEAP_STORAGE = false;
+  private static Boolean METRICS_REPORT = false;
+  private static long BUFFER_POOL_CAPACITY = 64L << 20;
+  private static String APPEND_FILE_PATH;
   private static String MATRICULATION_NUMBER;
   private static String STATION;
   private static String[] YEARS;
@@ -53,82 +65,125 @@ public class DatabaseApplication {
 
     if (!DISK_STORAGE) {
       System.out.println("Using main memory storage for application");
-      MainMemoryDatabase mainMemoryDatabase = new MainMemoryDatabase();
+      OffHeapMemory offHeapMemory = OFF_HEAP_STORAGE ? new OffHeapMemory() : null;
+      MainMemoryDatabase mainMemoryDatabase = new MainMemoryDatabase(offHeapMemory);
+      registerMetrics(mainMemoryDatabase.getMetrics(), "MainMemoryDatabase");
       mainMemoryDatabase.initialiseColumnVectors();
-      mainMemoryDatabase.populateColumnVectors(CSVFileUtil.readDataAtOnce(INPUT_FILE_PATH));
+      try (CSVRowReader csvRowReader = new CSVRowReader(INPUT_FILE_PATH, 1)) {
+        mainMemoryDatabase.populateColumnVectors(csvRowReader);
+      }
       mainMemoryDatabase.createCategoricalColumnIndexes();
 
-      CSVFileUtil.writeHeader(OUTPUT_FILE_PATH, OUTPUT_FILE_HEADER);
-
-      for (String year : YEARS) {
-        System.out.println(
-            "Started scanning Station " + STATION + " for Year " + year);
-
-        for (String month : MONTHS) {
-          Map<String, String> queryParams = new HashMap<>();
-          queryParams.put("Station", STATION);
-          queryParams.put("Year", year);
-          queryParams.put("Month", month);
-
-          /*
-           * Write minimum maximum temperature result rows to output CSV file. The result rows
-           * satisfy the station, year and month conditions inside queryParams.
-           */
-          CSVFileUtil.writeDataAtOnce(OUTPUT_FILE_PATH,
-              mainMemoryDatabase.getMinMaxRowsWithDistinctDateForFieldMatchingQueryParams(
-                  "Temperature", queryParams));
-
-          /*
-           * Write minimum maximum humidity result rows to output CSV file. The result rows
-           * satisfy the station, year and month conditions inside queryParams.
-           */
-          CSVFileUtil.writeDataAtOnce(OUTPUT_FILE_PATH,
-              mainMemoryDatabase.getMinMaxRowsWithDistinctDateForFieldMatchingQueryParams(
-                  "Humidity", queryParams));
+      // The queries below are answered from the aggregate cube maintained while populating.
+      // Results are written to the output CSV file in the background while the queries run.
+      try (CSVResultWriter csvResultWriter = new CSVResultWriter(OUTPUT_FILE_PATH,
+          OUTPUT_FILE_HEADER)) {
+        for (String year : YEARS) {
+          System.out.println(
+              "Started scanning Station " + STATION + " for Year " + year);
+
+          for (String month : MONTHS) {
+            Map<String, String> queryParams = new HashMap<>();
+            queryParams.put("Station", STATION);
+            queryParams.put("Year", year);
+            queryParams.put("Month", month);
+
+            /*
+             * Write minimum maximum temperature result rows to output CSV file. The result rows
+             * satisfy the station, year and month conditions inside queryParams.
+             */
+            csvResultWriter.write(
+                mainMemoryDatabase.getMinMaxRowsWithDistinctDateForFieldMatchingQueryParams(
+                    "Temperature", queryParams));
+
+            /*
+             * Write minimum maximum humidity result rows to output CSV file. The result rows
+             * satisfy the station, year and month conditions inside queryParams.
+             */
+            csvResultWriter.write(
+                mainMemoryDatabase.getMinMaxRowsWithDistinctDateForFieldMatchingQueryParams(
+                    "Humidity", queryParams));
+          }
+          System.out.println("Finished");
         }
-        System.out.println("Finished");
+      }
+
+      if (offHeapMemory != null) {
+        offHeapMemory.close();
       }
     } else {
       System.out.println("Using disk storage for application");
-      DiskDatabase diskDatabase = new DiskDatabase();
+      DiskDatabase diskDatabase = new DiskDatabase(BUFFER_POOL_CAPACITY);
+      registerMetrics(diskDatabase.getMetrics(), "DiskDatabase");
       diskDatabase.initialiseColumnVectors();
-      diskDatabase.populateColumnVectors(CSVFileUtil.readDataAtOnce(INPUT_FILE_PATH));
-      diskDatabase.createCategoricalColumnIndexes();
-      diskDatabase.writeColumnVectorsToDisk();
-      diskDatabase.writeCategoricalColumnIndexesToDisk();
+      if (APPEND_FILE_PATH != null) {
+        // Only the new rows are read, and appended to the column and index files on disk.
+        try (CSVRowReader csvRowReader = new CSVRowReader(APPEND_FILE_PATH, 1)) {
+          diskDatabase.populateColumnVectors(csvRowReader);
+        }
+        diskDatabase.appendToDisk();
+      } else if (!EXPORT_CSV && diskDatabase.open()
+          && diskDatabase.getCatalog().isBuiltFrom(INPUT_FILE_PATH)) {
+        // The store was already built from the unchanged input file, so it is queried as it is.
+        System.out.println("Opened disk storage of " + diskDatabase.getRowCount() + " rows");
+      } else {
+        try (CSVRowReader csvRowReader = new CSVRowReader(INPUT_FILE_PATH, 1)) {
+          diskDatabase.populateColumnVectors(csvRowReader);
+        }
+        diskDatabase.createCategoricalColumnIndexes();
+        diskDatabase.createRangeColumnIndexes();
+        diskDatabase.writeColumnVectorsToDisk();
+        if (EXPORT_CSV) {
+          diskDatabase.exportColumnVectorsToCSV();
+        }
+        diskDatabase.writeCategoricalColumnIndexesToDisk();
+        diskDatabase.writeRangeColumnIndexesToDisk();
+        diskDatabase.writeAggregateCubeToDisk();
+        diskDatabase.writeCatalog(INPUT_FILE_PATH);
+      }
       diskDatabase.closeColumnVectorManager();
       diskDatabase.closeColumnIndexManager();
 
-      CSVFileUtil.writeHeader(OUTPUT_FILE_PATH, OUTPUT_FILE_HEADER);
-
-      for (String year : YEARS) {
-        System.out.println(
-            "Started scanning Station " + STATION + " for Year " + year);
-
-        for (String month : MONTHS) {
-          Map<String, String> queryParams = new HashMap<>();
-          queryParams.put("Station", STATION);
-          queryParams.put("Year", year);
-          queryParams.put("Month", month);
-
-          /*
-           * Write minimum maximum temperature result rows to output CSV file. The result rows
-           * satisfy the station, year and month conditions inside queryParams.
-           */
-          CSVFileUtil.writeDataAtOnce(OUTPUT_FILE_PATH,
-              diskDatabase.getMinMaxRowsWithDistinctDateForFieldMatchingQueryParams("Temperature",
-                  queryParams));
-
-          /*
-           * Write minimum maximum humidity result rows to output CSV file. The result rows
-           * satisfy the station, year and month conditions inside queryParams.
-           */
-          CSVFileUtil.writeDataAtOnce(OUTPUT_FILE_PATH,
-              diskDatabase.getMinMaxRowsWithDistinctDateForFieldMatchingQueryParams("Humidity",
-                  queryParams));
+      // The queries below are answered from the aggregate cube written with the store.
+      // Results are written to the output CSV file in the background while the queries run.
+      try (CSVResultWriter csvResultWriter = new CSVResultWriter(OUTPUT_FILE_PATH,
+          OUTPUT_FILE_HEADER)) {
+        for (String year : YEARS) {
+          System.out.println(
+              "Started scanning Station " + STATION + " for Year " + year);
+
+          for (String month : MONTHS) {
+            Map<String, String> queryParams = new HashMap<>();
+            queryParams.put("Station", STATION);
+            queryParams.put("Year", year);
+            queryParams.put("Month", month);
+
+            /*
+             * Write minimum maximum temperature result rows to output CSV file. The result rows
+             * satisfy the station, year and month conditions inside queryParams.
+             */
+            csvResultWriter.write(
+                diskDatabase.getMinMaxRowsWithDistinctDateForFieldMatchingQueryParams(
+                    "Temperature", queryParams));
+
+            /*
+             * Write minimum maximum humidity result rows to output CSV file. The result rows
+             * satisfy the station, year and month conditions inside queryParams.
+             */
+            csvResultWriter.write(
+                diskDatabase.getMinMaxRowsWithDistinctDateForFieldMatchingQueryParams(
+                    "Humidity", queryParams));
+          }
+          System.out.println("Finished");
         }
-        System.out.println("Finished");
       }
+      System.out.println("Buffer pool served " + diskDatabase.getBufferPool().getHitCount()
+          + " page requests from memory and read " + diskDatabase.getBufferPool().getMissCount()
+          + " pages from disk");
+      System.out.println("Bitmap cache served " + diskDatabase.getBitmapCache().getHitCount()
+          + " index bitmaps from memory and read " + diskDatabase.getBitmapCache().getMissCount()
+          + " index files from disk");
+      diskDatabase.closeBufferPool();
     }
     System.out.println("Scanning completed and scan results successfully written to disk");
   }
@@ -145,6 +200,28 @@ public class DatabaseApplication {
     // Option for using DiskDatabase
     options.addOption("d", "disk", false, "Uses disk storage");
 
+    // Option for exporting column files of DiskDatabase as CSV
+    options.addOption("e", "export", false, "Exports disk storage columns as CSV files");
+
+    // Option for holding the columns of MainMemoryDatabase off heap
+    options.addOption("o", "off-heap", false, "Holds main memory storage columns off heap");
+
+    // Option for printing the metrics report on exit
+    options.addOption("r", "report", false, "Prints a report of the database metrics on exit");
+
+    // Option for appending new rows to DiskDatabase
+    options.addOption(Option.builder("a")
+        .longOpt("append")
+        .hasArg()
+        .desc("Appends the rows of a CSV file to the existing disk storage instead of rebuilding "
+            + "it from the input file").build());
+
+    // Option for buffer pool capacity of DiskDatabase
+    options.addOption(Option.builder("b")
+        .longOpt("buffer")
+        .hasArg()
+        .desc("Sets the buffer pool capacity of disk storage in MB").build());
+
     // Option for matriculation number
     Option config = Option.builder("m")
         .longOpt("matric")
@@ -160,18 +237,40 @@ public class DatabaseApplication {
 
     try {
       cmd = parser.parse(options, args);
-      if (cmd.hasOption("d")) {
+      if (cmd.hasOption("d") || cmd.hasOption("a")) {
         System.out.println("Disk storage set to true");
         DISK_STORAGE = true;
       } else {
         System.out.println("Main memory storage set to true");
       }
+      if (cmd.hasOption("o")) {
+        System.out.println("Off-heap storage set to true");
+        OFF_HEAP_STORAGE = true;
+      }
+      if (cmd.hasOption("r")) {
+        System.out.println("Metrics report set to true");
+        METRICS_REPORT = true;
+      }
+      if (cmd.hasOption("a")) {
+        String opt_append = cmd.getOptionValue("a");
+        System.out.println("Appending rows of " + opt_append + " to disk storage");
+        APPEND_FILE_PATH = opt_append;
+      }
+      if (cmd.hasOption("e")) {
+        System.out.println("CSV export set to true");
+        EXPORT_CSV = true;
+      }
+      if (cmd.hasOption("b")) {
+        String opt_buffer = cmd.getOptionValue("b");
+        System.out.println("Buffer pool capacity set to " + opt_buffer + " MB");
+        BUFFER_POOL_CAPACITY = Long.parseLong(opt_buffer) << 20;
+      }
       if (cmd.hasOption("m")) {
         String opt_config = cmd.getOptionValue("m");
         System.out.println("Matriculation number set to " + opt_config);
         MATRICULATION_NUMBER = opt_config;
       }
-    } catch (ParseException e) {
+    } catch (ParseException | NumberFormatException e) {
       System.out.println(e.getMessage());
       helper.printHelp("Usage:", options);
       System.exit(0);
@@ -195,4 +294,15 @@ public class DatabaseApplication {
 
     MONTHS = Arrays.stream(Month.values()).map(String::valueOf).toArray(String[]::new);
   }
+
+  /*
+   * Registers the metrics of the database as an MBean, and prints their report on exit if
+   * requested.
+   */
+  private static void registerMetrics(Metrics metrics, String name) {
+    metrics.registerMBean(name);
+    if (METRICS_REPORT) {
+      metrics.printReportOnExit(System.out);
+    }
+  }
 }
@@ -1,13 +1,43 @@
 package com.ntu.bdm;
 
+import com.ntu.bdm.aggregate.AggregateCell;
+import com.ntu.bdm.aggregate.AggregateCube;
+import com.ntu.bdm.aggregate.MinMaxGroup;
+import com.ntu.bdm.aggregate.ParallelMinMaxAggregator;
+import com.ntu.bdm.bitmap.IntList;
+import com.ntu.bdm.bitmap.RoaringBitmap;
+import com.ntu.bdm.buffer.BitmapCache;
+import com.ntu.bdm.buffer.BufferPool;
+import com.ntu.bdm.catalog.Catalog;
+import com.ntu.bdm.execution.QueryPlan;
+import com.ntu.bdm.execution.QueryPlanner;
+import com.ntu.bdm.index.RangeColumnIndex;
+import com.ntu.bdm.index.RangeIndex;
+import com.ntu.bdm.index.RangeIndexFile;
+import com.ntu.bdm.index.SegmentedRangeIndex;
 import com.ntu.bdm.manager.ColumnIndexManager;
 import com.ntu.bdm.manager.ColumnVectorManager;
+import com.ntu.bdm.metrics.Metrics;
+import com.ntu.bdm.query.Query;
+import com.ntu.bdm.query.QueryResult;
+import com.ntu.bdm.query.Table;
 import com.ntu.bdm.util.CSVFileUtil;
+import com.ntu.bdm.util.CSVRowReader;
+import com.ntu.bdm.util.ColumnFileUtil;
 import com.ntu.bdm.util.FileUtil;
 import com.ntu.bdm.util.TimestampUtil;
+import com.ntu.bdm.vector.BufferedDoubleColumnVector;
+import com.ntu.bdm.vector.BufferedLongColumnVector;
+import com.ntu.bdm.vector.CategoricalColumnVector;
+import com.ntu.bdm.vector.DoubleColumn;
+import com.ntu.bdm.vector.DoubleColumnVector;
+import com.ntu.bdm.vector.LongColumn;
+import com.ntu.bdm.vector.LongColumnVector;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -16,32 +46,204 @@ import java.util.Map;
  * data in the disk in a column-oriented manner.
  *
  * It first processes the input CSV file into multiple
- * column store CSV files and index txt files in the disk.
- * It then uses the index files to perform search queries.
+ * binary column files and index txt files in the disk.
+ * It then uses the index files to perform search queries,
+ * reading the column files through a {@link BufferPool}
+ * so that a query only reads the pages holding its rows,
+ * and pages read by earlier queries are served from
+ * memory. Index files are decoded once into a
+ * {@link BitmapCache}, as the same station and year
+ * bitmaps recur in every monthly query.
+ *
+ * It is also a {@link Table} over its column and index
+ * files, so that general queries can be planned and
+ * executed with {@link #executeQuery(Query)}. The
+ * categorical fields are only held as index files, so
+ * their predicates are always evaluated through the
+ * indexes. Range index files of the double columns are
+ * opened as {@link RangeIndexFile}s, which keep their
+ * fence table in memory.
+ *
+ * New rows can be appended to the files on disk with
+ * {@link #appendToDisk()}, at a cost proportional to the
+ * new rows. Column files are appended in place, index
+ * bitmaps are combined with the bitmaps of the new rows
+ * and new categories create new index files. The range
+ * index of the new rows is written as a new segment,
+ * and the last segments are merged into it while they
+ * are at most RANGE_INDEX_MERGE_FACTOR times larger, so
+ * that segment sizes grow geometrically and a column
+ * only has a logarithmic number of segments.
+ *
+ * An {@link AggregateCube} of Temperature and Humidity by
+ * station, year and month is maintained while rows are
+ * ingested and written to disk/cube.agg with the store,
+ * merged with the cube of the rows already stored when
+ * rows are appended. Monthly minimum and maximum
+ * queries, and aggregate queries on these dimensions,
+ * are answered from it without reading the columns.
+ *
+ * Every write to the store ends by writing its
+ * {@link Catalog}, which describes the schema, the row
+ * count, the files and the index categories. A store
+ * which already exists is reopened with {@link #open()}
+ * from its catalog alone, without reading the input
+ * file again.
+ *
+ * The time spent ingesting, indexing, writing and
+ * querying, the rows read by every query and the bytes
+ * read from disk/ are recorded into its {@link Metrics}.
  *
  ********************************************************/
-public class DiskDatabase {
+public class DiskDatabase implements Table {
 
   private static final String EMPTY_DATA_SYMBOL = "M";
   private static final String DISK_COLUMN_STORAGE_PATH = "disk/column/";
   private static final String DISK_INDEX_STORAGE_PATH = "disk/index/";
+  private static final String CATALOG_FILE_PATH = "disk/catalog.properties";
+  private static final String AGGREGATE_CUBE_FILE_PATH = "disk/cube.agg";
+  private static final List<String> DOUBLE_FIELD_NAMES = Arrays.asList("Temperature", "Humidity");
+  private static final List<String> LONG_FIELD_NAMES = Collections.singletonList("Timestamp");
+  private static final List<String> CATEGORICAL_FIELD_NAMES = Arrays.asList("Year", "Month",
+      "Station");
+  private static final String[] CUBE_DIMENSION_FIELD_NAMES = new String[]{"Station", "Year",
+      "Month"};
+  private static final String[] CUBE_MEASURE_FIELD_NAMES = new String[]{"Temperature",
+      "Humidity"};
+  private static final String RANGE_INDEX_FILE_EXTENSION = ".rng";
+  private static final int RANGE_INDEX_MERGE_FACTOR = 4;
+  private static final long DEFAULT_BUFFER_POOL_CAPACITY = 64L << 20;
+  private static final long DEFAULT_BITMAP_CACHE_CAPACITY = 8L << 20;
+  private static final int PARSE_SAMPLE_MASK = 64 - 1;
 
   private ColumnVectorManager columnVectorManager;
   private ColumnIndexManager columnIndexManager;
+  private AggregateCube aggregateCube;
+  private AggregateCube storedAggregateCube;
+  private BufferPool bufferPool;
+  private BitmapCache bitmapCache;
+  private Map<String, RangeIndex> rangeIndexes;
+  private Catalog catalog;
+  private Metrics metrics;
 
   /**
-   * Instantiates a new DiskDatabase.
+   * Instantiates a new DiskDatabase with a buffer pool of 64 MB and a bitmap cache of 8 MB.
    */
   public DiskDatabase() {
+    this(DEFAULT_BUFFER_POOL_CAPACITY);
+  }
+
+  /**
+   * Instantiates a new DiskDatabase with a buffer pool holding at most bufferPoolCapacity bytes of
+   * column pages and a bitmap cache of 8 MB.
+   *
+   * @param bufferPoolCapacity the buffer pool capacity in bytes
+   */
+  public DiskDatabase(long bufferPoolCapacity) {
+    this(bufferPoolCapacity, DEFAULT_BITMAP_CACHE_CAPACITY);
+  }
+
+  /**
+   * Instantiates a new DiskDatabase with a buffer pool holding at most bufferPoolCapacity bytes of
+   * column pages and a bitmap cache holding at most bitmapCacheCapacity bytes of index bitmaps.
+   *
+   * @param bufferPoolCapacity  the buffer pool capacity in bytes
+   * @param bitmapCacheCapacity the bitmap cache capacity in bytes
+   */
+  public DiskDatabase(long bufferPoolCapacity, long bitmapCacheCapacity) {
     columnVectorManager = new ColumnVectorManager();
     columnIndexManager = new ColumnIndexManager();
+    aggregateCube = new AggregateCube(CUBE_DIMENSION_FIELD_NAMES, CUBE_MEASURE_FIELD_NAMES);
+    storedAggregateCube = null;
+    bufferPool = new BufferPool(bufferPoolCapacity);
+    bitmapCache = new BitmapCache(bitmapCacheCapacity);
+    rangeIndexes = new HashMap<>();
+    catalog = null;
+    metrics = new Metrics();
+
+    metrics.registerGauge("ingest.rowsPerSecond",
+        () -> metrics.getRatePerSecond("ingest.rows", "ingest.nanos"));
+    metrics.registerGauge("bufferPool.hits", bufferPool::getHitCount);
+    metrics.registerGauge("bufferPool.misses", bufferPool::getMissCount);
+    metrics.registerGauge("bufferPool.evictions", bufferPool::getEvictionCount);
+    metrics.registerGauge("bufferPool.hitRate",
+        () -> getHitRate(bufferPool.getHitCount(), bufferPool.getMissCount()));
+    metrics.registerGauge("bitmapCache.hits", bitmapCache::getHitCount);
+    metrics.registerGauge("bitmapCache.misses", bitmapCache::getMissCount);
+    metrics.registerGauge("bitmapCache.evictions", bitmapCache::getEvictionCount);
+    metrics.registerGauge("bitmapCache.hitRate",
+        () -> getHitRate(bitmapCache.getHitCount(), bitmapCache.getMissCount()));
+    metrics.registerGauge("disk.columnBytesRead", bufferPool::getBytesRead);
+    metrics.registerGauge("disk.indexBytesRead", bitmapCache::getBytesRead);
+  }
+
+  /**
+   * Open the store already on disk from its catalog, so that it can be queried without
+   * populating and writing it again. The store is only opened if the catalog was written with the
+   * current file formats and agrees with the row count of the column files. Its aggregate cube is
+   * read if the catalog lists one holding every row.
+   *
+   * @return true if the store was opened, false if it has to be written first
+   */
+  public boolean open() {
+    Catalog storedCatalog = Catalog.read(CATALOG_FILE_PATH);
+    if (storedCatalog == null
+        || storedCatalog.getColumnFormatVersion() != ColumnFileUtil.FORMAT_VERSION
+        || !new File(DISK_COLUMN_STORAGE_PATH + "Timestamp.col").isFile()) {
+      return false;
+    }
+    try {
+      if (readRowCount() != storedCatalog.getRowCount()) {
+        return false;
+      }
+    } catch (IllegalStateException e) {
+      return false;
+    }
+
+    catalog = storedCatalog;
+    rangeIndexes.clear();
+    storedAggregateCube = readAggregateCube(storedCatalog, storedCatalog.getRowCount());
+    return true;
+  }
+
+  /**
+   * Gets the catalog of the store, which is set once the store has been opened or its catalog
+   * has been written.
+   *
+   * @return the catalog, or null if there is none
+   */
+  public Catalog getCatalog() {
+    return catalog;
+  }
+
+  /**
+   * Gets the metrics of the database, e.g. to register them as an MBean or to print their report.
+   *
+   * @return the metrics
+   */
+  public Metrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Write the catalog of the store on disk, describing its column and index files as they are
+   * now. It must be called after the files have been written, and records the input file the
+   * store was built from.
+   *
+   * @param sourceFilePath the path of the input file
+   */
+  public void writeCatalog(String sourceFilePath) {
+    Catalog newCatalog = createCatalog();
+    newCatalog.setSource(sourceFilePath);
+    newCatalog.write(CATALOG_FILE_PATH);
+    catalog = newCatalog;
   }
 
   /**
    * Initialise ColumnVectors and CategoricalColumnVectors.
    */
   public void initialiseColumnVectors() {
-    columnVectorManager.createStringColumnVector("Timestamp");
+    columnVectorManager.createLongColumnVector("Timestamp");
     columnVectorManager.createCategoricalColumnVector("Station");
     columnVectorManager.createDoubleColumnVector("Temperature");
     columnVectorManager.createDoubleColumnVector("Humidity");
@@ -50,54 +252,177 @@ public class DiskDatabase {
   }
 
   /**
-   * Populate ColumnVectors and CategoricalColumnVectors with data from input CSV rows.
+   * Populate ColumnVectors and CategoricalColumnVectors with data from input CSV rows which are
+   * already held in memory, and add every row to the aggregate cube.
    *
    * @param csvRows the csv rows
    */
   public void populateColumnVectors(List<String[]> csvRows) {
+    String[] cubeCategories = new String[CUBE_DIMENSION_FIELD_NAMES.length];
+    double[] cubeValues = new double[CUBE_MEASURE_FIELD_NAMES.length];
+    boolean[] cubeNulls = new boolean[CUBE_MEASURE_FIELD_NAMES.length];
+
+    long start = System.nanoTime();
     for (String[] csvRow : csvRows) {
-      String timestamp = csvRow[1];
-      columnVectorManager.addToStringColumnVector("Timestamp", timestamp);
+      long timestamp = TimestampUtil.parseEpochMinute(csvRow[1]);
+      columnVectorManager.addToLongColumnVector("Timestamp", timestamp);
 
       String station = csvRow[2];
       columnVectorManager.addToCategoricalColumnVector("Station", station);
 
       String temperatureString = csvRow[3];
-      Double temperature =
-          temperatureString.equals(EMPTY_DATA_SYMBOL) ? null : Double.valueOf(temperatureString);
-      columnVectorManager.addToDoubleColumnVector("Temperature", temperature);
+      cubeNulls[0] = temperatureString.equals(EMPTY_DATA_SYMBOL);
+      if (cubeNulls[0]) {
+        columnVectorManager.addNullToDoubleColumnVector("Temperature");
+      } else {
+        cubeValues[0] = Double.parseDouble(temperatureString);
+        columnVectorManager.addToDoubleColumnVector("Temperature", cubeValues[0]);
+      }
 
       String humidityString = csvRow[4];
-      Double humidity =
-          humidityString.equals(EMPTY_DATA_SYMBOL) ? null : Double.valueOf(humidityString);
-      columnVectorManager.addToDoubleColumnVector("Humidity", humidity);
+      cubeNulls[1] = humidityString.equals(EMPTY_DATA_SYMBOL);
+      if (cubeNulls[1]) {
+        columnVectorManager.addNullToDoubleColumnVector("Humidity");
+      } else {
+        cubeValues[1] = Double.parseDouble(humidityString);
+        columnVectorManager.addToDoubleColumnVector("Humidity", cubeValues[1]);
+      }
 
-      String year = TimestampUtil.parseAndGetYear(timestamp);
+      String year = TimestampUtil.getYear(timestamp);
       columnVectorManager.addToCategoricalColumnVector("Year", year);
 
-      String month = TimestampUtil.parseAndGetMonth(timestamp);
+      String month = TimestampUtil.getMonth(timestamp);
       columnVectorManager.addToCategoricalColumnVector("Month", month);
+
+      cubeCategories[0] = station;
+      cubeCategories[1] = year;
+      cubeCategories[2] = month;
+      aggregateCube.addRow(cubeCategories, cubeValues, cubeNulls);
     }
+    metrics.add("ingest.rows", csvRows.size());
+    metrics.recordNanosSince("ingest.nanos", start);
+  }
+
+  /**
+   * Populate ColumnVectors and CategoricalColumnVectors with data streamed from an input CSV file.
+   * Rows are read one at a time and appended straight into the column vectors, so the rows of the
+   * input file are never held in memory together. Every row is also added to the aggregate cube.
+   * The time taken to read and parse a row is sampled once every 64 rows.
+   *
+   * @param csvRowReader the csv row reader
+   */
+  public void populateColumnVectors(CSVRowReader csvRowReader) {
+    LongColumnVector timestampColumnVector = columnVectorManager.getLongColumnVector("Timestamp");
+    CategoricalColumnVector<String> stationColumnVector =
+        columnVectorManager.getCategoricalColumnVector("Station");
+    DoubleColumnVector temperatureColumnVector = columnVectorManager.getDoubleColumnVector(
+        "Temperature");
+    DoubleColumnVector humidityColumnVector = columnVectorManager.getDoubleColumnVector(
+        "Humidity");
+    CategoricalColumnVector<String> yearColumnVector =
+        columnVectorManager.getCategoricalColumnVector("Year");
+    CategoricalColumnVector<String> monthColumnVector =
+        columnVectorManager.getCategoricalColumnVector("Month");
+    String[] cubeCategories = new String[CUBE_DIMENSION_FIELD_NAMES.length];
+    double[] cubeValues = new double[CUBE_MEASURE_FIELD_NAMES.length];
+    boolean[] cubeNulls = new boolean[CUBE_MEASURE_FIELD_NAMES.length];
+
+    String station = null;
+    int rowCount = 0;
+    long start = System.nanoTime();
+    long parseStart = start;
+    while (csvRowReader.readNext()) {
+      // The timestamp is parsed straight from the reader buffer into an epoch minute.
+      long timestamp = TimestampUtil.parseEpochMinute(csvRowReader.getBuffer(),
+          csvRowReader.getFieldStart(1), csvRowReader.getFieldLength(1));
+
+      // Consecutive rows usually share the station, in which case its String is reused.
+      station = csvRowReader.getField(2, station);
+
+      boolean temperatureNull = csvRowReader.fieldEquals(3, EMPTY_DATA_SYMBOL);
+      double temperature = temperatureNull ? 0 : csvRowReader.parseDoubleField(3);
+      boolean humidityNull = csvRowReader.fieldEquals(4, EMPTY_DATA_SYMBOL);
+      double humidity = humidityNull ? 0 : csvRowReader.parseDoubleField(4);
+
+      if ((rowCount & PARSE_SAMPLE_MASK) == 0) {
+        metrics.recordNanosSince("ingest.parseRow.nanos", parseStart);
+      }
+
+      timestampColumnVector.add(timestamp);
+      stationColumnVector.add(station);
+      if (temperatureNull) {
+        temperatureColumnVector.addNull();
+      } else {
+        temperatureColumnVector.add(temperature);
+      }
+      if (humidityNull) {
+        humidityColumnVector.addNull();
+      } else {
+        humidityColumnVector.add(humidity);
+      }
+      String year = TimestampUtil.getYear(timestamp);
+      yearColumnVector.add(year);
+      String month = TimestampUtil.getMonth(timestamp);
+      monthColumnVector.add(month);
+
+      cubeCategories[0] = station;
+      cubeCategories[1] = year;
+      cubeCategories[2] = month;
+      cubeValues[0] = temperature;
+      cubeNulls[0] = temperatureNull;
+      cubeValues[1] = humidity;
+      cubeNulls[1] = humidityNull;
+      aggregateCube.addRow(cubeCategories, cubeValues, cubeNulls);
+
+      if ((++rowCount & PARSE_SAMPLE_MASK) == 0) {
+        parseStart = System.nanoTime();
+      }
+    }
+    metrics.add("ingest.rows", rowCount);
+    metrics.recordNanosSince("ingest.nanos", start);
   }
 
   /**
    * Create CategoricalColumnIndexes.
    */
   public void createCategoricalColumnIndexes() {
-    columnIndexManager.constructCategoricalColumnIndexes(
-        columnVectorManager.getCategoricalColumnVectors());
+    for (Map.Entry<String, CategoricalColumnVector<String>> entry
+        : columnVectorManager.getCategoricalColumnVectors().entrySet()) {
+      long start = System.nanoTime();
+      columnIndexManager.constructCategoricalColumnIndex(entry.getKey(), entry.getValue());
+      metrics.recordNanosSince("index.categorical." + entry.getKey() + ".nanos", start);
+    }
   }
 
   /**
-   * Write ColumnVectors to disk as CSV files.
+   * Write ColumnVectors to disk as binary column files.
    */
   public void writeColumnVectorsToDisk() {
+    long start = System.nanoTime();
+    deleteCatalog();
+    bufferPool.invalidate(DISK_COLUMN_STORAGE_PATH + "Timestamp.col");
+    bufferPool.invalidate(DISK_COLUMN_STORAGE_PATH + "Temperature.col");
+    bufferPool.invalidate(DISK_COLUMN_STORAGE_PATH + "Humidity.col");
+
+    ColumnFileUtil.writeLongColumnVector(DISK_COLUMN_STORAGE_PATH + "Timestamp.col",
+        columnVectorManager.getLongColumnVector("Timestamp"));
+    ColumnFileUtil.writeDoubleColumnVector(DISK_COLUMN_STORAGE_PATH + "Temperature.col",
+        columnVectorManager.getDoubleColumnVector("Temperature"));
+    ColumnFileUtil.writeDoubleColumnVector(DISK_COLUMN_STORAGE_PATH + "Humidity.col",
+        columnVectorManager.getDoubleColumnVector("Humidity"));
+    metrics.recordNanosSince("write.columns.nanos", start);
+  }
+
+  /**
+   * Export ColumnVectors to disk as CSV files. The CSV files are not used for querying.
+   */
+  public void exportColumnVectorsToCSV() {
     String timestampColumnFilePath = DISK_COLUMN_STORAGE_PATH + "Timestamp.csv";
     String[] timestampColumnFileHeader = new String[]{"id", "Timestamp"};
 
     CSVFileUtil.writeHeader(timestampColumnFilePath, timestampColumnFileHeader);
     CSVFileUtil.writeDataAtOnce(timestampColumnFilePath,
-        columnVectorManager.serialiseStringColumnVector("Timestamp"));
+        columnVectorManager.serialiseTimestampColumnVector("Timestamp"));
 
     String temperatureColumnFilePath = DISK_COLUMN_STORAGE_PATH + "Temperature.csv";
     String[] temperatureColumnFileHeader = new String[]{"id", "Temperature"};
@@ -120,6 +445,11 @@ public class DiskDatabase {
    * Write CategoricalColumnIndexes to disk as txt files.
    */
   public void writeCategoricalColumnIndexesToDisk() {
+    long start = System.nanoTime();
+    bitmapCache.invalidate("Year");
+    bitmapCache.invalidate("Month");
+    bitmapCache.invalidate("Station");
+
     Map<String, byte[]> serialisedYear = columnIndexManager.serialiseCategoricalColumnIndex(
         "Year");
     for (Map.Entry<String, byte[]> entry : serialisedYear.entrySet()) {
@@ -146,6 +476,85 @@ public class DiskDatabase {
       String indexFilePath = DISK_INDEX_STORAGE_PATH + "/station/" + category + ".txt";
       FileUtil.writeBytesToFile(indexFilePath, bytes);
     }
+    metrics.recordNanosSince("write.categoricalIndexes.nanos", start);
+  }
+
+  /**
+   * Create RangeColumnIndexes of the Temperature and Humidity columns.
+   */
+  public void createRangeColumnIndexes() {
+    for (String fieldName : DOUBLE_FIELD_NAMES) {
+      long start = System.nanoTime();
+      columnIndexManager.constructRangeColumnIndex(fieldName,
+          columnVectorManager.getDoubleColumnVector(fieldName));
+      metrics.recordNanosSince("index.range." + fieldName + ".nanos", start);
+    }
+  }
+
+  /**
+   * Write RangeColumnIndexes to disk as rng files.
+   */
+  public void writeRangeColumnIndexesToDisk() {
+    long start = System.nanoTime();
+    for (String fieldName : DOUBLE_FIELD_NAMES) {
+      rangeIndexes.remove(fieldName);
+      for (int sequence : getRangeIndexSegmentSequences(fieldName)) {
+        if (sequence > 0) {
+          new File(getRangeIndexFilePath(fieldName, sequence)).delete();
+        }
+      }
+      FileUtil.writeBytesToFile(getRangeIndexFilePath(fieldName, 0),
+          columnIndexManager.serialiseRangeColumnIndex(fieldName));
+    }
+    metrics.recordNanosSince("write.rangeIndexes.nanos", start);
+  }
+
+  /**
+   * Write the aggregate cube of the rows held in the ColumnVectors to disk as a cube file, from
+   * which the store is then queried. It must be written after the column files, and before the
+   * catalog, which lists it.
+   */
+  public void writeAggregateCubeToDisk() {
+    long start = System.nanoTime();
+    FileUtil.writeBytesToFile(AGGREGATE_CUBE_FILE_PATH, aggregateCube.serialise());
+    storedAggregateCube = aggregateCube;
+    metrics.recordNanosSince("write.aggregateCube.nanos", start);
+  }
+
+  /**
+   * Append the rows held in the ColumnVectors and CategoricalColumnVectors to the column and index
+   * files on disk, after the rows already stored there. The indexes of the new rows are created
+   * first, and are then combined with the index files. The aggregate cube of the new rows is
+   * merged with the cube of the rows on disk, unless the store has none. The files are written as
+   * a whole if there are no rows on disk yet.
+   */
+  public void appendToDisk() {
+    long start = System.nanoTime();
+    Catalog previousCatalog = Catalog.read(CATALOG_FILE_PATH);
+    int firstPosition = new File(DISK_COLUMN_STORAGE_PATH + "Timestamp.col").isFile()
+        ? readRowCount() : 0;
+    AggregateCube previousAggregateCube = readAggregateCube(previousCatalog, firstPosition);
+    deleteCatalog();
+
+    columnIndexManager.constructCategoricalColumnIndexes(
+        columnVectorManager.getCategoricalColumnVectors(), firstPosition);
+    for (String fieldName : DOUBLE_FIELD_NAMES) {
+      columnIndexManager.constructRangeColumnIndex(fieldName,
+          columnVectorManager.getDoubleColumnVector(fieldName), firstPosition);
+    }
+
+    appendColumnVectorsToDisk();
+    appendCategoricalColumnIndexesToDisk();
+    appendRangeColumnIndexesToDisk();
+    appendAggregateCubeToDisk(previousAggregateCube, firstPosition);
+
+    Catalog newCatalog = createCatalog();
+    if (previousCatalog != null) {
+      newCatalog.setSource(previousCatalog);
+    }
+    newCatalog.write(CATALOG_FILE_PATH);
+    catalog = newCatalog;
+    metrics.recordNanosSince("write.append.nanos", start);
   }
 
   /**
@@ -162,6 +571,31 @@ public class DiskDatabase {
     columnIndexManager = null;
   }
 
+  /**
+   * Close the BufferPool, dropping its pages and closing its column files.
+   */
+  public void closeBufferPool() {
+    bufferPool.close();
+  }
+
+  /**
+   * Gets the BufferPool the column files are read through, e.g. to read its hit and miss counts.
+   *
+   * @return the buffer pool
+   */
+  public BufferPool getBufferPool() {
+    return bufferPool;
+  }
+
+  /**
+   * Gets the BitmapCache the index files are read through, e.g. to read its hit and miss counts.
+   *
+   * @return the bitmap cache
+   */
+  public BitmapCache getBitmapCache() {
+    return bitmapCache;
+  }
+
   /**
    * Gets list of string array. Each element in list represents an output CSV row. The list of
    * string array contain minimum and maximum values of column with the fieldName. The minimum and
@@ -174,153 +608,525 @@ public class DiskDatabase {
    */
   public List<String[]> getMinMaxRowsWithDistinctDateForFieldMatchingQueryParams(String fieldName,
       Map<String, String> queryParams) {
-    List<String[]> minMaxRows = new ArrayList<>();
+    return getMinMaxRowsWithDistinctDateForFieldMatchingQueryParams(fieldName, queryParams, 1);
+  }
 
-    List<List<Integer>> minMaxPositionList = getMinMaxPositionListForFieldMatchingQueryParams(
-        fieldName, queryParams);
-    List<Integer> minPositionList = minMaxPositionList.get(0);
-    List<Integer> maxPositionList = minMaxPositionList.get(1);
+  /**
+   * Gets list of string array in the same manner as
+   * {@link #getMinMaxRowsWithDistinctDateForFieldMatchingQueryParams(String, Map)}, searching the
+   * column with parallelism threads. A parallelism of 1 searches sequentially. The minimum and
+   * maximum values are looked up from the aggregate cube of the store instead if it has one and
+   * the query params are exactly a station, year and month, and only the rows holding them are
+   * then read.
+   *
+   * @param fieldName   the field name
+   * @param queryParams the query params
+   * @param parallelism the degree of parallelism, at least 1
+   * @return the min max rows with distinct date for field matching query params
+   */
+  public List<String[]> getMinMaxRowsWithDistinctDateForFieldMatchingQueryParams(String fieldName,
+      Map<String, String> queryParams, int parallelism) {
+    long start = System.nanoTime();
+    DoubleColumn doubleColumn = new BufferedDoubleColumnVector(bufferPool,
+        DISK_COLUMN_STORAGE_PATH + fieldName + ".col");
 
-    String timestampColumnFilePath = DISK_COLUMN_STORAGE_PATH + "Timestamp.csv";
-    List<String[]> timestampColumnRows = CSVFileUtil.readDataAtOnce(timestampColumnFilePath);
+    MinMaxGroup minMax = getMinMaxForFieldFromAggregateCube(fieldName, queryParams);
+    if (minMax == null) {
+      minMax = getMinMaxForFieldMatchingQueryParams(doubleColumn, queryParams, parallelism);
+    }
 
-    String columnFilePath = DISK_COLUMN_STORAGE_PATH + fieldName + ".csv";
-    List<String[]> columnRows = CSVFileUtil.readDataAtOnce(columnFilePath);
+    List<String[]> minMaxRows = constructMinMaxRows(minMax, queryParams.get("Station"), fieldName,
+        doubleColumn);
+    metrics.recordNanosSince("query.minMax.nanos", start);
+    return minMaxRows;
+  }
 
-    for (Integer position : minPositionList) {
-      String category = "Min " + fieldName;
-      String[] newRow = constructNewRow(position, queryParams.get("Station"), category,
-          timestampColumnRows, columnRows);
+  /**
+   * Plan a query against the column and index files, choosing by estimated cost between reading
+   * the matching rows through the indexes and scanning every row.
+   *
+   * @param query the query
+   * @return the query plan
+   */
+  public QueryPlan planQuery(Query query) {
+    long start = System.nanoTime();
+    QueryPlan queryPlan = QueryPlanner.plan(query, this);
+    metrics.recordNanosSince("query.plan.nanos", start);
+    return queryPlan;
+  }
 
-      if (checkNewRowIsDifferent(minMaxRows, newRow)) {
-        minMaxRows.add(newRow);
+  /**
+   * Plan and execute a query against the column and index files, which must have been written to
+   * disk first.
+   *
+   * @param query the query
+   * @return the query result
+   */
+  public QueryResult executeQuery(Query query) {
+    long start = System.nanoTime();
+    QueryPlan queryPlan = planQuery(query);
+    QueryResult queryResult = queryPlan.execute();
+    metrics.recordNanosSince("query.execute.nanos", start);
+    metrics.increment("query.execute." + queryPlan.getAccessPath().name().toLowerCase());
+    metrics.add("query.rowsScanned", queryPlan.getScannedRowCount());
+    metrics.add("query.rowsMatched", queryPlan.getMatchedRowCount());
+    return queryResult;
+  }
+
+  /**
+   * Gets the number of rows of the store, from the catalog if there is one and otherwise from the
+   * header of the Timestamp column file.
+   *
+   * @return the row count
+   */
+  @Override
+  public int getRowCount() {
+    if (catalog != null) {
+      return catalog.getRowCount();
+    }
+    return readRowCount();
+  }
+
+  /**
+   * Gets the categories of the field with the fieldName, from the catalog if there is one and
+   * otherwise by listing its index directory.
+   *
+   * @param fieldName the field name
+   * @return the categories in sorted order
+   */
+  @Override
+  public List<String> getCategoriesForField(String fieldName) {
+    if (catalog != null) {
+      return catalog.getCategories(fieldName);
+    }
+    String indexDirectoryPath = DISK_INDEX_STORAGE_PATH + fieldName.toLowerCase();
+    if (!new File(indexDirectoryPath).isDirectory()) {
+      return Collections.emptyList();
+    }
+    return FileUtil.listFileNamesWithExtension(indexDirectoryPath, ".txt");
+  }
+
+  /**
+   * Gets the bitmap of the category of the field from the bitmap cache, which reads it from its
+   * index file on a miss. The bitmap is shared with the cache and must not be modified.
+   *
+   * @param fieldName the field name
+   * @param category  the category
+   * @return the bitmap, which is empty if there is no index file for category
+   */
+  @Override
+  public RoaringBitmap getBitmapForFieldWithCategory(String fieldName, String category) {
+    return bitmapCache.getBitmap(fieldName, category, getIndexFilePath(fieldName, category));
+  }
+
+  /**
+   * Gets the column of the categorical field with the fieldName, which is always null as the
+   * categorical fields are only written to disk as index files.
+   *
+   * @param fieldName the field name
+   * @return null
+   */
+  @Override
+  public CategoricalColumnVector<String> getCategoricalColumnVector(String fieldName) {
+    return null;
+  }
+
+  @Override
+  public DoubleColumn getDoubleColumn(String fieldName) {
+    if (!DOUBLE_FIELD_NAMES.contains(fieldName)) {
+      return null;
+    }
+    return new BufferedDoubleColumnVector(bufferPool,
+        DISK_COLUMN_STORAGE_PATH + fieldName + ".col");
+  }
+
+  /**
+   * Gets the range index of the double field with the fieldName from its rng segment files, whose
+   * fence tables are read once and kept for later queries. A field with several segments gets a
+   * {@link SegmentedRangeIndex} over them.
+   *
+   * @param fieldName the field name
+   * @return the range index, or null if the field has no rng file
+   */
+  @Override
+  public RangeIndex getRangeIndex(String fieldName) {
+    if (!DOUBLE_FIELD_NAMES.contains(fieldName)) {
+      return null;
+    }
+    RangeIndex rangeIndex = rangeIndexes.get(fieldName);
+    if (rangeIndex == null) {
+      List<RangeIndexFile> segments = new ArrayList<>();
+      for (String filePath : getRangeIndexFilePaths(fieldName)) {
+        segments.add(new RangeIndexFile(filePath));
+      }
+      if (segments.isEmpty()) {
+        return null;
       }
+      rangeIndex = segments.size() == 1 ? segments.get(0) : new SegmentedRangeIndex(segments);
+      rangeIndexes.put(fieldName, rangeIndex);
     }
+    return rangeIndex;
+  }
 
-    for (Integer position : maxPositionList) {
-      String category = "Max " + fieldName;
-      String[] newRow = constructNewRow(position, queryParams.get("Station"), category,
-          timestampColumnRows, columnRows);
+  /**
+   * Gets the aggregate cube of the store, which is set once the store has been opened with an
+   * aggregate cube or its aggregate cube has been written.
+   *
+   * @return the aggregate cube, or null if the store has none holding every row
+   */
+  @Override
+  public AggregateCube getAggregateCube() {
+    return storedAggregateCube;
+  }
 
-      if (checkNewRowIsDifferent(minMaxRows, newRow)) {
-        minMaxRows.add(newRow);
+  @Override
+  public LongColumn getLongColumn(String fieldName) {
+    if (!LONG_FIELD_NAMES.contains(fieldName)) {
+      return null;
+    }
+    return new BufferedLongColumnVector(bufferPool,
+        DISK_COLUMN_STORAGE_PATH + fieldName + ".col");
+  }
+
+  /*
+   * Appends ColumnVectors to the binary column files, then drops the pages of the files from the
+   * buffer pool, as their last page and header have changed.
+   */
+  private void appendColumnVectorsToDisk() {
+    ColumnFileUtil.appendLongColumnVector(DISK_COLUMN_STORAGE_PATH + "Timestamp.col",
+        columnVectorManager.getLongColumnVector("Timestamp"));
+    ColumnFileUtil.appendDoubleColumnVector(DISK_COLUMN_STORAGE_PATH + "Temperature.col",
+        columnVectorManager.getDoubleColumnVector("Temperature"));
+    ColumnFileUtil.appendDoubleColumnVector(DISK_COLUMN_STORAGE_PATH + "Humidity.col",
+        columnVectorManager.getDoubleColumnVector("Humidity"));
+
+    bufferPool.invalidate(DISK_COLUMN_STORAGE_PATH + "Timestamp.col");
+    bufferPool.invalidate(DISK_COLUMN_STORAGE_PATH + "Temperature.col");
+    bufferPool.invalidate(DISK_COLUMN_STORAGE_PATH + "Humidity.col");
+  }
+
+  /*
+   * Combines the bitmap of every category of the new rows with the bitmap in its index file, or
+   * writes it as a new index file if the category is new.
+   */
+  private void appendCategoricalColumnIndexesToDisk() {
+    for (String fieldName : CATEGORICAL_FIELD_NAMES) {
+      bitmapCache.invalidate(fieldName);
+
+      Map<String, byte[]> serialisedIndex = columnIndexManager.serialiseCategoricalColumnIndex(
+          fieldName);
+      for (Map.Entry<String, byte[]> entry : serialisedIndex.entrySet()) {
+        String indexFilePath = getIndexFilePath(fieldName, entry.getKey());
+        if (!new File(indexFilePath).isFile()) {
+          FileUtil.writeBytesToFile(indexFilePath, entry.getValue());
+          continue;
+        }
+
+        RoaringBitmap bitmap = RoaringBitmap.valueOf(FileUtil.readBytesFromFile(indexFilePath));
+        bitmap.or(RoaringBitmap.valueOf(entry.getValue()));
+        bitmap.runOptimize();
+        FileUtil.writeBytesToFile(indexFilePath, bitmap.toByteArray());
       }
     }
+  }
 
-    return minMaxRows;
+  /*
+   * Writes the range index of the new rows as a new segment, after merging into it the last
+   * segments which are at most RANGE_INDEX_MERGE_FACTOR times larger. The merged segment takes
+   * the place of the earliest segment merged into it.
+   */
+  private void appendRangeColumnIndexesToDisk() {
+    for (String fieldName : DOUBLE_FIELD_NAMES) {
+      rangeIndexes.remove(fieldName);
+
+      RangeColumnIndex segment = columnIndexManager.getRangeColumnIndex(fieldName);
+      List<Integer> sequences = getRangeIndexSegmentSequences(fieldName);
+      if (segment.getValueCount() == 0 && !sequences.isEmpty()) {
+        continue;
+      }
+
+      int sequence = sequences.isEmpty() ? 0 : sequences.get(sequences.size() - 1) + 1;
+      List<Integer> mergedSequences = new ArrayList<>();
+      while (!sequences.isEmpty()) {
+        int lastSequence = sequences.get(sequences.size() - 1);
+        String lastFilePath = getRangeIndexFilePath(fieldName, lastSequence);
+        if (new RangeIndexFile(lastFilePath).getValueCount()
+            > (long) segment.getValueCount() * RANGE_INDEX_MERGE_FACTOR) {
+          break;
+        }
+        segment = RangeColumnIndex.merge(
+            RangeColumnIndex.deserialise(FileUtil.readBytesFromFile(lastFilePath)), segment);
+        sequences.remove(sequences.size() - 1);
+        mergedSequences.add(lastSequence);
+        sequence = lastSequence;
+      }
+
+      FileUtil.writeBytesToFile(getRangeIndexFilePath(fieldName, sequence), segment.serialise());
+      for (int mergedSequence : mergedSequences) {
+        if (mergedSequence != sequence) {
+          new File(getRangeIndexFilePath(fieldName, mergedSequence)).delete();
+        }
+      }
+    }
   }
 
   /*
-   * Gets a list of minimum and maximum indexes for column with the fieldName. The indexes belong to
-   * the rows that satisfy the year, month and station conditions inside query parameters.
+   * Writes the aggregate cube of the new rows merged after previousAggregateCube, the cube of the
+   * firstPosition rows already on disk. A store which has rows but no aggregate cube is left
+   * without one.
    */
-  private List<List<Integer>> getMinMaxPositionListForFieldMatchingQueryParams(String fieldName,
-      Map<String, String> queryParams) {
-    List<Integer> positionList = getPositionListMatchingQueryParams(queryParams);
+  private void appendAggregateCubeToDisk(AggregateCube previousAggregateCube, int firstPosition) {
+    AggregateCube mergedAggregateCube;
+    if (firstPosition == 0) {
+      mergedAggregateCube = aggregateCube;
+    } else if (previousAggregateCube != null) {
+      mergedAggregateCube = AggregateCube.merge(previousAggregateCube, aggregateCube);
+    } else {
+      return;
+    }
+    FileUtil.writeBytesToFile(AGGREGATE_CUBE_FILE_PATH, mergedAggregateCube.serialise());
+    storedAggregateCube = mergedAggregateCube;
+  }
+
+  /*
+   * Reads the aggregate cube listed in storeCatalog, or gets null if there is none or it does not
+   * hold exactly rowCount rows.
+   */
+  private AggregateCube readAggregateCube(Catalog storeCatalog, int rowCount) {
+    if (storeCatalog == null || storeCatalog.getAggregateCubePath() == null
+        || !new File(storeCatalog.getAggregateCubePath()).isFile()) {
+      return null;
+    }
+    AggregateCube storeAggregateCube = AggregateCube.deserialise(
+        FileUtil.readBytesFromFile(storeCatalog.getAggregateCubePath()));
+    return storeAggregateCube.getRowCount() == rowCount ? storeAggregateCube : null;
+  }
 
-    List<Integer> minPositionList = new ArrayList<>();
-    List<Integer> maxPositionList = new ArrayList<>();
+  /*
+   * Gets the row count from the header of the Timestamp column file.
+   */
+  private int readRowCount() {
+    bufferPool.invalidate(DISK_COLUMN_STORAGE_PATH + "Timestamp.col");
+    return new BufferedLongColumnVector(bufferPool, DISK_COLUMN_STORAGE_PATH + "Timestamp.col")
+        .getValueCount();
+  }
 
-    if (positionList.size() == 0) {
-      return List.of(minPositionList, maxPositionList);
+  /*
+   * Creates the catalog describing the column and index files on disk as they are now.
+   */
+  private Catalog createCatalog() {
+    Catalog newCatalog = new Catalog();
+    newCatalog.setColumnFormatVersion(ColumnFileUtil.FORMAT_VERSION);
+    newCatalog.setRowCount(readRowCount());
+    if (storedAggregateCube != null) {
+      newCatalog.setAggregateCubePath(AGGREGATE_CUBE_FILE_PATH);
+    }
+    for (String fieldName : LONG_FIELD_NAMES) {
+      newCatalog.addColumnField(fieldName, Catalog.FieldType.LONG,
+          DISK_COLUMN_STORAGE_PATH + fieldName + ".col");
     }
+    for (String fieldName : DOUBLE_FIELD_NAMES) {
+      newCatalog.addColumnField(fieldName, Catalog.FieldType.DOUBLE,
+          DISK_COLUMN_STORAGE_PATH + fieldName + ".col");
+      newCatalog.setRangeIndexFilePaths(fieldName, listRangeIndexFilePaths(fieldName));
+    }
+    for (String fieldName : CATEGORICAL_FIELD_NAMES) {
+      String indexDirectoryPath = DISK_INDEX_STORAGE_PATH + fieldName.toLowerCase();
+      newCatalog.addCategoricalField(fieldName, indexDirectoryPath,
+          FileUtil.listFileNamesWithExtension(indexDirectoryPath, ".txt"));
+    }
+    return newCatalog;
+  }
 
-    String columnFilePath = DISK_COLUMN_STORAGE_PATH + fieldName + ".csv";
-    List<String[]> csvRows = CSVFileUtil.readDataAtOnce(columnFilePath);
+  /*
+   * Deletes the catalog and the aggregate cube before the files on disk are changed, so that a
+   * store left incomplete is never opened and a cube of other rows is never read.
+   */
+  private void deleteCatalog() {
+    new File(CATALOG_FILE_PATH).delete();
+    new File(AGGREGATE_CUBE_FILE_PATH).delete();
+    catalog = null;
+    storedAggregateCube = null;
+  }
 
-    String[] csvRow = csvRows.get(positionList.get(0));
+  /*
+   * Gets the paths of the range index segment files of the field with the fieldName, from the
+   * catalog if there is one and otherwise by listing the index directory.
+   */
+  private List<String> getRangeIndexFilePaths(String fieldName) {
+    if (catalog != null) {
+      return catalog.getRangeIndexFilePaths(fieldName);
+    }
+    return listRangeIndexFilePaths(fieldName);
+  }
 
-    Double minimum = Double.valueOf(csvRow[1]);
-    Double maximum = Double.valueOf(csvRow[1]);
+  /*
+   * Lists the paths of the range index segment files of the field with the fieldName in the index
+   * directory, in the order of the rows they index.
+   */
+  private List<String> listRangeIndexFilePaths(String fieldName) {
+    List<String> filePaths = new ArrayList<>();
+    for (int sequence : getRangeIndexSegmentSequences(fieldName)) {
+      filePaths.add(getRangeIndexFilePath(fieldName, sequence));
+    }
+    return filePaths;
+  }
 
-    for (Integer position : positionList) {
+  /*
+   * Gets the path of the index file of the category of the field with the fieldName.
+   */
+  private String getIndexFilePath(String fieldName, String category) {
+    return DISK_INDEX_STORAGE_PATH + fieldName.toLowerCase() + "/" + category + ".txt";
+  }
 
-      csvRow = csvRows.get(position);
+  /*
+   * Gets the path of a range index segment file of the field with the fieldName. The first
+   * segment has sequence 0 and is named after the field alone.
+   */
+  private String getRangeIndexFilePath(String fieldName, int sequence) {
+    String segmentName = sequence == 0 ? "" : "." + sequence;
+    return DISK_INDEX_STORAGE_PATH + fieldName.toLowerCase() + segmentName
+        + RANGE_INDEX_FILE_EXTENSION;
+  }
 
-      // Check if current value is null
-      if (csvRow[1].equals(EMPTY_DATA_SYMBOL)) {
-        continue;
+  /*
+   * Gets the sequences of the range index segment files of the field with the fieldName on disk,
+   * in increasing order, which is the order of the rows they index.
+   */
+  private List<Integer> getRangeIndexSegmentSequences(String fieldName) {
+    String prefix = fieldName.toLowerCase();
+    List<Integer> sequences = new ArrayList<>();
+    for (String fileName : FileUtil.listFileNamesWithExtension(DISK_INDEX_STORAGE_PATH,
+        RANGE_INDEX_FILE_EXTENSION)) {
+      if (fileName.equals(prefix)) {
+        sequences.add(0);
+      } else if (fileName.startsWith(prefix + ".")) {
+        sequences.add(Integer.parseInt(fileName.substring(prefix.length() + 1)));
       }
+    }
+    Collections.sort(sequences);
+    return sequences;
+  }
 
-      Double current = Double.valueOf(csvRow[1]);
-
-      /*
-       * If current value if less than minimum value encountered so far, set minimum value to
-       * current value, clear list of minimum indexes before adding current value index to list of
-       * minimum indexes.
-       *
-       * Else if current value is equal to minimum value encountered so far, add current value
-       * index to list of minimum indexes.
-       */
-      if (current < minimum) {
-        minimum = current;
-        minPositionList.clear();
-        minPositionList.add(position);
-      } else if (current.equals(minimum)) {
-        minPositionList.add(position);
+  /*
+   * Gets list of string array representing output CSV rows from the minimum and maximum indexes
+   * for column stored in doubleColumn. Consecutive rows that are the same are only kept once.
+   */
+  private List<String[]> constructMinMaxRows(MinMaxGroup minMax, String station,
+      String fieldName, DoubleColumn doubleColumn) {
+    List<String[]> minMaxRows = new ArrayList<>();
+
+    IntList minPositionList = minMax.getMinPositionList();
+    IntList maxPositionList = minMax.getMaxPositionList();
+
+    LongColumn timestampColumn = new BufferedLongColumnVector(bufferPool,
+        DISK_COLUMN_STORAGE_PATH + "Timestamp.col");
+
+    for (int i = 0; i < minPositionList.size(); i++) {
+      int position = minPositionList.get(i);
+      String category = "Min " + fieldName;
+      String[] newRow = constructNewRow(position, station, category, timestampColumn,
+          doubleColumn);
+
+      if (checkNewRowIsDifferent(minMaxRows, newRow)) {
+        minMaxRows.add(newRow);
       }
+    }
+
+    for (int i = 0; i < maxPositionList.size(); i++) {
+      int position = maxPositionList.get(i);
+      String category = "Max " + fieldName;
+      String[] newRow = constructNewRow(position, station, category, timestampColumn,
+          doubleColumn);
 
-      /*
-       * If current value if more than maximum value encountered so far, set maximum value to
-       * current value, clear list of maximum indexes before adding current value index to list of
-       * maximum indexes.
-       *
-       * Else if current value is equal to maximum value encountered so far, add current value
-       * index to list of maximum indexes.
-       */
-      if (current > maximum) {
-        maximum = current;
-        maxPositionList.clear();
-        maxPositionList.add(position);
-      } else if (current.equals(maximum)) {
-        maxPositionList.add(position);
+      if (checkNewRowIsDifferent(minMaxRows, newRow)) {
+        minMaxRows.add(newRow);
       }
     }
 
-    return List.of(minPositionList, maxPositionList);
+    return minMaxRows;
   }
 
   /*
-   * Gets list of indexes of rows that satisfy the year, month and station conditions inside query
-   * parameters.
+   * Gets the minimum and maximum indexes for column with the fieldName from the cell of the
+   * aggregate cube holding the station, year and month inside query parameters, or null if the
+   * store has no aggregate cube, the column is not a measure of it or the query parameters are not
+   * exactly its dimensions. Only then is the result empty when no cell holds the categories.
    */
-  private List<Integer> getPositionListMatchingQueryParams(Map<String, String> queryParams) {
-    List<Integer> positionList = new ArrayList<>();
+  private MinMaxGroup getMinMaxForFieldFromAggregateCube(String fieldName,
+      Map<String, String> queryParams) {
+    int measure = storedAggregateCube == null ? -1
+        : storedAggregateCube.getMeasureIndex(fieldName);
+    if (measure < 0 || !storedAggregateCube.isKeyedBy(queryParams.keySet())) {
+      return null;
+    }
+
+    metrics.increment("query.minMax.cube");
+    List<String> dimensionFieldNames = storedAggregateCube.getDimensionFieldNames();
+    String[] categories = new String[dimensionFieldNames.size()];
+    for (int dimension = 0; dimension < categories.length; dimension++) {
+      categories[dimension] = queryParams.get(dimensionFieldNames.get(dimension));
+    }
+    AggregateCell cell = storedAggregateCube.getCell(categories);
+    if (cell == null) {
+      return new MinMaxGroup();
+    }
+    metrics.add("query.rowsMatched", cell.getRowCount());
+    return cell.getMinMax(measure);
+  }
+
+  /*
+   * Gets the minimum and maximum indexes for column stored in doubleColumn. The indexes belong to
+   * the rows that satisfy the year, month and station conditions inside query parameters. A
+   * sequential search runs as a pipeline planned by the QueryPlanner.
+   */
+  private MinMaxGroup getMinMaxForFieldMatchingQueryParams(DoubleColumn doubleColumn,
+      Map<String, String> queryParams, int parallelism) {
+    RoaringBitmap bitmap = getBitmapMatchingQueryParams(queryParams);
+    int cardinality = bitmap.cardinality();
+    metrics.record("query.minMax.bitmapCardinality", cardinality);
+    metrics.add("query.rowsScanned", cardinality);
+    metrics.add("query.rowsMatched", cardinality);
 
-    String stationIndexFilePath =
-        DISK_INDEX_STORAGE_PATH + "/station/" + queryParams.get("Station") + ".txt";
-    String yearIndexFilePath =
-        DISK_INDEX_STORAGE_PATH + "/year/" + queryParams.get("Year") + ".txt";
-    String monthIndexFilePath =
-        DISK_INDEX_STORAGE_PATH + "/month/" + queryParams.get("Month") + ".txt";
+    if (parallelism > 1) {
+      return ParallelMinMaxAggregator.getMinMax(doubleColumn, bitmap, parallelism);
+    }
+    return QueryPlanner.planMinMax(doubleColumn, bitmap).execute();
+  }
 
-    BitSet stationBitmap = BitSet.valueOf(FileUtil.readBytesFromFile(stationIndexFilePath));
-    BitSet yearBitmap = BitSet.valueOf(FileUtil.readBytesFromFile(yearIndexFilePath));
-    BitSet monthBitmap = BitSet.valueOf(FileUtil.readBytesFromFile(monthIndexFilePath));
+  /*
+   * Gets bitmap of indexes of rows that satisfy the year, month and station conditions inside
+   * query parameters.
+   */
+  private RoaringBitmap getBitmapMatchingQueryParams(Map<String, String> queryParams) {
+    RoaringBitmap stationBitmap = getBitmapForFieldWithCategory("Station",
+        queryParams.get("Station"));
+    RoaringBitmap yearBitmap = getBitmapForFieldWithCategory("Year", queryParams.get("Year"));
+    RoaringBitmap monthBitmap = getBitmapForFieldWithCategory("Month", queryParams.get("Month"));
 
     /*
      * The following computes the bitwise AND between the bitmaps retrieved to obtain the bitmap
-     * representing rows satisfying all query parameters
+     * representing rows satisfying all query parameters, starting from the most selective bitmap
      */
-    BitSet resultBitmap = (BitSet) stationBitmap.clone();
-    resultBitmap.and(yearBitmap);
-    resultBitmap.and(monthBitmap);
+    return RoaringBitmap.intersect(Arrays.asList(stationBitmap, yearBitmap, monthBitmap));
+  }
 
-    // To iterate over the true bits in a bitmap, use the following loop
-    for (int i = resultBitmap.nextSetBit(0); i >= 0; i = resultBitmap.nextSetBit(i + 1)) {
-      positionList.add(i);
-    }
 
-    return positionList;
+  /*
+   * Gets the fraction of the requests of a cache served from memory.
+   */
+  private static double getHitRate(long hitCount, long missCount) {
+    long requestCount = hitCount + missCount;
+    return requestCount == 0 ? 0 : (double) hitCount / requestCount;
   }
 
   /*
    * Gets a string array which represents an output CSV row.
    */
-  private String[] constructNewRow(Integer position, String station, String category,
-      List<String[]> timestampColumnRows, List<String[]> columnRows) {
-    String date = TimestampUtil.parseAndGetDate(timestampColumnRows.get(position)[1]);
-    String fieldValue = String.valueOf(columnRows.get(position)[1]);
+  private String[] constructNewRow(int position, String station, String category,
+      LongColumn timestampColumn, DoubleColumn doubleColumn) {
+    String date = TimestampUtil.getDate(timestampColumn.get(position));
+    String fieldValue = String.valueOf(doubleColumn.get(position));
     return new String[]{date, station, category, fieldValue};
   }
 
@@ -1,8 +1,29 @@
 package com.ntu.bdm;
 
+import com.ntu.bdm.aggregate.AggregateCell;
+import com.ntu.bdm.aggregate.AggregateCube;
+import com.ntu.bdm.aggregate.MinMaxGroup;
+import com.ntu.bdm.bitmap.IntList;
+import com.ntu.bdm.bitmap.RoaringBitmap;
+import com.ntu.bdm.execution.QueryPlan;
+import com.ntu.bdm.execution.QueryPlanner;
+import com.ntu.bdm.index.RangeIndex;
 import com.ntu.bdm.manager.ColumnIndexManager;
+import com.ntu.bdm.memory.OffHeapMemory;
 import com.ntu.bdm.manager.ColumnVectorManager;
+import com.ntu.bdm.metrics.Metrics;
+import com.ntu.bdm.query.Query;
+import com.ntu.bdm.query.QueryResult;
+import com.ntu.bdm.query.Table;
+import com.ntu.bdm.snapshot.TableSnapshot;
+import com.ntu.bdm.util.CSVRowReader;
 import com.ntu.bdm.util.TimestampUtil;
+import com.ntu.bdm.vector.CategoricalColumnVector;
+import com.ntu.bdm.vector.DoubleColumn;
+import com.ntu.bdm.vector.DoubleColumnVector;
+import com.ntu.bdm.vector.LongColumn;
+import com.ntu.bdm.vector.LongColumnVector;
+import com.ntu.bdm.vector.ZoneMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -13,71 +34,319 @@ import java.util.Map;
  * the data in the main memory in a column-oriented manner,
  * including data storage and processing.
  *
+ * It is also a {@link Table}, so that general queries
+ * can be planned and executed over its columns and
+ * indexes with {@link #executeQuery(Query)}.
+ *
+ * Queries read a {@link TableSnapshot}, which the writer
+ * publishes through a volatile field after every
+ * PUBLISH_INTERVAL rows ingested and after every change
+ * to the indexes. Writes are serialised with each other,
+ * but never block queries, which can run from any number
+ * of threads while rows are ingested, each seeing the
+ * rows of the latest snapshot published when it began.
+ *
+ * An {@link AggregateCube} of Temperature and Humidity by
+ * station, year and month is maintained while rows are
+ * ingested and published with every snapshot, so that
+ * monthly minimum and maximum queries, and aggregate
+ * queries on these dimensions, are answered from it
+ * without reading the rows.
+ *
+ * The time spent ingesting, indexing and querying, and
+ * the rows read by every query, are recorded into its
+ * {@link Metrics}.
+ *
  ********************************************************/
-public class MainMemoryDatabase {
+public class MainMemoryDatabase implements Table {
 
   private static final String EMPTY_DATA_SYMBOL = "M";
+  private static final String[] CUBE_DIMENSION_FIELD_NAMES = new String[]{"Station", "Year",
+      "Month"};
+  private static final String[] RANGE_INDEX_FIELD_NAMES = new String[]{"Temperature", "Humidity"};
+  private static final String[] BIT_SLICED_INDEX_FIELD_NAMES = new String[]{"Temperature",
+      "Humidity"};
+  private static final String[] CUBE_MEASURE_FIELD_NAMES = new String[]{"Temperature",
+      "Humidity"};
+  private static final int PUBLISH_INTERVAL = 16 * ZoneMap.BLOCK_SIZE;
+  private static final int PARSE_SAMPLE_MASK = 64 - 1;
 
-  private ColumnVectorManager columnVectorManager;
-  private ColumnIndexManager columnIndexManager;
+  private final ColumnVectorManager columnVectorManager;
+  private final ColumnIndexManager columnIndexManager;
+  private final AggregateCube aggregateCube;
+  private final Metrics metrics;
+  private volatile TableSnapshot snapshot;
 
   /**
-   * Instantiates a new MainMemoryDatabase.
+   * Instantiates a new MainMemoryDatabase holding its columns on the heap.
    */
   public MainMemoryDatabase() {
-    columnVectorManager = new ColumnVectorManager();
+    this(null);
+  }
+
+  /**
+   * Instantiates a new MainMemoryDatabase holding its double and long columns in offHeapMemory,
+   * or on the heap if it is null. The caller closes offHeapMemory once the database and its
+   * snapshots are no longer queried, after which queries fail with an IllegalStateException.
+   *
+   * @param offHeapMemory the off-heap memory, or null
+   */
+  public MainMemoryDatabase(OffHeapMemory offHeapMemory) {
+    columnVectorManager = new ColumnVectorManager(offHeapMemory);
     columnIndexManager = new ColumnIndexManager();
+    aggregateCube = new AggregateCube(CUBE_DIMENSION_FIELD_NAMES, CUBE_MEASURE_FIELD_NAMES);
+    metrics = new Metrics();
+    snapshot = new TableSnapshot(0, 0, columnVectorManager.snapshot(),
+        columnIndexManager.snapshot(0), aggregateCube.snapshot());
+
+    metrics.registerGauge("ingest.rowsPerSecond",
+        () -> metrics.getRatePerSecond("ingest.rows", "ingest.nanos"));
+    metrics.registerGauge("snapshot.version", () -> snapshot.getVersion());
+    metrics.registerGauge("snapshot.rows", () -> snapshot.getRowCount());
+    metrics.registerGauge("cube.cells", () -> snapshot.getAggregateCube() == null ? 0
+        : snapshot.getAggregateCube().getCells().size());
+    if (offHeapMemory != null) {
+      metrics.registerGauge("offHeap.allocatedBytes", offHeapMemory::getAllocatedBytes);
+    }
+  }
+
+  /**
+   * Gets the metrics of the database, e.g. to register them as an MBean or to print their report.
+   *
+   * @return the metrics
+   */
+  public Metrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Gets the latest snapshot published. Reading every column and index of a query from the same
+   * snapshot gives a consistent view of the rows, which the {@link Table} methods of the database
+   * itself do not when rows are ingested between two calls.
+   *
+   * @return the snapshot
+   */
+  public TableSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Publish a new snapshot holding every row ingested so far. The indexes created with
+   * {@link #createCategoricalColumnIndexes()} are first extended with the rows ingested since the
+   * previous snapshot, and the cells of the aggregate cube rows were added to are copied.
+   */
+  public synchronized void publishSnapshot() {
+    long start = System.nanoTime();
+    columnIndexManager.extendCategoricalColumnIndexes(
+        columnVectorManager.getCategoricalColumnVectors());
+
+    LongColumnVector timestampColumnVector = columnVectorManager.getLongColumnVector("Timestamp");
+    int rowCount = timestampColumnVector == null ? 0 : timestampColumnVector.getValueCount();
+    snapshot = new TableSnapshot(snapshot.getVersion() + 1, rowCount,
+        columnVectorManager.snapshot(), columnIndexManager.snapshot(rowCount),
+        aggregateCube.snapshot());
+    metrics.recordNanosSince("snapshot.publish.nanos", start);
   }
 
   /**
    * Initialise ColumnVectors and CategoricalColumnVectors.
    */
-  public void initialiseColumnVectors() {
-    columnVectorManager.createStringColumnVector("Timestamp");
+  public synchronized void initialiseColumnVectors() {
+    columnVectorManager.createLongColumnVector("Timestamp");
     columnVectorManager.createCategoricalColumnVector("Station");
     columnVectorManager.createDoubleColumnVector("Temperature");
     columnVectorManager.createDoubleColumnVector("Humidity");
     columnVectorManager.createCategoricalColumnVector("Year");
     columnVectorManager.createCategoricalColumnVector("Month");
+    publishSnapshot();
   }
 
   /**
-   * Populate ColumnVectors and CategoricalColumnVectors with data from input CSV rows.
+   * Populate ColumnVectors and CategoricalColumnVectors with data from input CSV rows which are
+   * already held in memory, and add every row to the aggregate cube. A snapshot is published
+   * after every PUBLISH_INTERVAL rows and once all rows are ingested.
    *
    * @param csvRows the csv rows
    */
-  public void populateColumnVectors(List<String[]> csvRows) {
+  public synchronized void populateColumnVectors(List<String[]> csvRows) {
+    String[] cubeCategories = new String[CUBE_DIMENSION_FIELD_NAMES.length];
+    double[] cubeValues = new double[CUBE_MEASURE_FIELD_NAMES.length];
+    boolean[] cubeNulls = new boolean[CUBE_MEASURE_FIELD_NAMES.length];
+
+    long start = System.nanoTime();
+    int rowCount = 0;
     for (String[] csvRow : csvRows) {
-      String timestamp = csvRow[1];
-      columnVectorManager.addToStringColumnVector("Timestamp", timestamp);
+      long timestamp = TimestampUtil.parseEpochMinute(csvRow[1]);
+      columnVectorManager.addToLongColumnVector("Timestamp", timestamp);
 
       String station = csvRow[2];
       columnVectorManager.addToCategoricalColumnVector("Station", station);
 
       String temperatureString = csvRow[3];
-      Double temperature =
-          temperatureString.equals(EMPTY_DATA_SYMBOL) ? null : Double.valueOf(temperatureString);
-      columnVectorManager.addToDoubleColumnVector("Temperature", temperature);
+      cubeNulls[0] = temperatureString.equals(EMPTY_DATA_SYMBOL);
+      if (cubeNulls[0]) {
+        columnVectorManager.addNullToDoubleColumnVector("Temperature");
+      } else {
+        cubeValues[0] = Double.parseDouble(temperatureString);
+        columnVectorManager.addToDoubleColumnVector("Temperature", cubeValues[0]);
+      }
 
       String humidityString = csvRow[4];
-      Double humidity =
-          humidityString.equals(EMPTY_DATA_SYMBOL) ? null : Double.valueOf(humidityString);
-      columnVectorManager.addToDoubleColumnVector("Humidity", humidity);
+      cubeNulls[1] = humidityString.equals(EMPTY_DATA_SYMBOL);
+      if (cubeNulls[1]) {
+        columnVectorManager.addNullToDoubleColumnVector("Humidity");
+      } else {
+        cubeValues[1] = Double.parseDouble(humidityString);
+        columnVectorManager.addToDoubleColumnVector("Humidity", cubeValues[1]);
+      }
 
-      String year = TimestampUtil.parseAndGetYear(timestamp);
+      String year = TimestampUtil.getYear(timestamp);
       columnVectorManager.addToCategoricalColumnVector("Year", year);
 
-      String month = TimestampUtil.parseAndGetMonth(timestamp);
+      String month = TimestampUtil.getMonth(timestamp);
       columnVectorManager.addToCategoricalColumnVector("Month", month);
+
+      cubeCategories[0] = station;
+      cubeCategories[1] = year;
+      cubeCategories[2] = month;
+      aggregateCube.addRow(cubeCategories, cubeValues, cubeNulls);
+
+      if (++rowCount % PUBLISH_INTERVAL == 0) {
+        publishSnapshot();
+      }
     }
+    publishSnapshot();
+    metrics.add("ingest.rows", rowCount);
+    metrics.recordNanosSince("ingest.nanos", start);
   }
 
   /**
-   * Create CategoricalColumnIndexes.
+   * Populate ColumnVectors and CategoricalColumnVectors with data streamed from an input CSV file.
+   * Rows are read one at a time and appended straight into the column vectors, so the rows of the
+   * input file are never held in memory together. Every row is also added to the aggregate cube.
+   * A snapshot is published after every PUBLISH_INTERVAL rows and once all rows are ingested. The
+   * time taken to read and parse a row is sampled once every 64 rows.
+   *
+   * @param csvRowReader the csv row reader
    */
-  public void createCategoricalColumnIndexes() {
-    columnIndexManager.constructCategoricalColumnIndexes(
-        columnVectorManager.getCategoricalColumnVectors());
+  public synchronized void populateColumnVectors(CSVRowReader csvRowReader) {
+    LongColumnVector timestampColumnVector = columnVectorManager.getLongColumnVector("Timestamp");
+    CategoricalColumnVector<String> stationColumnVector =
+        columnVectorManager.getCategoricalColumnVector("Station");
+    DoubleColumnVector temperatureColumnVector = columnVectorManager.getDoubleColumnVector(
+        "Temperature");
+    DoubleColumnVector humidityColumnVector = columnVectorManager.getDoubleColumnVector(
+        "Humidity");
+    CategoricalColumnVector<String> yearColumnVector =
+        columnVectorManager.getCategoricalColumnVector("Year");
+    CategoricalColumnVector<String> monthColumnVector =
+        columnVectorManager.getCategoricalColumnVector("Month");
+    String[] cubeCategories = new String[CUBE_DIMENSION_FIELD_NAMES.length];
+    double[] cubeValues = new double[CUBE_MEASURE_FIELD_NAMES.length];
+    boolean[] cubeNulls = new boolean[CUBE_MEASURE_FIELD_NAMES.length];
+
+    String station = null;
+    int rowCount = 0;
+    long start = System.nanoTime();
+    long parseStart = start;
+    while (csvRowReader.readNext()) {
+      // The timestamp is parsed straight from the reader buffer into an epoch minute.
+      long timestamp = TimestampUtil.parseEpochMinute(csvRowReader.getBuffer(),
+          csvRowReader.getFieldStart(1), csvRowReader.getFieldLength(1));
+
+      // Consecutive rows usually share the station, in which case its String is reused.
+      station = csvRowReader.getField(2, station);
+
+      boolean temperatureNull = csvRowReader.fieldEquals(3, EMPTY_DATA_SYMBOL);
+      double temperature = temperatureNull ? 0 : csvRowReader.parseDoubleField(3);
+      boolean humidityNull = csvRowReader.fieldEquals(4, EMPTY_DATA_SYMBOL);
+      double humidity = humidityNull ? 0 : csvRowReader.parseDoubleField(4);
+
+      if ((rowCount & PARSE_SAMPLE_MASK) == 0) {
+        metrics.recordNanosSince("ingest.parseRow.nanos", parseStart);
+      }
+
+      timestampColumnVector.add(timestamp);
+      stationColumnVector.add(station);
+      if (temperatureNull) {
+        temperatureColumnVector.addNull();
+      } else {
+        temperatureColumnVector.add(temperature);
+      }
+      if (humidityNull) {
+        humidityColumnVector.addNull();
+      } else {
+        humidityColumnVector.add(humidity);
+      }
+      String year = TimestampUtil.getYear(timestamp);
+      yearColumnVector.add(year);
+      String month = TimestampUtil.getMonth(timestamp);
+      monthColumnVector.add(month);
+
+      cubeCategories[0] = station;
+      cubeCategories[1] = year;
+      cubeCategories[2] = month;
+      cubeValues[0] = temperature;
+      cubeNulls[0] = temperatureNull;
+      cubeValues[1] = humidity;
+      cubeNulls[1] = humidityNull;
+      aggregateCube.addRow(cubeCategories, cubeValues, cubeNulls);
+
+      if (++rowCount % PUBLISH_INTERVAL == 0) {
+        publishSnapshot();
+      }
+      if ((rowCount & PARSE_SAMPLE_MASK) == 0) {
+        parseStart = System.nanoTime();
+      }
+    }
+    publishSnapshot();
+    metrics.add("ingest.rows", rowCount);
+    metrics.recordNanosSince("ingest.nanos", start);
+  }
+
+  /**
+   * Create CategoricalColumnIndexes. Once created, they are extended with the rows ingested
+   * afterwards whenever a snapshot is published.
+   */
+  public synchronized void createCategoricalColumnIndexes() {
+    for (Map.Entry<String, CategoricalColumnVector<String>> entry
+        : columnVectorManager.getCategoricalColumnVectors().entrySet()) {
+      long start = System.nanoTime();
+      columnIndexManager.constructCategoricalColumnIndex(entry.getKey(), entry.getValue());
+      metrics.recordNanosSince("index.categorical." + entry.getKey() + ".nanos", start);
+    }
+    publishSnapshot();
+  }
+
+  /**
+   * Create RangeColumnIndexes of the Temperature and Humidity columns. A range index only covers
+   * the rows ingested before it was created, so snapshots holding rows ingested afterwards leave
+   * it out until it is created again.
+   */
+  public synchronized void createRangeColumnIndexes() {
+    for (String fieldName : RANGE_INDEX_FIELD_NAMES) {
+      long start = System.nanoTime();
+      columnIndexManager.constructRangeColumnIndex(fieldName,
+          columnVectorManager.getDoubleColumnVector(fieldName));
+      metrics.recordNanosSince("index.range." + fieldName + ".nanos", start);
+    }
+    publishSnapshot();
+  }
+
+  /**
+   * Create BitSlicedIndexes of the Temperature and Humidity columns, from which the minimum and
+   * maximum of the rows matching query params are then found with bitmap operations instead of
+   * reading the values of the rows. Like a range index, a bit-sliced index only covers the rows
+   * ingested before it was created.
+   */
+  public synchronized void createBitSlicedIndexes() {
+    for (String fieldName : BIT_SLICED_INDEX_FIELD_NAMES) {
+      long start = System.nanoTime();
+      columnIndexManager.constructBitSlicedIndex(fieldName,
+          columnVectorManager.getDoubleColumnVector(fieldName));
+      metrics.recordNanosSince("index.bitSliced." + fieldName + ".nanos", start);
+    }
+    publishSnapshot();
   }
 
   /**
@@ -92,25 +361,133 @@ public class MainMemoryDatabase {
    */
   public List<String[]> getMinMaxRowsWithDistinctDateForFieldMatchingQueryParams(String fieldName,
       Map<String, String> queryParams) {
+    return getMinMaxRowsWithDistinctDateForFieldMatchingQueryParams(fieldName, queryParams, 1);
+  }
+
+  /**
+   * Gets list of string array in the same manner as
+   * {@link #getMinMaxRowsWithDistinctDateForFieldMatchingQueryParams(String, Map)}, searching the
+   * column with parallelism threads. A parallelism of 1 searches sequentially. The minimum and
+   * maximum values are looked up from the aggregate cube instead whenever it holds every row of
+   * the snapshot and the query params are exactly a station, year and month.
+   *
+   * @param fieldName   the field name
+   * @param queryParams the query params
+   * @param parallelism the degree of parallelism, at least 1
+   * @return the min max rows with distinct date for field matching query params
+   */
+  public List<String[]> getMinMaxRowsWithDistinctDateForFieldMatchingQueryParams(String fieldName,
+      Map<String, String> queryParams, int parallelism) {
+    long start = System.nanoTime();
+    TableSnapshot current = snapshot;
+    MinMaxGroup minMax = getMinMaxForFieldFromAggregateCube(current, fieldName, queryParams);
+    if (minMax == null) {
+      minMax = getMinMaxForFieldMatchingQueryParams(current, fieldName, queryParams, parallelism);
+    }
+
+    List<String[]> minMaxRows = constructMinMaxRows(current, minMax, queryParams.get("Station"),
+        fieldName);
+    metrics.recordNanosSince("query.minMax.nanos", start);
+    return minMaxRows;
+  }
+
+  /**
+   * Plan a query against the columns and indexes of the latest snapshot, choosing by estimated
+   * cost between reading the matching rows through the indexes and scanning every row.
+   *
+   * @param query the query
+   * @return the query plan
+   */
+  public QueryPlan planQuery(Query query) {
+    long start = System.nanoTime();
+    QueryPlan queryPlan = QueryPlanner.plan(query, snapshot);
+    metrics.recordNanosSince("query.plan.nanos", start);
+    return queryPlan;
+  }
+
+  /**
+   * Plan and execute a query against the columns and indexes. The indexes must have been created
+   * with {@link #createCategoricalColumnIndexes()} first.
+   *
+   * @param query the query
+   * @return the query result
+   */
+  public QueryResult executeQuery(Query query) {
+    long start = System.nanoTime();
+    QueryPlan queryPlan = planQuery(query);
+    QueryResult queryResult = queryPlan.execute();
+    metrics.recordNanosSince("query.execute.nanos", start);
+    metrics.increment("query.execute." + queryPlan.getAccessPath().name().toLowerCase());
+    metrics.add("query.rowsScanned", queryPlan.getScannedRowCount());
+    metrics.add("query.rowsMatched", queryPlan.getMatchedRowCount());
+    return queryResult;
+  }
+
+  @Override
+  public int getRowCount() {
+    return snapshot.getRowCount();
+  }
+
+  @Override
+  public List<String> getCategoriesForField(String fieldName) {
+    return snapshot.getCategoriesForField(fieldName);
+  }
+
+  @Override
+  public RoaringBitmap getBitmapForFieldWithCategory(String fieldName, String category) {
+    return snapshot.getBitmapForFieldWithCategory(fieldName, category);
+  }
+
+  @Override
+  public CategoricalColumnVector<String> getCategoricalColumnVector(String fieldName) {
+    return snapshot.getCategoricalColumnVector(fieldName);
+  }
+
+  @Override
+  public DoubleColumn getDoubleColumn(String fieldName) {
+    return snapshot.getDoubleColumn(fieldName);
+  }
+
+  @Override
+  public LongColumn getLongColumn(String fieldName) {
+    return snapshot.getLongColumn(fieldName);
+  }
+
+  @Override
+  public RangeIndex getRangeIndex(String fieldName) {
+    return snapshot.getRangeIndex(fieldName);
+  }
+
+  @Override
+  public AggregateCube getAggregateCube() {
+    return snapshot.getAggregateCube();
+  }
+
+  /*
+   * Gets list of string array representing output CSV rows from the minimum and maximum indexes
+   * for column with the fieldName. Consecutive rows that are the same are only kept once.
+   */
+  private List<String[]> constructMinMaxRows(TableSnapshot current, MinMaxGroup minMax,
+      String station, String fieldName) {
     List<String[]> minMaxRows = new ArrayList<>();
 
-    List<List<Integer>> minMaxPositionList = getMinMaxPositionListForFieldMatchingQueryParams(
-        fieldName, queryParams);
-    List<Integer> minPositionList = minMaxPositionList.get(0);
-    List<Integer> maxPositionList = minMaxPositionList.get(1);
+    IntList minPositionList = minMax.getMinPositionList();
+    IntList maxPositionList = minMax.getMaxPositionList();
 
-    for (Integer position : minPositionList) {
+    for (int i = 0; i < minPositionList.size(); i++) {
+      int position = minPositionList.get(i);
       String category = "Min " + fieldName;
-      String[] newRow = constructNewRow(position, queryParams.get("Station"), category, fieldName);
+      String[] newRow = constructNewRow(current, position, station, category, fieldName);
 
       if (checkNewRowIsDifferent(minMaxRows, newRow)) {
         minMaxRows.add(newRow);
       }
     }
 
-    for (Integer position : maxPositionList) {
+    for (int i = 0; i < maxPositionList.size(); i++) {
+      int position = maxPositionList.get(i);
       String category = "Max " + fieldName;
-      String[] newRow = constructNewRow(position, queryParams.get("Station"), category, fieldName);
+      String[] newRow = constructNewRow(current, position, station, category, fieldName);
 
       if (checkNewRowIsDifferent(minMaxRows, newRow)) {
         minMaxRows.add(newRow);
@@ -121,34 +498,81 @@ public class MainMemoryDatabase {
   }
 
   /*
-   * Gets a list of minimum and maximum indexes for column with the fieldName. The indexes belong to
-   * the rows that satisfy the year, month and station conditions inside query parameters.
+   * Gets the minimum and maximum indexes for column with the fieldName from the cell of the
+   * aggregate cube holding the station, year and month inside query parameters, or null if the
+   * snapshot has no aggregate cube of every row, the column is not a measure of it or the query
+   * parameters are not exactly its dimensions. Only then is the result empty when no cell holds
+   * the categories.
    */
-  private List<List<Integer>> getMinMaxPositionListForFieldMatchingQueryParams(String fieldName,
+  private MinMaxGroup getMinMaxForFieldFromAggregateCube(TableSnapshot current, String fieldName,
       Map<String, String> queryParams) {
-    List<Integer> positionList = getPositionListMatchingQueryParams(queryParams);
+    AggregateCube currentAggregateCube = current.getAggregateCube();
+    int measure = currentAggregateCube == null ? -1
+        : currentAggregateCube.getMeasureIndex(fieldName);
+    if (measure < 0 || !currentAggregateCube.isKeyedBy(queryParams.keySet())) {
+      return null;
+    }
+
+    metrics.increment("query.minMax.cube");
+    List<String> dimensionFieldNames = currentAggregateCube.getDimensionFieldNames();
+    String[] categories = new String[dimensionFieldNames.size()];
+    for (int dimension = 0; dimension < categories.length; dimension++) {
+      categories[dimension] = queryParams.get(dimensionFieldNames.get(dimension));
+    }
+    AggregateCell cell = currentAggregateCube.getCell(categories);
+    if (cell == null) {
+      return new MinMaxGroup();
+    }
+    metrics.add("query.rowsMatched", cell.getRowCount());
+    return cell.getMinMax(measure);
+  }
+
+  /*
+   * Gets the minimum and maximum indexes for column with the fieldName. The indexes belong to the
+   * rows that satisfy the year, month and station conditions inside query parameters. They are
+   * found through the bit-sliced index of the column if the snapshot has one, and otherwise by a
+   * sequential search running as a pipeline planned by the QueryPlanner.
+   */
+  private MinMaxGroup getMinMaxForFieldMatchingQueryParams(TableSnapshot current,
+      String fieldName, Map<String, String> queryParams, int parallelism) {
+    RoaringBitmap bitmap = getBitmapMatchingQueryParams(current, queryParams);
+    int cardinality = bitmap.cardinality();
+    metrics.record("query.minMax.bitmapCardinality", cardinality);
+    metrics.add("query.rowsMatched", cardinality);
 
-    return columnVectorManager.getMinMaxPositionListForFieldFromPositionList(fieldName,
-        positionList);
+    // The bit-sliced index finds the extremes without reading the values of the rows.
+    ColumnIndexManager currentColumnIndexManager = current.getColumnIndexManager();
+    if (currentColumnIndexManager.getBitSlicedIndex(fieldName) != null) {
+      metrics.increment("query.minMax.bitSliced");
+      return currentColumnIndexManager.getMinMaxForFieldFromBitmap(fieldName, bitmap);
+    }
+    metrics.add("query.rowsScanned", cardinality);
+    if (parallelism > 1) {
+      return current.getColumnVectorManager().getMinMaxForFieldFromBitmap(fieldName, bitmap,
+          parallelism);
+    }
+    return QueryPlanner.planMinMax(current.getDoubleColumn(fieldName), bitmap).execute();
   }
 
   /*
-   * Gets list of indexes of rows that satisfy the year, month and station conditions inside query
-   * parameters.
+   * Gets bitmap of indexes of rows that satisfy the year, month and station conditions inside
+   * query parameters.
    */
-  private List<Integer> getPositionListMatchingQueryParams(Map<String, String> queryParams) {
-    return columnIndexManager.getPositionListMatchingQueryParams(queryParams);
+  private RoaringBitmap getBitmapMatchingQueryParams(TableSnapshot current,
+      Map<String, String> queryParams) {
+    return current.getColumnIndexManager().getBitmapMatchingQueryParams(queryParams);
   }
 
   /*
    * Gets a string array which represents an output CSV row.
    */
-  private String[] constructNewRow(Integer position, String station, String category,
-      String fieldName) {
-    String date = TimestampUtil.parseAndGetDate(
-        columnVectorManager.getStringForFieldWithPosition("Timestamp", position));
+  private String[] constructNewRow(TableSnapshot current, int position, String station,
+      String category, String fieldName) {
+    ColumnVectorManager currentColumnVectorManager = current.getColumnVectorManager();
+    String date = TimestampUtil.getDate(
+        currentColumnVectorManager.getLongForFieldWithPosition("Timestamp", position));
     String fieldValue = String.valueOf(
-        columnVectorManager.getDoubleForFieldWithPosition(fieldName, position));
+        currentColumnVectorManager.getDoubleForFieldWithPosition(fieldName, position));
     return new String[]{date, station, category, fieldValue};
   }
 
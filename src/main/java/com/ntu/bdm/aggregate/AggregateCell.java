@@ -0,0 +1,186 @@
+package com.ntu.bdm.aggregate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/********************************************************
+ * AggregateCell is a container class which holds the
+ * materialized aggregates of one cell of an
+ * {@link AggregateCube}, i.e. of the rows holding one
+ * combination of categories of its dimensions.
+ *
+ * A cell holds the number of its rows and, for every
+ * measure of the cube, the count and sum of the
+ * non-null values together with a {@link MinMaxGroup}
+ * of their minimum and maximum and every position
+ * holding them. Rows must be accumulated in increasing
+ * position order, so that the position lists stay
+ * sorted.
+ *
+ ********************************************************/
+public class AggregateCell {
+
+  private final List<String> categories;
+  private long rowCount;
+  private final long[] counts;
+  private final double[] sums;
+  private final MinMaxGroup[] minMaxGroups;
+  private boolean modified;
+
+  /**
+   * Instantiates a new empty AggregateCell with measureCount measures.
+   *
+   * @param categories   the categories of the dimensions of the cell
+   * @param measureCount the measure count
+   */
+  public AggregateCell(List<String> categories, int measureCount) {
+    this(Collections.unmodifiableList(new ArrayList<>(categories)), 0, new long[measureCount],
+        new double[measureCount], new MinMaxGroup[measureCount]);
+    for (int measure = 0; measure < measureCount; measure++) {
+      minMaxGroups[measure] = new MinMaxGroup();
+    }
+  }
+
+  private AggregateCell(List<String> categories, long rowCount, long[] counts, double[] sums,
+      MinMaxGroup[] minMaxGroups) {
+    this.categories = categories;
+    this.rowCount = rowCount;
+    this.counts = counts;
+    this.sums = sums;
+    this.minMaxGroups = minMaxGroups;
+    modified = false;
+  }
+
+  /**
+   * Gets the categories of the dimensions of the cell, in the order of the dimensions of the cube.
+   *
+   * @return the categories
+   */
+  public List<String> getCategories() {
+    return categories;
+  }
+
+  /**
+   * Gets the number of rows of the cell.
+   *
+   * @return the row count
+   */
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Gets the number of non-null values of a measure.
+   *
+   * @param measure the index of the measure
+   * @return the count
+   */
+  public long getCount(int measure) {
+    return counts[measure];
+  }
+
+  /**
+   * Gets the sum of the non-null values of a measure.
+   *
+   * @param measure the index of the measure
+   * @return the sum, or 0 if the measure has no value
+   */
+  public double getSum(int measure) {
+    return sums[measure];
+  }
+
+  /**
+   * Gets the minimum and maximum of a measure, with every position holding them. The group is
+   * shared with the cell and must not be modified.
+   *
+   * @param measure the index of the measure
+   * @return the min max, which is empty if the measure has no value
+   */
+  public MinMaxGroup getMinMax(int measure) {
+    return minMaxGroups[measure];
+  }
+
+  /*
+   * Checks whether the cell holds the rows of the categories. The categories of consecutive rows
+   * are usually the same String instances, so they are compared by reference first.
+   */
+  boolean hasCategories(String[] rowCategories) {
+    for (int dimension = 0; dimension < rowCategories.length; dimension++) {
+      String category = categories.get(dimension);
+      if (category != rowCategories[dimension]
+          && (category == null || !category.equals(rowCategories[dimension]))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /*
+   * Accumulates the row at the position, whose value of measure i is values[i] unless nulls[i].
+   */
+  void accumulate(int position, double[] values, boolean[] nulls) {
+    rowCount++;
+    for (int measure = 0; measure < counts.length; measure++) {
+      if (!nulls[measure]) {
+        counts[measure]++;
+        sums[measure] += values[measure];
+        minMaxGroups[measure].accumulate(position, values[measure]);
+      }
+    }
+    modified = true;
+  }
+
+  /*
+   * Merges another cell of the same categories into the cell, offsetting its positions by
+   * positionOffset. Every offset position of the other cell must follow every position of the
+   * cell.
+   */
+  void merge(AggregateCell other, int positionOffset) {
+    rowCount += other.rowCount;
+    for (int measure = 0; measure < counts.length; measure++) {
+      counts[measure] += other.counts[measure];
+      sums[measure] += other.sums[measure];
+      minMaxGroups[measure].merge(other.minMaxGroups[measure].copyWithPositionOffset(
+          positionOffset));
+    }
+    modified = true;
+  }
+
+  /*
+   * Sets the number of rows, e.g. when the cell is read back from its serialised form.
+   */
+  void setRowCount(long cellRowCount) {
+    rowCount = cellRowCount;
+  }
+
+  /*
+   * Sets the aggregates of a measure, e.g. when the cell is read back from its serialised form.
+   */
+  void setAggregates(int measure, long count, double sum, MinMaxGroup minMax) {
+    counts[measure] = count;
+    sums[measure] = sum;
+    minMaxGroups[measure] = minMax;
+  }
+
+  /*
+   * Checks whether the cell was modified since the last call to copy.
+   */
+  boolean isModified() {
+    return modified;
+  }
+
+  /*
+   * Gets a copy of the cell, which shares nothing the cell modifies, and marks the cell as
+   * unmodified.
+   */
+  AggregateCell copy() {
+    MinMaxGroup[] minMaxGroupCopies = new MinMaxGroup[minMaxGroups.length];
+    for (int measure = 0; measure < minMaxGroups.length; measure++) {
+      minMaxGroupCopies[measure] = minMaxGroups[measure].copy();
+    }
+    modified = false;
+    return new AggregateCell(categories, rowCount, counts.clone(), sums.clone(),
+        minMaxGroupCopies);
+  }
+}
@@ -0,0 +1,406 @@
+package com.ntu.bdm.aggregate;
+
+import com.ntu.bdm.bitmap.IntList;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/********************************************************
+ * AggregateCube is a container class which holds the
+ * materialized aggregates of the measure columns of a
+ * table for every combination of categories of its
+ * dimension columns that occurs, e.g. the monthly
+ * minimum and maximum Temperature and Humidity of every
+ * station, as {@link AggregateCell}s.
+ *
+ * The cube is maintained while rows are ingested: every
+ * row is added to the cell of its categories. Rows are
+ * ordered by station and time, so consecutive rows
+ * nearly always share their cell, which is then found
+ * without hashing. A query whose predicates only select
+ * categories of the dimensions is answered by merging
+ * the cells it selects instead of reading its rows.
+ *
+ * Readers see a snapshot of the cube, taken with
+ * {@link #snapshot()} whenever the writer publishes the
+ * rows added so far. A snapshot shares the copies of
+ * the cells not modified since the previous snapshot,
+ * so only the cells rows were added to are copied.
+ *
+ * The serialised form is little endian: the MAGIC, the
+ * number of dimensions, of measures, of rows and of
+ * cells, the dimension and measure field names, then
+ * for every cell its categories and row count, and for
+ * every measure the count, sum, minimum and maximum of
+ * its values with the positions holding the minimum and
+ * the maximum. Strings are written as their length in
+ * bytes followed by their UTF-8 bytes.
+ *
+ ********************************************************/
+public class AggregateCube {
+
+  /**
+   * The magic number written at the start of a serialised AggregateCube.
+   */
+  public static final int MAGIC = 0x43554245;
+
+  private static final int HEADER_SIZE = 5 * Integer.BYTES;
+
+  private final String[] dimensionFieldNames;
+  private final String[] measureFieldNames;
+  private final Map<List<String>, AggregateCell> cells;
+  private final Map<List<String>, AggregateCell> publishedCells;
+  private final boolean readOnly;
+  private int rowCount;
+  private AggregateCell lastCell;
+
+  /**
+   * Instantiates a new empty AggregateCube.
+   *
+   * @param dimensionFieldNames the names of the categorical fields the cells are keyed by
+   * @param measureFieldNames   the names of the double fields aggregated in every cell
+   */
+  public AggregateCube(String[] dimensionFieldNames, String[] measureFieldNames) {
+    this(dimensionFieldNames.clone(), measureFieldNames.clone(), new LinkedHashMap<>(), 0, false);
+  }
+
+  private AggregateCube(String[] dimensionFieldNames, String[] measureFieldNames,
+      Map<List<String>, AggregateCell> cells, int rowCount, boolean readOnly) {
+    this.dimensionFieldNames = dimensionFieldNames;
+    this.measureFieldNames = measureFieldNames;
+    this.cells = cells;
+    this.publishedCells = readOnly ? null : new LinkedHashMap<>();
+    this.readOnly = readOnly;
+    this.rowCount = rowCount;
+    this.lastCell = null;
+  }
+
+  /**
+   * Gets the names of the dimension fields.
+   *
+   * @return the dimension field names
+   */
+  public List<String> getDimensionFieldNames() {
+    return Collections.unmodifiableList(Arrays.asList(dimensionFieldNames));
+  }
+
+  /**
+   * Gets the names of the measure fields.
+   *
+   * @return the measure field names
+   */
+  public List<String> getMeasureFieldNames() {
+    return Collections.unmodifiableList(Arrays.asList(measureFieldNames));
+  }
+
+  /**
+   * Gets the index of the dimension field with the fieldName.
+   *
+   * @param fieldName the field name
+   * @return the dimension index, or -1 if the field is not a dimension
+   */
+  public int getDimensionIndex(String fieldName) {
+    return Arrays.asList(dimensionFieldNames).indexOf(fieldName);
+  }
+
+  /**
+   * Checks whether a set of field names is exactly the set of dimension fields, i.e. whether
+   * equality conditions on these fields select a single cell.
+   *
+   * @param fieldNames the field names
+   * @return true if the field names are the dimension field names
+   */
+  public boolean isKeyedBy(Set<String> fieldNames) {
+    return fieldNames.size() == dimensionFieldNames.length
+        && fieldNames.containsAll(Arrays.asList(dimensionFieldNames));
+  }
+
+  /**
+   * Gets the index of the measure field with the fieldName.
+   *
+   * @param fieldName the field name
+   * @return the measure index, or -1 if the field is not a measure
+   */
+  public int getMeasureIndex(String fieldName) {
+    return Arrays.asList(measureFieldNames).indexOf(fieldName);
+  }
+
+  /**
+   * Gets the number of rows added to the cube, which is the position of the next row added.
+   *
+   * @return the row count
+   */
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Gets the cells of the cube. The cells of a snapshot must not be modified.
+   *
+   * @return the cells
+   */
+  public Collection<AggregateCell> getCells() {
+    return Collections.unmodifiableCollection(cells.values());
+  }
+
+  /**
+   * Gets the cell of a combination of categories of the dimensions.
+   *
+   * @param categories the categories, in the order of the dimensions
+   * @return the cell, or null if no row holds the categories
+   */
+  public AggregateCell getCell(String... categories) {
+    return cells.get(Arrays.asList(categories));
+  }
+
+  /**
+   * Add the next row to the cell of its categories, creating the cell if the categories are new.
+   * The value of measure i of the row is values[i], unless nulls[i] is set. The arrays are not
+   * kept, so they can be reused for every row.
+   *
+   * @param categories the categories of the row, in the order of the dimensions
+   * @param values     the values of the measures of the row
+   * @param nulls      the null flags of the measures of the row
+   */
+  public void addRow(String[] categories, double[] values, boolean[] nulls) {
+    if (readOnly) {
+      throw new IllegalStateException("Rows cannot be added to a snapshot of an aggregate cube");
+    }
+
+    AggregateCell cell = lastCell;
+    if (cell == null || !cell.hasCategories(categories)) {
+      List<String> key = Arrays.asList(categories.clone());
+      cell = cells.get(key);
+      if (cell == null) {
+        cell = new AggregateCell(key, measureFieldNames.length);
+        cells.put(cell.getCategories(), cell);
+      }
+      lastCell = cell;
+    }
+    cell.accumulate(rowCount++, values, nulls);
+  }
+
+  /**
+   * Gets a read-only snapshot of the cube holding the rows added so far. The cells modified since
+   * the previous snapshot are copied, the others are shared with the previous snapshot.
+   *
+   * @return the snapshot
+   */
+  public AggregateCube snapshot() {
+    if (readOnly) {
+      return this;
+    }
+    for (AggregateCell cell : cells.values()) {
+      if (cell.isModified()) {
+        publishedCells.put(cell.getCategories(), cell.copy());
+      }
+    }
+    return new AggregateCube(dimensionFieldNames, measureFieldNames,
+        Collections.unmodifiableMap(new LinkedHashMap<>(publishedCells)), rowCount, true);
+  }
+
+  /**
+   * Serialise AggregateCube into bytes.
+   *
+   * @return the bytes
+   */
+  public byte[] serialise() {
+    List<byte[]> strings = new ArrayList<>();
+    for (String fieldName : dimensionFieldNames) {
+      strings.add(encode(fieldName));
+    }
+    for (String fieldName : measureFieldNames) {
+      strings.add(encode(fieldName));
+    }
+    long size = HEADER_SIZE;
+    for (AggregateCell cell : cells.values()) {
+      for (String category : cell.getCategories()) {
+        strings.add(encode(category));
+      }
+      size += Long.BYTES;
+      for (int measure = 0; measure < measureFieldNames.length; measure++) {
+        MinMaxGroup minMax = cell.getMinMax(measure);
+        size += Long.BYTES + 3 * Double.BYTES + 2 * Integer.BYTES
+            + (long) (minMax.getMinPositionList().size() + minMax.getMaxPositionList().size())
+            * Integer.BYTES;
+      }
+    }
+    for (byte[] string : strings) {
+      size += Integer.BYTES + (string == null ? 0 : string.length);
+    }
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Aggregate cube too large to serialise");
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(MAGIC);
+    buffer.putInt(dimensionFieldNames.length);
+    buffer.putInt(measureFieldNames.length);
+    buffer.putInt(rowCount);
+    buffer.putInt(cells.size());
+
+    int string = 0;
+    for (int i = 0; i < dimensionFieldNames.length + measureFieldNames.length; i++) {
+      putString(buffer, strings.get(string++));
+    }
+    for (AggregateCell cell : cells.values()) {
+      for (int dimension = 0; dimension < dimensionFieldNames.length; dimension++) {
+        putString(buffer, strings.get(string++));
+      }
+      buffer.putLong(cell.getRowCount());
+      for (int measure = 0; measure < measureFieldNames.length; measure++) {
+        MinMaxGroup minMax = cell.getMinMax(measure);
+        buffer.putLong(cell.getCount(measure));
+        buffer.putDouble(cell.getSum(measure));
+        buffer.putDouble(minMax.getMinimum());
+        buffer.putDouble(minMax.getMaximum());
+        putPositions(buffer, minMax.getMinPositionList().toArray());
+        putPositions(buffer, minMax.getMaxPositionList().toArray());
+      }
+    }
+    return buffer.array();
+  }
+
+  /**
+   * Deserialise bytes into an AggregateCube, to which further rows can be added.
+   *
+   * @param bytes the bytes
+   * @return the aggregate cube
+   */
+  public static AggregateCube deserialise(byte[] bytes) {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    if (buffer.getInt() != MAGIC) {
+      throw new IllegalStateException("Not a serialised aggregate cube");
+    }
+    String[] dimensionFieldNames = new String[buffer.getInt()];
+    String[] measureFieldNames = new String[buffer.getInt()];
+    int rowCount = buffer.getInt();
+    int cellCount = buffer.getInt();
+    for (int dimension = 0; dimension < dimensionFieldNames.length; dimension++) {
+      dimensionFieldNames[dimension] = getString(buffer);
+    }
+    for (int measure = 0; measure < measureFieldNames.length; measure++) {
+      measureFieldNames[measure] = getString(buffer);
+    }
+
+    AggregateCube aggregateCube = new AggregateCube(dimensionFieldNames, measureFieldNames);
+    aggregateCube.rowCount = rowCount;
+    for (int i = 0; i < cellCount; i++) {
+      List<String> categories = new ArrayList<>();
+      for (int dimension = 0; dimension < dimensionFieldNames.length; dimension++) {
+        categories.add(getString(buffer));
+      }
+      AggregateCell cell = new AggregateCell(categories, measureFieldNames.length);
+      cell.setRowCount(buffer.getLong());
+      for (int measure = 0; measure < measureFieldNames.length; measure++) {
+        long count = buffer.getLong();
+        double sum = buffer.getDouble();
+        double minimum = buffer.getDouble();
+        double maximum = buffer.getDouble();
+        cell.setAggregates(measure, count, sum,
+            new MinMaxGroup(minimum, maximum, getPositions(buffer), getPositions(buffer)));
+      }
+      aggregateCube.cells.put(cell.getCategories(), cell);
+    }
+    return aggregateCube;
+  }
+
+  /**
+   * Merge two AggregateCubes of the same dimensions and measures into a new one. The rows of
+   * newer follow the rows of older, so their positions are offset by the row count of older.
+   *
+   * @param older the aggregate cube of the earlier rows
+   * @param newer the aggregate cube of the later rows, numbered from 0
+   * @return the merged aggregate cube
+   */
+  public static AggregateCube merge(AggregateCube older, AggregateCube newer) {
+    if (!Arrays.equals(older.dimensionFieldNames, newer.dimensionFieldNames)
+        || !Arrays.equals(older.measureFieldNames, newer.measureFieldNames)) {
+      throw new IllegalArgumentException("Aggregate cubes of different fields cannot be merged");
+    }
+
+    AggregateCube merged = new AggregateCube(older.dimensionFieldNames,
+        older.measureFieldNames);
+    merged.mergeCells(older, 0);
+    merged.mergeCells(newer, older.rowCount);
+    merged.rowCount = older.rowCount + newer.rowCount;
+    return merged;
+  }
+
+  /*
+   * Merges every cell of other into the cell of the same categories, offsetting the positions of
+   * its rows by positionOffset.
+   */
+  private void mergeCells(AggregateCube other, int positionOffset) {
+    for (AggregateCell otherCell : other.cells.values()) {
+      AggregateCell cell = cells.get(otherCell.getCategories());
+      if (cell == null) {
+        cell = new AggregateCell(otherCell.getCategories(), measureFieldNames.length);
+        cells.put(cell.getCategories(), cell);
+      }
+      cell.merge(otherCell, positionOffset);
+    }
+  }
+
+  /*
+   * Gets the UTF-8 bytes of a string, where null is encoded as no bytes at all.
+   */
+  private static byte[] encode(String string) {
+    return string == null ? null : string.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /*
+   * Puts the length of the bytes of a string, or -1 for null, followed by the bytes.
+   */
+  private static void putString(ByteBuffer buffer, byte[] string) {
+    if (string == null) {
+      buffer.putInt(-1);
+      return;
+    }
+    buffer.putInt(string.length);
+    buffer.put(string);
+  }
+
+  /*
+   * Gets a string put by putString.
+   */
+  private static String getString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] string = new byte[length];
+    buffer.get(string);
+    return new String(string, StandardCharsets.UTF_8);
+  }
+
+  /*
+   * Puts the number of positions followed by the positions.
+   */
+  private static void putPositions(ByteBuffer buffer, int[] positions) {
+    buffer.putInt(positions.length);
+    for (int position : positions) {
+      buffer.putInt(position);
+    }
+  }
+
+  /*
+   * Gets the positions put by putPositions.
+   */
+  private static IntList getPositions(ByteBuffer buffer) {
+    int positionCount = buffer.getInt();
+    IntList positions = new IntList(positionCount);
+    for (int i = 0; i < positionCount; i++) {
+      positions.add(buffer.getInt());
+    }
+    return positions;
+  }
+}
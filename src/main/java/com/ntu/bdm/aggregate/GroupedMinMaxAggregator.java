@@ -0,0 +1,78 @@
+package com.ntu.bdm.aggregate;
+
+/********************************************************
+ * GroupedMinMaxAggregator is a GROUP BY operator which
+ * computes the minimum and maximum, with all of their
+ * positions, of every group of a column in a single
+ * sequential pass.
+ *
+ * Groups are identified by dense int ids chosen by the
+ * caller, e.g. by combining the dictionary codes of the
+ * grouping columns, so that a group is found by array
+ * indexing instead of hashing. Groups are only allocated
+ * once a value is accumulated into them.
+ *
+ ********************************************************/
+public class GroupedMinMaxAggregator {
+
+  private final MinMaxGroup[] groups;
+
+  /**
+   * Instantiates a new GroupedMinMaxAggregator with ids from 0 inclusive to groupCount exclusive.
+   *
+   * @param groupCount the group count
+   */
+  public GroupedMinMaxAggregator(int groupCount) {
+    groups = new MinMaxGroup[groupCount];
+  }
+
+  /**
+   * Gets the number of group ids.
+   *
+   * @return the group count
+   */
+  public int getGroupCount() {
+    return groups.length;
+  }
+
+  /**
+   * Accumulate the non-null value at the position into a group. Positions must be accumulated in
+   * increasing order.
+   *
+   * @param group    the group id
+   * @param position the position
+   * @param value    the value
+   */
+  public void accumulate(int group, int position, double value) {
+    MinMaxGroup minMaxGroup = groups[group];
+    if (minMaxGroup == null) {
+      minMaxGroup = new MinMaxGroup();
+      groups[group] = minMaxGroup;
+    }
+    minMaxGroup.accumulate(position, value);
+  }
+
+  /**
+   * Gets a group.
+   *
+   * @param group the group id
+   * @return the group, or null if no value was accumulated into it
+   */
+  public MinMaxGroup getGroup(int group) {
+    return groups[group];
+  }
+
+  /**
+   * Gets the minimum and maximum, with the indexes holding them, of a group. Groups without values
+   * give an empty group.
+   *
+   * @param group the group id, or -1 for a group that does not exist
+   * @return the min max
+   */
+  public MinMaxGroup getMinMax(int group) {
+    if (group < 0 || groups[group] == null) {
+      return new MinMaxGroup();
+    }
+    return groups[group];
+  }
+}
@@ -0,0 +1,167 @@
+package com.ntu.bdm.aggregate;
+
+import com.ntu.bdm.bitmap.IntList;
+
+/********************************************************
+ * MinMaxGroup is a container class which holds the
+ * running minimum and maximum of the values of a set of
+ * rows, together with every position holding the
+ * minimum and every position holding the maximum. It is
+ * the result of the min max kernels, and holds one group
+ * of a grouped aggregation.
+ *
+ * Positions must be accumulated in increasing order, so
+ * that the position lists are sorted. The position lists
+ * are primitive {@link IntList}s, so accumulating does
+ * not box positions and a new extreme only resets the
+ * size of a list.
+ *
+ ********************************************************/
+public class MinMaxGroup {
+
+  private double minimum;
+  private double maximum;
+  private final IntList minPositionList;
+  private final IntList maxPositionList;
+
+  /**
+   * Instantiates a new empty MinMaxGroup.
+   */
+  public MinMaxGroup() {
+    this(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, new IntList(), new IntList());
+  }
+
+  /**
+   * Instantiates a new MinMaxGroup whose extremes are already known.
+   *
+   * @param minimum         the minimum
+   * @param maximum         the maximum
+   * @param minPositionList the sorted positions holding the minimum
+   * @param maxPositionList the sorted positions holding the maximum
+   */
+  public MinMaxGroup(double minimum, double maximum, IntList minPositionList,
+      IntList maxPositionList) {
+    this.minimum = minimum;
+    this.maximum = maximum;
+    this.minPositionList = minPositionList;
+    this.maxPositionList = maxPositionList;
+  }
+
+  /**
+   * Accumulate the non-null value at the position into the group.
+   *
+   * @param position the position
+   * @param value    the value
+   */
+  public void accumulate(int position, double value) {
+    if (value < minimum) {
+      minimum = value;
+      minPositionList.clear();
+    }
+    if (value == minimum) {
+      minPositionList.add(position);
+    }
+
+    if (value > maximum) {
+      maximum = value;
+      maxPositionList.clear();
+    }
+    if (value == maximum) {
+      maxPositionList.add(position);
+    }
+  }
+
+  /**
+   * Merge another group into this group. Every position of the other group must follow every
+   * position of this group, so that the merged position lists stay sorted. This is how partial
+   * groups computed over consecutive row ranges are combined.
+   *
+   * @param other the other group
+   */
+  public void merge(MinMaxGroup other) {
+    if (other.minimum < minimum) {
+      minimum = other.minimum;
+      minPositionList.clear();
+    }
+    if (other.minimum == minimum) {
+      minPositionList.addAll(other.minPositionList);
+    }
+
+    if (other.maximum > maximum) {
+      maximum = other.maximum;
+      maxPositionList.clear();
+    }
+    if (other.maximum == maximum) {
+      maxPositionList.addAll(other.maxPositionList);
+    }
+  }
+
+  /**
+   * Gets a copy of the group, whose position lists are copied so that accumulating into either
+   * group leaves the other unchanged.
+   *
+   * @return the copy
+   */
+  public MinMaxGroup copy() {
+    return copyWithPositionOffset(0);
+  }
+
+  /**
+   * Gets a copy of the group in which every position is offset by positionOffset, e.g. to merge a
+   * group computed over rows numbered from 0 after the rows before them.
+   *
+   * @param positionOffset the position offset
+   * @return the offset copy
+   */
+  public MinMaxGroup copyWithPositionOffset(int positionOffset) {
+    return new MinMaxGroup(minimum, maximum, copyPositionList(minPositionList, positionOffset),
+        copyPositionList(maxPositionList, positionOffset));
+  }
+
+  /**
+   * Gets the minimum of the group.
+   *
+   * @return the minimum, or positive infinity if nothing was accumulated
+   */
+  public double getMinimum() {
+    return minimum;
+  }
+
+  /**
+   * Gets the maximum of the group.
+   *
+   * @return the maximum, or negative infinity if nothing was accumulated
+   */
+  public double getMaximum() {
+    return maximum;
+  }
+
+  /**
+   * Gets the positions holding the minimum in increasing order.
+   *
+   * @return the min position list
+   */
+  public IntList getMinPositionList() {
+    return minPositionList;
+  }
+
+  /**
+   * Gets the positions holding the maximum in increasing order.
+   *
+   * @return the max position list
+   */
+  public IntList getMaxPositionList() {
+    return maxPositionList;
+  }
+
+  /*
+   * Gets a copy of positionList in which every position is offset by positionOffset.
+   */
+  private static IntList copyPositionList(IntList positionList, int positionOffset) {
+    IntList copy = new IntList(positionList.size());
+    for (int i = 0; i < positionList.size(); i++) {
+      copy.add(positionList.get(i) + positionOffset);
+    }
+    return copy;
+  }
+}
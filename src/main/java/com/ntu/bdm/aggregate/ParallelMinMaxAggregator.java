@@ -0,0 +1,126 @@
+package com.ntu.bdm.aggregate;
+
+import com.ntu.bdm.bitmap.RoaringBitmap;
+import com.ntu.bdm.vector.DoubleColumn;
+import com.ntu.bdm.vector.ZoneMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/********************************************************
+ * ParallelMinMaxAggregator is utility class which
+ * contains just static methods and cannot be
+ * instantiated. It computes the minimum and maximum,
+ * with all of their positions, of the rows of a column
+ * selected by a bitmap, using fork/join parallelism.
+ *
+ * The rows spanned by the bitmap are split in halves
+ * recursively until a range is small enough, and each
+ * range is scanned by its own task into a partial
+ * {@link MinMaxGroup}. Ranges are split on zone map
+ * block boundaries. Partials are merged left to right,
+ * so the position lists are sorted as in the sequential
+ * kernel.
+ *
+ * One {@link ForkJoinPool} is kept for every degree of
+ * parallelism requested, so pools are not recreated for
+ * every query. Their worker threads are daemon threads.
+ *
+ ********************************************************/
+public class ParallelMinMaxAggregator {
+
+  /**
+   * The smallest number of rows scanned by a single task.
+   */
+  public static final int MIN_RANGE_SIZE = 16 * ZoneMap.BLOCK_SIZE;
+
+  /**
+   * The number of tasks created for every unit of parallelism, so that faster workers can steal
+   * the remaining ranges of slower ones.
+   */
+  private static final int TASKS_PER_WORKER = 4;
+
+  private static final Map<Integer, ForkJoinPool> pools = new ConcurrentHashMap<>();
+
+  private ParallelMinMaxAggregator() {
+  }
+
+  /**
+   * Gets the minimum and maximum, with the indexes holding them, of doubleColumn from a bitmap
+   * whose set bits are valid indexes, in the same form as
+   * {@link DoubleColumn#getMinMax(RoaringBitmap)}. Null elements are ignored.
+   *
+   * @param doubleColumn the double column
+   * @param bitmap       the bitmap of valid indexes
+   * @param parallelism  the degree of parallelism, at least 1
+   * @return the min max
+   */
+  public static MinMaxGroup getMinMax(DoubleColumn doubleColumn, RoaringBitmap bitmap,
+      int parallelism) {
+    int first = bitmap.nextSetBit(0);
+    if (first < 0) {
+      return new MinMaxGroup();
+    }
+    int end = bitmap.last() + 1;
+
+    int rangeSize = Math.max(MIN_RANGE_SIZE, (end - first) / (parallelism * TASKS_PER_WORKER));
+    ForkJoinPool pool = pools.computeIfAbsent(parallelism, ForkJoinPool::new);
+    return pool.invoke(new MinMaxTask(doubleColumn, bitmap, first, end, rangeSize));
+  }
+
+  /*
+   * MinMaxTask computes the partial minimum and maximum of the valid rows from start inclusive to
+   * end exclusive, splitting itself while the range is larger than rangeSize.
+   */
+  private static class MinMaxTask extends RecursiveTask<MinMaxGroup> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final DoubleColumn doubleColumn;
+    private final RoaringBitmap bitmap;
+    private final int start;
+    private final int end;
+    private final int rangeSize;
+
+    MinMaxTask(DoubleColumn doubleColumn, RoaringBitmap bitmap, int start, int end,
+        int rangeSize) {
+      this.doubleColumn = doubleColumn;
+      this.bitmap = bitmap;
+      this.start = start;
+      this.end = end;
+      this.rangeSize = rangeSize;
+    }
+
+    @Override
+    protected MinMaxGroup compute() {
+      // Split in the middle, rounded down to a block boundary.
+      int middle = ((start + (end - start) / 2) >>> ZoneMap.BLOCK_SHIFT) << ZoneMap.BLOCK_SHIFT;
+      if (end - start <= rangeSize || middle <= start) {
+        return scan();
+      }
+
+      MinMaxTask left = new MinMaxTask(doubleColumn, bitmap, start, middle, rangeSize);
+      MinMaxTask right = new MinMaxTask(doubleColumn, bitmap, middle, end, rangeSize);
+      left.fork();
+      MinMaxGroup rightGroup = right.compute();
+      MinMaxGroup leftGroup = left.join();
+      leftGroup.merge(rightGroup);
+      return leftGroup;
+    }
+
+    /*
+     * Scans the valid rows of the range sequentially.
+     */
+    private MinMaxGroup scan() {
+      MinMaxGroup group = new MinMaxGroup();
+      for (int position = bitmap.nextSetBit(start); position >= 0 && position < end;
+          position = bitmap.nextSetBit(position + 1)) {
+        if (!doubleColumn.isNull(position)) {
+          group.accumulate(position, doubleColumn.get(position));
+        }
+      }
+      return group;
+    }
+  }
+}
@@ -0,0 +1,285 @@
+package com.ntu.bdm.bitmap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/********************************************************
+ * ArrayContainer is a {@link Container} for sparse
+ * chunks. It stores the low 16 bits of every set bit in
+ * a sorted char array, and is converted into a
+ * {@link BitmapContainer} once it holds more than
+ * MAX_ARRAY_CARDINALITY values.
+ *
+ ********************************************************/
+final class ArrayContainer extends Container {
+
+  private static final int INITIAL_CAPACITY = 4;
+
+  private char[] content;
+  private int cardinality;
+
+  /**
+   * Instantiates a new empty ArrayContainer.
+   */
+  ArrayContainer() {
+    this(new char[INITIAL_CAPACITY], 0);
+  }
+
+  /**
+   * Instantiates a new ArrayContainer holding the first cardinality values of content.
+   *
+   * @param content     the sorted content
+   * @param cardinality the cardinality
+   */
+  ArrayContainer(char[] content, int cardinality) {
+    this.content = content;
+    this.cardinality = cardinality;
+  }
+
+  /**
+   * Creates an ArrayContainer holding the same bits as another container.
+   *
+   * @param container the container
+   * @return the array container
+   */
+  static ArrayContainer fromContainer(Container container) {
+    char[] content = new char[container.getCardinality()];
+    IntIterator iterator = container.iterator(0);
+    int size = 0;
+    while (iterator.hasNext()) {
+      content[size++] = (char) iterator.next();
+    }
+    return new ArrayContainer(content, size);
+  }
+
+  /**
+   * Gets the size in bytes of an ArrayContainer with the cardinality when serialised.
+   *
+   * @param cardinality the cardinality
+   * @return the size in bytes
+   */
+  static int serialisedSizeInBytes(int cardinality) {
+    return Integer.BYTES + cardinality * Character.BYTES;
+  }
+
+  @Override
+  int getCardinality() {
+    return cardinality;
+  }
+
+  @Override
+  boolean contains(char x) {
+    return Arrays.binarySearch(content, 0, cardinality, x) >= 0;
+  }
+
+  @Override
+  Container add(char x) {
+    // Positions are usually added in increasing order, so check the end of the array first.
+    int index = cardinality > 0 && content[cardinality - 1] < x
+        ? -cardinality - 1
+        : Arrays.binarySearch(content, 0, cardinality, x);
+    if (index >= 0) {
+      return this;
+    }
+    if (cardinality >= MAX_ARRAY_CARDINALITY) {
+      return BitmapContainer.fromContainer(this).add(x);
+    }
+
+    int insertion = -index - 1;
+    if (cardinality == content.length) {
+      content = Arrays.copyOf(content,
+          Math.max(INITIAL_CAPACITY, Math.min(content.length * 2, MAX_ARRAY_CARDINALITY)));
+    }
+    System.arraycopy(content, insertion, content, insertion + 1, cardinality - insertion);
+    content[insertion] = x;
+    cardinality++;
+    return this;
+  }
+
+  @Override
+  Container addRange(int begin, int end) {
+    return or(RunContainer.ofRange(begin, end));
+  }
+
+  @Override
+  Container and(Container other) {
+    char[] result = new char[cardinality];
+    int size = 0;
+    for (int i = 0; i < cardinality; i++) {
+      if (other.contains(content[i])) {
+        result[size++] = content[i];
+      }
+    }
+    return new ArrayContainer(result, size);
+  }
+
+  @Override
+  Container or(Container other) {
+    if (other instanceof ArrayContainer) {
+      ArrayContainer array = (ArrayContainer) other;
+      if (cardinality + array.cardinality <= MAX_ARRAY_CARDINALITY) {
+        return merge(array);
+      }
+    }
+    long[] words = other.toWords();
+    orInto(words);
+    return BitmapContainer.fromWords(words);
+  }
+
+  @Override
+  Container andNot(Container other) {
+    char[] result = new char[cardinality];
+    int size = 0;
+    for (int i = 0; i < cardinality; i++) {
+      if (!other.contains(content[i])) {
+        result[size++] = content[i];
+      }
+    }
+    return new ArrayContainer(result, size);
+  }
+
+  @Override
+  int rangeCardinality(int begin, int end) {
+    return lowerBound(end) - lowerBound(begin);
+  }
+
+  @Override
+  int nextSetBit(int from) {
+    int index = Arrays.binarySearch(content, 0, cardinality, (char) from);
+    if (index < 0) {
+      index = -index - 1;
+    }
+    return index < cardinality ? content[index] : -1;
+  }
+
+  @Override
+  int last() {
+    return content[cardinality - 1];
+  }
+
+  @Override
+  IntIterator iterator(int high) {
+    return new IntIterator() {
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index < cardinality;
+      }
+
+      @Override
+      public int next() {
+        return high | content[index++];
+      }
+    };
+  }
+
+  @Override
+  void orInto(long[] words) {
+    for (int i = 0; i < cardinality; i++) {
+      words[content[i] >>> 6] |= 1L << content[i];
+    }
+  }
+
+  @Override
+  int getRunCount() {
+    int runCount = 0;
+    for (int i = 0; i < cardinality; i++) {
+      if (i == 0 || content[i] != content[i - 1] + 1) {
+        runCount++;
+      }
+    }
+    return runCount;
+  }
+
+  @Override
+  int getSizeInBytes() {
+    return serialisedSizeInBytes(cardinality);
+  }
+
+  @Override
+  byte getType() {
+    return TYPE_ARRAY;
+  }
+
+  @Override
+  void writeContent(DataOutput out) throws IOException {
+    out.writeInt(cardinality);
+    for (int i = 0; i < cardinality; i++) {
+      out.writeChar(content[i]);
+    }
+  }
+
+  /**
+   * Reads an ArrayContainer written by {@link #writeContent(DataOutput)}.
+   *
+   * @param in the in
+   * @return the array container
+   * @throws IOException the io exception
+   */
+  static ArrayContainer readContent(DataInput in) throws IOException {
+    int cardinality = in.readInt();
+    char[] content = new char[cardinality];
+    for (int i = 0; i < cardinality; i++) {
+      content[i] = in.readChar();
+    }
+    return new ArrayContainer(content, cardinality);
+  }
+
+  @Override
+  public ArrayContainer clone() {
+    return new ArrayContainer(Arrays.copyOf(content, Math.max(cardinality, 1)), cardinality);
+  }
+
+  /*
+   * Merges the sorted content of this and another array container into a new array container
+   * without duplicates.
+   */
+  private ArrayContainer merge(ArrayContainer other) {
+    char[] result = new char[cardinality + other.cardinality];
+    int i = 0;
+    int j = 0;
+    int size = 0;
+    while (i < cardinality && j < other.cardinality) {
+      char a = content[i];
+      char b = other.content[j];
+      if (a < b) {
+        result[size++] = a;
+        i++;
+      } else if (a > b) {
+        result[size++] = b;
+        j++;
+      } else {
+        result[size++] = a;
+        i++;
+        j++;
+      }
+    }
+    while (i < cardinality) {
+      result[size++] = content[i++];
+    }
+    while (j < other.cardinality) {
+      result[size++] = other.content[j++];
+    }
+    return new ArrayContainer(result, size);
+  }
+
+  /*
+   * Gets the index of the first value that is not less than x.
+   */
+  private int lowerBound(int x) {
+    int low = 0;
+    int high = cardinality;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (content[middle] < x) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+}
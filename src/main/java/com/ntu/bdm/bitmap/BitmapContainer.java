@@ -0,0 +1,265 @@
+package com.ntu.bdm.bitmap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/********************************************************
+ * BitmapContainer is a {@link Container} for dense
+ * chunks. It stores the chunk as an uncompressed bitmap
+ * of 1024 longs, and is converted back into an
+ * {@link ArrayContainer} whenever an operation leaves it
+ * with at most MAX_ARRAY_CARDINALITY set bits.
+ *
+ ********************************************************/
+final class BitmapContainer extends Container {
+
+  private final long[] words;
+  private int cardinality;
+
+  /**
+   * Instantiates a new BitmapContainer.
+   *
+   * @param words       the words
+   * @param cardinality the number of set bits in words
+   */
+  BitmapContainer(long[] words, int cardinality) {
+    this.words = words;
+    this.cardinality = cardinality;
+  }
+
+  /**
+   * Creates a BitmapContainer holding the same bits as another container.
+   *
+   * @param container the container
+   * @return the bitmap container
+   */
+  static BitmapContainer fromContainer(Container container) {
+    return new BitmapContainer(container.toWords(), container.getCardinality());
+  }
+
+  /**
+   * Creates the container best suited to hold the bits in words, which is an ArrayContainer when
+   * there are few set bits and a BitmapContainer otherwise.
+   *
+   * @param words the words
+   * @return the container
+   */
+  static Container fromWords(long[] words) {
+    int cardinality = 0;
+    for (long word : words) {
+      cardinality += Long.bitCount(word);
+    }
+
+    BitmapContainer bitmap = new BitmapContainer(words, cardinality);
+    if (cardinality <= MAX_ARRAY_CARDINALITY) {
+      return ArrayContainer.fromContainer(bitmap);
+    }
+    return bitmap;
+  }
+
+  /**
+   * Gets the size in bytes of a BitmapContainer when serialised.
+   *
+   * @return the size in bytes
+   */
+  static int serialisedSizeInBytes() {
+    return Integer.BYTES + WORD_COUNT * Long.BYTES;
+  }
+
+  @Override
+  int getCardinality() {
+    return cardinality;
+  }
+
+  @Override
+  boolean contains(char x) {
+    return (words[x >>> 6] & (1L << x)) != 0;
+  }
+
+  @Override
+  Container add(char x) {
+    long word = words[x >>> 6];
+    long updated = word | (1L << x);
+    if (word != updated) {
+      words[x >>> 6] = updated;
+      cardinality++;
+    }
+    return this;
+  }
+
+  @Override
+  Container addRange(int begin, int end) {
+    setRange(words, begin, end);
+
+    cardinality = 0;
+    for (long word : words) {
+      cardinality += Long.bitCount(word);
+    }
+    return this;
+  }
+
+  @Override
+  Container and(Container other) {
+    if (other instanceof ArrayContainer) {
+      return other.and(this);
+    }
+
+    long[] otherWords = other instanceof BitmapContainer
+        ? ((BitmapContainer) other).words
+        : other.toWords();
+    long[] result = new long[WORD_COUNT];
+    for (int i = 0; i < WORD_COUNT; i++) {
+      result[i] = words[i] & otherWords[i];
+    }
+    return fromWords(result);
+  }
+
+  @Override
+  Container or(Container other) {
+    long[] result = words.clone();
+    other.orInto(result);
+    return fromWords(result);
+  }
+
+  @Override
+  Container andNot(Container other) {
+    long[] otherWords = other instanceof BitmapContainer
+        ? ((BitmapContainer) other).words
+        : other.toWords();
+    long[] result = new long[WORD_COUNT];
+    for (int i = 0; i < WORD_COUNT; i++) {
+      result[i] = words[i] & ~otherWords[i];
+    }
+    return fromWords(result);
+  }
+
+  @Override
+  int rangeCardinality(int begin, int end) {
+    if (begin >= end) {
+      return 0;
+    }
+    int firstWord = begin >>> 6;
+    int lastWord = (end - 1) >>> 6;
+    long firstMask = -1L << begin;
+    long lastMask = -1L >>> -end;
+
+    if (firstWord == lastWord) {
+      return Long.bitCount(words[firstWord] & firstMask & lastMask);
+    }
+    int count = Long.bitCount(words[firstWord] & firstMask);
+    for (int i = firstWord + 1; i < lastWord; i++) {
+      count += Long.bitCount(words[i]);
+    }
+    return count + Long.bitCount(words[lastWord] & lastMask);
+  }
+
+  @Override
+  int nextSetBit(int from) {
+    int index = from >>> 6;
+    long word = words[index] & (-1L << from);
+    while (true) {
+      if (word != 0) {
+        return index * Long.SIZE + Long.numberOfTrailingZeros(word);
+      }
+      if (++index == WORD_COUNT) {
+        return -1;
+      }
+      word = words[index];
+    }
+  }
+
+  @Override
+  int last() {
+    int index = WORD_COUNT - 1;
+    while (words[index] == 0) {
+      index--;
+    }
+    return index * Long.SIZE + Long.SIZE - 1 - Long.numberOfLeadingZeros(words[index]);
+  }
+
+  @Override
+  IntIterator iterator(int high) {
+    return new IntIterator() {
+      private int index = 0;
+      private long word = words[0];
+
+      @Override
+      public boolean hasNext() {
+        while (word == 0) {
+          if (++index == WORD_COUNT) {
+            return false;
+          }
+          word = words[index];
+        }
+        return true;
+      }
+
+      @Override
+      public int next() {
+        hasNext();
+        int low = index * Long.SIZE + Long.numberOfTrailingZeros(word);
+        word &= word - 1;
+        return high | low;
+      }
+    };
+  }
+
+  @Override
+  void orInto(long[] words) {
+    for (int i = 0; i < WORD_COUNT; i++) {
+      words[i] |= this.words[i];
+    }
+  }
+
+  @Override
+  int getRunCount() {
+    int runCount = 0;
+    for (int i = 0; i < WORD_COUNT; i++) {
+      long word = words[i];
+      // A run starts at every set bit whose preceding bit is not set.
+      long previous = (word << 1) | (i > 0 ? words[i - 1] >>> 63 : 0);
+      runCount += Long.bitCount(word & ~previous);
+    }
+    return runCount;
+  }
+
+  @Override
+  int getSizeInBytes() {
+    return serialisedSizeInBytes();
+  }
+
+  @Override
+  byte getType() {
+    return TYPE_BITMAP;
+  }
+
+  @Override
+  void writeContent(DataOutput out) throws IOException {
+    out.writeInt(cardinality);
+    for (long word : words) {
+      out.writeLong(word);
+    }
+  }
+
+  /**
+   * Reads a BitmapContainer written by {@link #writeContent(DataOutput)}.
+   *
+   * @param in the in
+   * @return the bitmap container
+   * @throws IOException the io exception
+   */
+  static BitmapContainer readContent(DataInput in) throws IOException {
+    int cardinality = in.readInt();
+    long[] words = new long[WORD_COUNT];
+    for (int i = 0; i < WORD_COUNT; i++) {
+      words[i] = in.readLong();
+    }
+    return new BitmapContainer(words, cardinality);
+  }
+
+  @Override
+  public BitmapContainer clone() {
+    return new BitmapContainer(words.clone(), cardinality);
+  }
+}
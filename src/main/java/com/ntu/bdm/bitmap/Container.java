@@ -0,0 +1,248 @@
+package com.ntu.bdm.bitmap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/********************************************************
+ * Container is the abstract base class of the chunks of
+ * a {@link RoaringBitmap}. A container holds the low 16
+ * bits of the set bits that share the same high 16 bits,
+ * so it represents at most 65536 bits.
+ *
+ * There are three kinds of containers:
+ * {@link ArrayContainer} for sparse chunks,
+ * {@link BitmapContainer} for dense chunks and
+ * {@link RunContainer} for chunks made of long runs of
+ * consecutive set bits. Operations return a new or
+ * modified container whose kind may differ from the
+ * receiver, so callers must always use the returned
+ * container.
+ *
+ ********************************************************/
+abstract class Container implements Cloneable {
+
+  /**
+   * The number of bits a container represents.
+   */
+  static final int MAX_CAPACITY = 1 << 16;
+
+  /**
+   * The cardinality above which an array container is converted into a bitmap container.
+   */
+  static final int MAX_ARRAY_CARDINALITY = 4096;
+
+  /**
+   * The number of longs in the words of a bitmap container.
+   */
+  static final int WORD_COUNT = MAX_CAPACITY / Long.SIZE;
+
+  static final byte TYPE_ARRAY = 0;
+  static final byte TYPE_BITMAP = 1;
+  static final byte TYPE_RUN = 2;
+
+  /**
+   * Gets the number of set bits.
+   *
+   * @return the cardinality
+   */
+  abstract int getCardinality();
+
+  /**
+   * Checks whether a bit is set.
+   *
+   * @param x the low 16 bits of the position
+   * @return true if the bit is set
+   */
+  abstract boolean contains(char x);
+
+  /**
+   * Sets a bit.
+   *
+   * @param x the low 16 bits of the position
+   * @return the resulting container
+   */
+  abstract Container add(char x);
+
+  /**
+   * Sets the bits from begin inclusive to end exclusive.
+   *
+   * @param begin the begin, between 0 and 65535
+   * @param end   the end, between begin + 1 and 65536
+   * @return the resulting container
+   */
+  abstract Container addRange(int begin, int end);
+
+  /**
+   * Computes the intersection with another container.
+   *
+   * @param other the other container
+   * @return the resulting container, which may be this container
+   */
+  abstract Container and(Container other);
+
+  /**
+   * Computes the union with another container.
+   *
+   * @param other the other container
+   * @return the resulting container, which may be this container
+   */
+  abstract Container or(Container other);
+
+  /**
+   * Computes the difference with another container.
+   *
+   * @param other the other container
+   * @return the resulting container, which may be this container
+   */
+  abstract Container andNot(Container other);
+
+  /**
+   * Gets the number of set bits from begin inclusive to end exclusive.
+   *
+   * @param begin the begin, between 0 and 65535
+   * @param end   the end, between begin and 65536
+   * @return the number of set bits in the range
+   */
+  abstract int rangeCardinality(int begin, int end);
+
+  /**
+   * Gets the first set bit that occurs on or after from.
+   *
+   * @param from the position to start checking from, between 0 and 65535
+   * @return the low 16 bits of the next set bit, or -1 if there is none
+   */
+  abstract int nextSetBit(int from);
+
+  /**
+   * Gets the last set bit. The container must not be empty.
+   *
+   * @return the low 16 bits of the last set bit
+   */
+  abstract int last();
+
+  /**
+   * Gets an iterator over the set bits, with high added to every low 16 bits.
+   *
+   * @param high the high 16 bits shifted into place
+   * @return the iterator
+   */
+  abstract IntIterator iterator(int high);
+
+  /**
+   * Sets the bits of this container in a 1024 word bitmap.
+   *
+   * @param words the words
+   */
+  abstract void orInto(long[] words);
+
+  /**
+   * Gets the number of runs of consecutive set bits.
+   *
+   * @return the number of runs
+   */
+  abstract int getRunCount();
+
+  /**
+   * Gets the size of the container in bytes when serialised.
+   *
+   * @return the size in bytes
+   */
+  abstract int getSizeInBytes();
+
+  /**
+   * Gets the type written in front of the serialised container.
+   *
+   * @return the type
+   */
+  abstract byte getType();
+
+  /**
+   * Writes the content of the container, after its type, to out.
+   *
+   * @param out the out
+   * @throws IOException the io exception
+   */
+  abstract void writeContent(DataOutput out) throws IOException;
+
+  @Override
+  public abstract Container clone();
+
+  /**
+   * Converts the container into the smallest of the three kinds of container.
+   *
+   * @return the resulting container
+   */
+  Container runOptimize() {
+    int cardinality = getCardinality();
+    int runCount = getRunCount();
+
+    int arraySize = ArrayContainer.serialisedSizeInBytes(cardinality);
+    int bitmapSize = BitmapContainer.serialisedSizeInBytes();
+    int runSize = RunContainer.serialisedSizeInBytes(runCount);
+
+    if (runSize < arraySize && runSize < bitmapSize) {
+      return this instanceof RunContainer ? this : RunContainer.fromContainer(this, runCount);
+    }
+    if (cardinality <= MAX_ARRAY_CARDINALITY) {
+      return this instanceof ArrayContainer ? this : ArrayContainer.fromContainer(this);
+    }
+    return this instanceof BitmapContainer ? this : BitmapContainer.fromContainer(this);
+  }
+
+  /**
+   * Gets the words of a 1024 word bitmap holding the bits of this container.
+   *
+   * @return the words
+   */
+  long[] toWords() {
+    long[] words = new long[WORD_COUNT];
+    orInto(words);
+    return words;
+  }
+
+  /**
+   * Sets the bits from begin inclusive to end exclusive in a 1024 word bitmap.
+   *
+   * @param words the words
+   * @param begin the begin
+   * @param end   the end
+   */
+  static void setRange(long[] words, int begin, int end) {
+    int firstWord = begin >>> 6;
+    int lastWord = (end - 1) >>> 6;
+    long firstMask = -1L << begin;
+    long lastMask = -1L >>> -end;
+
+    if (firstWord == lastWord) {
+      words[firstWord] |= firstMask & lastMask;
+      return;
+    }
+    words[firstWord] |= firstMask;
+    for (int i = firstWord + 1; i < lastWord; i++) {
+      words[i] = -1L;
+    }
+    words[lastWord] |= lastMask;
+  }
+
+  /**
+   * Reads a container written by {@link #writeContent(DataOutput)} after its type.
+   *
+   * @param in   the in
+   * @param type the type
+   * @return the container
+   * @throws IOException the io exception
+   */
+  static Container read(DataInput in, byte type) throws IOException {
+    switch (type) {
+      case TYPE_ARRAY:
+        return ArrayContainer.readContent(in);
+      case TYPE_BITMAP:
+        return BitmapContainer.readContent(in);
+      case TYPE_RUN:
+        return RunContainer.readContent(in);
+      default:
+        throw new IOException("Unknown container type " + type);
+    }
+  }
+}
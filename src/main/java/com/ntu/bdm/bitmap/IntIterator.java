@@ -0,0 +1,25 @@
+package com.ntu.bdm.bitmap;
+
+/********************************************************
+ * IntIterator is an iterator over primitive ints. It is
+ * used to iterate over the set bits of a
+ * {@link RoaringBitmap} in increasing order without
+ * boxing them.
+ *
+ ********************************************************/
+public interface IntIterator {
+
+  /**
+   * Checks whether the iteration has more elements.
+   *
+   * @return true if there are more elements
+   */
+  boolean hasNext();
+
+  /**
+   * Gets the next element of the iteration.
+   *
+   * @return the next element
+   */
+  int next();
+}
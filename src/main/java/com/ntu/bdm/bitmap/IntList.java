@@ -0,0 +1,127 @@
+package com.ntu.bdm.bitmap;
+
+import java.util.Arrays;
+
+/********************************************************
+ * IntList is a container class which holds a growable
+ * list of primitive ints, e.g. the positions of the rows
+ * selected by a query. Unlike a List of Integer it does
+ * not box its elements, and clearing it keeps its
+ * capacity so that it can be refilled without
+ * allocating.
+ *
+ ********************************************************/
+public class IntList {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private int[] elements;
+  private int size;
+
+  /**
+   * Instantiates a new empty IntList.
+   */
+  public IntList() {
+    this(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Instantiates a new empty IntList with room for capacity elements.
+   *
+   * @param capacity the initial capacity
+   */
+  public IntList(int capacity) {
+    elements = new int[Math.max(capacity, 1)];
+    size = 0;
+  }
+
+  /**
+   * Add an element to the end of the list.
+   *
+   * @param element the element
+   */
+  public void add(int element) {
+    if (size == elements.length) {
+      elements = Arrays.copyOf(elements, elements.length * 2);
+    }
+    elements[size++] = element;
+  }
+
+  /**
+   * Add every element of another list to the end of the list.
+   *
+   * @param other the other list
+   */
+  public void addAll(IntList other) {
+    if (size + other.size > elements.length) {
+      elements = Arrays.copyOf(elements, Math.max(elements.length * 2, size + other.size));
+    }
+    System.arraycopy(other.elements, 0, elements, size, other.size);
+    size += other.size;
+  }
+
+  /**
+   * Get the element at the given index, which must be less than the size of the list.
+   *
+   * @param index position of element
+   * @return element at given index
+   */
+  public int get(int index) {
+    return elements[index];
+  }
+
+  /**
+   * Gets the number of elements in the list.
+   *
+   * @return number of elements
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Checks whether the list has no elements.
+   *
+   * @return true if the list is empty
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Remove every element from the list, keeping its capacity.
+   */
+  public void clear() {
+    size = 0;
+  }
+
+  /**
+   * Gets an iterator over the elements of the list in order.
+   *
+   * @return the iterator
+   */
+  public IntIterator iterator() {
+    return new IntIterator() {
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index < size;
+      }
+
+      @Override
+      public int next() {
+        return elements[index++];
+      }
+    };
+  }
+
+  /**
+   * Copy the elements of the list into a new array.
+   *
+   * @return the array
+   */
+  public int[] toArray() {
+    return Arrays.copyOf(elements, size);
+  }
+}
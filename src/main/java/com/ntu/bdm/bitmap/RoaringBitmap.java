@@ -0,0 +1,487 @@
+package com.ntu.bdm.bitmap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/********************************************************
+ * RoaringBitmap is a compressed bitmap of non-negative
+ * int positions. It mirrors the subset of the
+ * {@link java.util.BitSet} API used by the indexes, so
+ * it can replace BitSet where bitmaps are large and
+ * sparse or clustered.
+ *
+ * Positions are split into chunks of 65536 by their high
+ * 16 bits. Each non-empty chunk is held in a
+ * {@link Container} which is an array, a bitmap or a
+ * run container depending on which is smallest. Bitwise
+ * operations work chunk by chunk and only touch chunks
+ * present in both operands, and iteration decodes one
+ * chunk at a time without decompressing the bitmap.
+ *
+ * The serialised form is big endian: the COOKIE, the
+ * number of containers, then for each container its
+ * high 16 bits as a char, its type as a byte and its
+ * content.
+ *
+ ********************************************************/
+public class RoaringBitmap implements Cloneable {
+
+  /**
+   * The cookie written at the start of a serialised RoaringBitmap.
+   */
+  public static final int COOKIE = 0x524F4152;
+
+  private static final int INITIAL_CAPACITY = 4;
+
+  private char[] keys;
+  private Container[] containers;
+  private int size;
+
+  /**
+   * Instantiates a new empty RoaringBitmap.
+   */
+  public RoaringBitmap() {
+    this(new char[INITIAL_CAPACITY], new Container[INITIAL_CAPACITY], 0);
+  }
+
+  private RoaringBitmap(char[] keys, Container[] containers, int size) {
+    this.keys = keys;
+    this.containers = containers;
+    this.size = size;
+  }
+
+  /**
+   * Sets the bit at the position to true.
+   *
+   * @param position the position
+   */
+  public void set(int position) {
+    char key = highBits(position);
+    int index = findKey(key);
+    if (index >= 0) {
+      containers[index] = containers[index].add(lowBits(position));
+    } else {
+      Container container = new ArrayContainer().add(lowBits(position));
+      insertContainer(-index - 1, key, container);
+    }
+  }
+
+  /**
+   * Sets the bits from fromIndex inclusive to toIndex exclusive to true.
+   *
+   * @param fromIndex the from index
+   * @param toIndex   the to index
+   */
+  public void set(int fromIndex, int toIndex) {
+    if (fromIndex >= toIndex) {
+      return;
+    }
+
+    int last = toIndex - 1;
+    for (int key = fromIndex >>> 16; key <= last >>> 16; key++) {
+      int begin = key == fromIndex >>> 16 ? fromIndex & 0xFFFF : 0;
+      int end = key == last >>> 16 ? (last & 0xFFFF) + 1 : Container.MAX_CAPACITY;
+
+      int index = findKey((char) key);
+      if (index >= 0) {
+        containers[index] = containers[index].addRange(begin, end);
+      } else {
+        insertContainer(-index - 1, (char) key, RunContainer.ofRange(begin, end));
+      }
+    }
+  }
+
+  /**
+   * Gets the value of the bit at the position.
+   *
+   * @param position the position
+   * @return true if the bit is set
+   */
+  public boolean get(int position) {
+    int index = findKey(highBits(position));
+    return index >= 0 && containers[index].contains(lowBits(position));
+  }
+
+  /**
+   * Gets the number of bits set to true.
+   *
+   * @return the cardinality
+   */
+  public int cardinality() {
+    int cardinality = 0;
+    for (int i = 0; i < size; i++) {
+      cardinality += containers[i].getCardinality();
+    }
+    return cardinality;
+  }
+
+  /**
+   * Gets the number of bits set to true from fromIndex inclusive to toIndex exclusive.
+   *
+   * @param fromIndex the from index
+   * @param toIndex   the to index
+   * @return the cardinality of the range
+   */
+  public int rangeCardinality(int fromIndex, int toIndex) {
+    if (fromIndex >= toIndex) {
+      return 0;
+    }
+
+    int cardinality = 0;
+    int last = toIndex - 1;
+    int index = findKey(highBits(fromIndex));
+    for (int i = index >= 0 ? index : -index - 1; i < size && keys[i] <= last >>> 16; i++) {
+      int begin = keys[i] == fromIndex >>> 16 ? fromIndex & 0xFFFF : 0;
+      int end = keys[i] == last >>> 16 ? (last & 0xFFFF) + 1 : Container.MAX_CAPACITY;
+      cardinality += containers[i].rangeCardinality(begin, end);
+    }
+    return cardinality;
+  }
+
+  /**
+   * Checks whether no bit is set to true.
+   *
+   * @return true if the bitmap is empty
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Performs a logical AND of this bitmap with another bitmap. This bitmap is modified so that
+   * each of its bits is only set if it is set in both bitmaps.
+   *
+   * @param other the other bitmap
+   */
+  public void and(RoaringBitmap other) {
+    int newSize = 0;
+    int i = 0;
+    int j = 0;
+    while (i < size && j < other.size) {
+      if (keys[i] < other.keys[j]) {
+        i++;
+      } else if (keys[i] > other.keys[j]) {
+        j++;
+      } else {
+        Container result = containers[i].and(other.containers[j]);
+        if (result.getCardinality() > 0) {
+          keys[newSize] = keys[i];
+          containers[newSize] = result;
+          newSize++;
+        }
+        i++;
+        j++;
+      }
+    }
+    Arrays.fill(containers, newSize, size, null);
+    size = newSize;
+  }
+
+  /**
+   * Performs a logical OR of this bitmap with another bitmap. This bitmap is modified so that each
+   * of its bits is set if it is set in either bitmap.
+   *
+   * @param other the other bitmap
+   */
+  public void or(RoaringBitmap other) {
+    char[] newKeys = new char[size + other.size];
+    Container[] newContainers = new Container[size + other.size];
+    int newSize = 0;
+    int i = 0;
+    int j = 0;
+    while (i < size || j < other.size) {
+      if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+        newKeys[newSize] = keys[i];
+        newContainers[newSize++] = containers[i++];
+      } else if (i == size || keys[i] > other.keys[j]) {
+        newKeys[newSize] = other.keys[j];
+        newContainers[newSize++] = other.containers[j++].clone();
+      } else {
+        newKeys[newSize] = keys[i];
+        newContainers[newSize++] = containers[i++].or(other.containers[j++]);
+      }
+    }
+    keys = newKeys;
+    containers = newContainers;
+    size = newSize;
+  }
+
+  /**
+   * Clears all of the bits in this bitmap whose corresponding bit is set in another bitmap.
+   *
+   * @param other the other bitmap
+   */
+  public void andNot(RoaringBitmap other) {
+    int newSize = 0;
+    int j = 0;
+    for (int i = 0; i < size; i++) {
+      while (j < other.size && other.keys[j] < keys[i]) {
+        j++;
+      }
+      Container result = containers[i];
+      if (j < other.size && other.keys[j] == keys[i]) {
+        result = result.andNot(other.containers[j]);
+      }
+      if (result.getCardinality() > 0) {
+        keys[newSize] = keys[i];
+        containers[newSize] = result;
+        newSize++;
+      }
+    }
+    Arrays.fill(containers, newSize, size, null);
+    size = newSize;
+  }
+
+  /**
+   * Gets a new bitmap holding the logical AND of bitmaps, none of which is modified. The bitmaps
+   * are combined in increasing order of cardinality, so that the intermediate result is as small
+   * as possible from the start, and combining stops as soon as it becomes empty.
+   *
+   * @param bitmaps the bitmaps
+   * @return the intersection, which is empty if there are no bitmaps
+   */
+  public static RoaringBitmap intersect(List<RoaringBitmap> bitmaps) {
+    if (bitmaps.isEmpty()) {
+      return new RoaringBitmap();
+    }
+
+    List<RoaringBitmap> sortedBitmaps = new ArrayList<>(bitmaps);
+    sortedBitmaps.sort(Comparator.comparingInt(RoaringBitmap::cardinality));
+
+    RoaringBitmap result = sortedBitmaps.get(0).clone();
+    for (int i = 1; i < sortedBitmaps.size() && !result.isEmpty(); i++) {
+      result.and(sortedBitmaps.get(i));
+    }
+    return result;
+  }
+
+  /**
+   * Gets the index of the first bit that is set to true that occurs on or after fromIndex.
+   *
+   * @param fromIndex the index to start checking from
+   * @return the index of the next set bit, or -1 if there is no such bit
+   */
+  public int nextSetBit(int fromIndex) {
+    char key = highBits(fromIndex);
+    int index = findKey(key);
+    if (index >= 0) {
+      int low = containers[index].nextSetBit(fromIndex & 0xFFFF);
+      if (low >= 0) {
+        return (key << 16) | low;
+      }
+      index++;
+    } else {
+      index = -index - 1;
+    }
+    if (index < size) {
+      return (keys[index] << 16) | containers[index].nextSetBit(0);
+    }
+    return -1;
+  }
+
+  /**
+   * Gets the index of the last bit that is set to true.
+   *
+   * @return the index of the last set bit, or -1 if the bitmap is empty
+   */
+  public int last() {
+    if (size == 0) {
+      return -1;
+    }
+    return (keys[size - 1] << 16) | containers[size - 1].last();
+  }
+
+  /**
+   * Gets an iterator over the bits set to true in increasing order.
+   *
+   * @return the iterator
+   */
+  public IntIterator iterator() {
+    return new IntIterator() {
+      private int index = 0;
+      private IntIterator current = size > 0 ? containers[0].iterator(keys[0] << 16) : null;
+
+      @Override
+      public boolean hasNext() {
+        while (current != null && !current.hasNext()) {
+          index++;
+          current = index < size ? containers[index].iterator(keys[index] << 16) : null;
+        }
+        return current != null;
+      }
+
+      @Override
+      public int next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return current.next();
+      }
+    };
+  }
+
+  /**
+   * Gets the bits set to true in increasing order as an IntList, e.g. to use as a selection vector
+   * of positions.
+   *
+   * @return the int list
+   */
+  public IntList toIntList() {
+    IntList intList = new IntList(cardinality());
+    for (int i = 0; i < size; i++) {
+      IntIterator iterator = containers[i].iterator(keys[i] << 16);
+      while (iterator.hasNext()) {
+        intList.add(iterator.next());
+      }
+    }
+    return intList;
+  }
+
+  /**
+   * Converts every container into the smallest kind of container for its content. This should be
+   * called once a bitmap has been fully built.
+   */
+  public void runOptimize() {
+    for (int i = 0; i < size; i++) {
+      containers[i] = containers[i].runOptimize();
+    }
+  }
+
+  /**
+   * Gets the size of the bitmap in bytes when serialised.
+   *
+   * @return the size in bytes
+   */
+  public int getSizeInBytes() {
+    int sizeInBytes = 2 * Integer.BYTES;
+    for (int i = 0; i < size; i++) {
+      sizeInBytes += Character.BYTES + Byte.BYTES + containers[i].getSizeInBytes();
+    }
+    return sizeInBytes;
+  }
+
+  /**
+   * Writes the serialised form of the bitmap to out.
+   *
+   * @param out the out
+   * @throws IOException the io exception
+   */
+  public void serialise(DataOutput out) throws IOException {
+    out.writeInt(COOKIE);
+    out.writeInt(size);
+    for (int i = 0; i < size; i++) {
+      out.writeChar(keys[i]);
+      out.writeByte(containers[i].getType());
+      containers[i].writeContent(out);
+    }
+  }
+
+  /**
+   * Reads a bitmap from its serialised form.
+   *
+   * @param in the in
+   * @return the roaring bitmap
+   * @throws IOException the io exception
+   */
+  public static RoaringBitmap deserialise(DataInput in) throws IOException {
+    if (in.readInt() != COOKIE) {
+      throw new IOException("Not a serialised RoaringBitmap");
+    }
+
+    int size = in.readInt();
+    char[] keys = new char[Math.max(size, INITIAL_CAPACITY)];
+    Container[] containers = new Container[Math.max(size, INITIAL_CAPACITY)];
+    for (int i = 0; i < size; i++) {
+      keys[i] = in.readChar();
+      containers[i] = Container.read(in, in.readByte());
+    }
+    return new RoaringBitmap(keys, containers, size);
+  }
+
+  /**
+   * Gets the serialised form of the bitmap as a byte array.
+   *
+   * @return the byte [ ]
+   */
+  public byte[] toByteArray() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(getSizeInBytes());
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      serialise(out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Reads a bitmap from a byte array holding its serialised form.
+   *
+   * @param bytes the bytes
+   * @return the roaring bitmap
+   */
+  public static RoaringBitmap valueOf(byte[] bytes) {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+      return deserialise(in);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public RoaringBitmap clone() {
+    Container[] clonedContainers = new Container[containers.length];
+    for (int i = 0; i < size; i++) {
+      clonedContainers[i] = containers[i].clone();
+    }
+    return new RoaringBitmap(keys.clone(), clonedContainers, size);
+  }
+
+  /*
+   * Gets the index of the container with the key, or -(insertion point) - 1 if there is none. The
+   * last container is checked first as positions are usually added in increasing order.
+   */
+  private int findKey(char key) {
+    if (size > 0 && keys[size - 1] == key) {
+      return size - 1;
+    }
+    if (size > 0 && keys[size - 1] < key) {
+      return -size - 1;
+    }
+    return Arrays.binarySearch(keys, 0, size, key);
+  }
+
+  /*
+   * Inserts a container with the key at index.
+   */
+  private void insertContainer(int index, char key, Container container) {
+    if (size == keys.length) {
+      int capacity = Math.max(INITIAL_CAPACITY, keys.length * 2);
+      keys = Arrays.copyOf(keys, capacity);
+      containers = Arrays.copyOf(containers, capacity);
+    }
+    System.arraycopy(keys, index, keys, index + 1, size - index);
+    System.arraycopy(containers, index, containers, index + 1, size - index);
+    keys[index] = key;
+    containers[index] = container;
+    size++;
+  }
+
+  private static char highBits(int position) {
+    return (char) (position >>> 16);
+  }
+
+  private static char lowBits(int position) {
+    return (char) position;
+  }
+}
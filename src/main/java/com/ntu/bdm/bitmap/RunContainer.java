@@ -0,0 +1,374 @@
+package com.ntu.bdm.bitmap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/********************************************************
+ * RunContainer is a {@link Container} for chunks made
+ * of long runs of consecutive set bits. Each run is
+ * stored as its first position and its length minus
+ * one, so a run covering a whole chunk costs four bytes.
+ *
+ * Index bitmaps of time-ordered data, such as the rows
+ * of one station or of one month, are made of a few
+ * long runs and are stored this way.
+ *
+ ********************************************************/
+final class RunContainer extends Container {
+
+  private static final int INITIAL_CAPACITY = 4;
+
+  private char[] starts;
+  private char[] lengths;
+  private int runCount;
+  private int cardinality;
+
+  /**
+   * Instantiates a new RunContainer holding the first runCount runs of starts and lengths.
+   *
+   * @param starts   the sorted first positions of the runs
+   * @param lengths  the lengths minus one of the runs
+   * @param runCount the run count
+   */
+  RunContainer(char[] starts, char[] lengths, int runCount) {
+    this.starts = starts;
+    this.lengths = lengths;
+    this.runCount = runCount;
+    this.cardinality = 0;
+    for (int i = 0; i < runCount; i++) {
+      cardinality += lengths[i] + 1;
+    }
+  }
+
+  /**
+   * Creates a RunContainer with a single run from begin inclusive to end exclusive.
+   *
+   * @param begin the begin
+   * @param end   the end
+   * @return the run container
+   */
+  static RunContainer ofRange(int begin, int end) {
+    char[] starts = new char[INITIAL_CAPACITY];
+    char[] lengths = new char[INITIAL_CAPACITY];
+    starts[0] = (char) begin;
+    lengths[0] = (char) (end - begin - 1);
+    return new RunContainer(starts, lengths, 1);
+  }
+
+  /**
+   * Creates a RunContainer holding the same bits as another container.
+   *
+   * @param container the container
+   * @param runCount  the number of runs in container
+   * @return the run container
+   */
+  static RunContainer fromContainer(Container container, int runCount) {
+    char[] starts = new char[Math.max(runCount, 1)];
+    char[] lengths = new char[Math.max(runCount, 1)];
+    int size = 0;
+    int previous = -2;
+
+    IntIterator iterator = container.iterator(0);
+    while (iterator.hasNext()) {
+      int x = iterator.next();
+      if (x == previous + 1) {
+        lengths[size - 1]++;
+      } else {
+        starts[size] = (char) x;
+        lengths[size] = 0;
+        size++;
+      }
+      previous = x;
+    }
+    return new RunContainer(starts, lengths, size);
+  }
+
+  /**
+   * Gets the size in bytes of a RunContainer with the run count when serialised.
+   *
+   * @param runCount the run count
+   * @return the size in bytes
+   */
+  static int serialisedSizeInBytes(int runCount) {
+    return Integer.BYTES + runCount * 2 * Character.BYTES;
+  }
+
+  @Override
+  int getCardinality() {
+    return cardinality;
+  }
+
+  @Override
+  boolean contains(char x) {
+    int index = findRun(x);
+    return index >= 0 && x <= starts[index] + lengths[index];
+  }
+
+  @Override
+  Container add(char x) {
+    return addRange(x, x + 1);
+  }
+
+  @Override
+  Container addRange(int begin, int end) {
+    // Ranges are usually added in increasing order, so first try extending or appending a run.
+    if (runCount == 0 || begin > getEnd(runCount - 1) + 1) {
+      appendRun(begin, end - 1);
+      return this;
+    }
+    if (begin >= starts[runCount - 1]) {
+      int last = Math.max(getEnd(runCount - 1), end - 1);
+      cardinality += last - getEnd(runCount - 1);
+      lengths[runCount - 1] = (char) (last - starts[runCount - 1]);
+      return this;
+    }
+    return or(ofRange(begin, end));
+  }
+
+  @Override
+  Container and(Container other) {
+    if (other instanceof ArrayContainer) {
+      return other.and(this);
+    }
+    if (other instanceof BitmapContainer) {
+      return other.and(this);
+    }
+
+    RunContainer run = (RunContainer) other;
+    RunContainer result = new RunContainer(new char[INITIAL_CAPACITY],
+        new char[INITIAL_CAPACITY], 0);
+    int i = 0;
+    int j = 0;
+    while (i < runCount && j < run.runCount) {
+      int start = Math.max(starts[i], run.starts[j]);
+      int end = Math.min(getEnd(i), run.getEnd(j));
+      if (start <= end) {
+        result.appendRun(start, end);
+      }
+      if (getEnd(i) < run.getEnd(j)) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    return result;
+  }
+
+  @Override
+  Container or(Container other) {
+    if (!(other instanceof RunContainer)) {
+      long[] words = other.toWords();
+      orInto(words);
+      return BitmapContainer.fromWords(words);
+    }
+
+    RunContainer run = (RunContainer) other;
+    RunContainer result = new RunContainer(new char[INITIAL_CAPACITY],
+        new char[INITIAL_CAPACITY], 0);
+    int i = 0;
+    int j = 0;
+    while (i < runCount || j < run.runCount) {
+      int start;
+      int end;
+      if (j == run.runCount || (i < runCount && starts[i] <= run.starts[j])) {
+        start = starts[i];
+        end = getEnd(i);
+        i++;
+      } else {
+        start = run.starts[j];
+        end = run.getEnd(j);
+        j++;
+      }
+
+      // Merge the run with the last run of the result if they overlap or touch.
+      int last = result.runCount - 1;
+      if (last >= 0 && start <= result.getEnd(last) + 1) {
+        int merged = Math.max(result.getEnd(last), end);
+        result.cardinality += merged - result.getEnd(last);
+        result.lengths[last] = (char) (merged - result.starts[last]);
+      } else {
+        result.appendRun(start, end);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  Container andNot(Container other) {
+    if (other instanceof RunContainer) {
+      return and(((RunContainer) other).complement());
+    }
+
+    long[] words = toWords();
+    long[] otherWords = other.toWords();
+    for (int i = 0; i < WORD_COUNT; i++) {
+      words[i] &= ~otherWords[i];
+    }
+    return BitmapContainer.fromWords(words);
+  }
+
+  @Override
+  int rangeCardinality(int begin, int end) {
+    int count = 0;
+    for (int i = Math.max(findRun(begin), 0); i < runCount && starts[i] < end; i++) {
+      int overlap = Math.min(getEnd(i) + 1, end) - Math.max(starts[i], begin);
+      if (overlap > 0) {
+        count += overlap;
+      }
+    }
+    return count;
+  }
+
+  @Override
+  int nextSetBit(int from) {
+    int index = findRun(from);
+    if (index >= 0 && from <= getEnd(index)) {
+      return from;
+    }
+    index++;
+    return index < runCount ? starts[index] : -1;
+  }
+
+  @Override
+  int last() {
+    return getEnd(runCount - 1);
+  }
+
+  @Override
+  IntIterator iterator(int high) {
+    return new IntIterator() {
+      private int index = 0;
+      private int offset = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index < runCount;
+      }
+
+      @Override
+      public int next() {
+        int low = starts[index] + offset;
+        if (offset == lengths[index]) {
+          index++;
+          offset = 0;
+        } else {
+          offset++;
+        }
+        return high | low;
+      }
+    };
+  }
+
+  @Override
+  void orInto(long[] words) {
+    for (int i = 0; i < runCount; i++) {
+      setRange(words, starts[i], getEnd(i) + 1);
+    }
+  }
+
+  @Override
+  int getRunCount() {
+    return runCount;
+  }
+
+  @Override
+  int getSizeInBytes() {
+    return serialisedSizeInBytes(runCount);
+  }
+
+  @Override
+  byte getType() {
+    return TYPE_RUN;
+  }
+
+  @Override
+  void writeContent(DataOutput out) throws IOException {
+    out.writeInt(runCount);
+    for (int i = 0; i < runCount; i++) {
+      out.writeChar(starts[i]);
+      out.writeChar(lengths[i]);
+    }
+  }
+
+  /**
+   * Reads a RunContainer written by {@link #writeContent(DataOutput)}.
+   *
+   * @param in the in
+   * @return the run container
+   * @throws IOException the io exception
+   */
+  static RunContainer readContent(DataInput in) throws IOException {
+    int runCount = in.readInt();
+    char[] starts = new char[Math.max(runCount, 1)];
+    char[] lengths = new char[Math.max(runCount, 1)];
+    for (int i = 0; i < runCount; i++) {
+      starts[i] = in.readChar();
+      lengths[i] = in.readChar();
+    }
+    return new RunContainer(starts, lengths, runCount);
+  }
+
+  @Override
+  public RunContainer clone() {
+    return new RunContainer(starts.clone(), lengths.clone(), runCount);
+  }
+
+  /*
+   * Gets the last position of the run at index.
+   */
+  private int getEnd(int index) {
+    return starts[index] + lengths[index];
+  }
+
+  /*
+   * Gets the index of the last run starting on or before x, or -1 if there is none.
+   */
+  private int findRun(int x) {
+    int low = 0;
+    int high = runCount - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (starts[middle] <= x) {
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return high;
+  }
+
+  /*
+   * Appends a run from start to end inclusive after the last run.
+   */
+  private void appendRun(int start, int end) {
+    if (runCount == starts.length) {
+      int capacity = Math.max(INITIAL_CAPACITY, starts.length * 2);
+      starts = Arrays.copyOf(starts, capacity);
+      lengths = Arrays.copyOf(lengths, capacity);
+    }
+    starts[runCount] = (char) start;
+    lengths[runCount] = (char) (end - start);
+    runCount++;
+    cardinality += end - start + 1;
+  }
+
+  /*
+   * Gets a RunContainer holding the bits that are not set in this container.
+   */
+  private RunContainer complement() {
+    RunContainer result = new RunContainer(new char[runCount + 1], new char[runCount + 1], 0);
+    int next = 0;
+    for (int i = 0; i < runCount; i++) {
+      if (starts[i] > next) {
+        result.appendRun(next, starts[i] - 1);
+      }
+      next = getEnd(i) + 1;
+    }
+    if (next < MAX_CAPACITY) {
+      result.appendRun(next, MAX_CAPACITY - 1);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,204 @@
+package com.ntu.bdm.buffer;
+
+import com.ntu.bdm.bitmap.RoaringBitmap;
+import com.ntu.bdm.util.FileUtil;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/********************************************************
+ * BitmapCache is a controller class which caches the
+ * decoded bitmaps of index files in main memory across
+ * queries, keyed by field name and category.
+ *
+ * The cache holds bitmaps of at most capacity bytes, as
+ * given by {@link RoaringBitmap#getSizeInBytes()}. When
+ * a new bitmap does not fit, the least recently used
+ * bitmaps are evicted.
+ *
+ * Cached bitmaps are shared between callers, so they
+ * must be cloned before being modified.
+ *
+ ********************************************************/
+public class BitmapCache {
+
+  private final long capacity;
+  private final LinkedHashMap<BitmapKey, RoaringBitmap> bitmaps;
+  private long size;
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+  private long bytesRead;
+
+  /**
+   * Instantiates a new BitmapCache holding at most capacity bytes of bitmaps.
+   *
+   * @param capacity the capacity in bytes
+   */
+  public BitmapCache(long capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Negative bitmap cache capacity " + capacity);
+    }
+    this.capacity = capacity;
+    bitmaps = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Gets the bitmap of the category of the field, reading it from the index file at filePath if it
+   * is not in the cache. A missing index file gives an empty bitmap, as no row has the category.
+   *
+   * @param fieldName the field name
+   * @param category  the category
+   * @param filePath  the path of the index file
+   * @return the bitmap, which must not be modified
+   */
+  public synchronized RoaringBitmap getBitmap(String fieldName, String category,
+      String filePath) {
+    BitmapKey key = new BitmapKey(fieldName, category);
+    RoaringBitmap bitmap = bitmaps.get(key);
+    if (bitmap != null) {
+      hitCount++;
+      return bitmap;
+    }
+
+    missCount++;
+    if (Files.exists(Path.of(filePath))) {
+      byte[] bytes = FileUtil.readBytesFromFile(filePath);
+      bytesRead += bytes.length;
+      bitmap = RoaringBitmap.valueOf(bytes);
+    } else {
+      bitmap = new RoaringBitmap();
+    }
+    bitmaps.put(key, bitmap);
+    size += bitmap.getSizeInBytes();
+
+    Iterator<RoaringBitmap> iterator = bitmaps.values().iterator();
+    while (size > capacity && iterator.hasNext()) {
+      size -= iterator.next().getSizeInBytes();
+      iterator.remove();
+      evictionCount++;
+    }
+    return bitmap;
+  }
+
+  /**
+   * Drop every bitmap of the field. This must be called whenever its index files are rewritten.
+   *
+   * @param fieldName the field name
+   */
+  public synchronized void invalidate(String fieldName) {
+    Iterator<Map.Entry<BitmapKey, RoaringBitmap>> iterator = bitmaps.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<BitmapKey, RoaringBitmap> entry = iterator.next();
+      if (entry.getKey().fieldName.equals(fieldName)) {
+        size -= entry.getValue().getSizeInBytes();
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Drop every bitmap.
+   */
+  public synchronized void clear() {
+    bitmaps.clear();
+    size = 0;
+  }
+
+  /**
+   * Gets the capacity in bytes.
+   *
+   * @return the capacity
+   */
+  public long getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Gets the number of bytes held by the bitmaps in the cache.
+   *
+   * @return the size
+   */
+  public synchronized long getSize() {
+    return size;
+  }
+
+  /**
+   * Gets the number of bitmaps in the cache.
+   *
+   * @return the bitmap count
+   */
+  public synchronized int getBitmapCount() {
+    return bitmaps.size();
+  }
+
+  /**
+   * Gets the number of bitmap requests served from the cache.
+   *
+   * @return the hit count
+   */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Gets the number of bitmap requests which read the bitmap from its index file.
+   *
+   * @return the miss count
+   */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Gets the number of bytes of index files read.
+   *
+   * @return the bytes read
+   */
+  public synchronized long getBytesRead() {
+    return bytesRead;
+  }
+
+  /**
+   * Gets the number of bitmaps evicted to stay within the capacity.
+   *
+   * @return the eviction count
+   */
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /*
+   * BitmapKey identifies a bitmap by its field name and category.
+   */
+  private static class BitmapKey {
+
+    private final String fieldName;
+    private final String category;
+
+    BitmapKey(String fieldName, String category) {
+      this.fieldName = fieldName;
+      this.category = category;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof BitmapKey)) {
+        return false;
+      }
+      BitmapKey bitmapKey = (BitmapKey) o;
+      return fieldName.equals(bitmapKey.fieldName) && category.equals(bitmapKey.category);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(fieldName, category);
+    }
+  }
+}
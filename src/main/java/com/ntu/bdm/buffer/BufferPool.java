@@ -0,0 +1,266 @@
+package com.ntu.bdm.buffer;
+
+import com.ntu.bdm.vector.ZoneMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/********************************************************
+ * BufferPool is a controller class which caches decoded
+ * pages of column files in main memory across queries.
+ *
+ * A page holds PAGE_SIZE consecutive rows of a column,
+ * which is the block size of the zone maps, so the
+ * blocks skipped by the aggregation kernels are never
+ * read. Pages are read from the column files through
+ * channels that stay open until the file is invalidated
+ * or the pool is closed.
+ *
+ * The pool holds at most capacity bytes of pages. When
+ * a new page does not fit, the least recently used
+ * pages are evicted, so a dataset much larger than the
+ * capacity stays queryable while repeated and
+ * overlapping queries are served from memory.
+ *
+ * All methods are synchronized, so the pool can be
+ * shared by the tasks of a parallel query.
+ *
+ ********************************************************/
+public class BufferPool implements AutoCloseable {
+
+  /**
+   * The number of rows in a page.
+   */
+  public static final int PAGE_SIZE = ZoneMap.BLOCK_SIZE;
+
+  /**
+   * The base two logarithm of PAGE_SIZE.
+   */
+  public static final int PAGE_SHIFT = ZoneMap.BLOCK_SHIFT;
+
+  /**
+   * The mask giving the offset of a row inside its page.
+   */
+  public static final int PAGE_MASK = PAGE_SIZE - 1;
+
+  private final long capacity;
+  private final Map<String, ColumnFile> columnFiles;
+  private final LinkedHashMap<PageKey, ColumnPage> pages;
+  private long size;
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+  private long bytesRead;
+
+  /**
+   * Instantiates a new BufferPool holding at most capacity bytes of pages.
+   *
+   * @param capacity the capacity in bytes
+   */
+  public BufferPool(long capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Negative buffer pool capacity " + capacity);
+    }
+    this.capacity = capacity;
+    columnFiles = new HashMap<>();
+    pages = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Gets the column file at filePath, opening it on first use.
+   *
+   * @param filePath     the file path
+   * @param expectedType the expected column type
+   * @return the column file
+   */
+  public synchronized ColumnFile getColumnFile(String filePath, byte expectedType) {
+    ColumnFile columnFile = columnFiles.get(filePath);
+    if (columnFile == null) {
+      columnFile = new ColumnFile(filePath, expectedType);
+      columnFiles.put(filePath, columnFile);
+    } else if (columnFile.getType() != expectedType) {
+      throw new IllegalStateException("Not a column file of type " + expectedType + ": " + filePath);
+    }
+    return columnFile;
+  }
+
+  /**
+   * Gets a page of a double column file, reading it from the file if it is not in the pool.
+   *
+   * @param columnFile the double column file
+   * @param pageNumber the page number
+   * @return the page
+   */
+  public DoubleColumnPage getDoublePage(ColumnFile columnFile, int pageNumber) {
+    return (DoubleColumnPage) getPage(columnFile, pageNumber);
+  }
+
+  /**
+   * Gets a page of a long column file, reading it from the file if it is not in the pool.
+   *
+   * @param columnFile the long column file
+   * @param pageNumber the page number
+   * @return the page
+   */
+  public LongColumnPage getLongPage(ColumnFile columnFile, int pageNumber) {
+    return (LongColumnPage) getPage(columnFile, pageNumber);
+  }
+
+  /**
+   * Drop every page of the column file at filePath and close it. This must be called whenever the
+   * file is rewritten.
+   *
+   * @param filePath the file path
+   */
+  public synchronized void invalidate(String filePath) {
+    ColumnFile columnFile = columnFiles.remove(filePath);
+    if (columnFile != null) {
+      columnFile.close();
+    }
+
+    Iterator<Map.Entry<PageKey, ColumnPage>> iterator = pages.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<PageKey, ColumnPage> entry = iterator.next();
+      if (entry.getKey().filePath.equals(filePath)) {
+        size -= entry.getValue().getSizeInBytes();
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Gets the capacity in bytes.
+   *
+   * @return the capacity
+   */
+  public long getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Gets the number of bytes held by the pages in the pool.
+   *
+   * @return the size
+   */
+  public synchronized long getSize() {
+    return size;
+  }
+
+  /**
+   * Gets the number of pages in the pool.
+   *
+   * @return the page count
+   */
+  public synchronized int getPageCount() {
+    return pages.size();
+  }
+
+  /**
+   * Gets the number of page requests served from the pool.
+   *
+   * @return the hit count
+   */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Gets the number of page requests which read the page from its column file.
+   *
+   * @return the miss count
+   */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Gets the number of bytes of pages read from the column files.
+   *
+   * @return the bytes read
+   */
+  public synchronized long getBytesRead() {
+    return bytesRead;
+  }
+
+  /**
+   * Gets the number of pages evicted to stay within the capacity.
+   *
+   * @return the eviction count
+   */
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * Drop every page and close every column file.
+   */
+  @Override
+  public synchronized void close() {
+    for (ColumnFile columnFile : columnFiles.values()) {
+      columnFile.close();
+    }
+    columnFiles.clear();
+    pages.clear();
+    size = 0;
+  }
+
+  /*
+   * Gets a page from the pool, or reads it from the column file and evicts the least recently used
+   * pages until the pool is within its capacity again.
+   */
+  private synchronized ColumnPage getPage(ColumnFile columnFile, int pageNumber) {
+    PageKey key = new PageKey(columnFile.getFilePath(), pageNumber);
+    ColumnPage page = pages.get(key);
+    if (page != null) {
+      hitCount++;
+      return page;
+    }
+
+    missCount++;
+    page = columnFile.readPage(pageNumber);
+    pages.put(key, page);
+    size += page.getSizeInBytes();
+    bytesRead += page.getSizeInBytes();
+
+    Iterator<ColumnPage> iterator = pages.values().iterator();
+    while (size > capacity && iterator.hasNext()) {
+      size -= iterator.next().getSizeInBytes();
+      iterator.remove();
+      evictionCount++;
+    }
+    return page;
+  }
+
+  /*
+   * PageKey identifies a page by the path of its column file and its page number.
+   */
+  private static class PageKey {
+
+    private final String filePath;
+    private final int pageNumber;
+
+    PageKey(String filePath, int pageNumber) {
+      this.filePath = filePath;
+      this.pageNumber = pageNumber;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof PageKey)) {
+        return false;
+      }
+      PageKey pageKey = (PageKey) o;
+      return pageNumber == pageKey.pageNumber && filePath.equals(pageKey.filePath);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(filePath, pageNumber);
+    }
+  }
+}
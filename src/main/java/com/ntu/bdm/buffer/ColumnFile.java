@@ -0,0 +1,144 @@
+package com.ntu.bdm.buffer;
+
+import com.ntu.bdm.util.ColumnFileUtil;
+import com.ntu.bdm.vector.ZoneMap;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/********************************************************
+ * ColumnFile is a container class which holds an open
+ * channel on a binary column file written by
+ * {@link ColumnFileUtil}, together with the fields of
+ * its header and, for double column files, its zone
+ * map. Column files are opened by a {@link BufferPool},
+ * which reads their pages through the channel.
+ *
+ ********************************************************/
+public class ColumnFile {
+
+  private final String filePath;
+  private final FileChannel channel;
+  private final byte type;
+  private final int valueCount;
+  private final int nullCount;
+  private final long dataOffset;
+  private final long nullBitmapOffset;
+  private final ZoneMap zoneMap;
+
+  /*
+   * Instantiates a new ColumnFile by opening the column file at filePath and reading its header.
+   */
+  ColumnFile(String filePath, byte expectedType) {
+    this.filePath = filePath;
+    try {
+      channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to open column file " + filePath, e);
+    }
+
+    ByteBuffer header = ColumnFileUtil.readHeader(channel, filePath, expectedType);
+    type = expectedType;
+    valueCount = header.getInt(ColumnFileUtil.ROW_COUNT_OFFSET);
+    nullCount = header.getInt(ColumnFileUtil.NULL_COUNT_OFFSET);
+    dataOffset = header.getLong(ColumnFileUtil.DATA_OFFSET_OFFSET);
+    nullBitmapOffset = header.getLong(ColumnFileUtil.NULL_BITMAP_OFFSET_OFFSET);
+    zoneMap = expectedType == ColumnFileUtil.TYPE_DOUBLE
+        ? ColumnFileUtil.readZoneMap(channel, header) : null;
+  }
+
+  /**
+   * Gets the file path.
+   *
+   * @return the file path
+   */
+  public String getFilePath() {
+    return filePath;
+  }
+
+  /**
+   * Gets the column type.
+   *
+   * @return the column type
+   */
+  public byte getType() {
+    return type;
+  }
+
+  /**
+   * Gets the number of elements in the column file.
+   *
+   * @return number of elements
+   */
+  public int getValueCount() {
+    return valueCount;
+  }
+
+  /**
+   * Returns number of null elements in the column file.
+   *
+   * @return number of null elements
+   */
+  public int getNullCount() {
+    return nullCount;
+  }
+
+  /**
+   * Gets the zone map stored in the column file.
+   *
+   * @return the zone map, or null if the column file is not a double column file
+   */
+  public ZoneMap getZoneMap() {
+    return zoneMap;
+  }
+
+  /**
+   * Gets the number of pages of the column file.
+   *
+   * @return the page count
+   */
+  public int getPageCount() {
+    return (valueCount + BufferPool.PAGE_SIZE - 1) >>> BufferPool.PAGE_SHIFT;
+  }
+
+  /*
+   * Reads and decodes the page with the pageNumber.
+   */
+  ColumnPage readPage(int pageNumber) {
+    int start = pageNumber << BufferPool.PAGE_SHIFT;
+    int rowCount = Math.min(BufferPool.PAGE_SIZE, valueCount - start);
+
+    ByteBuffer validityBytes = ColumnFileUtil.readSection(channel,
+        nullBitmapOffset + (long) (start >>> 6) * Long.BYTES,
+        ((rowCount + Long.SIZE - 1) >>> 6) * Long.BYTES);
+    long[] validity = new long[validityBytes.remaining() / Long.BYTES];
+    validityBytes.asLongBuffer().get(validity);
+
+    if (type == ColumnFileUtil.TYPE_DOUBLE) {
+      ByteBuffer valueBytes = ColumnFileUtil.readSection(channel,
+          dataOffset + (long) start * Double.BYTES, rowCount * Double.BYTES);
+      double[] values = new double[rowCount];
+      valueBytes.asDoubleBuffer().get(values);
+      return new DoubleColumnPage(pageNumber, values, validity);
+    }
+
+    ByteBuffer valueBytes = ColumnFileUtil.readSection(channel,
+        dataOffset + (long) start * Long.BYTES, rowCount * Long.BYTES);
+    long[] values = new long[rowCount];
+    valueBytes.asLongBuffer().get(values);
+    return new LongColumnPage(pageNumber, values, validity);
+  }
+
+  /*
+   * Closes the channel.
+   */
+  void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+}
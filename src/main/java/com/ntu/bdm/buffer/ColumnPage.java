@@ -0,0 +1,58 @@
+package com.ntu.bdm.buffer;
+
+/********************************************************
+ * ColumnPage is a read-only container class which holds
+ * the decoded values of one page of a column file, i.e.
+ * of BufferPool.PAGE_SIZE consecutive rows, together
+ * with their null bitmap.
+ *
+ * Pages are immutable, so a page stays readable after it
+ * has been evicted from the BufferPool.
+ *
+ ********************************************************/
+public abstract class ColumnPage {
+
+  private final int pageNumber;
+  private final long[] validity;
+
+  /**
+   * Instantiates a new ColumnPage.
+   *
+   * @param pageNumber the page number
+   * @param validity   the null bitmap of the page, a set bit marks a non-null row
+   */
+  protected ColumnPage(int pageNumber, long[] validity) {
+    this.pageNumber = pageNumber;
+    this.validity = validity;
+  }
+
+  /**
+   * Gets the page number.
+   *
+   * @return the page number
+   */
+  public int getPageNumber() {
+    return pageNumber;
+  }
+
+  /**
+   * Check whether an element of the page is null.
+   *
+   * @param index index of the element in the column
+   * @return true if element is null
+   */
+  public boolean isNull(int index) {
+    int offset = index & BufferPool.PAGE_MASK;
+    return (validity[offset >>> 6] & (1L << offset)) == 0;
+  }
+
+  /**
+   * Gets the number of bytes held by the page, which is charged against the capacity of the
+   * BufferPool.
+   *
+   * @return the size in bytes
+   */
+  public long getSizeInBytes() {
+    return (long) validity.length * Long.BYTES;
+  }
+}
@@ -0,0 +1,44 @@
+package com.ntu.bdm.buffer;
+
+/********************************************************
+ * DoubleColumnPage is a read-only container class which
+ * holds the decoded values of one page of a double
+ * column file.
+ *
+ ********************************************************/
+public class DoubleColumnPage extends ColumnPage {
+
+  private final double[] values;
+
+  /**
+   * Instantiates a new DoubleColumnPage.
+   *
+   * @param pageNumber the page number
+   * @param values     the values of the page
+   * @param validity   the null bitmap of the page, a set bit marks a non-null row
+   */
+  public DoubleColumnPage(int pageNumber, double[] values, long[] validity) {
+    super(pageNumber, validity);
+    this.values = values;
+  }
+
+  /**
+   * Get the element at the given index from the page.
+   *
+   * @param index index of the element in the column
+   * @return element at given index
+   */
+  public double get(int index) {
+    return values[index & BufferPool.PAGE_MASK];
+  }
+
+  /**
+   * Gets the number of bytes held by the page.
+   *
+   * @return the size in bytes
+   */
+  @Override
+  public long getSizeInBytes() {
+    return super.getSizeInBytes() + (long) values.length * Double.BYTES;
+  }
+}
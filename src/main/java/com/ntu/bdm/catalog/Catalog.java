@@ -0,0 +1,401 @@
+package com.ntu.bdm.catalog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/********************************************************
+ * Catalog is a container class which describes the
+ * store of a disk database: its schema, its row count,
+ * the locations of its column and index files and of
+ * its aggregate cube file, the categories of every index
+ * and the format versions the files were written with. It also records the input
+ * file the store was built from.
+ *
+ * The catalog is persisted as a properties file, which
+ * is written last whenever the store changes and is
+ * replaced atomically, so that a store with a readable
+ * catalog is complete. Opening a store then only reads
+ * the catalog instead of the input file.
+ *
+ ********************************************************/
+public class Catalog {
+
+  /**
+   * The format version of the catalog written by this class.
+   */
+  public static final int FORMAT_VERSION = 1;
+
+  /**
+   * The type of a field of the store.
+   */
+  public enum FieldType {
+    /**
+     * A column file of longs.
+     */
+    LONG,
+    /**
+     * A column file of doubles.
+     */
+    DOUBLE,
+    /**
+     * A directory of index files, one per category.
+     */
+    CATEGORICAL
+  }
+
+  private int columnFormatVersion;
+  private int rowCount;
+  private String sourcePath;
+  private long sourceLength;
+  private long sourceLastModified;
+  private String aggregateCubePath;
+  private final Map<String, FieldType> fieldTypes;
+  private final Map<String, String> fieldPaths;
+  private final Map<String, List<String>> categories;
+  private final Map<String, List<String>> rangeIndexFilePaths;
+
+  /**
+   * Instantiates a new empty Catalog.
+   */
+  public Catalog() {
+    fieldTypes = new LinkedHashMap<>();
+    fieldPaths = new LinkedHashMap<>();
+    categories = new LinkedHashMap<>();
+    rangeIndexFilePaths = new LinkedHashMap<>();
+  }
+
+  /**
+   * Gets the format version of the column files.
+   *
+   * @return the column format version
+   */
+  public int getColumnFormatVersion() {
+    return columnFormatVersion;
+  }
+
+  /**
+   * Sets the format version of the column files.
+   *
+   * @param columnFormatVersion the column format version
+   */
+  public void setColumnFormatVersion(int columnFormatVersion) {
+    this.columnFormatVersion = columnFormatVersion;
+  }
+
+  /**
+   * Gets the number of rows of the store.
+   *
+   * @return the row count
+   */
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Sets the number of rows of the store.
+   *
+   * @param rowCount the row count
+   */
+  public void setRowCount(int rowCount) {
+    this.rowCount = rowCount;
+  }
+
+  /**
+   * Gets the path of the input file the store was built from.
+   *
+   * @return the source path, or null if it is not known
+   */
+  public String getSourcePath() {
+    return sourcePath;
+  }
+
+  /**
+   * Record the input file the store was built from, together with its length and last
+   * modification time.
+   *
+   * @param sourcePath the source path
+   */
+  public void setSource(String sourcePath) {
+    File sourceFile = new File(sourcePath);
+    this.sourcePath = sourcePath;
+    this.sourceLength = sourceFile.length();
+    this.sourceLastModified = sourceFile.lastModified();
+  }
+
+  /**
+   * Copy the record of the input file the store was built from another catalog.
+   *
+   * @param catalog the catalog
+   */
+  public void setSource(Catalog catalog) {
+    this.sourcePath = catalog.sourcePath;
+    this.sourceLength = catalog.sourceLength;
+    this.sourceLastModified = catalog.sourceLastModified;
+  }
+
+  /**
+   * Check whether the store was built from the input file at sourcePath, and the file has not
+   * changed since.
+   *
+   * @param sourcePath the source path
+   * @return true if the store was built from the unchanged file
+   */
+  public boolean isBuiltFrom(String sourcePath) {
+    File sourceFile = new File(sourcePath);
+    return sourcePath.equals(this.sourcePath) && sourceFile.isFile()
+        && sourceFile.length() == sourceLength && sourceFile.lastModified() == sourceLastModified;
+  }
+
+  /**
+   * Gets the path of the aggregate cube file of the store.
+   *
+   * @return the aggregate cube path, or null if the store has no aggregate cube
+   */
+  public String getAggregateCubePath() {
+    return aggregateCubePath;
+  }
+
+  /**
+   * Sets the path of the aggregate cube file of the store.
+   *
+   * @param aggregateCubePath the aggregate cube path, or null if the store has no aggregate cube
+   */
+  public void setAggregateCubePath(String aggregateCubePath) {
+    this.aggregateCubePath = aggregateCubePath;
+  }
+
+  /**
+   * Add a field stored as a column file.
+   *
+   * @param fieldName the field name
+   * @param fieldType the field type, LONG or DOUBLE
+   * @param filePath  the path of the column file
+   */
+  public void addColumnField(String fieldName, FieldType fieldType, String filePath) {
+    fieldTypes.put(fieldName, fieldType);
+    fieldPaths.put(fieldName, filePath);
+  }
+
+  /**
+   * Add a categorical field stored as a directory of index files.
+   *
+   * @param fieldName       the field name
+   * @param directoryPath   the path of the index directory
+   * @param fieldCategories the categories, in sorted order
+   */
+  public void addCategoricalField(String fieldName, String directoryPath,
+      List<String> fieldCategories) {
+    fieldTypes.put(fieldName, FieldType.CATEGORICAL);
+    fieldPaths.put(fieldName, directoryPath);
+    categories.put(fieldName, new ArrayList<>(fieldCategories));
+  }
+
+  /**
+   * Sets the paths of the range index segment files of a field, in the order of the rows they
+   * index.
+   *
+   * @param fieldName the field name
+   * @param filePaths the file paths
+   */
+  public void setRangeIndexFilePaths(String fieldName, List<String> filePaths) {
+    rangeIndexFilePaths.put(fieldName, new ArrayList<>(filePaths));
+  }
+
+  /**
+   * Gets the names of the fields, in the order they were added.
+   *
+   * @return the field names
+   */
+  public List<String> getFieldNames() {
+    return new ArrayList<>(fieldTypes.keySet());
+  }
+
+  /**
+   * Gets the type of a field.
+   *
+   * @param fieldName the field name
+   * @return the field type, or null if there is no such field
+   */
+  public FieldType getFieldType(String fieldName) {
+    return fieldTypes.get(fieldName);
+  }
+
+  /**
+   * Gets the path of the column file or index directory of a field.
+   *
+   * @param fieldName the field name
+   * @return the path, or null if there is no such field
+   */
+  public String getFieldPath(String fieldName) {
+    return fieldPaths.get(fieldName);
+  }
+
+  /**
+   * Gets the categories of a categorical field.
+   *
+   * @param fieldName the field name
+   * @return the categories in sorted order, empty if the field is not categorical
+   */
+  public List<String> getCategories(String fieldName) {
+    return categories.getOrDefault(fieldName, Collections.emptyList());
+  }
+
+  /**
+   * Gets the paths of the range index segment files of a field.
+   *
+   * @param fieldName the field name
+   * @return the file paths, empty if the field has no range index
+   */
+  public List<String> getRangeIndexFilePaths(String fieldName) {
+    return rangeIndexFilePaths.getOrDefault(fieldName, Collections.emptyList());
+  }
+
+  /**
+   * Write the catalog to a properties file. It is written to a temporary file first, which then
+   * replaces the file at filePath.
+   *
+   * @param filePath the file path
+   */
+  public void write(String filePath) {
+    // The properties are stored in key order, so that the catalog file reads field by field.
+    Properties properties = new Properties() {
+      @Override
+      public Set<Map.Entry<Object, Object>> entrySet() {
+        Set<Map.Entry<Object, Object>> entries = new TreeSet<>(
+            Comparator.comparing(entry -> entry.getKey().toString()));
+        entries.addAll(super.entrySet());
+        return entries;
+      }
+    };
+    properties.setProperty("format.version", String.valueOf(FORMAT_VERSION));
+    properties.setProperty("column.format.version", String.valueOf(columnFormatVersion));
+    properties.setProperty("row.count", String.valueOf(rowCount));
+    if (sourcePath != null) {
+      properties.setProperty("source.path", sourcePath);
+      properties.setProperty("source.length", String.valueOf(sourceLength));
+      properties.setProperty("source.modified", String.valueOf(sourceLastModified));
+    }
+    if (aggregateCubePath != null) {
+      properties.setProperty("aggregate.cube.path", aggregateCubePath);
+    }
+    properties.setProperty("field.count", String.valueOf(fieldTypes.size()));
+
+    int field = 0;
+    for (Map.Entry<String, FieldType> entry : fieldTypes.entrySet()) {
+      String fieldName = entry.getKey();
+      String prefix = "field." + field++ + ".";
+      properties.setProperty(prefix + "name", fieldName);
+      properties.setProperty(prefix + "type", entry.getValue().name());
+      properties.setProperty(prefix + "path", fieldPaths.get(fieldName));
+      putList(properties, prefix + "category", getCategories(fieldName));
+      putList(properties, prefix + "range.index", getRangeIndexFilePaths(fieldName));
+    }
+
+    Path temporaryFilePath = Path.of(filePath + ".tmp");
+    try (Writer writer = Files.newBufferedWriter(temporaryFilePath, StandardCharsets.UTF_8)) {
+      properties.store(writer, "Disk database catalog");
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to write catalog " + filePath, e);
+    }
+    try {
+      Files.move(temporaryFilePath, Path.of(filePath), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to write catalog " + filePath, e);
+    }
+  }
+
+  /**
+   * Read a catalog from a properties file written by {@link #write(String)}.
+   *
+   * @param filePath the file path
+   * @return the catalog, or null if there is no catalog file or it was written in another format
+   *     version
+   */
+  public static Catalog read(String filePath) {
+    if (!new File(filePath).isFile()) {
+      return null;
+    }
+
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(Path.of(filePath), StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read catalog " + filePath, e);
+    }
+    if (!String.valueOf(FORMAT_VERSION).equals(properties.getProperty("format.version"))) {
+      return null;
+    }
+
+    try {
+      Catalog catalog = new Catalog();
+      catalog.columnFormatVersion = Integer.parseInt(
+          properties.getProperty("column.format.version"));
+      catalog.rowCount = Integer.parseInt(properties.getProperty("row.count"));
+      catalog.sourcePath = properties.getProperty("source.path");
+      catalog.sourceLength = Long.parseLong(properties.getProperty("source.length", "-1"));
+      catalog.sourceLastModified = Long.parseLong(properties.getProperty("source.modified", "-1"));
+      catalog.aggregateCubePath = properties.getProperty("aggregate.cube.path");
+
+      int fieldCount = Integer.parseInt(properties.getProperty("field.count"));
+      for (int field = 0; field < fieldCount; field++) {
+        String prefix = "field." + field + ".";
+        String fieldName = properties.getProperty(prefix + "name");
+        FieldType fieldType = FieldType.valueOf(properties.getProperty(prefix + "type"));
+        String path = properties.getProperty(prefix + "path");
+        if (fieldType == FieldType.CATEGORICAL) {
+          catalog.addCategoricalField(fieldName, path, getList(properties, prefix + "category"));
+        } else {
+          catalog.addColumnField(fieldName, fieldType, path);
+        }
+        List<String> rangeIndexFilePaths = getList(properties, prefix + "range.index");
+        if (!rangeIndexFilePaths.isEmpty()) {
+          catalog.setRangeIndexFilePaths(fieldName, rangeIndexFilePaths);
+        }
+      }
+      return catalog;
+    } catch (NullPointerException | IllegalArgumentException e) {
+      throw new IllegalStateException("Malformed catalog " + filePath, e);
+    }
+  }
+
+  /*
+   * Puts the values as numbered properties under key, preceded by their count.
+   */
+  private static void putList(Properties properties, String key, List<String> values) {
+    if (values.isEmpty()) {
+      return;
+    }
+    properties.setProperty(key + ".count", String.valueOf(values.size()));
+    for (int i = 0; i < values.size(); i++) {
+      properties.setProperty(key + "." + i, values.get(i));
+    }
+  }
+
+  /*
+   * Gets the numbered properties put under key by putList.
+   */
+  private static List<String> getList(Properties properties, String key) {
+    int count = Integer.parseInt(properties.getProperty(key + ".count", "0"));
+    List<String> values = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      values.add(properties.getProperty(key + "." + i));
+    }
+    return values;
+  }
+}
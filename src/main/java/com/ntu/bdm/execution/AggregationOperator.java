@@ -0,0 +1,112 @@
+package com.ntu.bdm.execution;
+
+import com.ntu.bdm.query.Aggregate;
+import com.ntu.bdm.vector.DoubleColumn;
+import java.util.Arrays;
+
+/********************************************************
+ * AggregationOperator is the root operator of a pipeline
+ * computing the aggregates of a query. It drains the
+ * batches of its child and, for every aggregate, keeps
+ * the count, sum, minimum and maximum of the non-null
+ * values of its column over the selected rows.
+ *
+ * Every aggregate is reduced batch by batch with its own
+ * tight loop over the selection vector, so that a column
+ * is read in position order.
+ *
+ ********************************************************/
+public class AggregationOperator {
+
+  private final Operator child;
+  private final Aggregate[] aggregates;
+  private final DoubleColumn[] doubleColumns;
+
+  /**
+   * Instantiates a new AggregationOperator computing aggregates over the rows of child. The
+   * column of an aggregate counting every row is null.
+   *
+   * @param child         the child operator
+   * @param aggregates    the aggregates
+   * @param doubleColumns the column of every aggregate
+   */
+  public AggregationOperator(Operator child, Aggregate[] aggregates,
+      DoubleColumn[] doubleColumns) {
+    this.child = child;
+    this.aggregates = aggregates;
+    this.doubleColumns = doubleColumns;
+  }
+
+  /**
+   * Execute the pipeline.
+   *
+   * @return the value of every aggregate, where COUNT is a whole number and the other functions
+   *     are NaN when no value was aggregated
+   */
+  public double[] execute() {
+    Batch batch = new Batch();
+    int[] positions = batch.getPositions();
+
+    long rowCount = 0;
+    long[] counts = new long[aggregates.length];
+    double[] sums = new double[aggregates.length];
+    double[] minimums = new double[aggregates.length];
+    double[] maximums = new double[aggregates.length];
+    Arrays.fill(minimums, Double.POSITIVE_INFINITY);
+    Arrays.fill(maximums, Double.NEGATIVE_INFINITY);
+
+    while (child.next(batch)) {
+      int size = batch.getSize();
+      rowCount += size;
+
+      for (int a = 0; a < aggregates.length; a++) {
+        DoubleColumn doubleColumn = doubleColumns[a];
+        if (doubleColumn == null) {
+          continue;
+        }
+
+        long count = 0;
+        double sum = 0;
+        double minimum = minimums[a];
+        double maximum = maximums[a];
+        for (int i = 0; i < size; i++) {
+          int position = positions[i];
+          if (!doubleColumn.isNull(position)) {
+            double value = doubleColumn.get(position);
+            count++;
+            sum += value;
+            minimum = value < minimum ? value : minimum;
+            maximum = value > maximum ? value : maximum;
+          }
+        }
+        counts[a] += count;
+        sums[a] += sum;
+        minimums[a] = minimum;
+        maximums[a] = maximum;
+      }
+    }
+
+    double[] results = new double[aggregates.length];
+    for (int a = 0; a < aggregates.length; a++) {
+      long count = doubleColumns[a] == null ? rowCount : counts[a];
+      switch (aggregates[a].getFunction()) {
+        case MIN:
+          results[a] = count == 0 ? Double.NaN : minimums[a];
+          break;
+        case MAX:
+          results[a] = count == 0 ? Double.NaN : maximums[a];
+          break;
+        case COUNT:
+          results[a] = count;
+          break;
+        case SUM:
+          results[a] = count == 0 ? Double.NaN : sums[a];
+          break;
+        default:
+          results[a] = count == 0 ? Double.NaN : sums[a] / count;
+          break;
+      }
+    }
+    return results;
+  }
+}
@@ -0,0 +1,72 @@
+package com.ntu.bdm.execution;
+
+/********************************************************
+ * Batch is a container class which holds up to
+ * BATCH_SIZE rows exchanged between the operators of an
+ * execution pipeline, as primitive arrays.
+ *
+ * The selection vector holds the positions of the rows
+ * in the batch, in increasing order, and the value
+ * vector holds the value projected for each of them.
+ * Only the first size elements of each array are valid.
+ * A batch is reused for every call to
+ * {@link Operator#next(Batch)}, so the pipeline does not
+ * allocate per row or per batch.
+ *
+ ********************************************************/
+public class Batch {
+
+  /**
+   * The maximum number of rows in a batch.
+   */
+  public static final int BATCH_SIZE = 1024;
+
+  private final int[] positions;
+  private final double[] values;
+  private int size;
+
+  /**
+   * Instantiates a new empty Batch.
+   */
+  public Batch() {
+    positions = new int[BATCH_SIZE];
+    values = new double[BATCH_SIZE];
+    size = 0;
+  }
+
+  /**
+   * Gets the selection vector.
+   *
+   * @return the positions of the rows in the batch
+   */
+  public int[] getPositions() {
+    return positions;
+  }
+
+  /**
+   * Gets the value vector.
+   *
+   * @return the values projected for the rows in the batch
+   */
+  public double[] getValues() {
+    return values;
+  }
+
+  /**
+   * Gets the number of rows in the batch.
+   *
+   * @return the size
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Sets the number of rows in the batch.
+   *
+   * @param size the size, at most BATCH_SIZE
+   */
+  public void setSize(int size) {
+    this.size = size;
+  }
+}
@@ -0,0 +1,42 @@
+package com.ntu.bdm.execution;
+
+import com.ntu.bdm.bitmap.IntIterator;
+import com.ntu.bdm.bitmap.RoaringBitmap;
+
+/********************************************************
+ * BitmapScanOperator is the leaf operator of a pipeline.
+ * It turns the set bits of a bitmap filter into
+ * selection vectors of up to BATCH_SIZE positions, in
+ * increasing order.
+ *
+ ********************************************************/
+public class BitmapScanOperator implements Operator {
+
+  private final IntIterator iterator;
+
+  /**
+   * Instantiates a new BitmapScanOperator over the set bits of bitmap.
+   *
+   * @param bitmap the bitmap
+   */
+  public BitmapScanOperator(RoaringBitmap bitmap) {
+    iterator = bitmap.iterator();
+  }
+
+  /**
+   * Fill the selection vector of batch with the next set bits of the bitmap.
+   *
+   * @param batch the batch to fill
+   * @return true if the batch was filled, false if every set bit was scanned
+   */
+  @Override
+  public boolean next(Batch batch) {
+    int[] positions = batch.getPositions();
+    int size = 0;
+    while (size < Batch.BATCH_SIZE && iterator.hasNext()) {
+      positions[size++] = iterator.next();
+    }
+    batch.setSize(size);
+    return size > 0;
+  }
+}
@@ -0,0 +1,94 @@
+package com.ntu.bdm.execution;
+
+import com.ntu.bdm.vector.CategoricalColumnVector;
+
+/********************************************************
+ * CategoricalFilterOperator is an operator which keeps
+ * the rows of its child whose category is selected. The
+ * selected categories are resolved to a lookup table
+ * indexed by dictionary code before the scan, so every
+ * row is tested by one array read rather than by
+ * comparing strings. On a run length encoded column,
+ * the test is made once per run rather than per row.
+ *
+ ********************************************************/
+public class CategoricalFilterOperator implements Operator {
+
+  private final Operator child;
+  private final CategoricalColumnVector<String> categoricalColumnVector;
+  private final boolean[] selectedCodes;
+
+  /**
+   * Instantiates a new CategoricalFilterOperator keeping the rows of child whose category in
+   * categoricalColumnVector has its code selected.
+   *
+   * @param child                   the child operator
+   * @param categoricalColumnVector the categorical column vector
+   * @param selectedCodes           the selected flag of every dictionary code
+   */
+  public CategoricalFilterOperator(Operator child,
+      CategoricalColumnVector<String> categoricalColumnVector, boolean[] selectedCodes) {
+    this.child = child;
+    this.categoricalColumnVector = categoricalColumnVector;
+    this.selectedCodes = selectedCodes;
+  }
+
+  /**
+   * Fill batch with the next rows of the child whose category is selected.
+   *
+   * @param batch the batch to fill
+   * @return true if the batch was filled, false if the child has no more rows
+   */
+  @Override
+  public boolean next(Batch batch) {
+    if (!child.next(batch)) {
+      return false;
+    }
+
+    int[] positions = batch.getPositions();
+    int size = batch.getSize();
+
+    int selected = 0;
+    if (categoricalColumnVector.isRunLengthEncoded()) {
+      selected = filterRuns(positions, size);
+    } else {
+      for (int i = 0; i < size; i++) {
+        int position = positions[i];
+        if (!categoricalColumnVector.isNull(position)
+            && selectedCodes[categoricalColumnVector.getCode(position)]) {
+          positions[selected++] = position;
+        }
+      }
+    }
+    batch.setSize(selected);
+    return true;
+  }
+
+  /*
+   * Filters the ascending positions of a batch against the runs of a run length encoded column.
+   * Each run is tested once, and the positions inside it are then kept or dropped together.
+   */
+  private int filterRuns(int[] positions, int size) {
+    int selected = 0;
+    int i = 0;
+    while (i < size) {
+      int run = categoricalColumnVector.findRun(positions[i]);
+      int runEnd = categoricalColumnVector.getRunEnd(run);
+      int code = categoricalColumnVector.getRunCode(run);
+      boolean isSelected = code >= 0 && selectedCodes[code];
+
+      int runSize = i;
+      while (runSize < size && positions[runSize] < runEnd) {
+        runSize++;
+      }
+      if (isSelected) {
+        if (selected != i) {
+          System.arraycopy(positions, i, positions, selected, runSize - i);
+        }
+        selected += runSize - i;
+      }
+      i = runSize;
+    }
+    return selected;
+  }
+}
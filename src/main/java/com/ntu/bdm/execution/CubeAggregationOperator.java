@@ -0,0 +1,110 @@
+package com.ntu.bdm.execution;
+
+import com.ntu.bdm.aggregate.AggregateCell;
+import com.ntu.bdm.aggregate.AggregateCube;
+import com.ntu.bdm.query.Aggregate;
+import java.util.Arrays;
+import java.util.List;
+
+/********************************************************
+ * CubeAggregationOperator is the root operator of a plan
+ * answered from an {@link AggregateCube}. It computes the
+ * aggregates of a query by merging the counts, sums,
+ * minimums and maximums of the cells selected by its
+ * predicates, without reading any row.
+ *
+ * Its results are those of an {@link AggregationOperator}
+ * over the rows of the cells, except that sums are added
+ * cell by cell, so SUM and AVG may differ from a scan in
+ * their last digits.
+ *
+ ********************************************************/
+public class CubeAggregationOperator {
+
+  private final List<AggregateCell> cells;
+  private final Aggregate[] aggregates;
+  private final int[] measures;
+  private long rowCount;
+
+  /**
+   * Instantiates a new CubeAggregationOperator computing aggregates over the rows of cells, which
+   * belong to aggregateCube. Every aggregate must count every row or be on a measure of the cube.
+   *
+   * @param aggregateCube the aggregate cube
+   * @param cells         the cells selected by the query
+   * @param aggregates    the aggregates
+   */
+  public CubeAggregationOperator(AggregateCube aggregateCube, List<AggregateCell> cells,
+      Aggregate[] aggregates) {
+    this.cells = cells;
+    this.aggregates = aggregates;
+    this.measures = new int[aggregates.length];
+    for (int a = 0; a < aggregates.length; a++) {
+      measures[a] = aggregates[a].isCountOfAllRows() ? -1
+          : aggregateCube.getMeasureIndex(aggregates[a].getFieldName());
+    }
+    this.rowCount = 0;
+  }
+
+  /**
+   * Gets the number of rows of the cells aggregated so far.
+   *
+   * @return the row count
+   */
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Execute the aggregation.
+   *
+   * @return the value of every aggregate, where COUNT is a whole number and the other functions
+   *     are NaN when no value was aggregated
+   */
+  public double[] execute() {
+    rowCount = 0;
+    long[] counts = new long[aggregates.length];
+    double[] sums = new double[aggregates.length];
+    double[] minimums = new double[aggregates.length];
+    double[] maximums = new double[aggregates.length];
+    Arrays.fill(minimums, Double.POSITIVE_INFINITY);
+    Arrays.fill(maximums, Double.NEGATIVE_INFINITY);
+
+    for (AggregateCell cell : cells) {
+      rowCount += cell.getRowCount();
+      for (int a = 0; a < aggregates.length; a++) {
+        int measure = measures[a];
+        if (measure < 0 || cell.getCount(measure) == 0) {
+          continue;
+        }
+        counts[a] += cell.getCount(measure);
+        sums[a] += cell.getSum(measure);
+        minimums[a] = Math.min(minimums[a], cell.getMinMax(measure).getMinimum());
+        maximums[a] = Math.max(maximums[a], cell.getMinMax(measure).getMaximum());
+      }
+    }
+
+    double[] results = new double[aggregates.length];
+    for (int a = 0; a < aggregates.length; a++) {
+      long count = measures[a] < 0 ? rowCount : counts[a];
+      switch (aggregates[a].getFunction()) {
+        case MIN:
+          results[a] = count == 0 ? Double.NaN : minimums[a];
+          break;
+        case MAX:
+          results[a] = count == 0 ? Double.NaN : maximums[a];
+          break;
+        case COUNT:
+          results[a] = count;
+          break;
+        case SUM:
+          results[a] = count == 0 ? Double.NaN : sums[a];
+          break;
+        default:
+          results[a] = count == 0 ? Double.NaN : sums[a] / count;
+          break;
+      }
+    }
+    return results;
+  }
+}
@@ -0,0 +1,58 @@
+package com.ntu.bdm.execution;
+
+import com.ntu.bdm.vector.DoubleColumn;
+
+/********************************************************
+ * DoubleProjectionOperator is an operator which projects
+ * a column of primitive doubles onto the rows selected
+ * by its child. It gathers the value of every selected
+ * row into the value vector of the batch, and drops the
+ * rows whose value is null from the selection vector.
+ *
+ ********************************************************/
+public class DoubleProjectionOperator implements Operator {
+
+  private final Operator child;
+  private final DoubleColumn doubleColumn;
+
+  /**
+   * Instantiates a new DoubleProjectionOperator of doubleColumn over the rows of child.
+   *
+   * @param child        the child operator
+   * @param doubleColumn the double column
+   */
+  public DoubleProjectionOperator(Operator child, DoubleColumn doubleColumn) {
+    this.child = child;
+    this.doubleColumn = doubleColumn;
+  }
+
+  /**
+   * Fill batch with the next rows of the child and their non-null values.
+   *
+   * @param batch the batch to fill
+   * @return true if the batch was filled, false if the child has no more rows
+   */
+  @Override
+  public boolean next(Batch batch) {
+    if (!child.next(batch)) {
+      return false;
+    }
+
+    int[] positions = batch.getPositions();
+    double[] values = batch.getValues();
+    int size = batch.getSize();
+
+    // Compact the selection vector in place, as a row is never written ahead of where it is read.
+    int selected = 0;
+    for (int i = 0; i < size; i++) {
+      int position = positions[i];
+      if (!doubleColumn.isNull(position)) {
+        positions[selected] = position;
+        values[selected] = doubleColumn.get(position);
+        selected++;
+      }
+    }
+    batch.setSize(selected);
+    return true;
+  }
+}
@@ -0,0 +1,64 @@
+package com.ntu.bdm.execution;
+
+import com.ntu.bdm.vector.DoubleColumn;
+
+/********************************************************
+ * DoubleRangeFilterOperator is an operator which keeps
+ * the rows of its child whose value in a column of
+ * primitive doubles lies within an inclusive range.
+ * Rows whose value is null are dropped.
+ *
+ ********************************************************/
+public class DoubleRangeFilterOperator implements Operator {
+
+  private final Operator child;
+  private final DoubleColumn doubleColumn;
+  private final double lowerBound;
+  private final double upperBound;
+
+  /**
+   * Instantiates a new DoubleRangeFilterOperator keeping the rows of child whose value in
+   * doubleColumn lies between lowerBound and upperBound.
+   *
+   * @param child        the child operator
+   * @param doubleColumn the double column
+   * @param lowerBound   the inclusive lower bound
+   * @param upperBound   the inclusive upper bound
+   */
+  public DoubleRangeFilterOperator(Operator child, DoubleColumn doubleColumn, double lowerBound,
+      double upperBound) {
+    this.child = child;
+    this.doubleColumn = doubleColumn;
+    this.lowerBound = lowerBound;
+    this.upperBound = upperBound;
+  }
+
+  /**
+   * Fill batch with the next rows of the child whose value lies within the range.
+   *
+   * @param batch the batch to fill
+   * @return true if the batch was filled, false if the child has no more rows
+   */
+  @Override
+  public boolean next(Batch batch) {
+    if (!child.next(batch)) {
+      return false;
+    }
+
+    int[] positions = batch.getPositions();
+    int size = batch.getSize();
+
+    int selected = 0;
+    for (int i = 0; i < size; i++) {
+      int position = positions[i];
+      if (!doubleColumn.isNull(position)) {
+        double value = doubleColumn.get(position);
+        if (value >= lowerBound && value <= upperBound) {
+          positions[selected++] = position;
+        }
+      }
+    }
+    batch.setSize(selected);
+    return true;
+  }
+}
@@ -0,0 +1,64 @@
+package com.ntu.bdm.execution;
+
+import com.ntu.bdm.vector.LongColumn;
+
+/********************************************************
+ * LongRangeFilterOperator is an operator which keeps the
+ * rows of its child whose value in a column of primitive
+ * longs, such as epoch minute timestamps, lies within an
+ * inclusive range. Rows whose value is null are dropped.
+ *
+ ********************************************************/
+public class LongRangeFilterOperator implements Operator {
+
+  private final Operator child;
+  private final LongColumn longColumn;
+  private final double lowerBound;
+  private final double upperBound;
+
+  /**
+   * Instantiates a new LongRangeFilterOperator keeping the rows of child whose value in
+   * longColumn lies between lowerBound and upperBound.
+   *
+   * @param child      the child operator
+   * @param longColumn the long column
+   * @param lowerBound the inclusive lower bound
+   * @param upperBound the inclusive upper bound
+   */
+  public LongRangeFilterOperator(Operator child, LongColumn longColumn, double lowerBound,
+      double upperBound) {
+    this.child = child;
+    this.longColumn = longColumn;
+    this.lowerBound = lowerBound;
+    this.upperBound = upperBound;
+  }
+
+  /**
+   * Fill batch with the next rows of the child whose value lies within the range.
+   *
+   * @param batch the batch to fill
+   * @return true if the batch was filled, false if the child has no more rows
+   */
+  @Override
+  public boolean next(Batch batch) {
+    if (!child.next(batch)) {
+      return false;
+    }
+
+    int[] positions = batch.getPositions();
+    int size = batch.getSize();
+
+    int selected = 0;
+    for (int i = 0; i < size; i++) {
+      int position = positions[i];
+      if (!longColumn.isNull(position)) {
+        long value = longColumn.get(position);
+        if (value >= lowerBound && value <= upperBound) {
+          positions[selected++] = position;
+        }
+      }
+    }
+    batch.setSize(selected);
+    return true;
+  }
+}
@@ -0,0 +1,85 @@
+package com.ntu.bdm.execution;
+
+import com.ntu.bdm.aggregate.MinMaxGroup;
+import com.ntu.bdm.bitmap.IntList;
+
+/********************************************************
+ * MinMaxAggregateOperator is the root operator of a
+ * pipeline. It drains the batches of its child and
+ * computes the minimum and maximum of their values,
+ * together with every position holding them.
+ *
+ * Each batch is reduced to its own minimum and maximum
+ * by a loop over the value vector only. Positions are
+ * only collected, by a second loop over the batch, when
+ * the batch reaches one of the running extremes.
+ *
+ ********************************************************/
+public class MinMaxAggregateOperator {
+
+  private final Operator child;
+
+  /**
+   * Instantiates a new MinMaxAggregateOperator over the batches of child, whose value vectors must
+   * not hold nulls.
+   *
+   * @param child the child operator
+   */
+  public MinMaxAggregateOperator(Operator child) {
+    this.child = child;
+  }
+
+  /**
+   * Execute the pipeline.
+   *
+   * @return the min max of the values of the pipeline
+   */
+  public MinMaxGroup execute() {
+    Batch batch = new Batch();
+    int[] positions = batch.getPositions();
+    double[] values = batch.getValues();
+
+    double minimum = Double.POSITIVE_INFINITY;
+    double maximum = Double.NEGATIVE_INFINITY;
+    IntList minPositionList = new IntList();
+    IntList maxPositionList = new IntList();
+
+    while (child.next(batch)) {
+      int size = batch.getSize();
+
+      double batchMinimum = Double.POSITIVE_INFINITY;
+      double batchMaximum = Double.NEGATIVE_INFINITY;
+      for (int i = 0; i < size; i++) {
+        double value = values[i];
+        batchMinimum = value < batchMinimum ? value : batchMinimum;
+        batchMaximum = value > batchMaximum ? value : batchMaximum;
+      }
+
+      if (batchMinimum < minimum) {
+        minimum = batchMinimum;
+        minPositionList.clear();
+      }
+      if (size > 0 && batchMinimum == minimum) {
+        for (int i = 0; i < size; i++) {
+          if (values[i] == minimum) {
+            minPositionList.add(positions[i]);
+          }
+        }
+      }
+
+      if (batchMaximum > maximum) {
+        maximum = batchMaximum;
+        maxPositionList.clear();
+      }
+      if (size > 0 && batchMaximum == maximum) {
+        for (int i = 0; i < size; i++) {
+          if (values[i] == maximum) {
+            maxPositionList.add(positions[i]);
+          }
+        }
+      }
+    }
+
+    return new MinMaxGroup(minimum, maximum, minPositionList, maxPositionList);
+  }
+}
@@ -0,0 +1,20 @@
+package com.ntu.bdm.execution;
+
+/********************************************************
+ * Operator is the interface of the operators of an
+ * execution pipeline. Each call pulls the next
+ * {@link Batch} of rows from the operator, so a virtual
+ * call is made per batch rather than per row.
+ *
+ ********************************************************/
+public interface Operator {
+
+  /**
+   * Fill batch with the next rows of the operator. A batch may be left empty while more rows
+   * follow.
+   *
+   * @param batch the batch to fill
+   * @return true if the batch was filled, false if the operator has no more rows
+   */
+  boolean next(Batch batch);
+}
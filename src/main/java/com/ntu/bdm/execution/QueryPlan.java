@@ -0,0 +1,276 @@
+package com.ntu.bdm.execution;
+
+import com.ntu.bdm.bitmap.RoaringBitmap;
+import com.ntu.bdm.query.Aggregate;
+import com.ntu.bdm.query.AggregateFunction;
+import com.ntu.bdm.query.Query;
+import com.ntu.bdm.query.QueryResult;
+import com.ntu.bdm.query.Table;
+import com.ntu.bdm.util.TimestampUtil;
+import com.ntu.bdm.vector.CategoricalColumnVector;
+import com.ntu.bdm.vector.DoubleColumn;
+import com.ntu.bdm.vector.LongColumn;
+import java.util.ArrayList;
+import java.util.List;
+
+/********************************************************
+ * QueryPlan is a container class which holds the
+ * pipeline chosen by the {@link QueryPlanner} for a
+ * {@link Query}, together with the access path it reads
+ * rows through and a description of the choice.
+ *
+ * The pipeline selects the rows matching the query. On
+ * execution, the rows are either aggregated by an
+ * {@link AggregationOperator}, or their projected fields
+ * are formatted into output rows. The operators of the
+ * pipeline keep their position, so a plan can only be
+ * executed once. Once executed, the plan gives the rows
+ * its leaf operator scanned and the rows its pipeline
+ * matched.
+ *
+ * An aggregate query answered from an aggregate cube
+ * has no pipeline, and its aggregates are computed by a
+ * {@link CubeAggregationOperator} from the cells its
+ * predicates select, so it scans no row.
+ *
+ ********************************************************/
+public class QueryPlan {
+
+  private static final String EMPTY_DATA_SYMBOL = "M";
+
+  /**
+   * The way the rows of a plan are found.
+   */
+  public enum AccessPath {
+    /**
+     * The rows are found by combining the bitmap indexes of the categorical predicates and the
+     * range indexes of the range predicates.
+     */
+    INDEX,
+    /**
+     * The rows are found by scanning every row of the table.
+     */
+    SCAN,
+    /**
+     * No row is read, the aggregates are merged from the cells of the aggregate cube selected by
+     * the categorical predicates.
+     */
+    CUBE
+  }
+
+  private final Query query;
+  private final Table table;
+  private final RowCountOperator scanOperator;
+  private final RowCountOperator operator;
+  private final CubeAggregationOperator cubeAggregationOperator;
+  private final AccessPath accessPath;
+  private final String description;
+
+  /**
+   * Instantiates a new QueryPlan.
+   *
+   * @param query        the query
+   * @param table        the table
+   * @param operator     the operator selecting the rows matching the query
+   * @param scanOperator the leaf operator of operator, counting the rows scanned
+   * @param accessPath   the access path
+   * @param description  the description of the plan
+   */
+  public QueryPlan(Query query, Table table, Operator operator, RowCountOperator scanOperator,
+      AccessPath accessPath, String description) {
+    this.query = query;
+    this.table = table;
+    this.scanOperator = scanOperator;
+    this.operator = new RowCountOperator(operator);
+    this.cubeAggregationOperator = null;
+    this.accessPath = accessPath;
+    this.description = description;
+  }
+
+  /**
+   * Instantiates a new QueryPlan computing the aggregates of query from an aggregate cube.
+   *
+   * @param query                   the query
+   * @param table                   the table
+   * @param cubeAggregationOperator the operator merging the cells selected by the query
+   * @param description             the description of the plan
+   */
+  public QueryPlan(Query query, Table table, CubeAggregationOperator cubeAggregationOperator,
+      String description) {
+    this.query = query;
+    this.table = table;
+    this.scanOperator = null;
+    this.operator = null;
+    this.cubeAggregationOperator = cubeAggregationOperator;
+    this.accessPath = AccessPath.CUBE;
+    this.description = description;
+  }
+
+  /**
+   * Gets the access path.
+   *
+   * @return the access path
+   */
+  public AccessPath getAccessPath() {
+    return accessPath;
+  }
+
+  /**
+   * Gets the number of rows scanned by the leaf operator of the plan so far, i.e. every row for a
+   * scan, the rows found through the indexes for an index-driven plan and none for a plan
+   * answered from the aggregate cube.
+   *
+   * @return the scanned row count
+   */
+  public long getScannedRowCount() {
+    return scanOperator == null ? 0 : scanOperator.getRowCount();
+  }
+
+  /**
+   * Gets the number of rows matching every predicate of the query selected by the plan so far.
+   *
+   * @return the matched row count
+   */
+  public long getMatchedRowCount() {
+    if (cubeAggregationOperator != null) {
+      return cubeAggregationOperator.getRowCount();
+    }
+    return operator.getRowCount();
+  }
+
+  /**
+   * Gets a description of the plan, listing the access path, the estimated costs it was chosen
+   * on and the order the predicates are evaluated in.
+   *
+   * @return the description
+   */
+  public String explain() {
+    return description;
+  }
+
+  /**
+   * Execute the plan.
+   *
+   * @return the query result
+   */
+  public QueryResult execute() {
+    if (query.isAggregate()) {
+      return executeAggregates();
+    }
+    return executeProjections();
+  }
+
+  /*
+   * Computes every aggregate of the query into a single output row, from the aggregate cube if
+   * the plan is answered from it and otherwise from the rows selected by the pipeline.
+   */
+  private QueryResult executeAggregates() {
+    List<Aggregate> aggregateList = query.getAggregates();
+    Aggregate[] aggregates = aggregateList.toArray(new Aggregate[0]);
+    DoubleColumn[] doubleColumns = new DoubleColumn[aggregates.length];
+    String[] header = new String[aggregates.length];
+    for (int i = 0; i < aggregates.length; i++) {
+      if (cubeAggregationOperator == null && !aggregates[i].isCountOfAllRows()) {
+        doubleColumns[i] = table.getDoubleColumn(aggregates[i].getFieldName());
+      }
+      header[i] = aggregates[i].toString();
+    }
+
+    double[] values = cubeAggregationOperator != null ? cubeAggregationOperator.execute()
+        : new AggregationOperator(operator, aggregates, doubleColumns).execute();
+
+    String[] row = new String[aggregates.length];
+    for (int i = 0; i < aggregates.length; i++) {
+      if (aggregates[i].getFunction() == AggregateFunction.COUNT) {
+        row[i] = String.valueOf((long) values[i]);
+      } else if (Double.isNaN(values[i])) {
+        row[i] = EMPTY_DATA_SYMBOL;
+      } else {
+        row[i] = String.valueOf(values[i]);
+      }
+    }
+
+    List<String[]> rows = new ArrayList<>();
+    rows.add(row);
+    return new QueryResult(header, rows);
+  }
+
+  /*
+   * Formats the projected fields of every row selected by the pipeline into an output row.
+   * Categorical fields only held as an index are resolved by probing the bitmap of each of their
+   * categories.
+   */
+  private QueryResult executeProjections() {
+    String[] header = query.getProjections().toArray(new String[0]);
+    int fieldCount = header.length;
+
+    LongColumn[] longColumns = new LongColumn[fieldCount];
+    DoubleColumn[] doubleColumns = new DoubleColumn[fieldCount];
+    List<CategoricalColumnVector<String>> categoricalColumnVectors = new ArrayList<>();
+    List<List<String>> indexCategories = new ArrayList<>();
+    List<List<RoaringBitmap>> indexBitmaps = new ArrayList<>();
+    for (int i = 0; i < fieldCount; i++) {
+      String fieldName = header[i];
+      longColumns[i] = table.getLongColumn(fieldName);
+      doubleColumns[i] = longColumns[i] == null ? table.getDoubleColumn(fieldName) : null;
+
+      CategoricalColumnVector<String> categoricalColumnVector = null;
+      List<String> categories = new ArrayList<>();
+      List<RoaringBitmap> bitmaps = new ArrayList<>();
+      if (longColumns[i] == null && doubleColumns[i] == null) {
+        categoricalColumnVector = table.getCategoricalColumnVector(fieldName);
+        if (categoricalColumnVector == null) {
+          categories = table.getCategoriesForField(fieldName);
+          for (String category : categories) {
+            bitmaps.add(table.getBitmapForFieldWithCategory(fieldName, category));
+          }
+        }
+      }
+      categoricalColumnVectors.add(categoricalColumnVector);
+      indexCategories.add(categories);
+      indexBitmaps.add(bitmaps);
+    }
+
+    List<String[]> rows = new ArrayList<>();
+    Batch batch = new Batch();
+    int[] positions = batch.getPositions();
+    while (operator.next(batch)) {
+      for (int i = 0; i < batch.getSize(); i++) {
+        int position = positions[i];
+        String[] row = new String[fieldCount];
+        for (int j = 0; j < fieldCount; j++) {
+          if (longColumns[j] != null) {
+            row[j] = longColumns[j].isNull(position) ? EMPTY_DATA_SYMBOL
+                : TimestampUtil.getTimestamp(longColumns[j].get(position));
+          } else if (doubleColumns[j] != null) {
+            row[j] = doubleColumns[j].isNull(position) ? EMPTY_DATA_SYMBOL
+                : String.valueOf(doubleColumns[j].get(position));
+          } else if (categoricalColumnVectors.get(j) != null) {
+            CategoricalColumnVector<String> categoricalColumnVector =
+                categoricalColumnVectors.get(j);
+            row[j] = categoricalColumnVector.isNull(position) ? EMPTY_DATA_SYMBOL
+                : categoricalColumnVector.get(position);
+          } else {
+            row[j] = getCategoryFromIndex(indexCategories.get(j), indexBitmaps.get(j), position);
+          }
+        }
+        rows.add(row);
+      }
+    }
+    return new QueryResult(header, rows);
+  }
+
+  /*
+   * Gets the category whose index bitmap holds the position, or the empty data symbol if there is
+   * none.
+   */
+  private String getCategoryFromIndex(List<String> categories, List<RoaringBitmap> bitmaps,
+      int position) {
+    for (int i = 0; i < categories.size(); i++) {
+      if (bitmaps.get(i).get(position)) {
+        return categories.get(i);
+      }
+    }
+    return EMPTY_DATA_SYMBOL;
+  }
+}
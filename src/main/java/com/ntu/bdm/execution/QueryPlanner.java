@@ -0,0 +1,584 @@
+package com.ntu.bdm.execution;
+
+import com.ntu.bdm.aggregate.AggregateCell;
+import com.ntu.bdm.aggregate.AggregateCube;
+import com.ntu.bdm.bitmap.RoaringBitmap;
+import com.ntu.bdm.execution.QueryPlan.AccessPath;
+import com.ntu.bdm.index.RangeIndex;
+import com.ntu.bdm.query.Aggregate;
+import com.ntu.bdm.query.Predicate;
+import com.ntu.bdm.query.Query;
+import com.ntu.bdm.query.Table;
+import com.ntu.bdm.vector.CategoricalColumnVector;
+import com.ntu.bdm.vector.DoubleColumn;
+import com.ntu.bdm.vector.LongColumn;
+import com.ntu.bdm.vector.ZoneMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/********************************************************
+ * QueryPlanner is utility class which contains just
+ * static methods and cannot be instantiated. It plans
+ * queries onto pipelines of operators, whose batches
+ * flow as follows:
+ *
+ *   bitmap filter -> selection vector -> projection
+ *     -> aggregation
+ *
+ * Before scanning, the bitmap filter is narrowed with
+ * the {@link ZoneMap} of the projected column, so that
+ * blocks which cannot hold the result are never read.
+ *
+ * General {@link Query} objects are planned by cost.
+ * The selectivity of every predicate is estimated from
+ * the cardinality of its index bitmaps, from the count
+ * of its {@link RangeIndex}, or from the zone map of its
+ * column, and the planner then compares an index-driven
+ * plan, which ANDs the bitmaps of the categorical
+ * predicates and of the range predicates selective
+ * enough to be worth a range index lookup, with a full
+ * sequential scan evaluating every predicate on every
+ * row. Bitmaps are ANDed and predicates evaluated from
+ * the most selective to the least, so later steps see as
+ * few rows as possible.
+ *
+ * An aggregate query on a table with an
+ * {@link AggregateCube}, whose predicates only select
+ * categories of its dimensions and whose aggregates are
+ * on its measures, is instead answered from the cells of
+ * the cube, which costs nothing comparable to reading
+ * its rows.
+ *
+ ********************************************************/
+public class QueryPlanner {
+
+  /**
+   * The cost of evaluating a predicate on, or reading a column for, a row of a sequential scan.
+   */
+  public static final double SEQUENTIAL_ROW_COST = 1.0;
+
+  /**
+   * The cost of evaluating a predicate on, or reading a column for, a row selected through an
+   * index. The rows are read in position order but not contiguously, so every row costs a bitmap
+   * decode and usually a cache miss.
+   */
+  public static final double INDEX_ROW_COST = 4.0;
+
+  /**
+   * The cost of combining one word of an index bitmap.
+   */
+  public static final double BITMAP_WORD_COST = 1.0;
+
+  /**
+   * The cost of turning one row found by a range index into a bit of a bitmap, which includes
+   * sorting the positions of the rows found.
+   */
+  public static final double RANGE_INDEX_ROW_COST = 2.0;
+
+  /**
+   * The selectivity assumed for a range predicate on a column without statistics.
+   */
+  public static final double DEFAULT_RANGE_SELECTIVITY = 1.0 / 3;
+
+  private QueryPlanner() {
+  }
+
+  /**
+   * Plan the search for the minimum and maximum, with the indexes holding them, of doubleColumn
+   * over the rows whose bits are set in bitmap. Null elements are ignored.
+   *
+   * Blocks whose rows are all selected bound the result from their statistics alone: the minimum
+   * is at most the least of their minimums, and the maximum at least the greatest of their
+   * maximums. Every block whose range lies strictly within these bounds can hold neither extreme,
+   * so its rows are removed from the filter.
+   *
+   * @param doubleColumn the double column
+   * @param bitmap       the bitmap of valid indexes
+   * @return the aggregate operator at the root of the pipeline
+   */
+  public static MinMaxAggregateOperator planMinMax(DoubleColumn doubleColumn,
+      RoaringBitmap bitmap) {
+    ZoneMap zoneMap = doubleColumn.getZoneMap();
+    int blockCount = zoneMap.getBlockCount();
+
+    double minimumBound = Double.POSITIVE_INFINITY;
+    double maximumBound = Double.NEGATIVE_INFINITY;
+    for (int block = 0; block < blockCount; block++) {
+      int start = zoneMap.getBlockStart(block);
+      int end = zoneMap.getBlockEnd(block);
+      if (zoneMap.hasValues(block) && bitmap.rangeCardinality(start, end) == end - start) {
+        minimumBound = Math.min(minimumBound, zoneMap.getMinimum(block));
+        maximumBound = Math.max(maximumBound, zoneMap.getMaximum(block));
+      }
+    }
+
+    RoaringBitmap prunedRows = new RoaringBitmap();
+    for (int block = 0; block < blockCount; block++) {
+      if (zoneMap.getMinimum(block) > minimumBound && zoneMap.getMaximum(block) < maximumBound) {
+        prunedRows.set(zoneMap.getBlockStart(block), zoneMap.getBlockEnd(block));
+      }
+    }
+
+    RoaringBitmap filter = bitmap;
+    if (!prunedRows.isEmpty()) {
+      filter = bitmap.clone();
+      filter.andNot(prunedRows);
+    }
+
+    return new MinMaxAggregateOperator(
+        new DoubleProjectionOperator(new BitmapScanOperator(filter), doubleColumn));
+  }
+
+  /**
+   * Plan a query against a table. The index-driven plan is only considered when the query has
+   * categorical predicates or range predicates on fields with a range index, and the sequential
+   * scan only when every categorical predicate is on a field held as a column. The plan with the
+   * lower estimated cost is chosen, and ties go to the index.
+   *
+   * The index-driven plan ANDs the bitmaps of every categorical predicate. A range predicate with
+   * a range index is added to the AND when looking its rows up costs less than filtering the rows
+   * left by the predicates before it, or when it is the only indexed predicate.
+   *
+   * Queries the aggregate cube of the table can answer are planned onto the cube without
+   * estimating either.
+   *
+   * @param query the query
+   * @param table the table
+   * @return the plan
+   */
+  public static QueryPlan plan(Query query, Table table) {
+    checkOutputFields(query, table);
+    AggregateCube aggregateCube = table.getAggregateCube();
+    if (aggregateCube != null && isAnsweredByAggregateCube(query, aggregateCube)) {
+      return planAggregateCube(query, table, aggregateCube);
+    }
+
+    int rowCount = table.getRowCount();
+    List<PredicateEstimate> allEstimates = new ArrayList<>();
+    boolean scanPossible = true;
+    for (Predicate predicate : query.getPredicates()) {
+      if (predicate.isCategorical()) {
+        allEstimates.add(estimateCategoricalPredicate(predicate, table, rowCount));
+        scanPossible &= table.getCategoricalColumnVector(predicate.getFieldName()) != null;
+      } else {
+        allEstimates.add(estimateRangePredicate(predicate, table, rowCount));
+      }
+    }
+    allEstimates.sort(Comparator.comparingDouble(estimate -> estimate.selectivity));
+
+    double matchCount = rowCount;
+    for (PredicateEstimate estimate : allEstimates) {
+      matchCount *= estimate.selectivity;
+    }
+    int outputColumnCount = getOutputColumnCount(query);
+
+    // Choose the predicates ANDed by the index-driven plan, the others are filtered.
+    List<PredicateEstimate> indexEstimates = new ArrayList<>();
+    List<PredicateEstimate> indexFilterEstimates = new ArrayList<>();
+    double candidateCount = rowCount;
+    double indexCost = 0;
+    for (PredicateEstimate estimate : allEstimates) {
+      if (estimate.predicate.isCategorical()) {
+        indexEstimates.add(estimate);
+        candidateCount *= estimate.selectivity;
+        indexCost += estimate.lookupCost;
+      }
+    }
+    for (PredicateEstimate estimate : allEstimates) {
+      if (estimate.predicate.isCategorical()) {
+        continue;
+      }
+      if (estimate.rangeIndex != null && (indexEstimates.isEmpty()
+          || estimate.lookupCost < candidateCount * INDEX_ROW_COST)) {
+        indexEstimates.add(estimate);
+        candidateCount *= estimate.selectivity;
+        indexCost += estimate.lookupCost;
+      } else {
+        indexFilterEstimates.add(estimate);
+      }
+    }
+    indexEstimates.sort(Comparator.comparingDouble(estimate -> estimate.selectivity));
+    if (indexEstimates.isEmpty()) {
+      indexCost = Double.POSITIVE_INFINITY;
+    } else {
+      indexCost += getFilterCost(indexFilterEstimates, candidateCount, INDEX_ROW_COST)
+          + matchCount * outputColumnCount * INDEX_ROW_COST;
+    }
+
+    double scanCost = Double.POSITIVE_INFINITY;
+    if (scanPossible) {
+      scanCost = getFilterCost(allEstimates, rowCount, SEQUENTIAL_ROW_COST)
+          + matchCount * outputColumnCount * SEQUENTIAL_ROW_COST;
+    }
+
+    AccessPath accessPath = indexCost <= scanCost ? AccessPath.INDEX : AccessPath.SCAN;
+    List<PredicateEstimate> filterEstimates =
+        accessPath == AccessPath.INDEX ? indexFilterEstimates : allEstimates;
+    RoaringBitmap prunedRows = getRowsPrunedByZoneMaps(filterEstimates, table);
+
+    Operator operator;
+    if (accessPath == AccessPath.INDEX) {
+      RoaringBitmap bitmap = intersectIndexedPredicates(indexEstimates);
+      bitmap.andNot(prunedRows);
+      operator = new BitmapScanOperator(bitmap);
+    } else if (prunedRows.isEmpty()) {
+      operator = new RangeScanOperator(0, rowCount);
+    } else {
+      RoaringBitmap bitmap = new RoaringBitmap();
+      bitmap.set(0, rowCount);
+      bitmap.andNot(prunedRows);
+      operator = new BitmapScanOperator(bitmap);
+    }
+    RowCountOperator scanOperator = new RowCountOperator(operator);
+    operator = scanOperator;
+    for (PredicateEstimate estimate : filterEstimates) {
+      operator = createFilterOperator(operator, estimate.predicate, table);
+    }
+
+    StringBuilder description = new StringBuilder();
+    description.append(String.format("%s (index cost %.0f, scan cost %.0f, estimated rows %d)",
+        accessPath, indexCost, scanCost, Math.round(matchCount)));
+    if (accessPath == AccessPath.INDEX) {
+      description.append("\n  AND ");
+      appendPredicates(description, indexEstimates);
+    }
+    if (!filterEstimates.isEmpty()) {
+      description.append("\n  FILTER ");
+      appendPredicates(description, filterEstimates);
+    }
+    return new QueryPlan(query, table, operator, scanOperator, accessPath,
+        description.toString());
+  }
+
+  /*
+   * PredicateEstimate is a container class which holds a predicate with its estimated
+   * selectivity, i.e. the fraction of rows satisfying it. An indexed predicate also holds the
+   * index bitmaps of its categories or its range index, and the cost of looking its rows up.
+   */
+  private static class PredicateEstimate {
+
+    private final Predicate predicate;
+    private final double selectivity;
+    private final List<RoaringBitmap> bitmaps;
+    private final RangeIndex rangeIndex;
+    private final double lookupCost;
+
+    PredicateEstimate(Predicate predicate, double selectivity, List<RoaringBitmap> bitmaps,
+        RangeIndex rangeIndex, double lookupCost) {
+      this.predicate = predicate;
+      this.selectivity = selectivity;
+      this.bitmaps = bitmaps;
+      this.rangeIndex = rangeIndex;
+      this.lookupCost = lookupCost;
+    }
+  }
+
+  /*
+   * Checks whether the aggregates of query can be merged from the cells of aggregateCube, i.e.
+   * whether it only has aggregates, every one of them on a measure of the cube or counting every
+   * row, and equality or IN predicates on dimensions of the cube.
+   */
+  private static boolean isAnsweredByAggregateCube(Query query, AggregateCube aggregateCube) {
+    if (!query.isAggregate()) {
+      return false;
+    }
+    for (Predicate predicate : query.getPredicates()) {
+      if (!predicate.isCategorical()
+          || aggregateCube.getDimensionIndex(predicate.getFieldName()) < 0) {
+        return false;
+      }
+    }
+    for (Aggregate aggregate : query.getAggregates()) {
+      if (!aggregate.isCountOfAllRows()
+          && aggregateCube.getMeasureIndex(aggregate.getFieldName()) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /*
+   * Plans query onto the cells of aggregateCube whose categories satisfy every predicate.
+   */
+  private static QueryPlan planAggregateCube(Query query, Table table,
+      AggregateCube aggregateCube) {
+    List<Predicate> predicates = query.getPredicates();
+    int[] dimensions = new int[predicates.size()];
+    for (int i = 0; i < dimensions.length; i++) {
+      dimensions[i] = aggregateCube.getDimensionIndex(predicates.get(i).getFieldName());
+    }
+
+    List<AggregateCell> cells = new ArrayList<>();
+    long rowCount = 0;
+    for (AggregateCell cell : aggregateCube.getCells()) {
+      boolean selected = true;
+      for (int i = 0; selected && i < dimensions.length; i++) {
+        selected = predicates.get(i).getCategories().contains(
+            cell.getCategories().get(dimensions[i]));
+      }
+      if (selected) {
+        cells.add(cell);
+        rowCount += cell.getRowCount();
+      }
+    }
+
+    StringBuilder description = new StringBuilder();
+    description.append(String.format("%s (%d of %d cells, rows %d)", AccessPath.CUBE,
+        cells.size(), aggregateCube.getCells().size(), rowCount));
+    if (!predicates.isEmpty()) {
+      description.append("\n  SELECT ");
+      for (int i = 0; i < predicates.size(); i++) {
+        description.append(i > 0 ? ", " : "").append(predicates.get(i));
+      }
+    }
+    return new QueryPlan(query, table, new CubeAggregationOperator(aggregateCube, cells,
+        query.getAggregates().toArray(new Aggregate[0])), description.toString());
+  }
+
+  /*
+   * Checks that every projected field exists, and that every aggregated field is a double field.
+   */
+  private static void checkOutputFields(Query query, Table table) {
+    if (query.getProjections().isEmpty() && query.getAggregates().isEmpty()) {
+      throw new IllegalArgumentException("A query must project fields or compute aggregates");
+    }
+
+    for (String fieldName : query.getProjections()) {
+      if (table.getLongColumn(fieldName) == null && table.getDoubleColumn(fieldName) == null
+          && !isCategoricalField(fieldName, table)) {
+        throw new IllegalArgumentException("Unknown field " + fieldName);
+      }
+    }
+    for (Aggregate aggregate : query.getAggregates()) {
+      if (!aggregate.isCountOfAllRows()
+          && table.getDoubleColumn(aggregate.getFieldName()) == null) {
+        throw new IllegalArgumentException(aggregate + " is not on a double field");
+      }
+    }
+  }
+
+  /*
+   * Checks whether the field with the fieldName is a categorical field.
+   */
+  private static boolean isCategoricalField(String fieldName, Table table) {
+    return table.getCategoricalColumnVector(fieldName) != null
+        || !table.getCategoriesForField(fieldName).isEmpty();
+  }
+
+  /*
+   * Gets the number of columns read for every matching row to produce the output of the query.
+   */
+  private static int getOutputColumnCount(Query query) {
+    Set<String> fieldNames = new HashSet<>(query.getProjections());
+    for (Aggregate aggregate : query.getAggregates()) {
+      if (!aggregate.isCountOfAllRows()) {
+        fieldNames.add(aggregate.getFieldName());
+      }
+    }
+    return fieldNames.size();
+  }
+
+  /*
+   * Estimates the selectivity of an equality or IN predicate as the total cardinality of the index
+   * bitmaps of its categories over the row count. The categories of a field are disjoint, so their
+   * cardinalities add up.
+   */
+  private static PredicateEstimate estimateCategoricalPredicate(Predicate predicate, Table table,
+      int rowCount) {
+    String fieldName = predicate.getFieldName();
+    if (!isCategoricalField(fieldName, table)) {
+      throw new IllegalArgumentException(predicate + " is not on a categorical field");
+    }
+
+    List<RoaringBitmap> bitmaps = new ArrayList<>();
+    long cardinality = 0;
+    long bitmapWordCount = 0;
+    for (String category : predicate.getCategories()) {
+      RoaringBitmap bitmap = table.getBitmapForFieldWithCategory(fieldName, category);
+      bitmaps.add(bitmap);
+      cardinality += bitmap.cardinality();
+      bitmapWordCount += bitmap.getSizeInBytes() / Long.BYTES;
+    }
+    double selectivity = rowCount == 0 ? 0 : (double) cardinality / rowCount;
+    return new PredicateEstimate(predicate, selectivity, bitmaps, null,
+        bitmapWordCount * BITMAP_WORD_COST);
+  }
+
+  /*
+   * Estimates the selectivity of a range predicate. On a double field with a range index, the
+   * rows satisfying the predicate are counted exactly by the index. On other double fields, the
+   * values of every block of its zone map are assumed to be spread evenly between the block
+   * minimum and maximum, so a block contributes the share of its values whose range overlaps the
+   * predicate. Long fields have no statistics and are given the default selectivity.
+   */
+  private static PredicateEstimate estimateRangePredicate(Predicate predicate, Table table,
+      int rowCount) {
+    String fieldName = predicate.getFieldName();
+    DoubleColumn doubleColumn = table.getDoubleColumn(fieldName);
+    if (doubleColumn == null) {
+      if (table.getLongColumn(fieldName) == null) {
+        throw new IllegalArgumentException(predicate + " is not on a numeric field");
+      }
+      return new PredicateEstimate(predicate, DEFAULT_RANGE_SELECTIVITY, null, null, 0);
+    }
+
+    double lowerBound = predicate.getLowerBound();
+    double upperBound = predicate.getUpperBound();
+    RangeIndex rangeIndex = table.getRangeIndex(fieldName);
+    if (rangeIndex != null) {
+      int count = rangeIndex.getCount(lowerBound, upperBound);
+      double selectivity = rowCount == 0 ? 0 : (double) count / rowCount;
+      return new PredicateEstimate(predicate, selectivity, null, rangeIndex,
+          count * RANGE_INDEX_ROW_COST);
+    }
+
+    ZoneMap zoneMap = doubleColumn.getZoneMap();
+    double estimatedCount = 0;
+    for (int block = 0; block < zoneMap.getBlockCount(); block++) {
+      double minimum = zoneMap.getMinimum(block);
+      double maximum = zoneMap.getMaximum(block);
+      if (!zoneMap.hasValues(block) || maximum < lowerBound || minimum > upperBound) {
+        continue;
+      }
+
+      int valueCount = zoneMap.getBlockEnd(block) - zoneMap.getBlockStart(block)
+          - zoneMap.getNullCount(block);
+      if (minimum >= lowerBound && maximum <= upperBound) {
+        estimatedCount += valueCount;
+      } else {
+        estimatedCount += valueCount * (Math.min(maximum, upperBound)
+            - Math.max(minimum, lowerBound)) / (maximum - minimum);
+      }
+    }
+    double selectivity = rowCount == 0 ? 0 : estimatedCount / rowCount;
+    return new PredicateEstimate(predicate, selectivity, null, null, 0);
+  }
+
+  /*
+   * Gets the cost of evaluating predicates in order on rowCount rows, where each predicate only
+   * sees the rows satisfying the previous ones.
+   */
+  private static double getFilterCost(List<PredicateEstimate> estimates, double rowCount,
+      double rowCost) {
+    double cost = 0;
+    for (PredicateEstimate estimate : estimates) {
+      cost += rowCount * rowCost;
+      rowCount *= estimate.selectivity;
+    }
+    return cost;
+  }
+
+  /*
+   * Gets the rows of the blocks whose zone map shows that no value can satisfy one of the range
+   * predicates on double fields among estimates.
+   */
+  private static RoaringBitmap getRowsPrunedByZoneMaps(List<PredicateEstimate> estimates,
+      Table table) {
+    RoaringBitmap prunedRows = new RoaringBitmap();
+    for (PredicateEstimate estimate : estimates) {
+      if (estimate.predicate.isCategorical()) {
+        continue;
+      }
+      DoubleColumn doubleColumn = table.getDoubleColumn(estimate.predicate.getFieldName());
+      if (doubleColumn == null) {
+        continue;
+      }
+
+      ZoneMap zoneMap = doubleColumn.getZoneMap();
+      for (int block = 0; block < zoneMap.getBlockCount(); block++) {
+        if (!zoneMap.hasValues(block)
+            || zoneMap.getMaximum(block) < estimate.predicate.getLowerBound()
+            || zoneMap.getMinimum(block) > estimate.predicate.getUpperBound()) {
+          prunedRows.set(zoneMap.getBlockStart(block), zoneMap.getBlockEnd(block));
+        }
+      }
+    }
+    return prunedRows;
+  }
+
+  /*
+   * Gets a new bitmap of the rows satisfying every indexed predicate. The predicates are already
+   * sorted by selectivity, so the most selective bitmap is the starting point, and the remaining
+   * bitmaps are only looked up and ANDed while the result is not empty.
+   */
+  private static RoaringBitmap intersectIndexedPredicates(List<PredicateEstimate> indexEstimates) {
+    RoaringBitmap result = null;
+    for (PredicateEstimate estimate : indexEstimates) {
+      RoaringBitmap bitmap;
+      if (estimate.rangeIndex != null) {
+        bitmap = estimate.rangeIndex.getBitmap(estimate.predicate.getLowerBound(),
+            estimate.predicate.getUpperBound());
+      } else if (result != null && estimate.bitmaps.size() == 1) {
+        bitmap = estimate.bitmaps.get(0);
+      } else {
+        bitmap = union(estimate.bitmaps);
+      }
+
+      if (result == null) {
+        result = bitmap;
+      } else {
+        result.and(bitmap);
+      }
+      if (result.isEmpty()) {
+        break;
+      }
+    }
+    return result;
+  }
+
+  /*
+   * Gets a new bitmap holding the logical OR of bitmaps, none of which is modified.
+   */
+  private static RoaringBitmap union(List<RoaringBitmap> bitmaps) {
+    RoaringBitmap result = new RoaringBitmap();
+    for (RoaringBitmap bitmap : bitmaps) {
+      result.or(bitmap);
+    }
+    return result;
+  }
+
+  /*
+   * Creates the operator evaluating predicate on the rows of child.
+   */
+  private static Operator createFilterOperator(Operator child, Predicate predicate, Table table) {
+    String fieldName = predicate.getFieldName();
+    if (predicate.isCategorical()) {
+      CategoricalColumnVector<String> categoricalColumnVector =
+          table.getCategoricalColumnVector(fieldName);
+      boolean[] selectedCodes = new boolean[categoricalColumnVector.getCategories().size()];
+      for (String category : predicate.getCategories()) {
+        int code = categoricalColumnVector.getCodeForCategory(category);
+        if (code >= 0) {
+          selectedCodes[code] = true;
+        }
+      }
+      return new CategoricalFilterOperator(child, categoricalColumnVector, selectedCodes);
+    }
+
+    DoubleColumn doubleColumn = table.getDoubleColumn(fieldName);
+    if (doubleColumn != null) {
+      return new DoubleRangeFilterOperator(child, doubleColumn, predicate.getLowerBound(),
+          predicate.getUpperBound());
+    }
+    LongColumn longColumn = table.getLongColumn(fieldName);
+    return new LongRangeFilterOperator(child, longColumn, predicate.getLowerBound(),
+        predicate.getUpperBound());
+  }
+
+  /*
+   * Appends the predicates with their estimated selectivity, in order.
+   */
+  private static void appendPredicates(StringBuilder description,
+      List<PredicateEstimate> estimates) {
+    for (int i = 0; i < estimates.size(); i++) {
+      if (i > 0) {
+        description.append(", ");
+      }
+      description.append(estimates.get(i).predicate).append(" [")
+          .append(String.format("%.4f", estimates.get(i).selectivity)).append("]");
+    }
+  }
+}
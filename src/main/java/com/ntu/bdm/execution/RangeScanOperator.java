@@ -0,0 +1,44 @@
+package com.ntu.bdm.execution;
+
+/********************************************************
+ * RangeScanOperator is the leaf operator of a full
+ * sequential scan. It fills selection vectors with every
+ * position from a start to an end, in increasing order,
+ * without reading any index.
+ *
+ ********************************************************/
+public class RangeScanOperator implements Operator {
+
+  private final int end;
+  private int next;
+
+  /**
+   * Instantiates a new RangeScanOperator over the positions from start inclusive to end
+   * exclusive.
+   *
+   * @param start the start
+   * @param end   the end
+   */
+  public RangeScanOperator(int start, int end) {
+    this.end = end;
+    this.next = start;
+  }
+
+  /**
+   * Fill the selection vector of batch with the next positions of the range.
+   *
+   * @param batch the batch to fill
+   * @return true if the batch was filled, false if every position was scanned
+   */
+  @Override
+  public boolean next(Batch batch) {
+    int[] positions = batch.getPositions();
+    int size = Math.min(Batch.BATCH_SIZE, end - next);
+    for (int i = 0; i < size; i++) {
+      positions[i] = next + i;
+    }
+    next += Math.max(size, 0);
+    batch.setSize(Math.max(size, 0));
+    return size > 0;
+  }
+}
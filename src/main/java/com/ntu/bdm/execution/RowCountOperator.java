@@ -0,0 +1,48 @@
+package com.ntu.bdm.execution;
+
+/********************************************************
+ * RowCountOperator is a pass-through operator which
+ * counts the rows of the batches pulled through it, e.g.
+ * the rows scanned by the leaf of a pipeline or the rows
+ * matched by its root. It adds one addition per batch.
+ *
+ ********************************************************/
+public class RowCountOperator implements Operator {
+
+  private final Operator child;
+  private long rowCount;
+
+  /**
+   * Instantiates a new RowCountOperator counting the rows of child.
+   *
+   * @param child the child operator
+   */
+  public RowCountOperator(Operator child) {
+    this.child = child;
+    this.rowCount = 0;
+  }
+
+  /**
+   * Fill batch with the next rows of the child operator and count them.
+   *
+   * @param batch the batch to fill
+   * @return true if the batch was filled, false if the child operator has no more rows
+   */
+  @Override
+  public boolean next(Batch batch) {
+    if (!child.next(batch)) {
+      return false;
+    }
+    rowCount += batch.getSize();
+    return true;
+  }
+
+  /**
+   * Gets the number of rows pulled through the operator so far.
+   *
+   * @return the row count
+   */
+  public long getRowCount() {
+    return rowCount;
+  }
+}
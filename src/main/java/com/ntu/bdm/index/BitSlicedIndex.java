@@ -0,0 +1,211 @@
+package com.ntu.bdm.index;
+
+import com.ntu.bdm.aggregate.MinMaxGroup;
+import com.ntu.bdm.bitmap.RoaringBitmap;
+import com.ntu.bdm.vector.DoubleColumn;
+
+/********************************************************
+ * BitSlicedIndex is an index held in main memory over a
+ * column of primitive doubles, which finds the minimum
+ * and maximum of any set of rows with bitmap operations
+ * alone.
+ *
+ * The non-null values are encoded in fixed point: every
+ * value is multiplied by a power of ten, the scale, with
+ * as few decimal digits as represent every value of the
+ * column exactly, and the smallest result is subtracted,
+ * so that every value becomes a non-negative code. The
+ * index holds one bitmap per bit of the codes, the
+ * slices, where slice b holds the rows whose code has
+ * bit b set, together with the bitmap of the non-null
+ * rows.
+ *
+ * The minimum of the rows of a filter bitmap is found
+ * from the highest slice to the lowest: the rows without
+ * the bit of the slice are kept if there are any, and
+ * the bit of the minimum is then 0, otherwise the bit is
+ * 1 and the rows are left as they are. The rows left
+ * after the lowest slice are exactly the rows holding
+ * the minimum, and the maximum is found the other way
+ * round. A search therefore takes two bitmap operations
+ * per bit of the codes, however many rows the filter
+ * holds.
+ *
+ ********************************************************/
+public class BitSlicedIndex {
+
+  /**
+   * The largest number of decimal digits of the values of an indexed column.
+   */
+  public static final int MAX_DECIMAL_DIGITS = 6;
+
+  private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6};
+  private static final double MAX_EXACT_DOUBLE = 1L << 53;
+
+  private double scale;
+  private long minimumCode;
+  private RoaringBitmap nonNullBitmap;
+  private RoaringBitmap[] slices;
+
+  /**
+   * Instantiates a new empty BitSlicedIndex.
+   */
+  public BitSlicedIndex() {
+    scale = 1;
+    minimumCode = 0;
+    nonNullBitmap = new RoaringBitmap();
+    slices = new RoaringBitmap[0];
+  }
+
+  /**
+   * Create the slices of the non-null values of doubleColumn.
+   *
+   * @param doubleColumn the double column
+   */
+  public void constructBitSlicedIndex(DoubleColumn doubleColumn) {
+    constructBitSlicedIndex(doubleColumn, 0);
+  }
+
+  /**
+   * Create the slices of the non-null values of doubleColumn, in which the value at index i of
+   * doubleColumn is the row at position firstPosition + i. Every value must be representable
+   * exactly in fixed point with at most MAX_DECIMAL_DIGITS decimal digits.
+   *
+   * @param doubleColumn  the double column
+   * @param firstPosition the position of the first value
+   */
+  public void constructBitSlicedIndex(DoubleColumn doubleColumn, int firstPosition) {
+    int valueCount = doubleColumn.getValueCount();
+    scale = POWERS_OF_TEN[getDecimalDigits(doubleColumn)];
+
+    long minimum = Long.MAX_VALUE;
+    long maximum = Long.MIN_VALUE;
+    for (int position = 0; position < valueCount; position++) {
+      if (!doubleColumn.isNull(position)) {
+        long code = (long) Math.rint(doubleColumn.get(position) * scale);
+        minimum = Math.min(minimum, code);
+        maximum = Math.max(maximum, code);
+      }
+    }
+    minimumCode = minimum == Long.MAX_VALUE ? 0 : minimum;
+    int bitWidth = minimum == Long.MAX_VALUE ? 0
+        : Long.SIZE - Long.numberOfLeadingZeros(maximum - minimum);
+
+    nonNullBitmap = new RoaringBitmap();
+    slices = new RoaringBitmap[bitWidth];
+    for (int bit = 0; bit < bitWidth; bit++) {
+      slices[bit] = new RoaringBitmap();
+    }
+    for (int position = 0; position < valueCount; position++) {
+      if (doubleColumn.isNull(position)) {
+        continue;
+      }
+      nonNullBitmap.set(firstPosition + position);
+      long code = (long) Math.rint(doubleColumn.get(position) * scale) - minimumCode;
+      while (code != 0) {
+        int bit = Long.numberOfTrailingZeros(code);
+        slices[bit].set(firstPosition + position);
+        code &= code - 1;
+      }
+    }
+
+    nonNullBitmap.runOptimize();
+    for (RoaringBitmap slice : slices) {
+      slice.runOptimize();
+    }
+  }
+
+  /**
+   * Gets the number of bits of the codes, which is the number of slices.
+   *
+   * @return the bit width
+   */
+  public int getBitWidth() {
+    return slices.length;
+  }
+
+  /**
+   * Gets the power of ten the values are multiplied by to give their fixed point encoding.
+   *
+   * @return the scale
+   */
+  public double getScale() {
+    return scale;
+  }
+
+  /**
+   * Gets the minimum and maximum of the non-null values of the rows in bitmap, with every
+   * position holding the minimum and every position holding the maximum. The bitmap is not
+   * modified.
+   *
+   * @param bitmap the bitmap of the rows
+   * @return the min max, which is empty if no row of bitmap holds a value
+   */
+  public MinMaxGroup getMinMax(RoaringBitmap bitmap) {
+    RoaringBitmap candidates = bitmap.clone();
+    candidates.and(nonNullBitmap);
+    if (candidates.isEmpty()) {
+      return new MinMaxGroup();
+    }
+
+    RoaringBitmap minimumRows = candidates;
+    RoaringBitmap maximumRows = candidates.clone();
+    long minimum = 0;
+    long maximum = 0;
+    for (int bit = slices.length - 1; bit >= 0; bit--) {
+      RoaringBitmap rowsWithoutBit = minimumRows.clone();
+      rowsWithoutBit.andNot(slices[bit]);
+      if (rowsWithoutBit.isEmpty()) {
+        minimum |= 1L << bit;
+      } else {
+        minimumRows = rowsWithoutBit;
+      }
+
+      RoaringBitmap rowsWithBit = maximumRows.clone();
+      rowsWithBit.and(slices[bit]);
+      if (!rowsWithBit.isEmpty()) {
+        maximum |= 1L << bit;
+        maximumRows = rowsWithBit;
+      }
+    }
+
+    return new MinMaxGroup(decode(minimum), decode(maximum), minimumRows.toIntList(),
+        maximumRows.toIntList());
+  }
+
+  /*
+   * Gets the value of a code.
+   */
+  private double decode(long code) {
+    return (code + minimumCode) / scale;
+  }
+
+  /*
+   * Gets the fewest decimal digits representing every non-null value of doubleColumn exactly in
+   * fixed point.
+   */
+  private static int getDecimalDigits(DoubleColumn doubleColumn) {
+    int valueCount = doubleColumn.getValueCount();
+    for (int decimalDigits = 0; decimalDigits <= MAX_DECIMAL_DIGITS; decimalDigits++) {
+      boolean exact = true;
+      for (int position = 0; exact && position < valueCount; position++) {
+        exact = doubleColumn.isNull(position)
+            || isExact(doubleColumn.get(position), decimalDigits);
+      }
+      if (exact) {
+        return decimalDigits;
+      }
+    }
+    throw new IllegalArgumentException(
+        "Values of column have more than " + MAX_DECIMAL_DIGITS + " decimal digits");
+  }
+
+  /*
+   * Checks whether value is represented exactly in fixed point with decimalDigits digits.
+   */
+  private static boolean isExact(double value, int decimalDigits) {
+    double scaled = value * POWERS_OF_TEN[decimalDigits];
+    return Math.abs(scaled) < MAX_EXACT_DOUBLE
+        && Math.rint(scaled) / POWERS_OF_TEN[decimalDigits] == value;
+  }
+}
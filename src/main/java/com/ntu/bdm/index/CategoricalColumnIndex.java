@@ -1,28 +1,67 @@
 package com.ntu.bdm.index;
 
+import com.ntu.bdm.bitmap.RoaringBitmap;
 import com.ntu.bdm.vector.CategoricalColumnVector;
-import java.util.BitSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /********************************************************
  * CategoricalColumnIndex is a container class which
- * holds bitmaps representing different categories in a
- * {@link CategoricalColumnVector}.
+ * holds compressed bitmaps representing different
+ * categories in a {@link CategoricalColumnVector}.
  *
- * It has a map that contain bitmap objects. The map
- * uses a key category to uniquely identify a bitmap.
+ * Bitmaps are stored in an array indexed by the
+ * dictionary code of their category, so that a query
+ * category only needs to be resolved to its code once.
+ * A map from category to code is kept for resolving.
+ *
+ * A run length encoded column is indexed one run at a
+ * time, so building the index is proportional to the
+ * number of runs rather than rows.
+ *
+ * The index can be extended with the elements appended
+ * to its column since it was built. Bitmaps are copied
+ * on write: a {@link #snapshot()} shares every bitmap,
+ * and a shared bitmap is cloned before it is extended,
+ * so a snapshot never changes.
  *
  ********************************************************/
 public class CategoricalColumnIndex<T> {
 
-  private Map<T, BitSet> bitmapIndex;
+  private List<T> categories;
+  private Map<T, Integer> codeLookup;
+  private RoaringBitmap[] bitmaps;
+  private boolean[] shared;
+  private int firstPosition;
+  private int valueCount;
 
   /**
    * Instantiates a new CategoricalColumnIndex.
    */
   public CategoricalColumnIndex() {
-    bitmapIndex = new HashMap<>();
+    categories = new ArrayList<>();
+    codeLookup = new HashMap<>();
+    bitmaps = new RoaringBitmap[0];
+    shared = new boolean[0];
+    firstPosition = 0;
+    valueCount = 0;
+  }
+
+  /*
+   * Instantiates a CategoricalColumnIndex sharing every bitmap of another index.
+   */
+  private CategoricalColumnIndex(CategoricalColumnIndex<T> other) {
+    categories = new ArrayList<>(other.categories);
+    codeLookup = new HashMap<>(other.codeLookup);
+    bitmaps = other.bitmaps.clone();
+    shared = new boolean[bitmaps.length];
+    Arrays.fill(shared, true);
+    firstPosition = other.firstPosition;
+    valueCount = other.valueCount;
   }
 
   /**
@@ -31,30 +70,145 @@ public class CategoricalColumnIndex<T> {
    * @param categoricalColumnVector the categorical column vector
    */
   public void constructBitmapIndex(CategoricalColumnVector<T> categoricalColumnVector) {
-    // Add empty bitmaps for each category into the map first.
-    for (T categories : categoricalColumnVector.getCategories()) {
-      bitmapIndex.put(categories, new BitSet());
+    constructBitmapIndex(categoricalColumnVector, 0);
+  }
+
+  /**
+   * Create multiple new bitmaps with each representing different categories, in which the
+   * element at index i of categoricalColumnVector is the row at position firstPosition + i. This
+   * indexes rows appended to the end of a column.
+   *
+   * @param categoricalColumnVector the categorical column vector
+   * @param firstPosition           the position of the first element
+   */
+  public void constructBitmapIndex(CategoricalColumnVector<T> categoricalColumnVector,
+      int firstPosition) {
+    categories = new ArrayList<>();
+    codeLookup = new HashMap<>();
+    bitmaps = new RoaringBitmap[0];
+    shared = new boolean[0];
+    this.firstPosition = firstPosition;
+    valueCount = 0;
+    extendBitmapIndex(categoricalColumnVector);
+
+    // Pick the smallest container for each chunk once the bitmaps are complete.
+    for (RoaringBitmap bitmap : bitmaps) {
+      bitmap.runOptimize();
     }
+  }
+
+  /**
+   * Set the positions of the elements appended to categoricalColumnVector since the index was
+   * built or last extended in the bitmaps of their categories, adding bitmaps for new categories.
+   *
+   * @param categoricalColumnVector the categorical column vector the index was built from
+   */
+  public void extendBitmapIndex(CategoricalColumnVector<T> categoricalColumnVector) {
+    List<T> vectorCategories = categoricalColumnVector.getCategories();
+    if (vectorCategories.size() > categories.size()) {
+      bitmaps = Arrays.copyOf(bitmaps, vectorCategories.size());
+      shared = Arrays.copyOf(shared, vectorCategories.size());
 
-    /*
-     * Iterate over the elements in categoricalColumnVector and flip bit representing index of
-     * element in bitmap to true.The bitmap modified is the one that corresponds to category of
-     * element.
-     */
-    for (int i = 0; i < categoricalColumnVector.getValueCount(); i++) {
-      if (categoricalColumnVector.isNull(i)) {
-        continue;
+      // Add empty bitmaps for each new category code first.
+      for (int code = categories.size(); code < vectorCategories.size(); code++) {
+        categories.add(vectorCategories.get(code));
+        codeLookup.put(vectorCategories.get(code), code);
+        bitmaps[code] = new RoaringBitmap();
+      }
+    }
+
+    int fromIndex = valueCount;
+    int toIndex = categoricalColumnVector.getValueCount();
+    if (fromIndex >= toIndex) {
+      return;
+    }
+
+    if (categoricalColumnVector.isRunLengthEncoded()) {
+      // Set the positions of every run as one range in the bitmap of the code of the run.
+      for (int run = categoricalColumnVector.findRun(fromIndex);
+          run < categoricalColumnVector.getRunCount(); run++) {
+        int code = categoricalColumnVector.getRunCode(run);
+        if (code >= 0) {
+          int start = Math.max(fromIndex, categoricalColumnVector.getRunStart(run));
+          getWritableBitmap(code).set(firstPosition + start,
+              firstPosition + categoricalColumnVector.getRunEnd(run));
+        }
+      }
+    } else {
+      /*
+       * Iterate over the codes in categoricalColumnVector and flip bit representing index of
+       * element in bitmap to true. The bitmap modified is the one that corresponds to code of
+       * element.
+       */
+      for (int i = fromIndex; i < toIndex; i++) {
+        if (categoricalColumnVector.isNull(i)) {
+          continue;
+        }
+        getWritableBitmap(categoricalColumnVector.getCode(i)).set(firstPosition + i);
       }
-      bitmapIndex.get(categoricalColumnVector.get(i)).set(i);
     }
+    valueCount = toIndex;
   }
 
   /**
-   * Gets the bitmap map.
+   * Gets a snapshot of the index, which shares its bitmaps and is left unchanged when the index
+   * is extended afterwards. Bitmaps extended since the previous snapshot are optimised first.
+   *
+   * @return the snapshot
+   */
+  public CategoricalColumnIndex<T> snapshot() {
+    for (int code = 0; code < bitmaps.length; code++) {
+      if (!shared[code]) {
+        bitmaps[code].runOptimize();
+        shared[code] = true;
+      }
+    }
+    return new CategoricalColumnIndex<>(this);
+  }
+
+  /**
+   * Gets the code of a category.
+   *
+   * @param category the category
+   * @return the code, or -1 if category is not present in the index
+   */
+  public int getCodeForCategory(T category) {
+    Integer code = codeLookup.get(category);
+    return code == null ? -1 : code;
+  }
+
+  /**
+   * Gets the bitmap of the category with the code.
+   *
+   * @param code the code
+   * @return the bitmap for code
+   */
+  public RoaringBitmap getBitmapForCode(int code) {
+    return bitmaps[code];
+  }
+
+  /**
+   * Gets the bitmap map, with a key category uniquely identifying a bitmap.
    *
    * @return the bitmap index
    */
-  public Map<T, BitSet> getBitmapIndex() {
+  public Map<T, RoaringBitmap> getBitmapIndex() {
+    Map<T, RoaringBitmap> bitmapIndex = new LinkedHashMap<>();
+    for (int code = 0; code < categories.size(); code++) {
+      bitmapIndex.put(categories.get(code), bitmaps[code]);
+    }
     return bitmapIndex;
   }
+
+  /*
+   * Gets the bitmap of the category with the code for modification, cloning it first if it is
+   * shared with a snapshot.
+   */
+  private RoaringBitmap getWritableBitmap(int code) {
+    if (shared[code]) {
+      bitmaps[code] = bitmaps[code].clone();
+      shared[code] = false;
+    }
+    return bitmaps[code];
+  }
 }
@@ -0,0 +1,301 @@
+package com.ntu.bdm.index;
+
+import com.ntu.bdm.bitmap.RoaringBitmap;
+import com.ntu.bdm.vector.DoubleColumn;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/********************************************************
+ * RangeColumnIndex is a {@link RangeIndex} held in main
+ * memory over a column of primitive doubles. It is a
+ * sorted permutation of the column: the non-null values
+ * sorted in increasing order, together with the position
+ * of the row holding each of them. Rows holding equal
+ * values keep their position order.
+ *
+ * The rows within a range are found by two binary
+ * searches for its bounds, and are the positions between
+ * the two.
+ *
+ * The serialised form is little endian: the MAGIC, the
+ * number of values, the fence interval, then the fence
+ * table holding every FENCE_INTERVAL-th value, the
+ * sorted values and their positions. The fence table is
+ * small enough to be kept in memory by a
+ * {@link RangeIndexFile}, which then only reads the
+ * blocks of values and positions a lookup needs.
+ *
+ ********************************************************/
+public class RangeColumnIndex implements RangeIndex {
+
+  /**
+   * The magic number written at the start of a serialised RangeColumnIndex.
+   */
+  public static final int MAGIC = 0x524E4749;
+
+  /**
+   * The number of values between two consecutive entries of the fence table.
+   */
+  public static final int FENCE_INTERVAL = 512;
+
+  /**
+   * The size in bytes of the header of a serialised RangeColumnIndex.
+   */
+  static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+  private double[] values;
+  private int[] positions;
+
+  /**
+   * Instantiates a new empty RangeColumnIndex.
+   */
+  public RangeColumnIndex() {
+    values = new double[0];
+    positions = new int[0];
+  }
+
+  /**
+   * Create the sorted permutation of the non-null values of doubleColumn.
+   *
+   * @param doubleColumn the double column
+   */
+  public void constructRangeIndex(DoubleColumn doubleColumn) {
+    constructRangeIndex(doubleColumn, 0);
+  }
+
+  /**
+   * Create the sorted permutation of the non-null values of doubleColumn, in which the value at
+   * index i of doubleColumn is the row at position firstPosition + i. This indexes rows appended
+   * to the end of a column.
+   *
+   * @param doubleColumn  the double column
+   * @param firstPosition the position of the first value
+   */
+  public void constructRangeIndex(DoubleColumn doubleColumn, int firstPosition) {
+    int valueCount = doubleColumn.getValueCount() - doubleColumn.getNullCount();
+    values = new double[valueCount];
+    positions = new int[valueCount];
+
+    int size = 0;
+    for (int position = 0; position < doubleColumn.getValueCount(); position++) {
+      if (!doubleColumn.isNull(position)) {
+        values[size] = doubleColumn.get(position);
+        positions[size] = firstPosition + position;
+        size++;
+      }
+    }
+    sort(values, positions);
+  }
+
+  @Override
+  public int getValueCount() {
+    return values.length;
+  }
+
+  @Override
+  public int getCount(double lowerBound, double upperBound) {
+    int from = findFirst(values, 0, values.length, lowerBound, false);
+    int to = findFirst(values, from, values.length, upperBound, true);
+    return to - from;
+  }
+
+  @Override
+  public RoaringBitmap getBitmap(double lowerBound, double upperBound) {
+    int from = findFirst(values, 0, values.length, lowerBound, false);
+    int to = findFirst(values, from, values.length, upperBound, true);
+    return toBitmap(Arrays.copyOfRange(positions, from, to));
+  }
+
+  /**
+   * Serialise RangeColumnIndex into bytes.
+   *
+   * @return the bytes
+   */
+  public byte[] serialise() {
+    int valueCount = values.length;
+    int fenceCount = getFenceCount(valueCount);
+    ByteBuffer buffer = ByteBuffer.allocate(
+            HEADER_SIZE + (fenceCount + valueCount) * Double.BYTES + valueCount * Integer.BYTES)
+        .order(ByteOrder.LITTLE_ENDIAN);
+
+    buffer.putInt(MAGIC);
+    buffer.putInt(valueCount);
+    buffer.putInt(FENCE_INTERVAL);
+    for (int fence = 0; fence < fenceCount; fence++) {
+      buffer.putDouble(values[fence * FENCE_INTERVAL]);
+    }
+    for (double value : values) {
+      buffer.putDouble(value);
+    }
+    for (int position : positions) {
+      buffer.putInt(position);
+    }
+    return buffer.array();
+  }
+
+  /**
+   * Deserialise bytes into a RangeColumnIndex.
+   *
+   * @param bytes the bytes
+   * @return the range column index
+   */
+  public static RangeColumnIndex deserialise(byte[] bytes) {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    if (buffer.getInt() != MAGIC) {
+      throw new IllegalStateException("Not a serialised range index");
+    }
+    int valueCount = buffer.getInt();
+    buffer.getInt();
+
+    RangeColumnIndex rangeColumnIndex = new RangeColumnIndex();
+    rangeColumnIndex.values = new double[valueCount];
+    rangeColumnIndex.positions = new int[valueCount];
+    buffer.position(buffer.position() + getFenceCount(valueCount) * Double.BYTES);
+    buffer.asDoubleBuffer().get(rangeColumnIndex.values);
+    buffer.position(buffer.position() + valueCount * Double.BYTES);
+    buffer.asIntBuffer().get(rangeColumnIndex.positions);
+    return rangeColumnIndex;
+  }
+
+  /**
+   * Merge two RangeColumnIndexes into a new one, in time proportional to their total number of
+   * values. The rows of newer must all follow the rows of older, so that rows holding equal
+   * values keep their position order.
+   *
+   * @param older the range column index of the earlier rows
+   * @param newer the range column index of the later rows
+   * @return the merged range column index
+   */
+  public static RangeColumnIndex merge(RangeColumnIndex older, RangeColumnIndex newer) {
+    int valueCount = older.values.length + newer.values.length;
+    RangeColumnIndex merged = new RangeColumnIndex();
+    merged.values = new double[valueCount];
+    merged.positions = new int[valueCount];
+
+    int i = 0;
+    int j = 0;
+    for (int k = 0; k < valueCount; k++) {
+      if (j == newer.values.length
+          || i < older.values.length && !(newer.values[j] < older.values[i])) {
+        merged.values[k] = older.values[i];
+        merged.positions[k] = older.positions[i++];
+      } else {
+        merged.values[k] = newer.values[j];
+        merged.positions[k] = newer.positions[j++];
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * Gets the number of entries of the fence table of valueCount values.
+   *
+   * @param valueCount the value count
+   * @return the fence count
+   */
+  static int getFenceCount(int valueCount) {
+    return (valueCount + FENCE_INTERVAL - 1) / FENCE_INTERVAL;
+  }
+
+  /**
+   * Gets the index of the first of the sorted values from fromIndex inclusive to toIndex exclusive
+   * which is at least bound, or greater than bound if strict.
+   *
+   * @param values    the sorted values
+   * @param fromIndex the from index
+   * @param toIndex   the to index
+   * @param bound     the bound
+   * @param strict    whether the value must be greater than bound
+   * @return the index, or toIndex if there is no such value
+   */
+  static int findFirst(double[] values, int fromIndex, int toIndex, double bound,
+      boolean strict) {
+    int low = fromIndex;
+    int high = toIndex;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (strict ? values[middle] > bound : values[middle] >= bound) {
+        high = middle;
+      } else {
+        low = middle + 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Gets a new bitmap with the bits of positions set. Positions are sorted first, so that runs of
+   * consecutive positions are set as ranges.
+   *
+   * @param positions the positions, which are reordered
+   * @return the bitmap
+   */
+  static RoaringBitmap toBitmap(int[] positions) {
+    Arrays.sort(positions);
+
+    RoaringBitmap bitmap = new RoaringBitmap();
+    int i = 0;
+    while (i < positions.length) {
+      int start = i;
+      while (i + 1 < positions.length && positions[i + 1] == positions[i] + 1) {
+        i++;
+      }
+      if (i > start) {
+        bitmap.set(positions[start], positions[i] + 1);
+      } else {
+        bitmap.set(positions[start]);
+      }
+      i++;
+    }
+    return bitmap;
+  }
+
+  /*
+   * Sorts values in increasing order with a stable bottom up merge sort, moving the position of
+   * every value along with it.
+   */
+  private static void sort(double[] values, int[] positions) {
+    int length = values.length;
+    double[] sourceValues = values;
+    int[] sourcePositions = positions;
+    double[] targetValues = new double[length];
+    int[] targetPositions = new int[length];
+
+    for (int width = 1; width < length; width *= 2) {
+      for (int start = 0; start < length; start += 2 * width) {
+        int middle = Math.min(start + width, length);
+        int end = Math.min(start + 2 * width, length);
+        int i = start;
+        int j = middle;
+        int k = start;
+        while (i < middle && j < end) {
+          if (sourceValues[j] < sourceValues[i]) {
+            targetValues[k] = sourceValues[j];
+            targetPositions[k++] = sourcePositions[j++];
+          } else {
+            targetValues[k] = sourceValues[i];
+            targetPositions[k++] = sourcePositions[i++];
+          }
+        }
+        System.arraycopy(sourceValues, i, targetValues, k, middle - i);
+        System.arraycopy(sourcePositions, i, targetPositions, k, middle - i);
+        k += middle - i;
+        System.arraycopy(sourceValues, j, targetValues, k, end - j);
+        System.arraycopy(sourcePositions, j, targetPositions, k, end - j);
+      }
+
+      double[] swapValues = sourceValues;
+      sourceValues = targetValues;
+      targetValues = swapValues;
+      int[] swapPositions = sourcePositions;
+      sourcePositions = targetPositions;
+      targetPositions = swapPositions;
+    }
+
+    if (sourceValues != values) {
+      System.arraycopy(sourceValues, 0, values, 0, length);
+      System.arraycopy(sourcePositions, 0, positions, 0, length);
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package com.ntu.bdm.index;
+
+import com.ntu.bdm.bitmap.RoaringBitmap;
+
+/********************************************************
+ * RangeIndex is the interface of the indexes over a
+ * numeric column which find the rows whose value lies
+ * within an inclusive range without scanning the column.
+ * Lookups take logarithmic time in the number of values,
+ * plus time proportional to the number of rows found.
+ *
+ * Rows whose value is null are not indexed, so they are
+ * never found.
+ *
+ ********************************************************/
+public interface RangeIndex {
+
+  /**
+   * Gets the number of values indexed.
+   *
+   * @return the value count
+   */
+  int getValueCount();
+
+  /**
+   * Gets the number of rows whose value lies between lowerBound and upperBound, both inclusive.
+   *
+   * @param lowerBound the lower bound, or negative infinity
+   * @param upperBound the upper bound, or positive infinity
+   * @return the count
+   */
+  int getCount(double lowerBound, double upperBound);
+
+  /**
+   * Gets a new bitmap of the rows whose value lies between lowerBound and upperBound, both
+   * inclusive, which can be combined with the bitmaps of other indexes.
+   *
+   * @param lowerBound the lower bound, or negative infinity
+   * @param upperBound the upper bound, or positive infinity
+   * @return the bitmap
+   */
+  RoaringBitmap getBitmap(double lowerBound, double upperBound);
+}
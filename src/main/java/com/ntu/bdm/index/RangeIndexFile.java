@@ -0,0 +1,114 @@
+package com.ntu.bdm.index;
+
+import com.ntu.bdm.bitmap.RoaringBitmap;
+import com.ntu.bdm.util.ColumnFileUtil;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/********************************************************
+ * RangeIndexFile is a {@link RangeIndex} read from a
+ * file holding a serialised {@link RangeColumnIndex}.
+ *
+ * Only the header and the fence table are read when the
+ * file is opened. A bound is first located between two
+ * fences by a binary search in memory, and then within
+ * the single block of FENCE_INTERVAL values between
+ * them, which is read from the file. Finding the rows of
+ * a range thus reads two blocks of values and the
+ * positions of the rows found.
+ *
+ ********************************************************/
+public class RangeIndexFile implements RangeIndex {
+
+  private final String filePath;
+  private final int valueCount;
+  private final int fenceInterval;
+  private final double[] fences;
+  private final long valuesOffset;
+  private final long positionsOffset;
+
+  /**
+   * Instantiates a new RangeIndexFile, reading the header and the fence table of the file.
+   *
+   * @param filePath the file path
+   */
+  public RangeIndexFile(String filePath) {
+    this.filePath = filePath;
+    try (FileChannel channel = openChannel()) {
+      ByteBuffer header = ColumnFileUtil.readSection(channel, 0, RangeColumnIndex.HEADER_SIZE);
+      if (header.getInt() != RangeColumnIndex.MAGIC) {
+        throw new IllegalStateException("Not a range index file " + filePath);
+      }
+      valueCount = header.getInt();
+      fenceInterval = header.getInt();
+
+      int fenceCount = (valueCount + fenceInterval - 1) / fenceInterval;
+      fences = new double[fenceCount];
+      ColumnFileUtil.readSection(channel, RangeColumnIndex.HEADER_SIZE, fenceCount * Double.BYTES)
+          .asDoubleBuffer().get(fences);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read range index file " + filePath, e);
+    }
+    valuesOffset = RangeColumnIndex.HEADER_SIZE + (long) fences.length * Double.BYTES;
+    positionsOffset = valuesOffset + (long) valueCount * Double.BYTES;
+  }
+
+  @Override
+  public int getValueCount() {
+    return valueCount;
+  }
+
+  @Override
+  public int getCount(double lowerBound, double upperBound) {
+    try (FileChannel channel = openChannel()) {
+      int from = findFirst(channel, lowerBound, false);
+      int to = Math.max(from, findFirst(channel, upperBound, true));
+      return to - from;
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read range index file " + filePath, e);
+    }
+  }
+
+  @Override
+  public RoaringBitmap getBitmap(double lowerBound, double upperBound) {
+    try (FileChannel channel = openChannel()) {
+      int from = findFirst(channel, lowerBound, false);
+      int to = Math.max(from, findFirst(channel, upperBound, true));
+
+      int[] positions = new int[to - from];
+      ColumnFileUtil.readSection(channel, positionsOffset + (long) from * Integer.BYTES,
+          positions.length * Integer.BYTES).asIntBuffer().get(positions);
+      return RangeColumnIndex.toBitmap(positions);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read range index file " + filePath, e);
+    }
+  }
+
+  /*
+   * Gets the index of the first sorted value which is at least bound, or greater than bound if
+   * strict, or valueCount if there is none. The fence following the block holding the index is
+   * the first fence satisfying the bound, so only the block before it is read.
+   */
+  private int findFirst(FileChannel channel, double bound, boolean strict) {
+    int fence = RangeColumnIndex.findFirst(fences, 0, fences.length, bound, strict);
+    if (fence == 0) {
+      return 0;
+    }
+
+    int blockStart = (fence - 1) * fenceInterval;
+    double[] block = new double[Math.min(fenceInterval, valueCount - blockStart)];
+    ColumnFileUtil.readSection(channel, valuesOffset + (long) blockStart * Double.BYTES,
+        block.length * Double.BYTES).asDoubleBuffer().get(block);
+    return blockStart + RangeColumnIndex.findFirst(block, 0, block.length, bound, strict);
+  }
+
+  /*
+   * Opens a read channel to the file.
+   */
+  private FileChannel openChannel() throws IOException {
+    return FileChannel.open(Path.of(filePath), StandardOpenOption.READ);
+  }
+}
@@ -0,0 +1,55 @@
+package com.ntu.bdm.index;
+
+import com.ntu.bdm.bitmap.RoaringBitmap;
+import java.util.ArrayList;
+import java.util.List;
+
+/********************************************************
+ * SegmentedRangeIndex is a {@link RangeIndex} made up of
+ * the range indexes of consecutive segments of a column,
+ * such as the segments written by successive appends to
+ * a disk database. Every segment indexes different rows,
+ * so counts are summed over the segments and bitmaps are
+ * combined with a bitwise OR.
+ *
+ ********************************************************/
+public class SegmentedRangeIndex implements RangeIndex {
+
+  private final List<RangeIndex> segments;
+
+  /**
+   * Instantiates a new SegmentedRangeIndex over the range indexes of the segments.
+   *
+   * @param segments the range indexes of the segments
+   */
+  public SegmentedRangeIndex(List<? extends RangeIndex> segments) {
+    this.segments = new ArrayList<>(segments);
+  }
+
+  @Override
+  public int getValueCount() {
+    int valueCount = 0;
+    for (RangeIndex segment : segments) {
+      valueCount += segment.getValueCount();
+    }
+    return valueCount;
+  }
+
+  @Override
+  public int getCount(double lowerBound, double upperBound) {
+    int count = 0;
+    for (RangeIndex segment : segments) {
+      count += segment.getCount(lowerBound, upperBound);
+    }
+    return count;
+  }
+
+  @Override
+  public RoaringBitmap getBitmap(double lowerBound, double upperBound) {
+    RoaringBitmap bitmap = new RoaringBitmap();
+    for (RangeIndex segment : segments) {
+      bitmap.or(segment.getBitmap(lowerBound, upperBound));
+    }
+    return bitmap;
+  }
+}
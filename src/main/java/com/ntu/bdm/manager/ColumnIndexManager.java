@@ -1,33 +1,69 @@
 package com.ntu.bdm.manager;
 
+import com.ntu.bdm.aggregate.MinMaxGroup;
+import com.ntu.bdm.bitmap.IntList;
+import com.ntu.bdm.bitmap.RoaringBitmap;
+import com.ntu.bdm.index.BitSlicedIndex;
 import com.ntu.bdm.index.CategoricalColumnIndex;
+import com.ntu.bdm.index.RangeColumnIndex;
 import com.ntu.bdm.vector.CategoricalColumnVector;
+import com.ntu.bdm.vector.DoubleColumn;
 import java.util.ArrayList;
-import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /********************************************************
  * ColumnIndexManager is a controller class that is
- * responsible for managing {@link CategoricalColumnIndex}.
- * It exposes public methods that clients use to interact
- * with the CategoricalColumnIndex class.
+ * responsible for managing {@link CategoricalColumnIndex},
+ * {@link RangeColumnIndex} and {@link BitSlicedIndex}. It
+ * exposes public methods that clients use to interact
+ * with these classes.
  *
  * It has a map that contain CategoricalColumnIndex
- * objects. The map uses a key fieldName to uniquely
- * identify an object.
+ * objects, a map that contain RangeColumnIndex objects
+ * and a map that contain BitSlicedIndex objects. The maps
+ * use a key fieldName to uniquely identify an object.
+ *
+ * The maps are not synchronized, so a ColumnIndexManager
+ * is only used by one thread at a time. Other threads
+ * read a {@link #snapshot(int)} instead, whose maps are
+ * immutable.
  *
  ********************************************************/
 public class ColumnIndexManager {
 
   private Map<String, CategoricalColumnIndex<String>> categoricalColumnIndexes;
+  private Map<String, RangeColumnIndex> rangeColumnIndexes;
+  private Map<String, Integer> rangeColumnIndexRowCounts;
+  private Map<String, BitSlicedIndex> bitSlicedIndexes;
+  private Map<String, Integer> bitSlicedIndexRowCounts;
 
   /**
    * Instantiates a new ColumnIndexManager.
    */
   public ColumnIndexManager() {
     categoricalColumnIndexes = new HashMap<>();
+    rangeColumnIndexes = new HashMap<>();
+    rangeColumnIndexRowCounts = new HashMap<>();
+    bitSlicedIndexes = new HashMap<>();
+    bitSlicedIndexRowCounts = new HashMap<>();
+  }
+
+  /*
+   * Instantiates a read-only ColumnIndexManager holding the given indexes.
+   */
+  private ColumnIndexManager(Map<String, CategoricalColumnIndex<String>> categoricalColumnIndexes,
+      Map<String, RangeColumnIndex> rangeColumnIndexes,
+      Map<String, Integer> rangeColumnIndexRowCounts,
+      Map<String, BitSlicedIndex> bitSlicedIndexes,
+      Map<String, Integer> bitSlicedIndexRowCounts) {
+    this.categoricalColumnIndexes = Collections.unmodifiableMap(categoricalColumnIndexes);
+    this.rangeColumnIndexes = Collections.unmodifiableMap(rangeColumnIndexes);
+    this.rangeColumnIndexRowCounts = Collections.unmodifiableMap(rangeColumnIndexRowCounts);
+    this.bitSlicedIndexes = Collections.unmodifiableMap(bitSlicedIndexes);
+    this.bitSlicedIndexRowCounts = Collections.unmodifiableMap(bitSlicedIndexRowCounts);
   }
 
   /**
@@ -38,8 +74,22 @@ public class ColumnIndexManager {
    */
   public void constructCategoricalColumnIndex(String fieldName,
       CategoricalColumnVector<String> categoricalColumnVector) {
+    constructCategoricalColumnIndex(fieldName, categoricalColumnVector, 0);
+  }
+
+  /**
+   * Create a new CategoricalColumnIndex with the fieldName, whose first element is the row at
+   * firstPosition.
+   *
+   * @param fieldName               the field name
+   * @param categoricalColumnVector the categorical column vector
+   * @param firstPosition           the position of the first element
+   */
+  public void constructCategoricalColumnIndex(String fieldName,
+      CategoricalColumnVector<String> categoricalColumnVector, int firstPosition) {
     categoricalColumnIndexes.put(fieldName, new CategoricalColumnIndex<>());
-    categoricalColumnIndexes.get(fieldName).constructBitmapIndex(categoricalColumnVector);
+    categoricalColumnIndexes.get(fieldName).constructBitmapIndex(categoricalColumnVector,
+        firstPosition);
   }
 
   /**
@@ -49,65 +99,158 @@ public class ColumnIndexManager {
    */
   public void constructCategoricalColumnIndexes(
       Map<String, CategoricalColumnVector<String>> categoricalColumnVectors) {
+    constructCategoricalColumnIndexes(categoricalColumnVectors, 0);
+  }
+
+  /**
+   * Create multiple new CategoricalColumnIndexes with each having different fieldNames, whose
+   * first elements are the row at firstPosition.
+   *
+   * @param categoricalColumnVectors the categorical column vectors
+   * @param firstPosition            the position of the first elements
+   */
+  public void constructCategoricalColumnIndexes(
+      Map<String, CategoricalColumnVector<String>> categoricalColumnVectors, int firstPosition) {
     for (Map.Entry<String, CategoricalColumnVector<String>> entry : categoricalColumnVectors.entrySet()) {
       String fieldName = entry.getKey();
       CategoricalColumnVector<String> categoricalColumnVector = entry.getValue();
-      constructCategoricalColumnIndex(fieldName, categoricalColumnVector);
+      constructCategoricalColumnIndex(fieldName, categoricalColumnVector, firstPosition);
+    }
+  }
+
+  /**
+   * Extend every CategoricalColumnIndex with the elements appended to its column since it was
+   * constructed or last extended. Fields without a CategoricalColumnIndex are left unindexed.
+   *
+   * @param categoricalColumnVectors the categorical column vectors the indexes were built from
+   */
+  public void extendCategoricalColumnIndexes(
+      Map<String, CategoricalColumnVector<String>> categoricalColumnVectors) {
+    for (Map.Entry<String, CategoricalColumnIndex<String>> entry : categoricalColumnIndexes.entrySet()) {
+      CategoricalColumnVector<String> categoricalColumnVector =
+          categoricalColumnVectors.get(entry.getKey());
+      if (categoricalColumnVector != null) {
+        entry.getValue().extendBitmapIndex(categoricalColumnVector);
+      }
     }
   }
 
+  /**
+   * Gets a read-only snapshot of the indexes of a table with rowCount rows. Bitmaps are shared
+   * with the snapshot until they are next extended, see {@link CategoricalColumnIndex#snapshot()}.
+   * A RangeColumnIndex or BitSlicedIndex is immutable, but only kept in the snapshot if it was
+   * constructed over exactly rowCount rows, as it would otherwise miss rows or hold rows beyond
+   * the snapshot.
+   *
+   * @param rowCount the row count of the table
+   * @return the snapshot
+   */
+  public ColumnIndexManager snapshot(int rowCount) {
+    Map<String, CategoricalColumnIndex<String>> categoricalColumnIndexSnapshots = new HashMap<>();
+    for (Map.Entry<String, CategoricalColumnIndex<String>> entry : categoricalColumnIndexes.entrySet()) {
+      categoricalColumnIndexSnapshots.put(entry.getKey(), entry.getValue().snapshot());
+    }
+
+    Map<String, RangeColumnIndex> rangeColumnIndexSnapshots = new HashMap<>();
+    Map<String, Integer> rangeColumnIndexRowCountSnapshots = new HashMap<>();
+    for (Map.Entry<String, RangeColumnIndex> entry : rangeColumnIndexes.entrySet()) {
+      Integer rangeColumnIndexRowCount = rangeColumnIndexRowCounts.get(entry.getKey());
+      if (rangeColumnIndexRowCount != null && rangeColumnIndexRowCount == rowCount) {
+        rangeColumnIndexSnapshots.put(entry.getKey(), entry.getValue());
+        rangeColumnIndexRowCountSnapshots.put(entry.getKey(), rowCount);
+      }
+    }
+
+    Map<String, BitSlicedIndex> bitSlicedIndexSnapshots = new HashMap<>();
+    Map<String, Integer> bitSlicedIndexRowCountSnapshots = new HashMap<>();
+    for (Map.Entry<String, BitSlicedIndex> entry : bitSlicedIndexes.entrySet()) {
+      Integer bitSlicedIndexRowCount = bitSlicedIndexRowCounts.get(entry.getKey());
+      if (bitSlicedIndexRowCount != null && bitSlicedIndexRowCount == rowCount) {
+        bitSlicedIndexSnapshots.put(entry.getKey(), entry.getValue());
+        bitSlicedIndexRowCountSnapshots.put(entry.getKey(), rowCount);
+      }
+    }
+
+    return new ColumnIndexManager(categoricalColumnIndexSnapshots, rangeColumnIndexSnapshots,
+        rangeColumnIndexRowCountSnapshots, bitSlicedIndexSnapshots,
+        bitSlicedIndexRowCountSnapshots);
+  }
+
   /**
    * Gets bitmap corresponding to category from CategoricalColumnIndex with the fieldName.
    *
    * @param fieldName the field name
    * @param category  the category
-   * @return the bitmap for field with category
+   * @return the bitmap for field with category, or null if category is not present
    */
-  public BitSet getBitmapForFieldWithCategory(String fieldName, String category) {
-    return categoricalColumnIndexes.get(fieldName).getBitmapIndex().get(category);
+  public RoaringBitmap getBitmapForFieldWithCategory(String fieldName, String category) {
+    int code = getCodeForFieldWithCategory(fieldName, category);
+    return code < 0 ? null : getBitmapForFieldWithCode(fieldName, code);
   }
 
   /**
-   * Gets positionList which contains valid indexes. Valid indexes refer to indexes of rows that
-   * satisfy all query parameters.
+   * Gets code of category from CategoricalColumnIndex with the fieldName.
+   *
+   * @param fieldName the field name
+   * @param category  the category
+   * @return the code for field with category, or -1 if category is not present
+   */
+  public int getCodeForFieldWithCategory(String fieldName, String category) {
+    return categoricalColumnIndexes.get(fieldName).getCodeForCategory(category);
+  }
+
+  /**
+   * Gets bitmap corresponding to code from CategoricalColumnIndex with the fieldName.
+   *
+   * @param fieldName the field name
+   * @param code      the code
+   * @return the bitmap for field with code
+   */
+  public RoaringBitmap getBitmapForFieldWithCode(String fieldName, int code) {
+    return categoricalColumnIndexes.get(fieldName).getBitmapForCode(code);
+  }
+
+  /**
+   * Gets positionList which contains valid indexes in increasing order. Valid indexes refer to
+   * indexes of rows that satisfy all query parameters.
    *
    * @param queryParams the query params
    * @return the position list matching query params
    */
-  public List<Integer> getPositionListMatchingQueryParams(Map<String, String> queryParams) {
-    BitSet resultBitmap = null;
-    List<Integer> positionList = new ArrayList<>();
+  public IntList getPositionListMatchingQueryParams(Map<String, String> queryParams) {
+    return getBitmapMatchingQueryParams(queryParams).toIntList();
+  }
+
+  /**
+   * Gets bitmap whose set bits are valid indexes. Valid indexes refer to indexes of rows that
+   * satisfy all query parameters.
+   *
+   * @param queryParams the query params
+   * @return the bitmap matching query params
+   */
+  public RoaringBitmap getBitmapMatchingQueryParams(Map<String, String> queryParams) {
+    List<RoaringBitmap> bitmaps = new ArrayList<>();
 
     for (Map.Entry<String, String> entry : queryParams.entrySet()) {
       String fieldName = entry.getKey();
       String category = entry.getValue();
-      BitSet bitmap = getBitmapForFieldWithCategory(fieldName, category);
 
       /*
-       * Check if there exists a bitmap corresponding to category from CategoricalColumnIndex with
-       * the fieldName
+       * Resolve category to its code once, and check if there exists a bitmap corresponding to
+       * category from CategoricalColumnIndex with the fieldName
        */
-      if (bitmap == null) {
-        return positionList;
+      int code = getCodeForFieldWithCategory(fieldName, category);
+      if (code < 0) {
+        return new RoaringBitmap();
       }
-
-      /*
-       * The following computes the bitwise AND between the bitmaps retrieved to obtain the bitmap
-       * representing rows satisfying all query parameters
-       */
-      if (resultBitmap == null) {
-        resultBitmap = (BitSet) bitmap.clone();
-      } else {
-        resultBitmap.and(bitmap);
-      }
-    }
-
-    // To iterate over the true bits in a bitmap, use the following loop
-    for (int i = resultBitmap.nextSetBit(0); i >= 0; i = resultBitmap.nextSetBit(i + 1)) {
-      positionList.add(i);
+      bitmaps.add(getBitmapForFieldWithCode(fieldName, code));
     }
 
-    return positionList;
+    /*
+     * The following computes the bitwise AND between the bitmaps retrieved to obtain the bitmap
+     * representing rows satisfying all query parameters, starting from the most selective bitmap
+     */
+    return RoaringBitmap.intersect(bitmaps);
   }
 
   /**
@@ -120,14 +263,95 @@ public class ColumnIndexManager {
     Map<String, byte[]> serialisedCategoricalColumnIndex = new HashMap<>();
 
     CategoricalColumnIndex<String> categoricalColumnIndex = categoricalColumnIndexes.get(fieldName);
-    Map<String, BitSet> bitmapIndex = categoricalColumnIndex.getBitmapIndex();
+    Map<String, RoaringBitmap> bitmapIndex = categoricalColumnIndex.getBitmapIndex();
 
-    for (Map.Entry<String, BitSet> entry : bitmapIndex.entrySet()) {
+    for (Map.Entry<String, RoaringBitmap> entry : bitmapIndex.entrySet()) {
       String category = entry.getKey();
-      BitSet bitmap = entry.getValue();
+      RoaringBitmap bitmap = entry.getValue();
       serialisedCategoricalColumnIndex.put(category, bitmap.toByteArray());
     }
 
     return serialisedCategoricalColumnIndex;
   }
+
+  /**
+   * Create a new RangeColumnIndex with the fieldName.
+   *
+   * @param fieldName    the field name
+   * @param doubleColumn the double column
+   */
+  public void constructRangeColumnIndex(String fieldName, DoubleColumn doubleColumn) {
+    constructRangeColumnIndex(fieldName, doubleColumn, 0);
+  }
+
+  /**
+   * Create a new RangeColumnIndex with the fieldName, whose first value is the row at
+   * firstPosition.
+   *
+   * @param fieldName     the field name
+   * @param doubleColumn  the double column
+   * @param firstPosition the position of the first value
+   */
+  public void constructRangeColumnIndex(String fieldName, DoubleColumn doubleColumn,
+      int firstPosition) {
+    RangeColumnIndex rangeColumnIndex = new RangeColumnIndex();
+    rangeColumnIndex.constructRangeIndex(doubleColumn, firstPosition);
+    rangeColumnIndexes.put(fieldName, rangeColumnIndex);
+    rangeColumnIndexRowCounts.put(fieldName, firstPosition + doubleColumn.getValueCount());
+  }
+
+  /**
+   * Gets RangeColumnIndex with the fieldName.
+   *
+   * @param fieldName the field name
+   * @return the range column index, or null if the field has no range index
+   */
+  public RangeColumnIndex getRangeColumnIndex(String fieldName) {
+    return rangeColumnIndexes.get(fieldName);
+  }
+
+  /**
+   * Serialise RangeColumnIndex into bytes.
+   *
+   * @param fieldName the field name
+   * @return the bytes
+   */
+  public byte[] serialiseRangeColumnIndex(String fieldName) {
+    return rangeColumnIndexes.get(fieldName).serialise();
+  }
+
+  /**
+   * Create a new BitSlicedIndex with the fieldName.
+   *
+   * @param fieldName    the field name
+   * @param doubleColumn the double column
+   */
+  public void constructBitSlicedIndex(String fieldName, DoubleColumn doubleColumn) {
+    BitSlicedIndex bitSlicedIndex = new BitSlicedIndex();
+    bitSlicedIndex.constructBitSlicedIndex(doubleColumn);
+    bitSlicedIndexes.put(fieldName, bitSlicedIndex);
+    bitSlicedIndexRowCounts.put(fieldName, doubleColumn.getValueCount());
+  }
+
+  /**
+   * Gets BitSlicedIndex with the fieldName.
+   *
+   * @param fieldName the field name
+   * @return the bit-sliced index, or null if the field has no bit-sliced index
+   */
+  public BitSlicedIndex getBitSlicedIndex(String fieldName) {
+    return bitSlicedIndexes.get(fieldName);
+  }
+
+  /**
+   * Gets the minimum and maximum of the values of the rows in bitmap from BitSlicedIndex with the
+   * fieldName, e.g. of the bitmap given by {@link #getBitmapMatchingQueryParams(Map)}.
+   *
+   * @param fieldName the field name
+   * @param bitmap    the bitmap of the rows
+   * @return the min max
+   */
+  public MinMaxGroup getMinMaxForFieldFromBitmap(String fieldName, RoaringBitmap bitmap) {
+    return bitSlicedIndexes.get(fieldName).getMinMax(bitmap);
+  }
 }
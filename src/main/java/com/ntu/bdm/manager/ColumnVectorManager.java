@@ -1,38 +1,124 @@
 package com.ntu.bdm.manager;
 
+import com.ntu.bdm.aggregate.GroupedMinMaxAggregator;
+import com.ntu.bdm.aggregate.MinMaxGroup;
+import com.ntu.bdm.aggregate.ParallelMinMaxAggregator;
+import com.ntu.bdm.bitmap.IntList;
+import com.ntu.bdm.bitmap.RoaringBitmap;
+import com.ntu.bdm.memory.OffHeapMemory;
 import com.ntu.bdm.vector.CategoricalColumnVector;
 import com.ntu.bdm.vector.ColumnVector;
+import com.ntu.bdm.util.TimestampUtil;
+import com.ntu.bdm.vector.DoubleColumnVector;
+import com.ntu.bdm.vector.LongColumnVector;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /********************************************************
  * ColumnVectorManager is a controller class that is
- * responsible for managing {@link ColumnVector} and
- * {@link CategoricalColumnVector}. It exposes public
+ * responsible for managing {@link ColumnVector},
+ * {@link DoubleColumnVector}, {@link LongColumnVector}
+ * and {@link CategoricalColumnVector}. It exposes public
  * methods that clients use to interact with the
- * ColumnVector and CategoricalColumnVector class.
+ * ColumnVector, DoubleColumnVector, LongColumnVector and
+ * CategoricalColumnVector class.
  *
- * It has multiple maps that each contain ColumnVector
- * and CategoricalColumnVector objects storing data of
+ * It has multiple maps that each contain ColumnVector,
+ * DoubleColumnVector, LongColumnVector and
+ * CategoricalColumnVector objects storing data of
  * different types. Each map uses a key fieldName to
  * uniquely identify an object.
  *
+ * The maps and column vectors are not synchronized, so
+ * a ColumnVectorManager is only used by one thread at a
+ * time. Other threads read a {@link #snapshot()}
+ * instead, whose maps are immutable and whose column
+ * vectors are read-only snapshots.
+ *
+ * When given {@link OffHeapMemory}, it allocates the
+ * DoubleColumnVectors and LongColumnVectors there
+ * instead of on the heap.
+ *
  ********************************************************/
 public class ColumnVectorManager {
 
   private final Map<String, CategoricalColumnVector<String>> categoricalColumnVectors;
-  private final Map<String, ColumnVector<Double>> doubleColumnVectors;
+  private final Map<String, DoubleColumnVector> doubleColumnVectors;
+  private final Map<String, LongColumnVector> longColumnVectors;
   private final Map<String, ColumnVector<String>> stringColumnVectors;
+  private final OffHeapMemory offHeapMemory;
 
   /**
-   * Instantiates a new ColumnVectorManager.
+   * Instantiates a new ColumnVectorManager allocating column vectors on the heap.
    */
   public ColumnVectorManager() {
+    this(null);
+  }
+
+  /**
+   * Instantiates a new ColumnVectorManager allocating DoubleColumnVectors and LongColumnVectors
+   * from offHeapMemory, or on the heap if it is null. Reading the column vectors once
+   * offHeapMemory is closed throws an IllegalStateException.
+   *
+   * @param offHeapMemory the off-heap memory, or null
+   */
+  public ColumnVectorManager(OffHeapMemory offHeapMemory) {
     categoricalColumnVectors = new HashMap<>();
     doubleColumnVectors = new HashMap<>();
+    longColumnVectors = new HashMap<>();
     stringColumnVectors = new HashMap<>();
+    this.offHeapMemory = offHeapMemory;
+  }
+
+  /*
+   * Instantiates a read-only ColumnVectorManager holding the given column vectors.
+   */
+  private ColumnVectorManager(
+      Map<String, CategoricalColumnVector<String>> categoricalColumnVectors,
+      Map<String, DoubleColumnVector> doubleColumnVectors,
+      Map<String, LongColumnVector> longColumnVectors,
+      Map<String, ColumnVector<String>> stringColumnVectors) {
+    this.categoricalColumnVectors = Collections.unmodifiableMap(categoricalColumnVectors);
+    this.doubleColumnVectors = Collections.unmodifiableMap(doubleColumnVectors);
+    this.longColumnVectors = Collections.unmodifiableMap(longColumnVectors);
+    this.stringColumnVectors = Collections.unmodifiableMap(stringColumnVectors);
+    this.offHeapMemory = null;
+  }
+
+  /**
+   * Gets a read-only snapshot of every column vector, holding the elements currently in them.
+   * Elements added afterwards are not part of the snapshot, which can therefore be read by other
+   * threads while elements are added, once handed over through a volatile field.
+   *
+   * @return the snapshot
+   */
+  public ColumnVectorManager snapshot() {
+    Map<String, CategoricalColumnVector<String>> categoricalColumnVectorSnapshots =
+        new HashMap<>();
+    for (Map.Entry<String, CategoricalColumnVector<String>> entry : categoricalColumnVectors.entrySet()) {
+      categoricalColumnVectorSnapshots.put(entry.getKey(), entry.getValue().snapshot());
+    }
+
+    Map<String, DoubleColumnVector> doubleColumnVectorSnapshots = new HashMap<>();
+    for (Map.Entry<String, DoubleColumnVector> entry : doubleColumnVectors.entrySet()) {
+      doubleColumnVectorSnapshots.put(entry.getKey(), entry.getValue().snapshot());
+    }
+
+    Map<String, LongColumnVector> longColumnVectorSnapshots = new HashMap<>();
+    for (Map.Entry<String, LongColumnVector> entry : longColumnVectors.entrySet()) {
+      longColumnVectorSnapshots.put(entry.getKey(), entry.getValue().snapshot());
+    }
+
+    Map<String, ColumnVector<String>> stringColumnVectorSnapshots = new HashMap<>();
+    for (Map.Entry<String, ColumnVector<String>> entry : stringColumnVectors.entrySet()) {
+      stringColumnVectorSnapshots.put(entry.getKey(), entry.getValue().snapshot());
+    }
+
+    return new ColumnVectorManager(categoricalColumnVectorSnapshots, doubleColumnVectorSnapshots,
+        longColumnVectorSnapshots, stringColumnVectorSnapshots);
   }
 
   /**
@@ -50,7 +136,18 @@ public class ColumnVectorManager {
    * @param fieldName the field name
    */
   public void createDoubleColumnVector(String fieldName) {
-    doubleColumnVectors.put(fieldName, new ColumnVector<>());
+    doubleColumnVectors.put(fieldName, offHeapMemory == null ? new DoubleColumnVector()
+        : new DoubleColumnVector(offHeapMemory));
+  }
+
+  /**
+   * Create a new LongColumnVector with the fieldName.
+   *
+   * @param fieldName the field name
+   */
+  public void createLongColumnVector(String fieldName) {
+    longColumnVectors.put(fieldName, offHeapMemory == null ? new LongColumnVector()
+        : new LongColumnVector(offHeapMemory));
   }
 
   /**
@@ -78,10 +175,29 @@ public class ColumnVectorManager {
    * @param fieldName the field name
    * @param value     the value
    */
-  public void addToDoubleColumnVector(String fieldName, Double value) {
+  public void addToDoubleColumnVector(String fieldName, double value) {
     doubleColumnVectors.get(fieldName).add(value);
   }
 
+  /**
+   * Add a null value to DoubleColumnVector with the fieldName.
+   *
+   * @param fieldName the field name
+   */
+  public void addNullToDoubleColumnVector(String fieldName) {
+    doubleColumnVectors.get(fieldName).addNull();
+  }
+
+  /**
+   * Add a value to LongColumnVector with the fieldName.
+   *
+   * @param fieldName the field name
+   * @param value     the value
+   */
+  public void addToLongColumnVector(String fieldName, long value) {
+    longColumnVectors.get(fieldName).add(value);
+  }
+
   /**
    * Add a value to StringColumnVector with the fieldName.
    *
@@ -102,71 +218,172 @@ public class ColumnVectorManager {
   }
 
   /**
-   * Gets a list of minimum and maximum indexes for DoubleColumnVector with the fieldName from a
-   * positionList which contains valid indexes.
+   * Gets CategoricalColumnVector with the fieldName.
    *
-   * @param fieldName    the field name
-   * @param positionList the position list
-   * @return the min max position list for field from position list
+   * @param fieldName the field name
+   * @return the categorical column vector
    */
-  public List<List<Integer>> getMinMaxPositionListForFieldFromPositionList(String fieldName,
-      List<Integer> positionList) {
-    List<Integer> minPositionList = new ArrayList<>();
-    List<Integer> maxPositionList = new ArrayList<>();
+  public CategoricalColumnVector<String> getCategoricalColumnVector(String fieldName) {
+    return categoricalColumnVectors.get(fieldName);
+  }
 
-    if (positionList.size() == 0) {
-      return List.of(minPositionList, maxPositionList);
-    }
+  /**
+   * Gets DoubleColumnVector with the fieldName.
+   *
+   * @param fieldName the field name
+   * @return the double column vector
+   */
+  public DoubleColumnVector getDoubleColumnVector(String fieldName) {
+    return doubleColumnVectors.get(fieldName);
+  }
+
+  /**
+   * Gets LongColumnVector with the fieldName.
+   *
+   * @param fieldName the field name
+   * @return the long column vector
+   */
+  public LongColumnVector getLongColumnVector(String fieldName) {
+    return longColumnVectors.get(fieldName);
+  }
+
+  /**
+   * Gets StringColumnVector with the fieldName.
+   *
+   * @param fieldName the field name
+   * @return the string column vector
+   */
+  public ColumnVector<String> getStringColumnVector(String fieldName) {
+    return stringColumnVectors.get(fieldName);
+  }
 
-    ColumnVector<Double> doubleColumnVector = doubleColumnVectors.get(fieldName);
-    List<Double> dataVector = doubleColumnVector.getDataVector();
+  /**
+   * Gets the minimum and maximum, with the indexes holding them, of DoubleColumnVector with the
+   * fieldName from a positionList which contains valid indexes.
+   *
+   * @param fieldName    the field name
+   * @param positionList the position list
+   * @return the min max for field from position list
+   */
+  public MinMaxGroup getMinMaxForFieldFromPositionList(String fieldName, IntList positionList) {
+    return doubleColumnVectors.get(fieldName).getMinMax(positionList);
+  }
 
-    Double minimum = dataVector.get(positionList.get(0));
-    Double maximum = dataVector.get(positionList.get(0));
+  /**
+   * Gets the minimum and maximum, with the indexes holding them, of DoubleColumnVector with the
+   * fieldName from a bitmap whose set bits are valid indexes.
+   *
+   * @param fieldName the field name
+   * @param bitmap    the bitmap
+   * @return the min max for field from bitmap
+   */
+  public MinMaxGroup getMinMaxForFieldFromBitmap(String fieldName, RoaringBitmap bitmap) {
+    return doubleColumnVectors.get(fieldName).getMinMax(bitmap);
+  }
 
-    for (Integer position : positionList) {
+  /**
+   * Gets the minimum and maximum, with the indexes holding them, of DoubleColumnVector with the
+   * fieldName from a bitmap whose set bits are valid indexes, searching with parallelism threads.
+   * A parallelism of 1 searches sequentially.
+   *
+   * @param fieldName   the field name
+   * @param bitmap      the bitmap
+   * @param parallelism the degree of parallelism, at least 1
+   * @return the min max for field from bitmap
+   */
+  public MinMaxGroup getMinMaxForFieldFromBitmap(String fieldName, RoaringBitmap bitmap,
+      int parallelism) {
+    if (parallelism > 1) {
+      return ParallelMinMaxAggregator.getMinMax(doubleColumnVectors.get(fieldName), bitmap,
+          parallelism);
+    }
+    return getMinMaxForFieldFromBitmap(fieldName, bitmap);
+  }
 
-      // Check if current value is null
-      if (doubleColumnVector.isNull(position)) {
-        continue;
-      }
+  /**
+   * Aggregate the minimum and maximum of every DoubleColumnVector with the fieldNames for every
+   * group of rows sharing the same categories of the CategoricalColumnVectors with the
+   * groupByFieldNames. All columns are read in a single sequential pass, and rows with a null
+   * category are left out. Group ids are given by {@link #getGroupForCategories}.
+   *
+   * @param fieldNames        the field names
+   * @param groupByFieldNames the group by field names
+   * @return the aggregators, one for each field name in the same order
+   */
+  public GroupedMinMaxAggregator[] aggregateMinMaxForFieldsGroupedByFields(String[] fieldNames,
+      String[] groupByFieldNames) {
+    CategoricalColumnVector<String>[] groupByColumnVectors = getGroupByColumnVectors(
+        groupByFieldNames);
+    int[] radixes = new int[groupByColumnVectors.length];
+    int groupCount = 1;
+    for (int i = 0; i < groupByColumnVectors.length; i++) {
+      radixes[i] = groupByColumnVectors[i].getCategories().size();
+      groupCount *= radixes[i];
+    }
 
-      Double current = dataVector.get(position);
+    DoubleColumnVector[] columnVectors = new DoubleColumnVector[fieldNames.length];
+    GroupedMinMaxAggregator[] aggregators = new GroupedMinMaxAggregator[fieldNames.length];
+    for (int i = 0; i < fieldNames.length; i++) {
+      columnVectors[i] = doubleColumnVectors.get(fieldNames[i]);
+      aggregators[i] = new GroupedMinMaxAggregator(groupCount);
+    }
 
+    int valueCount = columnVectors.length > 0 ? columnVectors[0].getValueCount() : 0;
+    int position = 0;
+    while (position < valueCount) {
       /*
-       * If current value if less than minimum value encountered so far, set minimum value to
-       * current value, clear list of minimum indexes before adding current value index to list of
-       * minimum indexes.
-       *
-       * Else if current value is equal to minimum value encountered so far, add current value
-       * index to list of minimum indexes.
+       * Combine the codes of the row into a group id in mixed radix. The group is shared by every
+       * row up to the nearest end of a run among the group by columns, so run length encoded
+       * columns are only looked up once per run.
        */
-      if (current < minimum) {
-        minimum = current;
-        minPositionList.clear();
-        minPositionList.add(position);
-      } else if (current.equals(minimum)) {
-        minPositionList.add(position);
+      int group = 0;
+      int end = valueCount;
+      boolean isNull = false;
+      for (int i = 0; i < groupByColumnVectors.length; i++) {
+        end = Math.min(end, groupByColumnVectors[i].getRunEndForIndex(position));
+        if (groupByColumnVectors[i].isNull(position)) {
+          isNull = true;
+        } else {
+          group = group * radixes[i] + groupByColumnVectors[i].getCode(position);
+        }
       }
 
-      /*
-       * If current value if more than maximum value encountered so far, set maximum value to
-       * current value, clear list of maximum indexes before adding current value index to list of
-       * maximum indexes.
-       *
-       * Else if current value is equal to maximum value encountered so far, add current value
-       * index to list of maximum indexes.
-       */
-      if (current > maximum) {
-        maximum = current;
-        maxPositionList.clear();
-        maxPositionList.add(position);
-      } else if (current.equals(maximum)) {
-        maxPositionList.add(position);
+      if (!isNull) {
+        for (int i = 0; i < columnVectors.length; i++) {
+          DoubleColumnVector columnVector = columnVectors[i];
+          for (int row = position; row < end; row++) {
+            if (!columnVector.isNull(row)) {
+              aggregators[i].accumulate(group, row, columnVector.get(row));
+            }
+          }
+        }
       }
+      position = end;
     }
 
-    return List.of(minPositionList, maxPositionList);
+    return aggregators;
+  }
+
+  /**
+   * Gets the group id of a combination of categories of the CategoricalColumnVectors with the
+   * groupByFieldNames, as used by {@link #aggregateMinMaxForFieldsGroupedByFields}.
+   *
+   * @param groupByFieldNames the group by field names
+   * @param categories        the categories, one for each group by field name
+   * @return the group id, or -1 if a category is not present
+   */
+  public int getGroupForCategories(String[] groupByFieldNames, String[] categories) {
+    CategoricalColumnVector<String>[] groupByColumnVectors = getGroupByColumnVectors(
+        groupByFieldNames);
+    int group = 0;
+    for (int i = 0; i < groupByColumnVectors.length; i++) {
+      int code = groupByColumnVectors[i].getCodeForCategory(categories[i]);
+      if (code < 0) {
+        return -1;
+      }
+      group = group * groupByColumnVectors[i].getCategories().size() + code;
+    }
+    return group;
   }
 
   /**
@@ -176,10 +393,21 @@ public class ColumnVectorManager {
    * @param position  the position
    * @return the double for field with position
    */
-  public Double getDoubleForFieldWithPosition(String fieldName, Integer position) {
+  public double getDoubleForFieldWithPosition(String fieldName, int position) {
     return doubleColumnVectors.get(fieldName).get(position);
   }
 
+  /**
+   * Gets element from LongColumnVector with the fieldName at index position.
+   *
+   * @param fieldName the field name
+   * @param position  the position
+   * @return the long for field with position
+   */
+  public long getLongForFieldWithPosition(String fieldName, int position) {
+    return longColumnVectors.get(fieldName).get(position);
+  }
+
   /**
    * Gets element from StringColumnVector with the fieldName at index position.
    *
@@ -201,21 +429,42 @@ public class ColumnVectorManager {
   public List<String[]> serialiseDoubleColumnVector(String fieldName, String emptyDataSymbol) {
     List<String[]> serialisedDoubleColumnVector = new ArrayList<>();
 
-    ColumnVector<Double> doubleColumnVector = doubleColumnVectors.get(fieldName);
-    List<Double> dataVector = doubleColumnVector.getDataVector();
+    DoubleColumnVector doubleColumnVector = doubleColumnVectors.get(fieldName);
 
     for (int i = 0; i < doubleColumnVector.getValueCount(); i++) {
       String id = String.valueOf(i);
       if (doubleColumnVector.isNull(i)) {
         serialisedDoubleColumnVector.add(new String[]{id, emptyDataSymbol});
       } else {
-        serialisedDoubleColumnVector.add(new String[]{id, String.valueOf(dataVector.get(i))});
+        serialisedDoubleColumnVector.add(
+            new String[]{id, String.valueOf(doubleColumnVector.get(i))});
       }
     }
 
     return serialisedDoubleColumnVector;
   }
 
+  /**
+   * Serialise LongColumnVector of epoch minutes into list of timestamp strings having pattern
+   * "yyyy-MM-dd HH:mm".
+   *
+   * @param fieldName the field name
+   * @return the list
+   */
+  public List<String[]> serialiseTimestampColumnVector(String fieldName) {
+    List<String[]> serialisedTimestampColumnVector = new ArrayList<>();
+
+    LongColumnVector longColumnVector = longColumnVectors.get(fieldName);
+
+    for (int i = 0; i < longColumnVector.getValueCount(); i++) {
+      String id = String.valueOf(i);
+      serialisedTimestampColumnVector.add(
+          new String[]{id, TimestampUtil.getTimestamp(longColumnVector.get(i))});
+    }
+
+    return serialisedTimestampColumnVector;
+  }
+
   /**
    * Serialise StringColumnVector into list of strings.
    *
@@ -235,4 +484,17 @@ public class ColumnVectorManager {
 
     return serialisedStringColumnVector;
   }
+
+  /*
+   * Gets the CategoricalColumnVectors with the groupByFieldNames.
+   */
+  @SuppressWarnings("unchecked")
+  private CategoricalColumnVector<String>[] getGroupByColumnVectors(String[] groupByFieldNames) {
+    CategoricalColumnVector<String>[] groupByColumnVectors = (CategoricalColumnVector<String>[])
+        new CategoricalColumnVector<?>[groupByFieldNames.length];
+    for (int i = 0; i < groupByFieldNames.length; i++) {
+      groupByColumnVectors[i] = categoricalColumnVectors.get(groupByFieldNames[i]);
+    }
+    return groupByColumnVectors;
+  }
 }
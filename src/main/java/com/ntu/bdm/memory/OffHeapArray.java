@@ -0,0 +1,152 @@
+package com.ntu.bdm.memory;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/********************************************************
+ * OffHeapArray is a container class which represents a
+ * growable array of 8 byte slots, holding longs or
+ * doubles, in {@link OffHeapMemory}.
+ *
+ * The slots are stored in chunks of a fixed power of two
+ * number of slots, each a direct buffer. The array grows
+ * by allocating further chunks, so slots are never
+ * copied or moved once written. A {@link #snapshot()}
+ * therefore only copies the references to the chunks.
+ *
+ * Every read and write checks that the memory is not
+ * closed, and throws an IllegalStateException otherwise,
+ * so an array outliving its memory never touches freed
+ * chunks.
+ *
+ ********************************************************/
+public class OffHeapArray {
+
+  private static final int INITIAL_CHUNK_CAPACITY = 4;
+
+  private final OffHeapMemory offHeapMemory;
+  private final boolean readOnly;
+  private final int chunkShift;
+  private final int chunkMask;
+  private ByteBuffer[] chunks;
+  private int chunkCount;
+
+  /**
+   * Instantiates a new empty OffHeapArray allocating chunks of 2 to the power of chunkShift slots
+   * from offHeapMemory.
+   *
+   * @param offHeapMemory the off-heap memory
+   * @param chunkShift    the base two logarithm of the number of slots in a chunk
+   */
+  public OffHeapArray(OffHeapMemory offHeapMemory, int chunkShift) {
+    this.offHeapMemory = offHeapMemory;
+    this.readOnly = false;
+    this.chunkShift = chunkShift;
+    this.chunkMask = (1 << chunkShift) - 1;
+    this.chunks = new ByteBuffer[INITIAL_CHUNK_CAPACITY];
+    this.chunkCount = 0;
+  }
+
+  /*
+   * Instantiates a read-only OffHeapArray sharing the chunks of another array.
+   */
+  private OffHeapArray(OffHeapArray other) {
+    offHeapMemory = other.offHeapMemory;
+    readOnly = true;
+    chunkShift = other.chunkShift;
+    chunkMask = other.chunkMask;
+    chunks = Arrays.copyOf(other.chunks, other.chunkCount);
+    chunkCount = other.chunkCount;
+  }
+
+  /**
+   * Gets the number of slots allocated.
+   *
+   * @return the capacity
+   */
+  public long getCapacity() {
+    return (long) chunkCount << chunkShift;
+  }
+
+  /**
+   * Allocate chunks until the array holds at least capacity slots.
+   *
+   * @param capacity the capacity
+   */
+  public void ensureCapacity(long capacity) {
+    if (readOnly) {
+      throw new IllegalStateException("Snapshot of an off-heap array is read-only");
+    }
+    while (getCapacity() < capacity) {
+      if (chunkCount == chunks.length) {
+        chunks = Arrays.copyOf(chunks, chunks.length * 2);
+      }
+      chunks[chunkCount++] = offHeapMemory.allocate(Long.BYTES << chunkShift);
+    }
+  }
+
+  /**
+   * Gets the long in a slot.
+   *
+   * @param index the slot
+   * @return the long
+   */
+  public long getLong(int index) {
+    checkOpen();
+    return chunks[index >>> chunkShift].getLong((index & chunkMask) << 3);
+  }
+
+  /**
+   * Sets the long in a slot, which must be within the capacity.
+   *
+   * @param index the slot
+   * @param value the long
+   */
+  public void setLong(int index, long value) {
+    checkOpen();
+    chunks[index >>> chunkShift].putLong((index & chunkMask) << 3, value);
+  }
+
+  /**
+   * Gets the double in a slot.
+   *
+   * @param index the slot
+   * @return the double
+   */
+  public double getDouble(int index) {
+    checkOpen();
+    return chunks[index >>> chunkShift].getDouble((index & chunkMask) << 3);
+  }
+
+  /**
+   * Sets the double in a slot, which must be within the capacity.
+   *
+   * @param index the slot
+   * @param value the double
+   */
+  public void setDouble(int index, double value) {
+    checkOpen();
+    chunks[index >>> chunkShift].putDouble((index & chunkMask) << 3, value);
+  }
+
+  /**
+   * Gets a read-only snapshot of the array, sharing its chunks. Slots written afterwards in
+   * chunks already allocated are visible through the snapshot, chunks allocated afterwards are
+   * not.
+   *
+   * @return the snapshot
+   */
+  public OffHeapArray snapshot() {
+    return new OffHeapArray(this);
+  }
+
+  /*
+   * Throws an IllegalStateException if the memory holding the chunks is closed, and may have freed
+   * them.
+   */
+  private void checkOpen() {
+    if (offHeapMemory.isClosed()) {
+      throw new IllegalStateException("Off-heap memory is closed");
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package com.ntu.bdm.memory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/********************************************************
+ * OffHeapMemory is a controller class which allocates
+ * memory outside of the Java heap, as direct
+ * {@link ByteBuffer}s in the native byte order, and
+ * releases all of it together when closed.
+ *
+ * Off-heap memory is not scanned or moved by the garbage
+ * collector, so columns held in it add to neither the
+ * heap size nor the garbage collection time. Their
+ * lifetime is explicit instead: once the memory is
+ * closed, its buffers are freed straight away where the
+ * JVM allows it. Every {@link OffHeapArray} allocated in
+ * it, including snapshots, then fails to be read or
+ * written instead of touching freed memory. Closing must
+ * not run concurrently with reads, since a read already
+ * past its check would still touch the freed memory.
+ *
+ * All methods are synchronized, so the memory can be
+ * shared by threads allocating columns.
+ *
+ ********************************************************/
+public class OffHeapMemory implements AutoCloseable {
+
+  private static final Object UNSAFE;
+  private static final Method INVOKE_CLEANER;
+
+  static {
+    Object unsafe = null;
+    Method invokeCleaner = null;
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      unsafe = theUnsafe.get(null);
+      invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // The buffers are then freed once the garbage collector finds them unreachable.
+      unsafe = null;
+      invokeCleaner = null;
+    }
+    UNSAFE = unsafe;
+    INVOKE_CLEANER = invokeCleaner;
+  }
+
+  private final List<ByteBuffer> buffers;
+  private long allocatedBytes;
+  private volatile boolean closed;
+
+  /**
+   * Instantiates a new OffHeapMemory.
+   */
+  public OffHeapMemory() {
+    buffers = new ArrayList<>();
+    allocatedBytes = 0;
+    closed = false;
+  }
+
+  /**
+   * Allocate a zeroed direct buffer of capacity bytes in the native byte order.
+   *
+   * @param capacity the capacity in bytes
+   * @return the buffer
+   */
+  public synchronized ByteBuffer allocate(int capacity) {
+    if (closed) {
+      throw new IllegalStateException("Off-heap memory is closed");
+    }
+    ByteBuffer buffer = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    buffers.add(buffer);
+    allocatedBytes += capacity;
+    return buffer;
+  }
+
+  /**
+   * Checks whether the memory is closed, i.e. whether its buffers may have been freed.
+   *
+   * @return true if closed
+   */
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Gets the number of bytes allocated and not yet released.
+   *
+   * @return the allocated bytes
+   */
+  public synchronized long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  /**
+   * Release every buffer allocated. Further allocations, and reads and writes of the arrays
+   * allocated in the memory, fail.
+   */
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    for (ByteBuffer buffer : buffers) {
+      free(buffer);
+    }
+    buffers.clear();
+    allocatedBytes = 0;
+  }
+
+  /*
+   * Frees the native memory of a direct buffer immediately if the JVM gives access to its
+   * cleaner.
+   */
+  private static void free(ByteBuffer buffer) {
+    if (INVOKE_CLEANER == null) {
+      return;
+    }
+    try {
+      INVOKE_CLEANER.invoke(UNSAFE, buffer);
+    } catch (ReflectiveOperationException e) {
+      e.printStackTrace();
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package com.ntu.bdm.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/********************************************************
+ * Histogram is a container class which records the
+ * distribution of non-negative long values, e.g. the
+ * latencies of a query in nanoseconds, without locks.
+ *
+ * Values are counted in log-linear buckets: every power
+ * of two is split into SUB_BUCKET_COUNT buckets of equal
+ * width, so a percentile is reported to within an eighth
+ * of its value while the histogram stays a fixed array
+ * of about 500 counters. The count, sum and maximum are
+ * recorded exactly.
+ *
+ * Recording a value is a handful of atomic additions, so
+ * it can be called from any number of threads on hot
+ * paths, while readers see a consistent enough view for
+ * monitoring.
+ *
+ ********************************************************/
+public class Histogram {
+
+  private static final int SUB_BUCKET_SHIFT = 3;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_SHIFT;
+  private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_SHIFT) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray bucketCounts;
+  private final LongAdder count;
+  private final LongAdder sum;
+  private final LongAccumulator max;
+
+  /**
+   * Instantiates a new empty Histogram.
+   */
+  public Histogram() {
+    bucketCounts = new AtomicLongArray(BUCKET_COUNT);
+    count = new LongAdder();
+    sum = new LongAdder();
+    max = new LongAccumulator(Math::max, 0);
+  }
+
+  /**
+   * Record a value. Negative values are recorded as 0.
+   *
+   * @param value the value
+   */
+  public void record(long value) {
+    if (value < 0) {
+      value = 0;
+    }
+    bucketCounts.incrementAndGet(getBucket(value));
+    count.increment();
+    sum.add(value);
+    max.accumulate(value);
+  }
+
+  /**
+   * Gets the number of values recorded.
+   *
+   * @return the count
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * Gets the sum of the values recorded.
+   *
+   * @return the sum
+   */
+  public long getSum() {
+    return sum.sum();
+  }
+
+  /**
+   * Gets the largest value recorded.
+   *
+   * @return the maximum, or 0 if no value was recorded
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Gets the mean of the values recorded.
+   *
+   * @return the mean, or 0 if no value was recorded
+   */
+  public double getMean() {
+    long currentCount = getCount();
+    return currentCount == 0 ? 0 : (double) getSum() / currentCount;
+  }
+
+  /**
+   * Gets an upper bound of the value below which the fraction of the values recorded lies, which
+   * is at most an eighth larger than the value itself.
+   *
+   * @param fraction the fraction, between 0 and 1, e.g. 0.99 for the 99th percentile
+   * @return the percentile, or 0 if no value was recorded
+   */
+  public long getPercentile(double fraction) {
+    if (fraction < 0 || fraction > 1) {
+      throw new IllegalArgumentException("Percentile fraction out of range " + fraction);
+    }
+    long currentCount = getCount();
+    if (currentCount == 0) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(fraction * currentCount));
+    long seen = 0;
+    for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+      seen += bucketCounts.get(bucket);
+      if (seen >= rank) {
+        return Math.min(getBucketUpperBound(bucket), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  /*
+   * Gets the bucket of a non-negative value. Values below SUB_BUCKET_COUNT have a bucket each,
+   * larger values share a bucket with the values of the same power of two and the same leading
+   * SUB_BUCKET_SHIFT bits after the highest one.
+   */
+  private static int getBucket(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_SHIFT)) & (SUB_BUCKET_COUNT - 1);
+    return (exponent - SUB_BUCKET_SHIFT + 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  /*
+   * Gets the largest value of a bucket.
+   */
+  private static long getBucketUpperBound(int bucket) {
+    if (bucket < SUB_BUCKET_COUNT) {
+      return bucket;
+    }
+    int exponent = bucket / SUB_BUCKET_COUNT + SUB_BUCKET_SHIFT - 1;
+    int subBucket = bucket % SUB_BUCKET_COUNT;
+    long width = 1L << (exponent - SUB_BUCKET_SHIFT);
+    long lowerBound = (long) (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_SHIFT);
+    return lowerBound + width - 1;
+  }
+}
@@ -0,0 +1,251 @@
+package com.ntu.bdm.metrics;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/********************************************************
+ * Metrics is a controller class which holds the named
+ * counters, gauges and histograms a database records
+ * while it ingests, indexes and queries its rows.
+ *
+ * Counters are {@link LongAdder}s and histograms are
+ * {@link Histogram}s, so both are recorded without locks
+ * from any number of threads. Gauges are read from their
+ * supplier whenever the metrics are read, e.g. the hit
+ * counts of a buffer pool. Names are dotted paths such as
+ * "query.execute.nanos", and histograms of durations end
+ * in ".nanos".
+ *
+ * The metrics can be read as a flat map of values, which
+ * is what the JMX MBean registered with
+ * {@link #registerMBean(String)} exposes as attributes,
+ * or printed as a report, e.g. on exit with
+ * {@link #printReportOnExit(PrintStream)}.
+ *
+ ********************************************************/
+public class Metrics {
+
+  /**
+   * The domain of the ObjectNames of the MBeans registered.
+   */
+  public static final String JMX_DOMAIN = "com.ntu.bdm";
+
+  private static final double[] REPORTED_PERCENTILES = {0.5, 0.9, 0.99};
+
+  private final Map<String, LongAdder> counters;
+  private final Map<String, Supplier<? extends Number>> gauges;
+  private final Map<String, Histogram> histograms;
+
+  /**
+   * Instantiates a new Metrics without any metric.
+   */
+  public Metrics() {
+    counters = new ConcurrentHashMap<>();
+    gauges = new ConcurrentHashMap<>();
+    histograms = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Add delta to the counter with the name, creating it on first use.
+   *
+   * @param name  the name
+   * @param delta the delta
+   */
+  public void add(String name, long delta) {
+    counters.computeIfAbsent(name, key -> new LongAdder()).add(delta);
+  }
+
+  /**
+   * Add one to the counter with the name, creating it on first use.
+   *
+   * @param name the name
+   */
+  public void increment(String name) {
+    add(name, 1);
+  }
+
+  /**
+   * Gets the value of the counter with the name.
+   *
+   * @param name the name
+   * @return the counter value, or 0 if nothing was added to it
+   */
+  public long getCounter(String name) {
+    LongAdder counter = counters.get(name);
+    return counter == null ? 0 : counter.sum();
+  }
+
+  /**
+   * Register a gauge with the name, whose value is read from supplier whenever the metrics are
+   * read. A gauge registered earlier with the same name is replaced.
+   *
+   * @param name     the name
+   * @param supplier the supplier of the value
+   */
+  public void registerGauge(String name, Supplier<? extends Number> supplier) {
+    gauges.put(name, supplier);
+  }
+
+  /**
+   * Gets the histogram with the name, creating it on first use.
+   *
+   * @param name the name
+   * @return the histogram
+   */
+  public Histogram getHistogram(String name) {
+    return histograms.computeIfAbsent(name, key -> new Histogram());
+  }
+
+  /**
+   * Record a value into the histogram with the name.
+   *
+   * @param name  the name
+   * @param value the value
+   */
+  public void record(String name, long value) {
+    getHistogram(name).record(value);
+  }
+
+  /**
+   * Record the nanoseconds elapsed since startNanos, as given by {@link System#nanoTime()}, into
+   * the histogram with the name.
+   *
+   * @param name       the name
+   * @param startNanos the start in nanoseconds
+   * @return the nanoseconds elapsed
+   */
+  public long recordNanosSince(String name, long startNanos) {
+    long nanos = System.nanoTime() - startNanos;
+    getHistogram(name).record(nanos);
+    return nanos;
+  }
+
+  /**
+   * Gets the rate per second of the counter with the counterName over the durations recorded into
+   * the histogram with the histogramName, e.g. the rows ingested per second of ingestion.
+   *
+   * @param counterName   the counter name
+   * @param histogramName the name of a histogram of durations in nanoseconds
+   * @return the rate per second, or 0 if no duration was recorded
+   */
+  public double getRatePerSecond(String counterName, String histogramName) {
+    Histogram histogram = histograms.get(histogramName);
+    long nanos = histogram == null ? 0 : histogram.getSum();
+    return nanos == 0 ? 0 : getCounter(counterName) * 1e9 / nanos;
+  }
+
+  /**
+   * Gets the value of every metric by name, in name order. A histogram contributes its count,
+   * sum, mean, percentiles and maximum as names suffixed with ".count", ".sum", ".mean", ".p50",
+   * ".p90", ".p99" and ".max".
+   *
+   * @return the values
+   */
+  public SortedMap<String, Number> getValues() {
+    SortedMap<String, Number> values = getScalarValues();
+    for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+      String name = entry.getKey();
+      Histogram histogram = entry.getValue();
+      values.put(name + ".count", histogram.getCount());
+      values.put(name + ".sum", histogram.getSum());
+      values.put(name + ".mean", histogram.getMean());
+      for (double percentile : REPORTED_PERCENTILES) {
+        values.put(name + ".p" + Math.round(percentile * 100),
+            histogram.getPercentile(percentile));
+      }
+      values.put(name + ".max", histogram.getMax());
+    }
+    return values;
+  }
+
+  /**
+   * Gets a report of every metric, listing the counters and gauges with their values and the
+   * histograms with their count, mean, percentiles and maximum.
+   *
+   * @return the report
+   */
+  public String getReport() {
+    StringBuilder report = new StringBuilder("Metrics\n");
+
+    for (Map.Entry<String, Number> entry : getScalarValues().entrySet()) {
+      report.append(String.format("  %-48s %14s%n", entry.getKey(), format(entry.getValue())));
+    }
+
+    if (!histograms.isEmpty()) {
+      report.append(String.format("  %-48s %10s %14s %14s %14s %14s %14s%n", "", "count", "mean",
+          "p50", "p90", "p99", "max"));
+      for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+        Histogram histogram = entry.getValue();
+        report.append(String.format("  %-48s %10d %14.1f %14d %14d %14d %14d%n", entry.getKey(),
+            histogram.getCount(), histogram.getMean(), histogram.getPercentile(0.5),
+            histogram.getPercentile(0.9), histogram.getPercentile(0.99), histogram.getMax()));
+      }
+    }
+    return report.toString();
+  }
+
+  /**
+   * Register the metrics as an MBean of the platform MBean server, named
+   * com.ntu.bdm:type=Metrics,name=name. An MBean registered earlier with the same name is
+   * replaced.
+   *
+   * @param name the name, e.g. the class of the database
+   * @return the ObjectName of the MBean
+   */
+  public ObjectName registerMBean(String name) {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=Metrics,name=" + name);
+      if (server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+      server.registerMBean(new MetricsDynamicMBean(this), objectName);
+      return objectName;
+    } catch (JMException e) {
+      throw new IllegalStateException("Unable to register metrics MBean " + name, e);
+    }
+  }
+
+  /**
+   * Print the report to out when the JVM shuts down, also when it is interrupted.
+   *
+   * @param out the stream to print to
+   */
+  public void printReportOnExit(PrintStream out) {
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> out.print(getReport()),
+        "metrics-report"));
+  }
+
+  /*
+   * Gets the value of every counter and gauge by name, in name order.
+   */
+  private SortedMap<String, Number> getScalarValues() {
+    SortedMap<String, Number> values = new TreeMap<>();
+    for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+      values.put(entry.getKey(), entry.getValue().sum());
+    }
+    for (Map.Entry<String, Supplier<? extends Number>> entry : gauges.entrySet()) {
+      values.put(entry.getKey(), entry.getValue().get());
+    }
+    return values;
+  }
+
+  /*
+   * Formats a value of a counter or gauge, with two decimals if it is fractional.
+   */
+  private static String format(Number value) {
+    if (value instanceof Double || value instanceof Float) {
+      return String.format("%.2f", value.doubleValue());
+    }
+    return String.valueOf(value);
+  }
+}
@@ -0,0 +1,98 @@
+package com.ntu.bdm.metrics;
+
+import java.util.Map;
+import java.util.SortedMap;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ReflectionException;
+
+/********************************************************
+ * MetricsDynamicMBean is an adapter class which exposes
+ * {@link Metrics} through JMX, e.g. to jconsole.
+ *
+ * Every value of {@link Metrics#getValues()} is a
+ * read-only attribute, so metrics created after the
+ * MBean was registered show up the next time its
+ * attributes are listed. The report operation returns
+ * the report of the metrics as text.
+ *
+ ********************************************************/
+class MetricsDynamicMBean implements DynamicMBean {
+
+  private static final String REPORT_OPERATION = "report";
+
+  private final Metrics metrics;
+
+  /**
+   * Instantiates a new MetricsDynamicMBean over metrics.
+   *
+   * @param metrics the metrics
+   */
+  MetricsDynamicMBean(Metrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public Object getAttribute(String attribute) throws AttributeNotFoundException {
+    Number value = metrics.getValues().get(attribute);
+    if (value == null) {
+      throw new AttributeNotFoundException("No metric " + attribute);
+    }
+    return value;
+  }
+
+  @Override
+  public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+    throw new AttributeNotFoundException("Metric " + attribute.getName() + " is read-only");
+  }
+
+  @Override
+  public AttributeList getAttributes(String[] attributes) {
+    SortedMap<String, Number> values = metrics.getValues();
+    AttributeList attributeList = new AttributeList();
+    for (String attribute : attributes) {
+      Number value = values.get(attribute);
+      if (value != null) {
+        attributeList.add(new Attribute(attribute, value));
+      }
+    }
+    return attributeList;
+  }
+
+  @Override
+  public AttributeList setAttributes(AttributeList attributes) {
+    return new AttributeList();
+  }
+
+  @Override
+  public Object invoke(String actionName, Object[] params, String[] signature)
+      throws ReflectionException {
+    if (REPORT_OPERATION.equals(actionName)) {
+      return metrics.getReport();
+    }
+    throw new ReflectionException(new NoSuchMethodException(actionName),
+        "No operation " + actionName);
+  }
+
+  @Override
+  public MBeanInfo getMBeanInfo() {
+    SortedMap<String, Number> values = metrics.getValues();
+    MBeanAttributeInfo[] attributeInfos = new MBeanAttributeInfo[values.size()];
+    int i = 0;
+    for (Map.Entry<String, Number> entry : values.entrySet()) {
+      attributeInfos[i++] = new MBeanAttributeInfo(entry.getKey(),
+          entry.getValue().getClass().getName(), entry.getKey(), true, false, false);
+    }
+    MBeanOperationInfo[] operationInfos = new MBeanOperationInfo[]{
+        new MBeanOperationInfo(REPORT_OPERATION, "Gets the report of every metric",
+            new MBeanParameterInfo[0], String.class.getName(), MBeanOperationInfo.INFO)};
+    return new MBeanInfo(Metrics.class.getName(), "Database metrics", attributeInfos, null,
+        operationInfos, null);
+  }
+}
@@ -0,0 +1,69 @@
+package com.ntu.bdm.query;
+
+/********************************************************
+ * Aggregate is a container class which represents one
+ * aggregate of a {@link Query}, i.e. an
+ * {@link AggregateFunction} applied to the values of a
+ * numeric field over the rows matching the query.
+ *
+ * COUNT may also be applied to ALL_ROWS, in which case
+ * it counts the matching rows rather than the non-null
+ * values of a field.
+ *
+ ********************************************************/
+public class Aggregate {
+
+  /**
+   * The field name that makes COUNT count every matching row.
+   */
+  public static final String ALL_ROWS = "*";
+
+  private final AggregateFunction function;
+  private final String fieldName;
+
+  /**
+   * Instantiates a new Aggregate.
+   *
+   * @param function  the function
+   * @param fieldName the field name, or ALL_ROWS for COUNT
+   */
+  public Aggregate(AggregateFunction function, String fieldName) {
+    if (ALL_ROWS.equals(fieldName) && function != AggregateFunction.COUNT) {
+      throw new IllegalArgumentException(function + " cannot be applied to " + ALL_ROWS);
+    }
+    this.function = function;
+    this.fieldName = fieldName;
+  }
+
+  /**
+   * Gets the function.
+   *
+   * @return the function
+   */
+  public AggregateFunction getFunction() {
+    return function;
+  }
+
+  /**
+   * Gets the field name.
+   *
+   * @return the field name
+   */
+  public String getFieldName() {
+    return fieldName;
+  }
+
+  /**
+   * Check whether the aggregate counts every matching row.
+   *
+   * @return true if the aggregate is COUNT of ALL_ROWS
+   */
+  public boolean isCountOfAllRows() {
+    return ALL_ROWS.equals(fieldName);
+  }
+
+  @Override
+  public String toString() {
+    return function + "(" + fieldName + ")";
+  }
+}
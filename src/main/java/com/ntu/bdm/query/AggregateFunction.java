@@ -0,0 +1,12 @@
+package com.ntu.bdm.query;
+
+/********************************************************
+ * AggregateFunction enumerates the functions an
+ * {@link Aggregate} can compute over the values of a
+ * numeric field. Null values are ignored by every
+ * function.
+ *
+ ********************************************************/
+public enum AggregateFunction {
+  MIN, MAX, COUNT, SUM, AVG
+}
@@ -0,0 +1,151 @@
+package com.ntu.bdm.query;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/********************************************************
+ * Predicate is a container class which represents one
+ * condition of a {@link Query} on a single field. A row
+ * satisfies the query when it satisfies every one of its
+ * predicates.
+ *
+ * Equality and IN predicates compare a categorical field
+ * with one or several categories. Range predicates
+ * compare a numeric field with an inclusive lower and
+ * upper bound, either of which may be infinite. Rows
+ * whose value is null never satisfy a predicate.
+ *
+ ********************************************************/
+public class Predicate {
+
+  /**
+   * The kind of comparison made by a predicate.
+   */
+  public enum Type {
+    EQUAL, IN, RANGE
+  }
+
+  private final String fieldName;
+  private final Type type;
+  private final List<String> categories;
+  private final double lowerBound;
+  private final double upperBound;
+
+  private Predicate(String fieldName, Type type, List<String> categories, double lowerBound,
+      double upperBound) {
+    this.fieldName = fieldName;
+    this.type = type;
+    this.categories = categories;
+    this.lowerBound = lowerBound;
+    this.upperBound = upperBound;
+  }
+
+  /**
+   * Creates a predicate satisfied by rows whose categorical field with the fieldName holds
+   * category.
+   *
+   * @param fieldName the field name
+   * @param category  the category
+   * @return the predicate
+   */
+  public static Predicate equalTo(String fieldName, String category) {
+    return new Predicate(fieldName, Type.EQUAL, Collections.singletonList(category),
+        Double.NaN, Double.NaN);
+  }
+
+  /**
+   * Creates a predicate satisfied by rows whose categorical field with the fieldName holds any of
+   * the categories.
+   *
+   * @param fieldName  the field name
+   * @param categories the categories
+   * @return the predicate
+   */
+  public static Predicate in(String fieldName, String... categories) {
+    return new Predicate(fieldName, Type.IN,
+        Collections.unmodifiableList(Arrays.asList(categories.clone())), Double.NaN, Double.NaN);
+  }
+
+  /**
+   * Creates a predicate satisfied by rows whose numeric field with the fieldName lies between
+   * lowerBound and upperBound, both inclusive. Timestamps are compared as epoch minutes.
+   *
+   * @param fieldName  the field name
+   * @param lowerBound the lower bound, or negative infinity
+   * @param upperBound the upper bound, or positive infinity
+   * @return the predicate
+   */
+  public static Predicate between(String fieldName, double lowerBound, double upperBound) {
+    if (Double.isNaN(lowerBound) || Double.isNaN(upperBound)) {
+      throw new IllegalArgumentException("Range bounds of " + fieldName + " must not be NaN");
+    }
+    return new Predicate(fieldName, Type.RANGE, Collections.emptyList(), lowerBound, upperBound);
+  }
+
+  /**
+   * Gets the field name.
+   *
+   * @return the field name
+   */
+  public String getFieldName() {
+    return fieldName;
+  }
+
+  /**
+   * Gets the type.
+   *
+   * @return the type
+   */
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * Check whether the predicate compares a categorical field.
+   *
+   * @return true if the predicate is an equality or IN predicate
+   */
+  public boolean isCategorical() {
+    return type != Type.RANGE;
+  }
+
+  /**
+   * Gets the categories of an equality or IN predicate.
+   *
+   * @return the categories
+   */
+  public List<String> getCategories() {
+    return categories;
+  }
+
+  /**
+   * Gets the inclusive lower bound of a range predicate.
+   *
+   * @return the lower bound
+   */
+  public double getLowerBound() {
+    return lowerBound;
+  }
+
+  /**
+   * Gets the inclusive upper bound of a range predicate.
+   *
+   * @return the upper bound
+   */
+  public double getUpperBound() {
+    return upperBound;
+  }
+
+  @Override
+  public String toString() {
+    switch (type) {
+      case EQUAL:
+        return fieldName + " = " + categories.get(0);
+      case IN:
+        return fieldName + " IN " + categories;
+      default:
+        return fieldName + " BETWEEN " + lowerBound + " AND " + upperBound;
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package com.ntu.bdm.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/********************************************************
+ * Query is a container class which represents a query
+ * over the rows of a {@link Table}. It holds the
+ * predicates that rows must satisfy, together with
+ * either the fields projected for every matching row or
+ * the aggregates computed over them.
+ *
+ * A query without predicates matches every row. A query
+ * cannot both project fields and compute aggregates, as
+ * there is no grouping.
+ *
+ ********************************************************/
+public class Query {
+
+  private final List<Predicate> predicates;
+  private final List<String> projections;
+  private final List<Aggregate> aggregates;
+
+  /**
+   * Instantiates a new Query which matches every row and produces nothing.
+   */
+  public Query() {
+    predicates = new ArrayList<>();
+    projections = new ArrayList<>();
+    aggregates = new ArrayList<>();
+  }
+
+  /**
+   * Add a predicate that matching rows must satisfy.
+   *
+   * @param predicate the predicate
+   */
+  public void addPredicate(Predicate predicate) {
+    predicates.add(predicate);
+  }
+
+  /**
+   * Add fields to project for every matching row, in order.
+   *
+   * @param fieldNames the field names
+   */
+  public void addProjection(String... fieldNames) {
+    if (!aggregates.isEmpty()) {
+      throw new IllegalStateException("A query cannot both project fields and aggregate them");
+    }
+    projections.addAll(Arrays.asList(fieldNames));
+  }
+
+  /**
+   * Add an aggregate to compute over the matching rows.
+   *
+   * @param function  the function
+   * @param fieldName the field name, or {@link Aggregate#ALL_ROWS} for COUNT
+   */
+  public void addAggregate(AggregateFunction function, String fieldName) {
+    if (!projections.isEmpty()) {
+      throw new IllegalStateException("A query cannot both project fields and aggregate them");
+    }
+    aggregates.add(new Aggregate(function, fieldName));
+  }
+
+  /**
+   * Gets the predicates.
+   *
+   * @return the predicates
+   */
+  public List<Predicate> getPredicates() {
+    return predicates;
+  }
+
+  /**
+   * Gets the projected field names.
+   *
+   * @return the projections
+   */
+  public List<String> getProjections() {
+    return projections;
+  }
+
+  /**
+   * Gets the aggregates.
+   *
+   * @return the aggregates
+   */
+  public List<Aggregate> getAggregates() {
+    return aggregates;
+  }
+
+  /**
+   * Check whether the query computes aggregates rather than projecting rows.
+   *
+   * @return true if the query has aggregates
+   */
+  public boolean isAggregate() {
+    return !aggregates.isEmpty();
+  }
+}
@@ -0,0 +1,50 @@
+package com.ntu.bdm.query;
+
+import java.util.List;
+
+/********************************************************
+ * QueryResult is a container class which holds the
+ * output of a {@link Query} as a header and a list of
+ * string arrays, in the same form as the output CSV
+ * rows of the other queries. Null values are written
+ * as the empty data symbol "M".
+ *
+ * A query with aggregates produces a single row holding
+ * one value per aggregate. A query with projections
+ * produces one row per matching row, in position order.
+ *
+ ********************************************************/
+public class QueryResult {
+
+  private final String[] header;
+  private final List<String[]> rows;
+
+  /**
+   * Instantiates a new QueryResult.
+   *
+   * @param header the header
+   * @param rows   the rows
+   */
+  public QueryResult(String[] header, List<String[]> rows) {
+    this.header = header;
+    this.rows = rows;
+  }
+
+  /**
+   * Gets the header.
+   *
+   * @return the header
+   */
+  public String[] getHeader() {
+    return header;
+  }
+
+  /**
+   * Gets the rows.
+   *
+   * @return the rows
+   */
+  public List<String[]> getRows() {
+    return rows;
+  }
+}
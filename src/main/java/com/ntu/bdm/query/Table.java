@@ -0,0 +1,91 @@
+package com.ntu.bdm.query;
+
+import com.ntu.bdm.aggregate.AggregateCube;
+import com.ntu.bdm.bitmap.RoaringBitmap;
+import com.ntu.bdm.index.RangeIndex;
+import com.ntu.bdm.vector.CategoricalColumnVector;
+import com.ntu.bdm.vector.DoubleColumn;
+import com.ntu.bdm.vector.LongColumn;
+import java.util.List;
+
+/********************************************************
+ * Table is the interface through which a {@link Query}
+ * is planned and executed against a database. It gives
+ * access to the columns of the database, to the bitmap
+ * indexes of its categorical fields, and to the
+ * statistics the planner estimates costs from.
+ *
+ * A categorical field is always indexed, but may not be
+ * held as a column, in which case its predicates can
+ * only be evaluated through its index. A double field
+ * may additionally have a {@link RangeIndex}. A table
+ * may also hold an {@link AggregateCube}, from which
+ * aggregate queries on its dimensions are answered.
+ *
+ ********************************************************/
+public interface Table {
+
+  /**
+   * Gets the number of rows.
+   *
+   * @return the row count
+   */
+  int getRowCount();
+
+  /**
+   * Gets the categories of the categorical field with the fieldName.
+   *
+   * @param fieldName the field name
+   * @return the categories, or an empty list if the field is not an indexed categorical field
+   */
+  List<String> getCategoriesForField(String fieldName);
+
+  /**
+   * Gets the index bitmap of rows whose categorical field with the fieldName holds category. The
+   * bitmap may be shared and must not be modified.
+   *
+   * @param fieldName the field name
+   * @param category  the category
+   * @return the bitmap, which is empty if category is not present
+   */
+  RoaringBitmap getBitmapForFieldWithCategory(String fieldName, String category);
+
+  /**
+   * Gets the column of the categorical field with the fieldName.
+   *
+   * @param fieldName the field name
+   * @return the categorical column vector, or null if the field is only held as an index
+   */
+  CategoricalColumnVector<String> getCategoricalColumnVector(String fieldName);
+
+  /**
+   * Gets the column of the double field with the fieldName.
+   *
+   * @param fieldName the field name
+   * @return the double column, or null if there is no such double field
+   */
+  DoubleColumn getDoubleColumn(String fieldName);
+
+  /**
+   * Gets the column of the long field with the fieldName.
+   *
+   * @param fieldName the field name
+   * @return the long column, or null if there is no such long field
+   */
+  LongColumn getLongColumn(String fieldName);
+
+  /**
+   * Gets the range index of the double field with the fieldName.
+   *
+   * @param fieldName the field name
+   * @return the range index, or null if the field has no range index
+   */
+  RangeIndex getRangeIndex(String fieldName);
+
+  /**
+   * Gets the materialized aggregates of the table.
+   *
+   * @return the aggregate cube, or null if the table has none holding every row
+   */
+  AggregateCube getAggregateCube();
+}
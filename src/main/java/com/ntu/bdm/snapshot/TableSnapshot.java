@@ -0,0 +1,128 @@
+package com.ntu.bdm.snapshot;
+
+import com.ntu.bdm.aggregate.AggregateCube;
+import com.ntu.bdm.bitmap.RoaringBitmap;
+import com.ntu.bdm.index.RangeIndex;
+import com.ntu.bdm.manager.ColumnIndexManager;
+import com.ntu.bdm.manager.ColumnVectorManager;
+import com.ntu.bdm.query.Table;
+import com.ntu.bdm.vector.CategoricalColumnVector;
+import com.ntu.bdm.vector.DoubleColumn;
+import com.ntu.bdm.vector.LongColumn;
+import java.util.Collections;
+import java.util.List;
+
+/********************************************************
+ * TableSnapshot is a container class which holds an
+ * immutable version of the columns and indexes of a
+ * database, as published by its writer.
+ *
+ * The snapshot holds the rows below its row count, which
+ * is the watermark of the rows appended when it was
+ * taken, together with read-only snapshots of the
+ * {@link ColumnVectorManager}, the
+ * {@link ColumnIndexManager} and the
+ * {@link AggregateCube}. Rows appended afterwards
+ * are left out of it, so any number of threads can plan
+ * and execute queries against a snapshot without locks
+ * while the writer appends rows and publishes newer
+ * snapshots.
+ *
+ ********************************************************/
+public class TableSnapshot implements Table {
+
+  private final long version;
+  private final int rowCount;
+  private final ColumnVectorManager columnVectorManager;
+  private final ColumnIndexManager columnIndexManager;
+  private final AggregateCube aggregateCube;
+
+  /**
+   * Instantiates a new TableSnapshot.
+   *
+   * @param version             the version, increasing with every snapshot published
+   * @param rowCount            the number of rows in the snapshot
+   * @param columnVectorManager the snapshot of the column vectors
+   * @param columnIndexManager  the snapshot of the indexes
+   * @param aggregateCube       the snapshot of the aggregate cube
+   */
+  public TableSnapshot(long version, int rowCount, ColumnVectorManager columnVectorManager,
+      ColumnIndexManager columnIndexManager, AggregateCube aggregateCube) {
+    this.version = version;
+    this.rowCount = rowCount;
+    this.columnVectorManager = columnVectorManager;
+    this.columnIndexManager = columnIndexManager;
+    this.aggregateCube = aggregateCube;
+  }
+
+  /**
+   * Gets the version.
+   *
+   * @return the version
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Gets the snapshot of the column vectors.
+   *
+   * @return the column vector manager
+   */
+  public ColumnVectorManager getColumnVectorManager() {
+    return columnVectorManager;
+  }
+
+  /**
+   * Gets the snapshot of the indexes.
+   *
+   * @return the column index manager
+   */
+  public ColumnIndexManager getColumnIndexManager() {
+    return columnIndexManager;
+  }
+
+  @Override
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  @Override
+  public List<String> getCategoriesForField(String fieldName) {
+    CategoricalColumnVector<String> categoricalColumnVector =
+        columnVectorManager.getCategoricalColumnVector(fieldName);
+    return categoricalColumnVector == null ? Collections.emptyList()
+        : categoricalColumnVector.getCategories();
+  }
+
+  @Override
+  public RoaringBitmap getBitmapForFieldWithCategory(String fieldName, String category) {
+    RoaringBitmap bitmap = columnIndexManager.getBitmapForFieldWithCategory(fieldName, category);
+    return bitmap == null ? new RoaringBitmap() : bitmap;
+  }
+
+  @Override
+  public CategoricalColumnVector<String> getCategoricalColumnVector(String fieldName) {
+    return columnVectorManager.getCategoricalColumnVector(fieldName);
+  }
+
+  @Override
+  public DoubleColumn getDoubleColumn(String fieldName) {
+    return columnVectorManager.getDoubleColumnVector(fieldName);
+  }
+
+  @Override
+  public LongColumn getLongColumn(String fieldName) {
+    return columnVectorManager.getLongColumnVector(fieldName);
+  }
+
+  @Override
+  public RangeIndex getRangeIndex(String fieldName) {
+    return columnIndexManager.getRangeColumnIndex(fieldName);
+  }
+
+  @Override
+  public AggregateCube getAggregateCube() {
+    return aggregateCube != null && aggregateCube.getRowCount() == rowCount ? aggregateCube : null;
+  }
+}
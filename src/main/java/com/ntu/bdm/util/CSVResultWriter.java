@@ -0,0 +1,163 @@
+package com.ntu.bdm.util;
+
+import com.opencsv.CSVWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/********************************************************
+ * CSVResultWriter is a controller class which writes
+ * result rows to an output CSV file in the background,
+ * so that queries keep running while earlier results
+ * are written.
+ *
+ * The file is opened once, truncated and given its
+ * header. Rows passed to {@link #write(List)} are put on
+ * a bounded queue, from which a dedicated writer thread
+ * formats them into CSV lines through one buffered
+ * writer. Once the queue is full, write blocks until the
+ * writer thread catches up, so a slow disk slows the
+ * queries down instead of letting results pile up in
+ * memory. Closing waits for every queued row to be
+ * written and closes the file.
+ *
+ * A failure of the writer thread is reported by the next
+ * call to write or close.
+ *
+ ********************************************************/
+public class CSVResultWriter implements AutoCloseable {
+
+  private static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+  private final String filePath;
+  private final CSVWriter csvWriter;
+  private final BlockingQueue<List<String[]>> queue;
+  private final List<String[]> endOfRows;
+  private final Thread writerThread;
+  private volatile IOException failure;
+  private boolean closed;
+
+  /**
+   * Instantiates a new CSVResultWriter, writing header as the first row of the file at filePath,
+   * with room for DEFAULT_QUEUE_CAPACITY batches of rows in the queue.
+   *
+   * @param filePath the file path
+   * @param header   the header
+   */
+  public CSVResultWriter(String filePath, String[] header) {
+    this(filePath, header, DEFAULT_QUEUE_CAPACITY);
+  }
+
+  /**
+   * Instantiates a new CSVResultWriter, writing header as the first row of the file at filePath,
+   * with room for queueCapacity batches of rows in the queue.
+   *
+   * @param filePath      the file path
+   * @param header        the header
+   * @param queueCapacity the number of batches of rows queued before write blocks
+   */
+  public CSVResultWriter(String filePath, String[] header, int queueCapacity) {
+    this.filePath = filePath;
+    try {
+      // Create CSVWriter with ',' as separator over a buffered writer kept open until closed
+      csvWriter = new CSVWriter(
+          Files.newBufferedWriter(Paths.get(filePath), StandardCharsets.UTF_8), ',',
+          CSVWriter.NO_QUOTE_CHARACTER,
+          CSVWriter.DEFAULT_ESCAPE_CHARACTER,
+          CSVWriter.DEFAULT_LINE_END);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to open result file " + filePath, e);
+    }
+    csvWriter.writeNext(header);
+
+    queue = new ArrayBlockingQueue<>(queueCapacity);
+    endOfRows = new ArrayList<>();
+    writerThread = new Thread(this::writeQueuedRows, "csv-result-writer");
+    writerThread.start();
+  }
+
+  /**
+   * Queue rows to be written to the end of the file, blocking while the queue is full. The rows
+   * must not be modified afterwards.
+   *
+   * @param rows the rows
+   */
+  public void write(List<String[]> rows) {
+    checkFailure();
+    if (closed) {
+      throw new IllegalStateException("Result file is closed: " + filePath);
+    }
+    if (rows.isEmpty()) {
+      return;
+    }
+    try {
+      queue.put(rows);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while queueing results for " + filePath, e);
+    }
+  }
+
+  /**
+   * Wait for every queued row to be written, then close the file.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      queue.put(endOfRows);
+      writerThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while closing result file " + filePath, e);
+    }
+    checkFailure();
+  }
+
+  /*
+   * Writes the rows taken from the queue until the end of rows is reached or writing fails, and
+   * closes the file. After a failure the queue is still drained, so that write never blocks on a
+   * writer thread that has stopped writing.
+   */
+  private void writeQueuedRows() {
+    try {
+      List<String[]> rows;
+      while ((rows = queue.take()) != endOfRows) {
+        if (failure == null) {
+          csvWriter.writeAll(rows);
+          if (csvWriter.checkError()) {
+            failure = new IOException("Unable to write result file " + filePath);
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      failure = new IOException("Interrupted while writing result file " + filePath, e);
+    } finally {
+      try {
+        csvWriter.close();
+      } catch (IOException e) {
+        if (failure == null) {
+          failure = e;
+        }
+      }
+    }
+  }
+
+  /*
+   * Throws the failure of the writer thread, if any.
+   */
+  private void checkFailure() {
+    IOException writerFailure = failure;
+    if (writerFailure != null) {
+      throw new IllegalStateException("Unable to write result file " + filePath, writerFailure);
+    }
+  }
+}
@@ -0,0 +1,304 @@
+package com.ntu.bdm.util;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/********************************************************
+ * CSVRowReader is a streaming reader of CSV files. It
+ * reads the file in fixed-size chunks of characters and
+ * exposes one row at a time, so memory use does not grow
+ * with the size of the file.
+ *
+ * The current row is never copied out of the chunk
+ * buffer. Fields are tracked as start and end offsets in
+ * reusable arrays, and callers convert only the fields
+ * they need, e.g. numeric fields are parsed straight
+ * from the buffer without creating a String.
+ *
+ * Fields are separated by commas and rows by line
+ * breaks. Quoted fields are not supported, as none of
+ * the input or column files contain them.
+ *
+ ********************************************************/
+public class CSVRowReader implements AutoCloseable {
+
+  private static final int CHUNK_SIZE = 1 << 16;
+  private static final int INITIAL_FIELD_CAPACITY = 8;
+  private static final int MAX_FAST_PATH_DIGITS = 15;
+  private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8,
+      1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15};
+
+  private final Reader reader;
+  private char[] buffer;
+  private int position;
+  private int limit;
+  private boolean endOfFile;
+
+  private int[] fieldStarts;
+  private int[] fieldEnds;
+  private int fieldCount;
+  private long rowCount;
+
+  /**
+   * Instantiates a new CSVRowReader for the file at filePath and skips the first skipLines rows.
+   *
+   * @param filePath  the file path
+   * @param skipLines the number of rows to skip, e.g. 1 to skip the header
+   */
+  public CSVRowReader(String filePath, int skipLines) {
+    try {
+      reader = new InputStreamReader(new FileInputStream(filePath), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    buffer = new char[CHUNK_SIZE];
+    position = 0;
+    limit = 0;
+    endOfFile = false;
+    fieldStarts = new int[INITIAL_FIELD_CAPACITY];
+    fieldEnds = new int[INITIAL_FIELD_CAPACITY];
+    fieldCount = 0;
+
+    for (int i = 0; i < skipLines; i++) {
+      readNext();
+    }
+    rowCount = 0;
+  }
+
+  /**
+   * Advance to the next non-empty row. The fields of the previous row are no longer available
+   * afterwards.
+   *
+   * @return true if there is a next row, false if the end of file is reached
+   */
+  public boolean readNext() {
+    while (true) {
+      for (int i = position; i < limit; i++) {
+        if (buffer[i] == '\n') {
+          int start = position;
+          position = i + 1;
+          if (splitRow(start, i)) {
+            return true;
+          }
+          i = position - 1;
+        }
+      }
+
+      if (endOfFile) {
+        int start = position;
+        position = limit;
+        return start < limit && splitRow(start, limit);
+      }
+      fillBuffer();
+    }
+  }
+
+  /**
+   * Gets the number of rows read so far, excluding skipped rows.
+   *
+   * @return the row count
+   */
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Gets the number of fields in the current row.
+   *
+   * @return the field count
+   */
+  public int getFieldCount() {
+    return fieldCount;
+  }
+
+  /**
+   * Gets a field of the current row as a new String.
+   *
+   * @param index the index of the field
+   * @return the field
+   */
+  public String getField(int index) {
+    return new String(buffer, fieldStarts[index], fieldEnds[index] - fieldStarts[index]);
+  }
+
+  /**
+   * Gets a field of the current row, returning candidate instead of a new String if the field
+   * holds the same characters. Passing the value of the previous row avoids an allocation for
+   * columns that repeat their value across consecutive rows.
+   *
+   * @param index     the index of the field
+   * @param candidate the candidate, may be null
+   * @return the field
+   */
+  public String getField(int index, String candidate) {
+    return candidate != null && fieldEquals(index, candidate) ? candidate : getField(index);
+  }
+
+  /**
+   * Checks whether a field of the current row holds the same characters as value.
+   *
+   * @param index the index of the field
+   * @param value the value
+   * @return true if the field equals value
+   */
+  public boolean fieldEquals(int index, String value) {
+    int start = fieldStarts[index];
+    int length = fieldEnds[index] - start;
+    if (length != value.length()) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (buffer[start + i] != value.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parses a field of the current row as a double. Plain decimals of up to 15 significant digits
+   * are parsed straight from the buffer, and give the same result as {@link Double#parseDouble}
+   * because both the digits and the power of ten are exact doubles and a single division is
+   * correctly rounded. Other formats fall back to Double.parseDouble.
+   *
+   * @param index the index of the field
+   * @return the parsed double
+   */
+  public double parseDoubleField(int index) {
+    int i = fieldStarts[index];
+    int end = fieldEnds[index];
+
+    boolean negative = i < end && buffer[i] == '-';
+    if (negative || (i < end && buffer[i] == '+')) {
+      i++;
+    }
+
+    long mantissa = 0;
+    int digits = 0;
+    int fractionDigits = -1;
+    for (; i < end; i++) {
+      char c = buffer[i];
+      if (c >= '0' && c <= '9') {
+        mantissa = mantissa * 10 + (c - '0');
+        digits++;
+        if (fractionDigits >= 0) {
+          fractionDigits++;
+        }
+      } else if (c == '.' && fractionDigits < 0) {
+        fractionDigits = 0;
+      } else {
+        break;
+      }
+    }
+
+    if (i != end || digits == 0 || digits > MAX_FAST_PATH_DIGITS) {
+      return Double.parseDouble(getField(index));
+    }
+
+    double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+    return negative ? -value : value;
+  }
+
+  /**
+   * Gets the buffer holding the current row. It is only valid until the next call to
+   * {@link #readNext()}.
+   *
+   * @return the buffer
+   */
+  public char[] getBuffer() {
+    return buffer;
+  }
+
+  /**
+   * Gets the offset of the first character of a field of the current row in the buffer.
+   *
+   * @param index the index of the field
+   * @return the field start
+   */
+  public int getFieldStart(int index) {
+    return fieldStarts[index];
+  }
+
+  /**
+   * Gets the number of characters of a field of the current row.
+   *
+   * @param index the index of the field
+   * @return the field length
+   */
+  public int getFieldLength(int index) {
+    return fieldEnds[index] - fieldStarts[index];
+  }
+
+  /**
+   * Close the underlying file.
+   */
+  @Override
+  public void close() {
+    try {
+      reader.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /*
+   * Records the field offsets of the row between start and end, excluding a trailing carriage
+   * return. Returns false if the row is empty.
+   */
+  private boolean splitRow(int start, int end) {
+    if (end > start && buffer[end - 1] == '\r') {
+      end--;
+    }
+    if (end == start) {
+      return false;
+    }
+
+    fieldCount = 0;
+    int fieldStart = start;
+    for (int i = start; i <= end; i++) {
+      if (i == end || buffer[i] == ',') {
+        if (fieldCount == fieldStarts.length) {
+          fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+          fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = fieldStart;
+        fieldEnds[fieldCount] = i;
+        fieldCount++;
+        fieldStart = i + 1;
+      }
+    }
+    rowCount++;
+    return true;
+  }
+
+  /*
+   * Moves the unread characters to the front of the buffer and reads the next chunk after them.
+   * The buffer is doubled if a single row does not fit into it.
+   */
+  private void fillBuffer() {
+    int remaining = limit - position;
+    if (remaining == buffer.length) {
+      buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    } else {
+      System.arraycopy(buffer, position, buffer, 0, remaining);
+    }
+    position = 0;
+    limit = remaining;
+
+    try {
+      int read = reader.read(buffer, limit, buffer.length - limit);
+      if (read < 0) {
+        endOfFile = true;
+      } else {
+        limit += read;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,690 @@
+package com.ntu.bdm.util;
+
+import com.ntu.bdm.vector.DoubleColumnVector;
+import com.ntu.bdm.vector.LongColumnVector;
+import com.ntu.bdm.vector.ZoneMap;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/********************************************************
+ * ColumnFileUtil is utility class which contains just
+ * static methods and cannot be instantiated. It provides
+ * methods to write column vectors to binary column files,
+ * to append rows to them, and to read them by reading
+ * sections of them from a channel.
+ *
+ * A column file stores one column in fixed-width little
+ * endian layout. It begins with a header of
+ * HEADER_SIZE bytes:
+ *
+ *   offset  0  int   magic number
+ *   offset  4  byte  format version
+ *   offset  5  byte  column type
+ *   offset  6  short value width in bytes
+ *   offset  8  int   row count
+ *   offset 12  int   null count
+ *   offset 16  long  data offset
+ *   offset 24  long  null bitmap offset
+ *   offset 32  int   zone map block size
+ *   offset 36  int   zone map block count
+ *   offset 40  long  zone map offset
+ *   offset 48  int   row capacity
+ *
+ * The data section has room for row capacity values of
+ * value width bytes each, of which the first row count
+ * are used, so the value of a row is found at data
+ * offset + row * value width. It is followed by the
+ * null bitmap, an array of longs with room for row
+ * capacity bits in which a set bit marks a non-null row
+ * in the same manner as the validity vector of a column
+ * vector.
+ *
+ * Double column files end with the {@link ZoneMap} of
+ * the column: the block minimums as doubles, the block
+ * maximums as doubles and the block null counts as ints,
+ * each with room for the blocks of row capacity rows of
+ * which the first block count are used. Other column
+ * files have a block count of zero.
+ *
+ * Rows are appended in place while they fit within the
+ * row capacity, touching only the end of each section
+ * and the header, which is written last. A column file
+ * which is full is first copied into a new file with
+ * half as much room again, so the cost of appending is
+ * proportional to the rows appended, amortised over the
+ * copies. The unused room is left as holes in the file.
+ *
+ ********************************************************/
+public class ColumnFileUtil {
+
+  /**
+   * The magic number identifying a column file.
+   */
+  public static final int MAGIC = 0x4C4F434E;
+
+  /**
+   * The format version written by this class.
+   */
+  public static final byte FORMAT_VERSION = 3;
+
+  /**
+   * The column type of a double column file.
+   */
+  public static final byte TYPE_DOUBLE = 1;
+
+  /**
+   * The column type of a long column file.
+   */
+  public static final byte TYPE_LONG = 3;
+
+  /**
+   * The size of the header in bytes.
+   */
+  public static final int HEADER_SIZE = 64;
+
+  /**
+   * The offsets of the header fields.
+   */
+  public static final int VERSION_OFFSET = 4;
+  public static final int TYPE_OFFSET = 5;
+  public static final int VALUE_WIDTH_OFFSET = 6;
+  public static final int ROW_COUNT_OFFSET = 8;
+  public static final int NULL_COUNT_OFFSET = 12;
+  public static final int DATA_OFFSET_OFFSET = 16;
+  public static final int NULL_BITMAP_OFFSET_OFFSET = 24;
+  public static final int BLOCK_SIZE_OFFSET = 32;
+  public static final int BLOCK_COUNT_OFFSET = 36;
+  public static final int ZONE_MAP_OFFSET_OFFSET = 40;
+  public static final int ROW_CAPACITY_OFFSET = 48;
+
+  private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+  private ColumnFileUtil() {
+  }
+
+  /**
+   * Write DoubleColumnVector to a column file.
+   *
+   * @param filePath           the file path
+   * @param doubleColumnVector the double column vector
+   */
+  public static void writeDoubleColumnVector(String filePath,
+      DoubleColumnVector doubleColumnVector) {
+    int rowCount = doubleColumnVector.getValueCount();
+    int rowCapacity = getRowCapacity(rowCount);
+
+    try (FileChannel channel = openForWrite(filePath)) {
+      ByteBuffer buffer = newWriteBuffer();
+      ZoneMap zoneMap = doubleColumnVector.getZoneMap();
+      writeHeader(buffer, TYPE_DOUBLE, Double.BYTES, rowCount, doubleColumnVector.getNullCount(),
+          zoneMap.getBlockCount(), rowCapacity);
+
+      for (int i = 0; i < rowCount; i++) {
+        flushIfFull(channel, buffer, Double.BYTES);
+        buffer.putDouble(doubleColumnVector.isNull(i) ? 0 : doubleColumnVector.get(i));
+      }
+
+      flush(channel, buffer);
+      channel.position(getNullBitmapOffset(Double.BYTES, rowCapacity));
+      writeNullBitmap(channel, buffer, doubleColumnVector.getValidityVector().toLongArray(),
+          rowCount);
+      writeZoneMap(channel, buffer, zoneMap, getZoneMapOffset(Double.BYTES, rowCapacity),
+          getBlockCount(rowCapacity));
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Write LongColumnVector to a column file.
+   *
+   * @param filePath         the file path
+   * @param longColumnVector the long column vector
+   */
+  public static void writeLongColumnVector(String filePath, LongColumnVector longColumnVector) {
+    int rowCount = longColumnVector.getValueCount();
+    int rowCapacity = getRowCapacity(rowCount);
+
+    try (FileChannel channel = openForWrite(filePath)) {
+      ByteBuffer buffer = newWriteBuffer();
+      writeHeader(buffer, TYPE_LONG, Long.BYTES, rowCount, longColumnVector.getNullCount(), 0,
+          rowCapacity);
+
+      for (int i = 0; i < rowCount; i++) {
+        flushIfFull(channel, buffer, Long.BYTES);
+        buffer.putLong(longColumnVector.isNull(i) ? 0 : longColumnVector.get(i));
+      }
+
+      flush(channel, buffer);
+      channel.position(getNullBitmapOffset(Long.BYTES, rowCapacity));
+      writeNullBitmap(channel, buffer, longColumnVector.getValidityVector().toLongArray(),
+          rowCount);
+      flush(channel, buffer);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Append the rows of DoubleColumnVector to the end of a column file, updating its null bitmap
+   * and the zone map of the blocks the rows fall into. The column file is written as a whole if
+   * it does not exist yet.
+   *
+   * @param filePath           the file path
+   * @param doubleColumnVector the double column vector holding the rows to append
+   */
+  public static void appendDoubleColumnVector(String filePath,
+      DoubleColumnVector doubleColumnVector) {
+    if (!Files.isRegularFile(Path.of(filePath))) {
+      writeDoubleColumnVector(filePath, doubleColumnVector);
+      return;
+    }
+
+    int appendCount = doubleColumnVector.getValueCount();
+    try (FileChannel channel = openForAppend(filePath, TYPE_DOUBLE, appendCount)) {
+      ByteBuffer header = readHeader(channel, filePath, TYPE_DOUBLE);
+      int rowCount = header.getInt(ROW_COUNT_OFFSET);
+
+      ByteBuffer buffer = newWriteBuffer();
+      channel.position(header.getLong(DATA_OFFSET_OFFSET) + (long) rowCount * Double.BYTES);
+      for (int i = 0; i < appendCount; i++) {
+        flushIfFull(channel, buffer, Double.BYTES);
+        buffer.putDouble(doubleColumnVector.isNull(i) ? 0 : doubleColumnVector.get(i));
+      }
+      flush(channel, buffer);
+
+      appendNullBitmap(channel, header, doubleColumnVector.getValidityVector(), appendCount);
+      appendZoneMap(channel, header, doubleColumnVector, buffer);
+      updateHeader(channel, header, appendCount, doubleColumnVector.getNullCount(), true);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Append the rows of LongColumnVector to the end of a column file, updating its null bitmap.
+   * The column file is written as a whole if it does not exist yet.
+   *
+   * @param filePath         the file path
+   * @param longColumnVector the long column vector holding the rows to append
+   */
+  public static void appendLongColumnVector(String filePath, LongColumnVector longColumnVector) {
+    if (!Files.isRegularFile(Path.of(filePath))) {
+      writeLongColumnVector(filePath, longColumnVector);
+      return;
+    }
+
+    int appendCount = longColumnVector.getValueCount();
+    try (FileChannel channel = openForAppend(filePath, TYPE_LONG, appendCount)) {
+      ByteBuffer header = readHeader(channel, filePath, TYPE_LONG);
+      int rowCount = header.getInt(ROW_COUNT_OFFSET);
+
+      ByteBuffer buffer = newWriteBuffer();
+      channel.position(header.getLong(DATA_OFFSET_OFFSET) + (long) rowCount * Long.BYTES);
+      for (int i = 0; i < appendCount; i++) {
+        flushIfFull(channel, buffer, Long.BYTES);
+        buffer.putLong(longColumnVector.isNull(i) ? 0 : longColumnVector.get(i));
+      }
+      flush(channel, buffer);
+
+      appendNullBitmap(channel, header, longColumnVector.getValidityVector(), appendCount);
+      updateHeader(channel, header, appendCount, longColumnVector.getNullCount(), false);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Read the header of a column file from a channel opened on it.
+   *
+   * @param channel      the channel
+   * @param filePath     the file path
+   * @param expectedType the expected column type
+   * @return the header, holding HEADER_SIZE bytes at the offsets of the header fields
+   */
+  public static ByteBuffer readHeader(FileChannel channel, String filePath, byte expectedType) {
+    ByteBuffer header = readSection(channel, 0, HEADER_SIZE);
+    validateHeader(header, filePath, expectedType);
+    return header;
+  }
+
+  /**
+   * Read length bytes of a column file from position onwards.
+   *
+   * @param channel  the channel
+   * @param position the position in the file
+   * @param length   the number of bytes
+   * @return the little endian buffer holding the bytes from index 0
+   */
+  public static ByteBuffer readSection(FileChannel channel, long position, int length) {
+    ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    try {
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, position + buffer.position()) < 0) {
+          throw new IllegalStateException("Unexpected end of column file at " + position);
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read column file", e);
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Read the zone map of a double column file from a channel opened on it.
+   *
+   * @param channel the channel
+   * @param header  the header returned by {@link #readHeader}
+   * @return the zone map
+   */
+  public static ZoneMap readZoneMap(FileChannel channel, ByteBuffer header) {
+    int blockCount = header.getInt(BLOCK_COUNT_OFFSET);
+    int blockCapacity = getBlockCount(header.getInt(ROW_CAPACITY_OFFSET));
+    int length = blockCount == 0 ? 0
+        : 2 * blockCapacity * Double.BYTES + blockCount * Integer.BYTES;
+    ByteBuffer section = readSection(channel, header.getLong(ZONE_MAP_OFFSET_OFFSET), length);
+    return decodeZoneMap(header, section, 0);
+  }
+
+  /*
+   * Checks the magic number, format version and column type in the header of a column file.
+   */
+  private static void validateHeader(ByteBuffer header, String filePath, byte expectedType) {
+    if (header.getInt(0) != MAGIC || header.get(VERSION_OFFSET) != FORMAT_VERSION
+        || header.get(TYPE_OFFSET) != expectedType) {
+      throw new IllegalStateException("Not a version " + FORMAT_VERSION + " column file of type "
+          + expectedType + ": " + filePath);
+    }
+  }
+
+  /*
+   * Decodes the zone map described by header whose block minimums start at offset of section.
+   */
+  private static ZoneMap decodeZoneMap(ByteBuffer header, ByteBuffer section, int offset) {
+    if (header.getInt(BLOCK_SIZE_OFFSET) != ZoneMap.BLOCK_SIZE) {
+      throw new IllegalStateException(
+          "Unsupported zone map block size " + header.getInt(BLOCK_SIZE_OFFSET));
+    }
+
+    int blockCount = header.getInt(BLOCK_COUNT_OFFSET);
+    int blockCapacity = getBlockCount(header.getInt(ROW_CAPACITY_OFFSET));
+    double[] minimums = new double[blockCount];
+    double[] maximums = new double[blockCount];
+    int[] nullCounts = new int[blockCount];
+
+    for (int i = 0; i < blockCount; i++) {
+      minimums[i] = section.getDouble(offset + i * Double.BYTES);
+    }
+    offset += blockCapacity * Double.BYTES;
+    for (int i = 0; i < blockCount; i++) {
+      maximums[i] = section.getDouble(offset + i * Double.BYTES);
+    }
+    offset += blockCapacity * Double.BYTES;
+    for (int i = 0; i < blockCount; i++) {
+      nullCounts[i] = section.getInt(offset + i * Integer.BYTES);
+    }
+
+    return new ZoneMap(header.getInt(ROW_COUNT_OFFSET), minimums, maximums, nullCounts);
+  }
+
+  /*
+   * Opens the file at filePath for writing, truncating any existing content.
+   */
+  private static FileChannel openForWrite(String filePath) throws IOException {
+    return FileChannel.open(Path.of(filePath), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  /*
+   * Opens the column file at filePath for reading and writing, after copying it into a larger
+   * file if it does not have room for another appendCount rows.
+   */
+  private static FileChannel openForAppend(String filePath, byte type, int appendCount)
+      throws IOException {
+    FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    ByteBuffer header = readHeader(channel, filePath, type);
+    long requiredRowCount = (long) header.getInt(ROW_COUNT_OFFSET) + appendCount;
+    int rowCapacity = header.getInt(ROW_CAPACITY_OFFSET);
+    if (requiredRowCount <= rowCapacity) {
+      return channel;
+    }
+
+    long grownRowCount = Math.max(requiredRowCount, (long) rowCapacity + rowCapacity / 2);
+    if (grownRowCount > Integer.MAX_VALUE - ZoneMap.BLOCK_SIZE) {
+      channel.close();
+      throw new IllegalStateException("Column file is full: " + filePath);
+    }
+    try {
+      growColumnFile(filePath, channel, header, getRowCapacity((int) grownRowCount));
+    } finally {
+      channel.close();
+    }
+    return FileChannel.open(Path.of(filePath), StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+  }
+
+  /*
+   * Copies the used part of every section of the column file read by channel into a new file
+   * with room for rowCapacity rows, which then replaces the column file.
+   */
+  private static void growColumnFile(String filePath, FileChannel channel, ByteBuffer header,
+      int rowCapacity) throws IOException {
+    int valueWidth = header.getShort(VALUE_WIDTH_OFFSET);
+    int rowCount = header.getInt(ROW_COUNT_OFFSET);
+    int blockCount = header.getInt(BLOCK_COUNT_OFFSET);
+    int oldBlockCapacity = getBlockCount(header.getInt(ROW_CAPACITY_OFFSET));
+    int newBlockCapacity = getBlockCount(rowCapacity);
+    long oldZoneMapOffset = header.getLong(ZONE_MAP_OFFSET_OFFSET);
+    long newZoneMapOffset = getZoneMapOffset(valueWidth, rowCapacity);
+
+    Path grownFilePath = Path.of(filePath + ".tmp");
+    try (FileChannel grownChannel = FileChannel.open(grownFilePath, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = newWriteBuffer();
+      writeHeader(buffer, header.get(TYPE_OFFSET), valueWidth, rowCount,
+          header.getInt(NULL_COUNT_OFFSET), blockCount, rowCapacity);
+      flush(grownChannel, buffer);
+
+      copySection(channel, grownChannel, header.getLong(DATA_OFFSET_OFFSET), HEADER_SIZE,
+          (long) rowCount * valueWidth);
+      copySection(channel, grownChannel, header.getLong(NULL_BITMAP_OFFSET_OFFSET),
+          getNullBitmapOffset(valueWidth, rowCapacity), getNullBitmapWordCount(rowCount)
+              * (long) Long.BYTES);
+      for (int i = 0; i < 2; i++) {
+        copySection(channel, grownChannel,
+            oldZoneMapOffset + (long) i * oldBlockCapacity * Double.BYTES,
+            newZoneMapOffset + (long) i * newBlockCapacity * Double.BYTES,
+            (long) blockCount * Double.BYTES);
+      }
+      copySection(channel, grownChannel,
+          oldZoneMapOffset + 2L * oldBlockCapacity * Double.BYTES,
+          newZoneMapOffset + 2L * newBlockCapacity * Double.BYTES,
+          (long) blockCount * Integer.BYTES);
+    }
+    Files.move(grownFilePath, Path.of(filePath), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /*
+   * Copies length bytes at sourcePosition of source to targetPosition of target.
+   */
+  private static void copySection(FileChannel source, FileChannel target, long sourcePosition,
+      long targetPosition, long length) throws IOException {
+    long copied = 0;
+    while (copied < length) {
+      long transferred = source.transferTo(sourcePosition + copied, length - copied,
+          target.position(targetPosition + copied));
+      if (transferred <= 0) {
+        throw new IllegalStateException("Unexpected end of column file at " + sourcePosition);
+      }
+      copied += transferred;
+    }
+  }
+
+  /*
+   * Sets the bits of the non-null appended rows in the null bitmap words they fall into. The
+   * first word is read back, as it may also hold bits of rows already in the column file.
+   */
+  private static void appendNullBitmap(FileChannel channel, ByteBuffer header,
+      BitSet validityVector, int appendCount) throws IOException {
+    if (appendCount == 0) {
+      return;
+    }
+    int rowCount = header.getInt(ROW_COUNT_OFFSET);
+    int firstWord = rowCount / Long.SIZE;
+    int lastWord = (rowCount + appendCount - 1) / Long.SIZE;
+    long firstWordPosition = header.getLong(NULL_BITMAP_OFFSET_OFFSET)
+        + (long) firstWord * Long.BYTES;
+
+    long[] words = new long[lastWord - firstWord + 1];
+    if (rowCount % Long.SIZE != 0) {
+      words[0] = readSection(channel, firstWordPosition, Long.BYTES).getLong(0);
+    }
+    for (int i = validityVector.nextSetBit(0); i >= 0 && i < appendCount;
+        i = validityVector.nextSetBit(i + 1)) {
+      int row = rowCount + i;
+      words[row / Long.SIZE - firstWord] |= 1L << row;
+    }
+
+    ByteBuffer section = ByteBuffer.allocate(words.length * Long.BYTES)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    section.asLongBuffer().put(words);
+    writeSection(channel, firstWordPosition, section);
+  }
+
+  /*
+   * Folds the appended rows into the zone map blocks they fall into. The statistics of the first
+   * block are read back if it already holds rows of the column file.
+   */
+  private static void appendZoneMap(FileChannel channel, ByteBuffer header,
+      DoubleColumnVector doubleColumnVector, ByteBuffer buffer) throws IOException {
+    int appendCount = doubleColumnVector.getValueCount();
+    if (appendCount == 0) {
+      return;
+    }
+    int rowCount = header.getInt(ROW_COUNT_OFFSET);
+    int blockCapacity = getBlockCount(header.getInt(ROW_CAPACITY_OFFSET));
+    long minimumsOffset = header.getLong(ZONE_MAP_OFFSET_OFFSET);
+    long maximumsOffset = minimumsOffset + (long) blockCapacity * Double.BYTES;
+    long nullCountsOffset = maximumsOffset + (long) blockCapacity * Double.BYTES;
+
+    int firstBlock = rowCount >>> ZoneMap.BLOCK_SHIFT;
+    int lastBlock = (rowCount + appendCount - 1) >>> ZoneMap.BLOCK_SHIFT;
+    int blockCount = lastBlock - firstBlock + 1;
+    double[] minimums = new double[blockCount];
+    double[] maximums = new double[blockCount];
+    int[] nullCounts = new int[blockCount];
+    Arrays.fill(minimums, Double.POSITIVE_INFINITY);
+    Arrays.fill(maximums, Double.NEGATIVE_INFINITY);
+    if ((rowCount & (ZoneMap.BLOCK_SIZE - 1)) != 0) {
+      minimums[0] = readSection(channel, minimumsOffset + (long) firstBlock * Double.BYTES,
+          Double.BYTES).getDouble(0);
+      maximums[0] = readSection(channel, maximumsOffset + (long) firstBlock * Double.BYTES,
+          Double.BYTES).getDouble(0);
+      nullCounts[0] = readSection(channel, nullCountsOffset + (long) firstBlock * Integer.BYTES,
+          Integer.BYTES).getInt(0);
+    }
+
+    for (int i = 0; i < appendCount; i++) {
+      int block = ((rowCount + i) >>> ZoneMap.BLOCK_SHIFT) - firstBlock;
+      if (doubleColumnVector.isNull(i)) {
+        nullCounts[block]++;
+      } else {
+        double value = doubleColumnVector.get(i);
+        minimums[block] = Math.min(minimums[block], value);
+        maximums[block] = Math.max(maximums[block], value);
+      }
+    }
+
+    channel.position(minimumsOffset + (long) firstBlock * Double.BYTES);
+    for (double minimum : minimums) {
+      flushIfFull(channel, buffer, Double.BYTES);
+      buffer.putDouble(minimum);
+    }
+    flush(channel, buffer);
+    channel.position(maximumsOffset + (long) firstBlock * Double.BYTES);
+    for (double maximum : maximums) {
+      flushIfFull(channel, buffer, Double.BYTES);
+      buffer.putDouble(maximum);
+    }
+    flush(channel, buffer);
+    channel.position(nullCountsOffset + (long) firstBlock * Integer.BYTES);
+    for (int nullCount : nullCounts) {
+      flushIfFull(channel, buffer, Integer.BYTES);
+      buffer.putInt(nullCount);
+    }
+    flush(channel, buffer);
+  }
+
+  /*
+   * Adds the appended rows to the row count, null count and, if the column file has a zone map,
+   * block count of its header. The header is written after the appended rows, so readers never
+   * see a row count covering rows which are not written yet.
+   */
+  private static void updateHeader(FileChannel channel, ByteBuffer header, int appendCount,
+      int appendNullCount, boolean hasZoneMap) throws IOException {
+    int rowCount = header.getInt(ROW_COUNT_OFFSET) + appendCount;
+    header.putInt(ROW_COUNT_OFFSET, rowCount);
+    header.putInt(NULL_COUNT_OFFSET, header.getInt(NULL_COUNT_OFFSET) + appendNullCount);
+    if (hasZoneMap) {
+      header.putInt(BLOCK_COUNT_OFFSET, getBlockCount(rowCount));
+    }
+    header.rewind();
+    writeSection(channel, 0, header);
+  }
+
+  /*
+   * Writes the remaining bytes of section to channel at position.
+   */
+  private static void writeSection(FileChannel channel, long position, ByteBuffer section)
+      throws IOException {
+    while (section.hasRemaining()) {
+      channel.write(section, position + section.position());
+    }
+  }
+
+  /*
+   * Gets the row capacity a column file of rowCount rows is written with, which rounds it up to
+   * a whole number of zone map blocks.
+   */
+  private static int getRowCapacity(int rowCount) {
+    int blockCount = Math.max(1, getBlockCount(rowCount));
+    return blockCount << ZoneMap.BLOCK_SHIFT;
+  }
+
+  /*
+   * Gets the number of zone map blocks of rowCount rows.
+   */
+  private static int getBlockCount(int rowCount) {
+    return (int) (((long) rowCount + ZoneMap.BLOCK_SIZE - 1) >>> ZoneMap.BLOCK_SHIFT);
+  }
+
+  /*
+   * Gets the number of null bitmap words of rowCount rows.
+   */
+  private static int getNullBitmapWordCount(int rowCount) {
+    return (rowCount + Long.SIZE - 1) / Long.SIZE;
+  }
+
+  /*
+   * Gets the offset of the null bitmap of a column file with room for rowCapacity values of
+   * valueWidth bytes.
+   */
+  private static long getNullBitmapOffset(int valueWidth, int rowCapacity) {
+    return HEADER_SIZE + (long) rowCapacity * valueWidth;
+  }
+
+  /*
+   * Gets the offset of the zone map of a column file with room for rowCapacity values of
+   * valueWidth bytes.
+   */
+  private static long getZoneMapOffset(int valueWidth, int rowCapacity) {
+    return getNullBitmapOffset(valueWidth, rowCapacity)
+        + (long) getNullBitmapWordCount(rowCapacity) * Long.BYTES;
+  }
+
+  /*
+   * Creates the little endian buffer used to batch writes to a column file.
+   */
+  private static ByteBuffer newWriteBuffer() {
+    return ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /*
+   * Puts the header of a column file into buffer. The data section immediately follows the header,
+   * the null bitmap immediately follows the room for rowCapacity values in the data section and
+   * the zone map immediately follows the room for rowCapacity bits in the null bitmap.
+   */
+  private static void writeHeader(ByteBuffer buffer, byte type, int valueWidth, int rowCount,
+      int nullCount, int blockCount, int rowCapacity) {
+    long dataOffset = HEADER_SIZE;
+    long nullBitmapOffset = getNullBitmapOffset(valueWidth, rowCapacity);
+    long zoneMapOffset = getZoneMapOffset(valueWidth, rowCapacity);
+
+    buffer.putInt(MAGIC);
+    buffer.put(FORMAT_VERSION);
+    buffer.put(type);
+    buffer.putShort((short) valueWidth);
+    buffer.putInt(rowCount);
+    buffer.putInt(nullCount);
+    buffer.putLong(dataOffset);
+    buffer.putLong(nullBitmapOffset);
+    buffer.putInt(ZoneMap.BLOCK_SIZE);
+    buffer.putInt(blockCount);
+    buffer.putLong(zoneMapOffset);
+    buffer.putInt(rowCapacity);
+    buffer.position(HEADER_SIZE);
+  }
+
+  /*
+   * Puts the null bitmap of rowCount rows into buffer, padding the words missing from the end of
+   * the validity vector with zeros.
+   */
+  private static void writeNullBitmap(FileChannel channel, ByteBuffer buffer, long[] words,
+      int rowCount) throws IOException {
+    int wordCount = getNullBitmapWordCount(rowCount);
+    for (int i = 0; i < wordCount; i++) {
+      flushIfFull(channel, buffer, Long.BYTES);
+      buffer.putLong(i < words.length ? words[i] : 0L);
+    }
+  }
+
+  /*
+   * Writes the block minimums, maximums and null counts of the zone map at zoneMapOffset, each
+   * array with room for blockCapacity blocks.
+   */
+  private static void writeZoneMap(FileChannel channel, ByteBuffer buffer, ZoneMap zoneMap,
+      long zoneMapOffset, int blockCapacity) throws IOException {
+    int blockCount = zoneMap.getBlockCount();
+    flush(channel, buffer);
+    channel.position(zoneMapOffset);
+    for (int i = 0; i < blockCount; i++) {
+      flushIfFull(channel, buffer, Double.BYTES);
+      buffer.putDouble(zoneMap.getMinimum(i));
+    }
+    flush(channel, buffer);
+    channel.position(zoneMapOffset + (long) blockCapacity * Double.BYTES);
+    for (int i = 0; i < blockCount; i++) {
+      flushIfFull(channel, buffer, Double.BYTES);
+      buffer.putDouble(zoneMap.getMaximum(i));
+    }
+    flush(channel, buffer);
+    channel.position(zoneMapOffset + 2L * blockCapacity * Double.BYTES);
+    for (int i = 0; i < blockCount; i++) {
+      flushIfFull(channel, buffer, Integer.BYTES);
+      buffer.putInt(zoneMap.getNullCount(i));
+    }
+    flush(channel, buffer);
+  }
+
+  /*
+   * Writes buffer to channel if it does not have room for another required bytes.
+   */
+  private static void flushIfFull(FileChannel channel, ByteBuffer buffer, int required)
+      throws IOException {
+    if (buffer.remaining() < required) {
+      flush(channel, buffer);
+    }
+  }
+
+  /*
+   * Writes the content of buffer to channel and clears buffer.
+   */
+  private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}
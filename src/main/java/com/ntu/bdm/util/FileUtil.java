@@ -4,12 +4,16 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
 
 /********************************************************
  * FileUtil is utility class which contains just static
  * methods and cannot be instantiated. It provides
- * methods to read bytes from text files and write bytes
- * to text files.
+ * methods to read bytes from text files, write bytes
+ * to text files and list the files of a directory.
  *
  ********************************************************/
 public class FileUtil {
@@ -46,4 +50,26 @@ public class FileUtil {
       e.printStackTrace();
     }
   }
+
+  /**
+   * List the names of the files in a directory which end with the extension, with the extension
+   * removed and in sorted order.
+   *
+   * @param directoryPath the directory path
+   * @param extension     the extension, e.g. ".txt"
+   * @return the file names
+   */
+  public static List<String> listFileNamesWithExtension(String directoryPath, String extension) {
+    List<String> fileNames = new ArrayList<>();
+    try (Stream<Path> paths = Files.list(Path.of(directoryPath))) {
+      paths.map(path -> path.getFileName().toString())
+          .filter(fileName -> fileName.endsWith(extension))
+          .forEach(fileName -> fileNames.add(
+              fileName.substring(0, fileName.length() - extension.length())));
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    Collections.sort(fileNames);
+    return fileNames;
+  }
 }
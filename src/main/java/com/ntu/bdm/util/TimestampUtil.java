@@ -1,13 +1,24 @@
 package com.ntu.bdm.util;
 
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.time.Month;
+import java.time.Year;
 
 /********************************************************
  * TimestampUtil is utility class which contains just
  * static methods and cannot be instantiated. It provides
- * methods to parse year, month and date strings from a
- * timestamp string having pattern "yyyy-MM-dd HH:mm".
+ * methods to parse a timestamp string having pattern
+ * "yyyy-MM-dd HH:mm" into an epoch minute, and to get
+ * year, month and date strings from an epoch minute.
+ *
+ * An epoch minute is the number of minutes between
+ * 1970-01-01 00:00 and the timestamp, both taken in the
+ * local time of the input data, so no time zone
+ * conversion is ever applied. Parsing reads the fixed
+ * layout of the pattern digit by digit and the calendar
+ * fields are derived with integer arithmetic, so neither
+ * allocates. A day past the end of its month, e.g.
+ * 2021-02-31, is clamped to the last day of the month,
+ * as the baseline DateTimeFormatter parse did.
  *
  ********************************************************/
 public class TimestampUtil {
@@ -16,41 +27,206 @@ public class TimestampUtil {
   }
 
   /**
-   * The constant formatTimeStamp holds pattern for timestamp string.
+   * The constant TIMESTAMP_LENGTH holds the length of a timestamp string.
    */
-  private static final DateTimeFormatter formatTimeStamp = DateTimeFormatter.ofPattern(
-      "yyyy-MM-dd HH:mm");
+  public static final int TIMESTAMP_LENGTH = "yyyy-MM-dd HH:mm".length();
+
+  private static final int MINUTES_PER_DAY = 24 * 60;
+  private static final int FIRST_CACHED_YEAR = 1900;
+  private static final String[] YEAR_STRINGS = new String[300];
+  private static final String[] MONTH_STRINGS = new String[12];
+
+  static {
+    for (int i = 0; i < YEAR_STRINGS.length; i++) {
+      YEAR_STRINGS[i] = String.valueOf(FIRST_CACHED_YEAR + i);
+    }
+    for (Month month : Month.values()) {
+      MONTH_STRINGS[month.ordinal()] = String.valueOf(month);
+    }
+  }
 
   /**
-   * Parse and get year string.
+   * Parse a timestamp string into an epoch minute.
    *
    * @param timestamp the timestamp
+   * @return the epoch minute
+   */
+  public static long parseEpochMinute(String timestamp) {
+    return parseEpochMinute(timestamp.toCharArray(), 0, timestamp.length());
+  }
+
+  /**
+   * Parse the timestamp of length characters starting at offset of chars into an epoch minute. A
+   * day past the end of its month is clamped to the last day of the month.
+   *
+   * @param chars  the chars
+   * @param offset the offset of the first character of the timestamp
+   * @param length the length of the timestamp
+   * @return the epoch minute
+   */
+  public static long parseEpochMinute(char[] chars, int offset, int length) {
+    if (length != TIMESTAMP_LENGTH) {
+      throw new IllegalArgumentException("Invalid timestamp " + new String(chars, offset, length));
+    }
+    if (chars[offset + 4] != '-' || chars[offset + 7] != '-' || chars[offset + 10] != ' '
+        || chars[offset + 13] != ':') {
+      throw new IllegalArgumentException(
+          "Invalid timestamp " + new String(chars, offset, TIMESTAMP_LENGTH));
+    }
+
+    int year = parseDigits(chars, offset, 4);
+    int month = parseDigits(chars, offset + 5, 2);
+    int day = parseDigits(chars, offset + 8, 2);
+    int hour = parseDigits(chars, offset + 11, 2);
+    int minute = parseDigits(chars, offset + 14, 2);
+
+    if (month < 1 || month > 12 || day < 1 || day > 31 || hour > 23 || minute > 59) {
+      throw new IllegalArgumentException(
+          "Invalid timestamp " + new String(chars, offset, TIMESTAMP_LENGTH));
+    }
+
+    day = Math.min(day, Month.of(month).length(Year.isLeap(year)));
+
+    return (epochDay(year, month, day) * MINUTES_PER_DAY) + hour * 60 + minute;
+  }
+
+  /**
+   * Get year string of an epoch minute.
+   *
+   * @param epochMinute the epoch minute
    * @return the string
    */
-  public static String parseAndGetYear(String timestamp) {
-    LocalDate localDate = LocalDate.parse(timestamp, formatTimeStamp);
-    return String.valueOf(localDate.getYear());
+  public static String getYear(long epochMinute) {
+    int year = getYearNumber(epochMinute);
+    int index = year - FIRST_CACHED_YEAR;
+    return index >= 0 && index < YEAR_STRINGS.length ? YEAR_STRINGS[index] : String.valueOf(year);
   }
 
   /**
-   * Parse and get month string.
+   * Get month string of an epoch minute, e.g. "JANUARY".
    *
-   * @param timestamp the timestamp
+   * @param epochMinute the epoch minute
    * @return the string
    */
-  public static String parseAndGetMonth(String timestamp) {
-    LocalDate localDate = LocalDate.parse(timestamp, formatTimeStamp);
-    return String.valueOf(localDate.getMonth());
+  public static String getMonth(long epochMinute) {
+    return MONTH_STRINGS[getMonthNumber(epochMinute) - 1];
   }
 
   /**
-   * Parse and get date string.
+   * Get date string of an epoch minute, having pattern "yyyy-MM-dd".
    *
-   * @param timestamp the timestamp
+   * @param epochMinute the epoch minute
+   * @return the string
+   */
+  public static String getDate(long epochMinute) {
+    long civil = civilFromEpochDay(Math.floorDiv(epochMinute, MINUTES_PER_DAY));
+    char[] chars = new char[10];
+    writeDate(chars, civil);
+    return new String(chars);
+  }
+
+  /**
+   * Get timestamp string of an epoch minute, having pattern "yyyy-MM-dd HH:mm".
+   *
+   * @param epochMinute the epoch minute
    * @return the string
    */
-  public static String parseAndGetDate(String timestamp) {
-    LocalDate localDate = LocalDate.parse(timestamp, formatTimeStamp);
-    return localDate.toString();
+  public static String getTimestamp(long epochMinute) {
+    long civil = civilFromEpochDay(Math.floorDiv(epochMinute, MINUTES_PER_DAY));
+    int minuteOfDay = Math.floorMod(epochMinute, MINUTES_PER_DAY);
+    char[] chars = new char[TIMESTAMP_LENGTH];
+    writeDate(chars, civil);
+    chars[10] = ' ';
+    writeDigits(chars, 11, minuteOfDay / 60, 2);
+    chars[13] = ':';
+    writeDigits(chars, 14, minuteOfDay % 60, 2);
+    return new String(chars);
+  }
+
+  /**
+   * Get the year of an epoch minute as a number.
+   *
+   * @param epochMinute the epoch minute
+   * @return the year
+   */
+  public static int getYearNumber(long epochMinute) {
+    return (int) (civilFromEpochDay(Math.floorDiv(epochMinute, MINUTES_PER_DAY)) >> 9);
+  }
+
+  /**
+   * Get the month of an epoch minute as a number from 1 to 12.
+   *
+   * @param epochMinute the epoch minute
+   * @return the month
+   */
+  public static int getMonthNumber(long epochMinute) {
+    return (int) (civilFromEpochDay(Math.floorDiv(epochMinute, MINUTES_PER_DAY)) >> 5) & 0xF;
+  }
+
+  /*
+   * Gets the number of days between 1970-01-01 and the date in the proleptic Gregorian calendar.
+   * The year is shifted to start in March so that the leap day falls at its end.
+   */
+  private static long epochDay(int year, int month, int day) {
+    long y = month <= 2 ? year - 1 : year;
+    long era = Math.floorDiv(y, 400);
+    long yearOfEra = y - era * 400;
+    long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+    long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097 + dayOfEra - 719468;
+  }
+
+  /*
+   * Gets the date of an epoch day, the inverse of epochDay. The year, month and day are packed
+   * into a single long as year << 9 | month << 5 | day so that nothing is allocated.
+   */
+  private static long civilFromEpochDay(long epochDay) {
+    long z = epochDay + 719468;
+    long era = Math.floorDiv(z, 146097);
+    long dayOfEra = z - era * 146097;
+    long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    long shiftedMonth = (5 * dayOfYear + 2) / 153;
+    long day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+    long month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+    long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+    return (year << 9) | (month << 5) | day;
+  }
+
+  /*
+   * Writes the packed date as "yyyy-MM-dd" into the first ten chars.
+   */
+  private static void writeDate(char[] chars, long civil) {
+    writeDigits(chars, 0, (int) (civil >> 9), 4);
+    chars[4] = '-';
+    writeDigits(chars, 5, (int) (civil >> 5) & 0xF, 2);
+    chars[7] = '-';
+    writeDigits(chars, 8, (int) civil & 0x1F, 2);
+  }
+
+  /*
+   * Parses count decimal digits starting at offset.
+   */
+  private static int parseDigits(char[] chars, int offset, int count) {
+    int value = 0;
+    for (int i = offset; i < offset + count; i++) {
+      int digit = chars[i] - '0';
+      if (digit < 0 || digit > 9) {
+        throw new IllegalArgumentException(
+            "Invalid digit in timestamp " + new String(chars, offset, count));
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  /*
+   * Writes value as count zero-padded decimal digits starting at offset.
+   */
+  private static void writeDigits(char[] chars, int offset, int value, int count) {
+    for (int i = offset + count - 1; i >= offset; i--) {
+      chars[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
   }
 }
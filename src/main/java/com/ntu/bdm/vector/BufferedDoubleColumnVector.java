@@ -0,0 +1,103 @@
+package com.ntu.bdm.vector;
+
+import com.ntu.bdm.buffer.BufferPool;
+import com.ntu.bdm.buffer.ColumnFile;
+import com.ntu.bdm.buffer.DoubleColumnPage;
+import com.ntu.bdm.util.ColumnFileUtil;
+
+/********************************************************
+ * BufferedDoubleColumnVector is a read-only container
+ * class which represents a column of primitive doubles
+ * stored in a binary column file written by
+ * {@link ColumnFileUtil}, read through a
+ * {@link BufferPool}.
+ *
+ * Values are read from the decoded page holding them.
+ * The last page read is remembered, so consecutive reads
+ * from the same page do not go through the pool.
+ *
+ ********************************************************/
+public class BufferedDoubleColumnVector implements DoubleColumn {
+
+  private final BufferPool bufferPool;
+  private final ColumnFile columnFile;
+  private DoubleColumnPage currentPage;
+
+  /**
+   * Instantiates a new BufferedDoubleColumnVector reading the column file at filePath through
+   * bufferPool.
+   *
+   * @param bufferPool the buffer pool
+   * @param filePath   the file path
+   */
+  public BufferedDoubleColumnVector(BufferPool bufferPool, String filePath) {
+    this.bufferPool = bufferPool;
+    columnFile = bufferPool.getColumnFile(filePath, ColumnFileUtil.TYPE_DOUBLE);
+  }
+
+  /**
+   * Gets the number of elements in the column file.
+   *
+   * @return number of elements
+   */
+  @Override
+  public int getValueCount() {
+    return columnFile.getValueCount();
+  }
+
+  /**
+   * Returns number of null elements in the column file.
+   *
+   * @return number of null elements
+   */
+  @Override
+  public int getNullCount() {
+    return columnFile.getNullCount();
+  }
+
+  /**
+   * Get the element at the given index from the column file.
+   *
+   * @param index position of element
+   * @return element at given index
+   */
+  @Override
+  public double get(int index) {
+    return getPage(index).get(index);
+  }
+
+  /**
+   * Check whether an element in the column file is null.
+   *
+   * @param index index to check for null
+   * @return true if element is null
+   */
+  @Override
+  public boolean isNull(int index) {
+    return getPage(index).isNull(index);
+  }
+
+  /**
+   * Gets the zone map stored in the column file.
+   *
+   * @return the zone map
+   */
+  @Override
+  public ZoneMap getZoneMap() {
+    return columnFile.getZoneMap();
+  }
+
+  /*
+   * Gets the page holding the index. The page is read into a local variable first, as the tasks of
+   * a parallel query may replace currentPage concurrently.
+   */
+  private DoubleColumnPage getPage(int index) {
+    int pageNumber = index >>> BufferPool.PAGE_SHIFT;
+    DoubleColumnPage page = currentPage;
+    if (page == null || page.getPageNumber() != pageNumber) {
+      page = bufferPool.getDoublePage(columnFile, pageNumber);
+      currentPage = page;
+    }
+    return page;
+  }
+}
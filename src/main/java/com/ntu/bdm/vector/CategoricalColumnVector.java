@@ -1,49 +1,448 @@
 package com.ntu.bdm.vector;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /********************************************************
- * CategoricalColumnVector is a container class that is
- * an extension to {@link ColumnVector}. It represents a
- * column with discrete values of type T. T can be
- * Integer, String, Double, Boolean etc.
+ * CategoricalColumnVector is a container class which
+ * represents a column with discrete values of type T. T
+ * can be Integer, String, Double, Boolean etc.
  *
- * Additional metadata stored is the discrete values
- * inside data vector. The discrete values are stored in
- * categories hashset that only stores unique values.
+ * The column is dictionary encoded. Every distinct
+ * value is stored once in the dictionary and is given
+ * an integer code, which is its position inside the
+ * dictionary. The data vector only stores the code of
+ * each element. Codes are packed into a byte array
+ * while the dictionary has at most 256 categories, and
+ * are widened into an int array once it grows beyond
+ * that.
+ *
+ * While the column holds long runs of the same value,
+ * as the time ordered Station, Year and Month columns
+ * do, the codes are run length encoded instead. Each
+ * run stores its code and the exclusive end of its
+ * positions, and a run of nulls has the code -1. The
+ * column starts run length encoded, and is decoded
+ * into a code vector once runs are shorter than
+ * MIN_AVERAGE_RUN_LENGTH on average, as a code vector
+ * is then smaller. Runs are exposed so that operators
+ * can evaluate a whole run at once.
+ *
+ * Metadata includes number of elements, number of null
+ * elements as well a validity vector in the same manner
+ * as {@link ColumnVector}.
+ *
+ * Codes are never written again once inserted, so a
+ * {@link #snapshot()} shares the code vector. The runs,
+ * whose last end grows as elements are inserted, and the
+ * dictionary are copied.
  *
  ********************************************************/
-public class CategoricalColumnVector<T> extends ColumnVector<T> {
+public class CategoricalColumnVector<T> {
+
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final int MAX_BYTE_CODE_CATEGORIES = 256;
+  private static final int INITIAL_RUN_CAPACITY = 16;
+  private static final int MIN_AVERAGE_RUN_LENGTH = 16;
+  private static final int NULL_CODE = -1;
 
-  private Set<T> categories;
+  private int valueCount;
+  private int nullCount;
+  private BitSet validityVector;
+  private List<T> dictionary;
+  private Map<T, Integer> codeLookup;
+  private byte[] byteCodeVector;
+  private int[] intCodeVector;
+  private int runCount;
+  private int[] runEnds;
+  private int[] runCodes;
+  private T lastValue;
+  private int lastCode;
+  private final boolean readOnly;
 
   /**
    * Instantiates a new CategoricalColumnVector.
    */
   public CategoricalColumnVector() {
-    super();
-    categories = new HashSet<>();
+    valueCount = 0;
+    nullCount = 0;
+    validityVector = new BitSet();
+    dictionary = new ArrayList<>();
+    codeLookup = new HashMap<>();
+    byteCodeVector = null;
+    intCodeVector = null;
+    runCount = 0;
+    runEnds = new int[INITIAL_RUN_CAPACITY];
+    runCodes = new int[INITIAL_RUN_CAPACITY];
+    lastValue = null;
+    lastCode = -1;
+    readOnly = false;
+  }
+
+  /*
+   * Instantiates a read-only CategoricalColumnVector holding the elements of another vector.
+   */
+  private CategoricalColumnVector(CategoricalColumnVector<T> other) {
+    valueCount = other.valueCount;
+    nullCount = other.nullCount;
+    dictionary = Collections.unmodifiableList(new ArrayList<>(other.dictionary));
+    codeLookup = Collections.unmodifiableMap(new HashMap<>(other.codeLookup));
+    byteCodeVector = other.byteCodeVector;
+    intCodeVector = other.intCodeVector;
+    runCount = other.runCount;
+    if (other.runEnds != null) {
+      validityVector = new BitSet();
+      runEnds = Arrays.copyOf(other.runEnds, runCount);
+      runCodes = Arrays.copyOf(other.runCodes, runCount);
+    } else {
+      validityVector = (BitSet) other.validityVector.clone();
+      runEnds = null;
+      runCodes = null;
+    }
+    lastValue = null;
+    lastCode = -1;
+    readOnly = true;
+  }
+
+  /**
+   * Gets the number of elements in the data vector.
+   *
+   * @return number of elements
+   */
+  public int getValueCount() {
+    return valueCount;
+  }
+
+  /**
+   * Returns number of null elements in the data vector.
+   *
+   * @return number of null elements
+   */
+  public int getNullCount() {
+    return nullCount;
+  }
+
+  /**
+   * Get the element at the given index from the data vector.
+   *
+   * @param index position of element
+   * @return element at given index, or null if element is null
+   */
+  public T get(int index) {
+    if (isNull(index)) {
+      return null;
+    }
+    return dictionary.get(getCode(index));
+  }
+
+  /**
+   * Get the dictionary code of the element at the given index from the data vector. The result is
+   * undefined if the element is null, use {@link #isNull(int)} to check first.
+   *
+   * @param index position of element
+   * @return code of element at given index
+   */
+  public int getCode(int index) {
+    if (runEnds != null) {
+      return runCodes[findRun(index)];
+    }
+    if (intCodeVector != null) {
+      return intCodeVector[index];
+    }
+    return byteCodeVector[index] & 0xFF;
+  }
+
+  /**
+   * Gets the dictionary code of a category.
+   *
+   * @param category the category
+   * @return the code, or -1 if category is not present in the dictionary
+   */
+  public int getCodeForCategory(T category) {
+    Integer code = codeLookup.get(category);
+    return code == null ? -1 : code;
+  }
+
+  /**
+   * Check whether an element in the data vector is null.
+   *
+   * @param index index to check for null
+   * @return true if element is null
+   */
+  public boolean isNull(int index) {
+    if (runEnds != null) {
+      return runCodes[findRun(index)] == NULL_CODE;
+    }
+    return !validityVector.get(index);
+  }
+
+  /**
+   * Gets the validity vector. A run length encoded column builds it from its runs.
+   *
+   * @return bitmap tracking which elements in the data vector are null
+   */
+  public BitSet getValidityVector() {
+    if (runEnds == null) {
+      return validityVector;
+    }
+    BitSet runValidityVector = new BitSet();
+    for (int run = 0; run < runCount; run++) {
+      if (runCodes[run] != NULL_CODE) {
+        runValidityVector.set(getRunStart(run), runEnds[run]);
+      }
+    }
+    return runValidityVector;
+  }
+
+  /**
+   * Check whether the data vector is run length encoded.
+   *
+   * @return true if the data vector is run length encoded
+   */
+  public boolean isRunLengthEncoded() {
+    return runEnds != null;
+  }
+
+  /**
+   * Gets the number of runs of a run length encoded data vector.
+   *
+   * @return number of runs
+   */
+  public int getRunCount() {
+    return runCount;
+  }
+
+  /**
+   * Gets the first position of a run of a run length encoded data vector.
+   *
+   * @param run the run
+   * @return the inclusive start position of run
+   */
+  public int getRunStart(int run) {
+    return run == 0 ? 0 : runEnds[run - 1];
   }
 
   /**
-   * Gets unique elements in data vector.
+   * Gets the end position of a run of a run length encoded data vector.
+   *
+   * @param run the run
+   * @return the exclusive end position of run
+   */
+  public int getRunEnd(int run) {
+    return runEnds[run];
+  }
+
+  /**
+   * Gets the dictionary code shared by the elements of a run of a run length encoded data vector.
+   *
+   * @param run the run
+   * @return the code of run, or -1 if its elements are null
+   */
+  public int getRunCode(int run) {
+    return runCodes[run];
+  }
+
+  /**
+   * Finds the run of a run length encoded data vector holding the element at the given index.
+   *
+   * @param index position of element
+   * @return the run holding index
+   */
+  public int findRun(int index) {
+    int low = 0;
+    int high = runCount - 1;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (runEnds[middle] <= index) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Gets the exclusive end position of the stretch of elements from the given index that share
+   * its code. It is the end of the run of index for a run length encoded data vector, and the next
+   * index otherwise.
+   *
+   * @param index position of element
+   * @return the exclusive end position
+   */
+  public int getRunEndForIndex(int index) {
+    if (runEnds != null) {
+      return runEnds[findRun(index)];
+    }
+    return index + 1;
+  }
+
+  /**
+   * Gets unique elements in data vector. The position of each element in the list is its code.
    *
    * @return the categories
    */
-  public Set<T> getCategories() {
-    return categories;
+  public List<T> getCategories() {
+    return dictionary;
+  }
+
+  /**
+   * Gets a read-only snapshot of the elements currently in the data vector. Elements inserted
+   * afterwards are not part of the snapshot, and once handed over through a volatile field it can
+   * be read by other threads while elements are inserted.
+   *
+   * @return the snapshot
+   */
+  public CategoricalColumnVector<T> snapshot() {
+    return new CategoricalColumnVector<>(this);
   }
 
   /**
-   * Insert non-null elements into the categories hashset before calling {@link
-   * ColumnVector#add(Object)}.
+   * Insert value into the data vector and increment number of elements in data vector.
+   *
+   * If value is not null, its code is looked up from the dictionary, adding the value to the
+   * dictionary if it is a new category, and the bit representing index of value in data vector is
+   * flipped to 1 in validity vector. Else, increment number of null elements in data vector.
+   *
+   * @param value the value
    */
-  @Override
   public void add(T value) {
+    if (readOnly) {
+      throw new IllegalStateException("Snapshot of a column vector is read-only");
+    }
+    if (runEnds != null) {
+      addToRuns(value);
+      return;
+    }
+
+    ensureCapacity();
     if (value != null) {
-      categories.add(value);
+      int code = lookupOrAddCode(value);
+      if (intCodeVector != null) {
+        intCodeVector[valueCount] = code;
+      } else {
+        byteCodeVector[valueCount] = (byte) code;
+      }
+      validityVector.set(valueCount);
+    } else {
+      nullCount++;
+    }
+    valueCount++;
+  }
+
+  /*
+   * Appends value to the runs, extending the last run if it has the same code, then decodes the
+   * runs once they have become too short on average.
+   */
+  private void addToRuns(T value) {
+    int code = NULL_CODE;
+    if (value != null) {
+      code = lookupOrAddCode(value);
+    } else {
+      nullCount++;
+    }
+
+    if (runCount > 0 && runCodes[runCount - 1] == code) {
+      runEnds[runCount - 1]++;
+    } else {
+      if (runCount == runEnds.length) {
+        runEnds = Arrays.copyOf(runEnds, runEnds.length * 2);
+        runCodes = Arrays.copyOf(runCodes, runCodes.length * 2);
+      }
+      runCodes[runCount] = code;
+      runEnds[runCount] = valueCount + 1;
+      runCount++;
+    }
+    valueCount++;
+
+    if (valueCount >= INITIAL_CAPACITY && (long) runCount * MIN_AVERAGE_RUN_LENGTH > valueCount) {
+      decodeRuns();
+    }
+  }
+
+  /*
+   * Converts the runs into a code vector and a validity vector, which are smaller once runs are
+   * short.
+   */
+  private void decodeRuns() {
+    int capacity = Math.max(INITIAL_CAPACITY, valueCount * 2);
+    if (dictionary.size() > MAX_BYTE_CODE_CATEGORIES) {
+      intCodeVector = new int[capacity];
+    } else {
+      byteCodeVector = new byte[capacity];
+    }
+
+    for (int run = 0; run < runCount; run++) {
+      int code = runCodes[run];
+      if (code == NULL_CODE) {
+        continue;
+      }
+      int start = getRunStart(run);
+      if (intCodeVector != null) {
+        Arrays.fill(intCodeVector, start, runEnds[run], code);
+      } else {
+        Arrays.fill(byteCodeVector, start, runEnds[run], (byte) code);
+      }
+      validityVector.set(start, runEnds[run]);
+    }
+
+    runCount = 0;
+    runEnds = null;
+    runCodes = null;
+  }
+
+  /*
+   * Gets the code of value, adding it to the dictionary first if it is a new category. Consecutive
+   * rows very often hold the same category, so the previous value is checked before the hash
+   * lookup.
+   */
+  private int lookupOrAddCode(T value) {
+    if (value == lastValue || value.equals(lastValue)) {
+      return lastCode;
+    }
+
+    Integer code = codeLookup.get(value);
+    if (code == null) {
+      code = dictionary.size();
+      dictionary.add(value);
+      codeLookup.put(value, code);
+      if (dictionary.size() > MAX_BYTE_CODE_CATEGORIES && byteCodeVector != null) {
+        widenCodeVector();
+      }
+    }
+
+    lastValue = value;
+    lastCode = code;
+    return code;
+  }
+
+  /*
+   * Converts the packed byte code vector into an int code vector once there are more categories
+   * than a byte can represent.
+   */
+  private void widenCodeVector() {
+    intCodeVector = new int[byteCodeVector.length];
+    for (int i = 0; i < valueCount; i++) {
+      intCodeVector[i] = byteCodeVector[i] & 0xFF;
+    }
+    byteCodeVector = null;
+  }
+
+  /*
+   * Doubles the capacity of the code vector when it is full.
+   */
+  private void ensureCapacity() {
+    if (intCodeVector != null) {
+      if (valueCount == intCodeVector.length) {
+        intCodeVector = Arrays.copyOf(intCodeVector, intCodeVector.length * 2);
+      }
+    } else if (valueCount == byteCodeVector.length) {
+      byteCodeVector = Arrays.copyOf(byteCodeVector, byteCodeVector.length * 2);
     }
-    super.add(value);
   }
 }
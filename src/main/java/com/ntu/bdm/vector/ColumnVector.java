@@ -2,6 +2,7 @@ package com.ntu.bdm.vector;
 
 import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 
 /********************************************************
@@ -37,6 +38,16 @@ public class ColumnVector<T> {
     dataVector = new ArrayList<>();
   }
 
+  /*
+   * Instantiates a read-only ColumnVector holding a copy of the elements of another vector.
+   */
+  private ColumnVector(ColumnVector<T> other) {
+    valueCount = other.valueCount;
+    nullCount = other.nullCount;
+    validityVector = (BitSet) other.validityVector.clone();
+    dataVector = Collections.unmodifiableList(new ArrayList<>(other.dataVector));
+  }
+
   /**
    * Gets the number of elements in the data vector.
    *
@@ -93,6 +104,16 @@ public class ColumnVector<T> {
     return dataVector;
   }
 
+  /**
+   * Gets a read-only snapshot of the elements currently in the data vector. Unlike the primitive
+   * column vectors, the elements are copied.
+   *
+   * @return the snapshot
+   */
+  public ColumnVector<T> snapshot() {
+    return new ColumnVector<>(this);
+  }
+
   /**
    * Insert value into the data vector and increment number of elements in data vector.
    *
@@ -0,0 +1,216 @@
+package com.ntu.bdm.vector;
+
+import com.ntu.bdm.aggregate.MinMaxGroup;
+import com.ntu.bdm.bitmap.IntList;
+import com.ntu.bdm.bitmap.RoaringBitmap;
+
+/********************************************************
+ * DoubleColumn is the read interface of a column of
+ * primitive doubles. It is implemented by
+ * {@link DoubleColumnVector} in main memory, and by
+ * {@link BufferedDoubleColumnVector} on disk, so that the
+ * same aggregation kernels run against any storage.
+ *
+ ********************************************************/
+public interface DoubleColumn {
+
+  /**
+   * Gets the number of elements in the column.
+   *
+   * @return number of elements
+   */
+  int getValueCount();
+
+  /**
+   * Returns number of null elements in the column.
+   *
+   * @return number of null elements
+   */
+  int getNullCount();
+
+  /**
+   * Get the element at the given index from the column. The result is undefined if the element is
+   * null, use {@link #isNull(int)} to check first.
+   *
+   * @param index position of element
+   * @return element at given index
+   */
+  double get(int index);
+
+  /**
+   * Check whether an element in the column is null.
+   *
+   * @param index index to check for null
+   * @return true if element is null
+   */
+  boolean isNull(int index);
+
+  /**
+   * Gets the zone map of the column.
+   *
+   * @return the zone map
+   */
+  ZoneMap getZoneMap();
+
+  /**
+   * Gets the minimum and maximum, with the indexes holding them, from a positionList which
+   * contains valid indexes in increasing order. Null elements are ignored.
+   *
+   * The extreme values are first computed with primitive comparisons only, after which a second
+   * pass collects every index holding one of them. This keeps the comparison loop free of
+   * allocation and avoids repeatedly clearing the index lists whenever a new extreme appears.
+   *
+   * @param positionList the position list
+   * @return the min max
+   */
+  default MinMaxGroup getMinMax(IntList positionList) {
+    IntList minPositionList = new IntList();
+    IntList maxPositionList = new IntList();
+
+    double minimum = Double.POSITIVE_INFINITY;
+    double maximum = Double.NEGATIVE_INFINITY;
+    boolean found = false;
+
+    for (int i = 0, size = positionList.size(); i < size; i++) {
+      int position = positionList.get(i);
+
+      // Check if current value is null
+      if (isNull(position)) {
+        continue;
+      }
+
+      double current = get(position);
+      found = true;
+      if (current < minimum) {
+        minimum = current;
+      }
+      if (current > maximum) {
+        maximum = current;
+      }
+    }
+
+    if (!found) {
+      return new MinMaxGroup();
+    }
+
+    for (int i = 0, size = positionList.size(); i < size; i++) {
+      int position = positionList.get(i);
+
+      if (isNull(position)) {
+        continue;
+      }
+
+      double current = get(position);
+      if (current == minimum) {
+        minPositionList.add(position);
+      }
+      if (current == maximum) {
+        maxPositionList.add(position);
+      }
+    }
+
+    return new MinMaxGroup(minimum, maximum, minPositionList, maxPositionList);
+  }
+
+  /**
+   * Gets the minimum and maximum, with the indexes holding them, from a bitmap whose set bits are
+   * valid indexes. Null elements are ignored.
+   *
+   * The {@link ZoneMap} of the column is used to avoid reading values. Blocks without a valid index
+   * are skipped, and the extremes of blocks whose rows are all valid are taken from their
+   * statistics. Blocks with only some valid rows are scanned only if their range could still widen
+   * the extremes. Finally only blocks whose range contains an extreme are read to collect the
+   * indexes holding it.
+   *
+   * @param bitmap the bitmap of valid indexes
+   * @return the min max
+   */
+  default MinMaxGroup getMinMax(RoaringBitmap bitmap) {
+    IntList minPositionList = new IntList();
+    IntList maxPositionList = new IntList();
+
+    ZoneMap zoneMap = getZoneMap();
+    int blockCount = zoneMap.getBlockCount();
+    int[] coverage = new int[blockCount];
+
+    double minimum = Double.POSITIVE_INFINITY;
+    double maximum = Double.NEGATIVE_INFINITY;
+    boolean found = false;
+
+    // Take the extremes of fully covered blocks from their statistics.
+    for (int block = 0; block < blockCount; block++) {
+      if (!zoneMap.hasValues(block)) {
+        continue;
+      }
+
+      int start = zoneMap.getBlockStart(block);
+      int end = zoneMap.getBlockEnd(block);
+      coverage[block] = bitmap.rangeCardinality(start, end);
+      if (coverage[block] == end - start) {
+        found = true;
+        minimum = Math.min(minimum, zoneMap.getMinimum(block));
+        maximum = Math.max(maximum, zoneMap.getMaximum(block));
+      }
+    }
+
+    // Scan partially covered blocks whose range could still widen the extremes.
+    for (int block = 0; block < blockCount; block++) {
+      int start = zoneMap.getBlockStart(block);
+      int end = zoneMap.getBlockEnd(block);
+      if (coverage[block] == 0 || coverage[block] == end - start
+          || (zoneMap.getMinimum(block) >= minimum && zoneMap.getMaximum(block) <= maximum)) {
+        continue;
+      }
+
+      for (int position = bitmap.nextSetBit(start); position >= 0 && position < end;
+          position = bitmap.nextSetBit(position + 1)) {
+        if (isNull(position)) {
+          continue;
+        }
+
+        double current = get(position);
+        found = true;
+        if (current < minimum) {
+          minimum = current;
+        }
+        if (current > maximum) {
+          maximum = current;
+        }
+      }
+    }
+
+    if (!found) {
+      return new MinMaxGroup();
+    }
+
+    // Collect the indexes holding an extreme from the blocks whose range contains it.
+    for (int block = 0; block < blockCount; block++) {
+      boolean mayHoldMinimum = zoneMap.getMinimum(block) <= minimum;
+      boolean mayHoldMaximum = zoneMap.getMaximum(block) >= maximum;
+      if (coverage[block] == 0 || (!mayHoldMinimum && !mayHoldMaximum)) {
+        continue;
+      }
+
+      int start = zoneMap.getBlockStart(block);
+      int end = zoneMap.getBlockEnd(block);
+      boolean fullyCovered = coverage[block] == end - start;
+      for (int position = fullyCovered ? start : bitmap.nextSetBit(start);
+          position >= 0 && position < end;
+          position = fullyCovered ? position + 1 : bitmap.nextSetBit(position + 1)) {
+        if (isNull(position)) {
+          continue;
+        }
+
+        double current = get(position);
+        if (mayHoldMinimum && current == minimum) {
+          minPositionList.add(position);
+        }
+        if (mayHoldMaximum && current == maximum) {
+          maxPositionList.add(position);
+        }
+      }
+    }
+
+    return new MinMaxGroup(minimum, maximum, minPositionList, maxPositionList);
+  }
+}
@@ -0,0 +1,42 @@
+package com.ntu.bdm.vector;
+
+/********************************************************
+ * LongColumn is the read interface of a column of
+ * primitive longs. It is implemented by
+ * {@link LongColumnVector} in main memory, and by
+ * {@link BufferedLongColumnVector} on disk.
+ *
+ ********************************************************/
+public interface LongColumn {
+
+  /**
+   * Gets the number of elements in the column.
+   *
+   * @return number of elements
+   */
+  int getValueCount();
+
+  /**
+   * Returns number of null elements in the column.
+   *
+   * @return number of null elements
+   */
+  int getNullCount();
+
+  /**
+   * Get the element at the given index from the column. The result is undefined if the element is
+   * null, use {@link #isNull(int)} to check first.
+   *
+   * @param index position of element
+   * @return element at given index
+   */
+  long get(int index);
+
+  /**
+   * Check whether an element in the column is null.
+   *
+   * @param index index to check for null
+   * @return true if element is null
+   */
+  boolean isNull(int index);
+}
@@ -0,0 +1,207 @@
+package com.ntu.bdm.vector;
+
+import com.ntu.bdm.memory.OffHeapArray;
+import com.ntu.bdm.memory.OffHeapMemory;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/********************************************************
+ * LongColumnVector is a container class which
+ * represents a column of primitive longs, such as the
+ * epoch minutes of a timestamp column.
+ *
+ * Data is stored in a growable long array so that no
+ * value is boxed. Null elements occupy a slot in the
+ * data vector and are tracked by the validity vector in
+ * the same manner as {@link DoubleColumnVector}. It is
+ * append-only too, so a {@link #snapshot()} shares its
+ * arrays, and can be held off heap in the same manner.
+ *
+ ********************************************************/
+public class LongColumnVector implements LongColumn {
+
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final int OFF_HEAP_CHUNK_SHIFT = 16;
+  private static final int OFF_HEAP_VALIDITY_CHUNK_SHIFT = OFF_HEAP_CHUNK_SHIFT - 6;
+
+  private int valueCount;
+  private int nullCount;
+  private long[] validityWords;
+  private long[] dataVector;
+  private OffHeapArray offHeapValidityWords;
+  private OffHeapArray offHeapDataVector;
+  private final boolean readOnly;
+
+  /**
+   * Instantiates a new LongColumnVector.
+   */
+  public LongColumnVector() {
+    valueCount = 0;
+    nullCount = 0;
+    validityWords = new long[INITIAL_CAPACITY / Long.SIZE];
+    dataVector = new long[INITIAL_CAPACITY];
+    offHeapValidityWords = null;
+    offHeapDataVector = null;
+    readOnly = false;
+  }
+
+  /**
+   * Instantiates a new LongColumnVector whose data and validity vectors are allocated from
+   * offHeapMemory instead of the heap, in chunks of 2 to the power of OFF_HEAP_CHUNK_SHIFT
+   * elements. Reading the vector once offHeapMemory is closed throws an IllegalStateException.
+   *
+   * @param offHeapMemory the off-heap memory
+   */
+  public LongColumnVector(OffHeapMemory offHeapMemory) {
+    valueCount = 0;
+    nullCount = 0;
+    validityWords = null;
+    dataVector = null;
+    offHeapValidityWords = new OffHeapArray(offHeapMemory, OFF_HEAP_VALIDITY_CHUNK_SHIFT);
+    offHeapDataVector = new OffHeapArray(offHeapMemory, OFF_HEAP_CHUNK_SHIFT);
+    readOnly = false;
+  }
+
+  /*
+   * Instantiates a read-only LongColumnVector sharing the arrays of another vector.
+   */
+  private LongColumnVector(LongColumnVector other) {
+    valueCount = other.valueCount;
+    nullCount = other.nullCount;
+    validityWords = other.validityWords;
+    dataVector = other.dataVector;
+    offHeapValidityWords = other.offHeapValidityWords == null ? null
+        : other.offHeapValidityWords.snapshot();
+    offHeapDataVector = other.offHeapDataVector == null ? null
+        : other.offHeapDataVector.snapshot();
+    readOnly = true;
+  }
+
+  /**
+   * Gets the number of elements in the data vector.
+   *
+   * @return number of elements
+   */
+  @Override
+  public int getValueCount() {
+    return valueCount;
+  }
+
+  /**
+   * Returns number of null elements in the data vector.
+   *
+   * @return number of null elements
+   */
+  @Override
+  public int getNullCount() {
+    return nullCount;
+  }
+
+  /**
+   * Get the element at the given index from the data vector. The result is undefined if the
+   * element is null, use {@link #isNull(int)} to check first.
+   *
+   * @param index position of element
+   * @return element at given index
+   */
+  @Override
+  public long get(int index) {
+    if (offHeapDataVector != null) {
+      return offHeapDataVector.getLong(index);
+    }
+    return dataVector[index];
+  }
+
+  /**
+   * Check whether an element in the data vector is null.
+   *
+   * @param index index to check for null
+   * @return true if element is null
+   */
+  @Override
+  public boolean isNull(int index) {
+    return (getValidityWord(index >>> 6) & (1L << index)) == 0;
+  }
+
+  /**
+   * Gets a copy of the validity vector.
+   *
+   * @return bitmap tracking which elements in the data vector are null
+   */
+  public BitSet getValidityVector() {
+    long[] words = new long[(valueCount + Long.SIZE - 1) / Long.SIZE];
+    for (int i = 0; i < words.length; i++) {
+      words[i] = getValidityWord(i);
+    }
+    return BitSet.valueOf(words);
+  }
+
+  /**
+   * Gets a read-only snapshot of the elements currently in the data vector, sharing its arrays in
+   * the same manner as {@link DoubleColumnVector#snapshot()}.
+   *
+   * @return the snapshot
+   */
+  public LongColumnVector snapshot() {
+    return new LongColumnVector(this);
+  }
+
+  /**
+   * Insert a non-null value into the data vector and increment number of elements in data vector.
+   * The bit representing index of value in data vector is flipped to 1 in validity vector.
+   *
+   * @param value the value
+   */
+  public void add(long value) {
+    ensureCapacity();
+    if (offHeapDataVector != null) {
+      int word = valueCount >>> 6;
+      offHeapValidityWords.setLong(word, offHeapValidityWords.getLong(word) | 1L << valueCount);
+      offHeapDataVector.setLong(valueCount, value);
+    } else {
+      validityWords[valueCount >>> 6] |= 1L << valueCount;
+      dataVector[valueCount] = value;
+    }
+    valueCount++;
+  }
+
+  /**
+   * Insert a null value into the data vector and increment number of elements and number of null
+   * elements in data vector.
+   */
+  public void addNull() {
+    ensureCapacity();
+    nullCount++;
+    valueCount++;
+  }
+
+  /*
+   * Gets a word of the validity vector.
+   */
+  private long getValidityWord(int word) {
+    if (offHeapValidityWords != null) {
+      return offHeapValidityWords.getLong(word);
+    }
+    return validityWords[word];
+  }
+
+  /*
+   * Doubles the capacity of the data and validity vectors when they are full, or allocates their
+   * next chunks when they are off heap. A snapshot cannot be inserted into, as it shares its
+   * arrays.
+   */
+  private void ensureCapacity() {
+    if (readOnly) {
+      throw new IllegalStateException("Snapshot of a column vector is read-only");
+    }
+    if (offHeapDataVector != null) {
+      if (valueCount == offHeapDataVector.getCapacity()) {
+        offHeapDataVector.ensureCapacity(valueCount + 1L);
+        offHeapValidityWords.ensureCapacity((valueCount >>> 6) + 1L);
+      }
+    } else if (valueCount == dataVector.length) {
+      dataVector = Arrays.copyOf(dataVector, dataVector.length * 2);
+      validityWords = Arrays.copyOf(validityWords, dataVector.length / Long.SIZE);
+    }
+  }
+}
@@ -0,0 +1,200 @@
+package com.ntu.bdm.vector;
+
+import java.util.Arrays;
+
+/********************************************************
+ * ZoneMap is a container class which holds statistics
+ * of the blocks of a column of primitive doubles. Block
+ * b covers the rows from b * BLOCK_SIZE inclusive to
+ * (b + 1) * BLOCK_SIZE exclusive, and the last block
+ * ends at the last row of the column.
+ *
+ * For every block it records the minimum and maximum of
+ * its non-null values and its number of null values. A
+ * block holding only nulls has a minimum of positive
+ * infinity and a maximum of negative infinity, so that
+ * it never contributes to an aggregate.
+ *
+ * The statistics let aggregation kernels answer whole
+ * blocks without reading their values, and skip blocks
+ * whose range cannot contain the result.
+ *
+ ********************************************************/
+public class ZoneMap {
+
+  /**
+   * The number of rows in a block, which is a power of two.
+   */
+  public static final int BLOCK_SIZE = 4096;
+
+  /**
+   * The base two logarithm of BLOCK_SIZE.
+   */
+  public static final int BLOCK_SHIFT = Integer.numberOfTrailingZeros(BLOCK_SIZE);
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private int valueCount;
+  private double[] minimums;
+  private double[] maximums;
+  private int[] nullCounts;
+
+  /**
+   * Instantiates a new empty ZoneMap.
+   */
+  public ZoneMap() {
+    valueCount = 0;
+    minimums = new double[INITIAL_CAPACITY];
+    maximums = new double[INITIAL_CAPACITY];
+    nullCounts = new int[INITIAL_CAPACITY];
+  }
+
+  /**
+   * Instantiates a new ZoneMap of a column with valueCount rows from the statistics of its
+   * blocks.
+   *
+   * @param valueCount the number of rows in the column
+   * @param minimums   the minimums of the blocks
+   * @param maximums   the maximums of the blocks
+   * @param nullCounts the null counts of the blocks
+   */
+  public ZoneMap(int valueCount, double[] minimums, double[] maximums, int[] nullCounts) {
+    this.valueCount = valueCount;
+    this.minimums = minimums;
+    this.maximums = maximums;
+    this.nullCounts = nullCounts;
+  }
+
+  /**
+   * Gets the number of rows covered by the zone map.
+   *
+   * @return number of rows
+   */
+  public int getValueCount() {
+    return valueCount;
+  }
+
+  /**
+   * Gets the number of blocks.
+   *
+   * @return the block count
+   */
+  public int getBlockCount() {
+    return (valueCount + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+  }
+
+  /**
+   * Gets the first row of a block.
+   *
+   * @param block the block
+   * @return the block start, inclusive
+   */
+  public int getBlockStart(int block) {
+    return block << BLOCK_SHIFT;
+  }
+
+  /**
+   * Gets the row after the last row of a block.
+   *
+   * @param block the block
+   * @return the block end, exclusive
+   */
+  public int getBlockEnd(int block) {
+    return Math.min((block + 1) << BLOCK_SHIFT, valueCount);
+  }
+
+  /**
+   * Gets the minimum of the non-null values of a block.
+   *
+   * @param block the block
+   * @return the minimum, or positive infinity if the block holds only nulls
+   */
+  public double getMinimum(int block) {
+    return minimums[block];
+  }
+
+  /**
+   * Gets the maximum of the non-null values of a block.
+   *
+   * @param block the block
+   * @return the maximum, or negative infinity if the block holds only nulls
+   */
+  public double getMaximum(int block) {
+    return maximums[block];
+  }
+
+  /**
+   * Gets the number of null values of a block.
+   *
+   * @param block the block
+   * @return the null count
+   */
+  public int getNullCount(int block) {
+    return nullCounts[block];
+  }
+
+  /**
+   * Checks whether a block holds at least one non-null value.
+   *
+   * @param block the block
+   * @return true if the block has a non-null value
+   */
+  public boolean hasValues(int block) {
+    return nullCounts[block] < getBlockEnd(block) - getBlockStart(block);
+  }
+
+  /**
+   * Gets a copy of the statistics of the blocks currently covered, which does not change as
+   * values are recorded afterwards.
+   *
+   * @return the snapshot
+   */
+  public ZoneMap snapshot() {
+    int blockCount = getBlockCount();
+    return new ZoneMap(valueCount, Arrays.copyOf(minimums, blockCount),
+        Arrays.copyOf(maximums, blockCount), Arrays.copyOf(nullCounts, blockCount));
+  }
+
+  /**
+   * Record a non-null value appended to the end of the column.
+   *
+   * @param value the value
+   */
+  public void add(double value) {
+    int block = startRow();
+    if (value < minimums[block]) {
+      minimums[block] = value;
+    }
+    if (value > maximums[block]) {
+      maximums[block] = value;
+    }
+  }
+
+  /**
+   * Record a null value appended to the end of the column.
+   */
+  public void addNull() {
+    int block = startRow();
+    nullCounts[block]++;
+  }
+
+  /*
+   * Counts a new row at the end of the column and returns its block, starting the block if the
+   * row is its first.
+   */
+  private int startRow() {
+    int block = valueCount >>> BLOCK_SHIFT;
+    if ((valueCount & (BLOCK_SIZE - 1)) == 0) {
+      if (block == minimums.length) {
+        minimums = Arrays.copyOf(minimums, block * 2);
+        maximums = Arrays.copyOf(maximums, block * 2);
+        nullCounts = Arrays.copyOf(nullCounts, block * 2);
+      }
+      minimums[block] = Double.POSITIVE_INFINITY;
+      maximums[block] = Double.NEGATIVE_INFINITY;
+      nullCounts[block] = 0;
+    }
+    valueCount++;
+    return block;
+  }
+}
@@ -0,0 +1,224 @@
+package com.ntu.bdm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ntu.bdm.execution.QueryPlanner;
+import com.ntu.bdm.query.Aggregate;
+import com.ntu.bdm.query.AggregateFunction;
+import com.ntu.bdm.query.Predicate;
+import com.ntu.bdm.query.Query;
+import com.ntu.bdm.snapshot.TableSnapshot;
+import com.ntu.bdm.util.TimestampUtil;
+import com.ntu.bdm.vector.CategoricalColumnVector;
+import com.ntu.bdm.vector.DoubleColumn;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/********************************************************
+ * MainMemoryDatabaseSnapshotTest is a stress test of the
+ * snapshots published by the main memory database. One
+ * writer ingests rows in chunks of random size, and
+ * rebuilds the range indexes now and then, while reader
+ * threads plan and execute queries against the latest
+ * snapshot.
+ *
+ * Every result is checked against a brute force scan of
+ * the first getRowCount() rows of the same snapshot, so
+ * a snapshot whose columns, indexes or aggregate cube
+ * disagree on the rows it holds fails the test.
+ *
+ ********************************************************/
+public class MainMemoryDatabaseSnapshotTest {
+
+  private static final String[] STATIONS = new String[]{"Changi", "Paya Lebar"};
+  private static final int ROW_COUNT = 200000;
+  private static final int INITIAL_ROW_COUNT = 5000;
+  private static final int READER_COUNT = 3;
+  private static final int MINUTES_PER_READING = 30;
+  private static final double EMPTY_DATA_PROBABILITY = 0.03;
+
+  @Test
+  public void queriesDuringIngestMatchBruteForceOverTheirSnapshot() throws Exception {
+    List<String[]> csvRows = generateCsvRows();
+    MainMemoryDatabase mainMemoryDatabase = new MainMemoryDatabase();
+    mainMemoryDatabase.initialiseColumnVectors();
+    mainMemoryDatabase.populateColumnVectors(csvRows.subList(0, INITIAL_ROW_COUNT));
+    mainMemoryDatabase.createCategoricalColumnIndexes();
+    mainMemoryDatabase.createRangeColumnIndexes();
+
+    AtomicBoolean ingested = new AtomicBoolean();
+    AtomicLong checkCount = new AtomicLong();
+    Queue<String> failures = new ConcurrentLinkedQueue<>();
+
+    ExecutorService executorService = Executors.newFixedThreadPool(READER_COUNT + 1);
+    List<Future<?>> readers = new ArrayList<>();
+    for (int reader = 0; reader < READER_COUNT; reader++) {
+      Random random = new Random(reader);
+      readers.add(executorService.submit(() -> {
+        long lastVersion = -1;
+        while (!ingested.get()) {
+          TableSnapshot snapshot = mainMemoryDatabase.getSnapshot();
+          if (snapshot.getVersion() < lastVersion) {
+            failures.add("Snapshot version went back from " + lastVersion + " to "
+                + snapshot.getVersion());
+          }
+          lastVersion = snapshot.getVersion();
+          checkSnapshot(snapshot, random, failures);
+          checkCount.incrementAndGet();
+        }
+        return null;
+      }));
+    }
+
+    Future<?> writer = executorService.submit(() -> {
+      Random random = new Random(ROW_COUNT);
+      int position = INITIAL_ROW_COUNT;
+      while (position < csvRows.size()) {
+        int chunkSize = Math.min(csvRows.size() - position, 1 + random.nextInt(20000));
+        mainMemoryDatabase.populateColumnVectors(csvRows.subList(position, position + chunkSize));
+        position += chunkSize;
+        if (random.nextInt(10) == 0) {
+          mainMemoryDatabase.createRangeColumnIndexes();
+        }
+      }
+      ingested.set(true);
+      return null;
+    });
+
+    writer.get();
+    for (Future<?> reader : readers) {
+      reader.get();
+    }
+    executorService.shutdown();
+    assertTrue(executorService.awaitTermination(1, TimeUnit.MINUTES));
+
+    assertEquals(List.of(), new ArrayList<>(failures));
+    assertTrue(checkCount.get() > 0, "No query ran during ingest");
+    assertEquals(ROW_COUNT, mainMemoryDatabase.getSnapshot().getRowCount());
+  }
+
+  /*
+   * Runs a range query, planned through the indexes or as a scan, and a categorical query, answered
+   * from the aggregate cube, against the snapshot and adds a failure for every result differing
+   * from a brute force scan of its rows.
+   */
+  private static void checkSnapshot(TableSnapshot snapshot, Random random, Queue<String> failures) {
+    int rowCount = snapshot.getRowCount();
+    CategoricalColumnVector<String> stationColumnVector =
+        snapshot.getCategoricalColumnVector("Station");
+    CategoricalColumnVector<String> yearColumnVector = snapshot.getCategoricalColumnVector("Year");
+    DoubleColumn temperatureColumn = snapshot.getDoubleColumn("Temperature");
+    DoubleColumn humidityColumn = snapshot.getDoubleColumn("Humidity");
+    if (stationColumnVector.getValueCount() != rowCount
+        || yearColumnVector.getValueCount() != rowCount
+        || temperatureColumn.getValueCount() != rowCount
+        || humidityColumn.getValueCount() != rowCount) {
+      failures.add("Columns of snapshot " + snapshot.getVersion() + " do not hold " + rowCount
+          + " rows");
+      return;
+    }
+
+    String year = String.valueOf(2002 + random.nextInt(4));
+    double lowerBound = 24 + random.nextInt(8);
+    Query rangeQuery = new Query();
+    rangeQuery.addPredicate(Predicate.equalTo("Year", year));
+    rangeQuery.addPredicate(Predicate.between("Temperature", lowerBound, lowerBound + 3));
+    rangeQuery.addAggregate(AggregateFunction.COUNT, Aggregate.ALL_ROWS);
+    rangeQuery.addAggregate(AggregateFunction.MAX, "Humidity");
+
+    String station = STATIONS[random.nextInt(STATIONS.length)];
+    Query cubeQuery = new Query();
+    cubeQuery.addPredicate(Predicate.equalTo("Station", station));
+    cubeQuery.addPredicate(Predicate.equalTo("Year", year));
+    cubeQuery.addAggregate(AggregateFunction.COUNT, Aggregate.ALL_ROWS);
+    cubeQuery.addAggregate(AggregateFunction.MIN, "Temperature");
+
+    long rangeCount = 0;
+    double maxHumidity = Double.NEGATIVE_INFINITY;
+    long cubeCount = 0;
+    double minTemperature = Double.POSITIVE_INFINITY;
+    for (int position = 0; position < rowCount; position++) {
+      if (yearColumnVector.isNull(position) || !yearColumnVector.get(position).equals(year)) {
+        continue;
+      }
+      if (!temperatureColumn.isNull(position) && temperatureColumn.get(position) >= lowerBound
+          && temperatureColumn.get(position) <= lowerBound + 3) {
+        rangeCount++;
+        if (!humidityColumn.isNull(position)) {
+          maxHumidity = Math.max(maxHumidity, humidityColumn.get(position));
+        }
+      }
+      if (!stationColumnVector.isNull(position)
+          && stationColumnVector.get(position).equals(station)) {
+        cubeCount++;
+        if (!temperatureColumn.isNull(position)) {
+          minTemperature = Math.min(minTemperature, temperatureColumn.get(position));
+        }
+      }
+    }
+
+    checkRow(snapshot, rangeQuery, new String[]{String.valueOf(rangeCount),
+        formatValue(maxHumidity)}, failures);
+    checkRow(snapshot, cubeQuery, new String[]{String.valueOf(cubeCount),
+        formatValue(minTemperature)}, failures);
+  }
+
+  /*
+   * Adds a failure if the single output row of the query against the snapshot is not expected.
+   */
+  private static void checkRow(TableSnapshot snapshot, Query query, String[] expected,
+      Queue<String> failures) {
+    String[] row = QueryPlanner.plan(query, snapshot).execute().getRows().get(0);
+    if (!List.of(expected).equals(List.of(row))) {
+      failures.add("Snapshot " + snapshot.getVersion() + " of " + snapshot.getRowCount()
+          + " rows answered " + List.of(row) + " instead of " + List.of(expected));
+    }
+  }
+
+  /*
+   * Formats an aggregated value as the query result does, with the empty data symbol if no value
+   * was aggregated.
+   */
+  private static String formatValue(double value) {
+    return Double.isInfinite(value) ? "M" : String.valueOf(value);
+  }
+
+  /*
+   * Generates the input CSV rows of a reading every 30 minutes for each station in turn, with
+   * missing readings at random.
+   */
+  private static List<String[]> generateCsvRows() {
+    Random random = new Random(ROW_COUNT);
+    long firstEpochMinute = TimestampUtil.parseEpochMinute("2002-01-01 00:00");
+    int rowsPerStation = ROW_COUNT / STATIONS.length;
+    List<String[]> csvRows = new ArrayList<>(ROW_COUNT);
+    for (int id = 0; id < ROW_COUNT; id++) {
+      long epochMinute = firstEpochMinute + (long) (id % rowsPerStation) * MINUTES_PER_READING;
+      csvRows.add(new String[]{String.valueOf(id), TimestampUtil.getTimestamp(epochMinute),
+          STATIONS[id / rowsPerStation], generateReading(random, 2200, 1200),
+          generateReading(random, 4000, 6000)});
+    }
+    return csvRows;
+  }
+
+  /*
+   * Generates the empty data symbol, or a value between first and first plus range hundredths.
+   */
+  private static String generateReading(Random random, int first, int range) {
+    if (random.nextDouble() < EMPTY_DATA_PROBABILITY) {
+      return "M";
+    }
+    return String.valueOf((first + random.nextInt(range + 1)) / 100.0);
+  }
+}